@@ -20,6 +20,8 @@ import spock.lang.Specification
 import spock.lang.Unroll
 
 import static org.gradle.caching.http.internal.DefaultHttpBuildCacheServiceFactory.extractCredentialsFromUserInfo
+import static org.gradle.caching.http.internal.DefaultHttpBuildCacheServiceFactory.maxConnections
+import static org.gradle.caching.http.internal.DefaultHttpBuildCacheServiceFactory.uploaders
 
 @Unroll
 class DefaultHttpBuildCacheServiceFactoryTest extends Specification {
@@ -49,4 +51,26 @@ class DefaultHttpBuildCacheServiceFactoryTest extends Specification {
         credentials.username == 'us'
         credentials.password == 'er:password'
     }
+
+    def "allows a connection per worker for #maxWorkerCount workers"() {
+        expect:
+        maxConnections(maxWorkerCount) == expectedConnections
+
+        where:
+        maxWorkerCount | expectedConnections
+        1              | 20
+        20             | 20
+        40             | 40
+    }
+
+    def "uploads entries in the background over at most half of #maxConnections connections"() {
+        expect:
+        uploaders(maxConnections) == expectedUploaders
+
+        where:
+        maxConnections | expectedUploaders
+        1              | 1
+        20             | 10
+        41             | 20
+    }
 }
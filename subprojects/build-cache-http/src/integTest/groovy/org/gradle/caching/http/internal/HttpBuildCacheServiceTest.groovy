@@ -24,10 +24,15 @@ import org.gradle.caching.BuildCacheException
 import org.gradle.caching.BuildCacheKey
 import org.gradle.caching.BuildCacheService
 import org.gradle.caching.BuildCacheServiceFactory
+import org.gradle.api.internal.file.TmpDirTemporaryFileProvider
 import org.gradle.caching.http.HttpBuildCache
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.DefaultParallelismConfiguration
+import org.gradle.internal.concurrent.ParallelismConfigurationManager
 import org.gradle.internal.resource.transport.http.DefaultSslContextFactory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.test.fixtures.server.http.AuthScheme
+import org.gradle.test.fixtures.server.http.BlockingHttpServer
 import org.gradle.test.fixtures.server.http.HttpResourceInteraction
 import org.gradle.test.fixtures.server.http.HttpServer
 import org.gradle.util.GradleVersion
@@ -36,6 +41,7 @@ import spock.lang.Specification
 
 import javax.servlet.http.HttpServletRequest
 import javax.servlet.http.HttpServletResponse
+import java.util.concurrent.ConcurrentLinkedQueue
 
 class HttpBuildCacheServiceTest extends Specification {
     public static final List<Integer> FATAL_HTTP_ERROR_CODES = [
@@ -52,8 +58,14 @@ class HttpBuildCacheServiceTest extends Specification {
     @Rule
     HttpServer server = new HttpServer()
     @Rule
+    BlockingHttpServer blockingServer = new BlockingHttpServer()
+    @Rule
     TestNameTestDirectoryProvider tempDir = new TestNameTestDirectoryProvider()
 
+    def parallelismConfigurationManager = Stub(ParallelismConfigurationManager) {
+        getParallelismConfiguration() >> new DefaultParallelismConfiguration(true, 40)
+    }
+
     BuildCacheService cache
     BuildCacheServiceFactory.Describer buildCacheDescriber
 
@@ -79,7 +91,7 @@ class HttpBuildCacheServiceTest extends Specification {
         def config = new HttpBuildCache()
         config.url = server.uri.resolve("/cache/")
         buildCacheDescriber = new NoopBuildCacheDescriber()
-        cache = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory()).createBuildCacheService(config, buildCacheDescriber)
+        cache = factory(parallelismConfigurationManager).createBuildCacheService(config, buildCacheDescriber)
     }
 
     def "can cache artifact"() {
@@ -267,7 +279,7 @@ class HttpBuildCacheServiceTest extends Specification {
         configuration.url = server.uri.resolve("/cache/")
         configuration.credentials.username = 'user'
         configuration.credentials.password = 'password'
-        cache = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory()).createBuildCacheService(configuration, buildCacheDescriber) as HttpBuildCacheService
+        cache = factory(parallelismConfigurationManager).createBuildCacheService(configuration, buildCacheDescriber) as HttpBuildCacheService
 
         server.authenticationScheme = AuthScheme.BASIC
 
@@ -293,6 +305,101 @@ class HttpBuildCacheServiceTest extends Specification {
         server.authenticationAttempts == ['Basic'] as Set
     }
 
+    def "loads entries concurrently using a connection per worker"() {
+        def workers = 30
+        def configuration = new HttpBuildCache()
+        configuration.url = blockingServer.uri.resolve("/cache/")
+        def parallelismConfigurationManager = Stub(ParallelismConfigurationManager) {
+            getParallelismConfiguration() >> new DefaultParallelismConfiguration(true, workers)
+        }
+        def concurrentCache = factory(parallelismConfigurationManager).createBuildCacheService(configuration, buildCacheDescriber)
+        def keys = (1..workers).collect { cacheKey("entry${it}") }
+        blockingServer.expectConcurrent(keys.collect { "/cache/${it.hashCode}".toString() })
+        blockingServer.start()
+
+        when:
+        def loaded = new ConcurrentLinkedQueue<BuildCacheKey>()
+        keys.collect { key ->
+            Thread.start {
+                if (concurrentCache.load(key) { input -> input.bytes }) {
+                    loaded << key
+                }
+            }
+        }*.join()
+
+        then:
+        loaded.size() == workers
+
+        cleanup:
+        concurrentCache?.close()
+    }
+
+    def "uploads entries in the background when asynchronous stores are enabled"() {
+        def content = "Data".bytes
+        def configuration = new HttpBuildCache()
+        configuration.url = blockingServer.uri.resolve("/cache/")
+        def asyncCache = asyncStoreCache(factory(parallelismConfigurationManager).createBuildCacheService(configuration, buildCacheDescriber))
+        def upload = blockingServer.expectAndBlock(blockingServer.put("/cache/${key.hashCode}"))
+        blockingServer.start()
+
+        when:
+        asyncCache.store(key, writer(content))
+        upload.waitForAllPendingCalls()
+        def loaded = null
+        def found = asyncCache.load(key) { input -> loaded = input.bytes }
+
+        then:
+        found
+        loaded == content
+
+        when:
+        upload.releaseAll()
+        asyncCache.close()
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "rethrows failed background upload on close"() {
+        def asyncCache = asyncStoreCache(cache)
+        expectError(HttpStatus.SC_INTERNAL_SERVER_ERROR, 'PUT')
+
+        when:
+        asyncCache.store(key, writer("Data".bytes))
+        asyncCache.close()
+
+        then:
+        BuildCacheException exception = thrown()
+        exception.message == "Storing entry at '${server.uri}/cache/${key.hashCode}' response status 500: broken"
+    }
+
+    private static BuildCacheService asyncStoreCache(BuildCacheService delegate) {
+        new AsyncStoreHttpBuildCacheService(delegate, new TmpDirTemporaryFileProvider(), new DefaultExecutorFactory(), 1, 1)
+    }
+
+    private static DefaultHttpBuildCacheServiceFactory factory(ParallelismConfigurationManager parallelismConfigurationManager) {
+        new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory(), parallelismConfigurationManager, new DefaultExecutorFactory(), new TmpDirTemporaryFileProvider())
+    }
+
+    private static BuildCacheKey cacheKey(String hashCode) {
+        return new BuildCacheKey() {
+            @Override
+            String getHashCode() {
+                return hashCode
+            }
+
+            @Override
+            String toString() {
+                return hashCode
+            }
+
+            @Override
+            String getDisplayName() {
+                return hashCode
+            }
+        }
+    }
+
     private HttpResourceInteraction expectError(int httpCode, String method) {
         server.expect("/cache/${key.hashCode}", false, [method], new HttpServer.ActionSupport("return ${httpCode} broken") {
             @Override
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.http.internal;
+
+import com.google.common.io.Files;
+import org.gradle.api.internal.file.TemporaryFileProvider;
+import org.gradle.caching.BuildCacheEntryReader;
+import org.gradle.caching.BuildCacheEntryWriter;
+import org.gradle.caching.BuildCacheException;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Uploads entries to an HTTP build cache in the background, so that the worker which stores an entry does not wait for the upload.
+ *
+ * <p>An entry is copied to a temporary file before {@link #store} returns, as the caller may move or delete the file it stores.
+ * The uploads share the pooled connections of the HTTP client with the loads. When too many entries wait for their upload,
+ * the worker uploads the entry itself. An entry which has not been uploaded yet is loaded from its temporary file.</p>
+ *
+ * <p>The first failed upload is rethrown by the next store and by {@link #close()}, which waits for the pending uploads.</p>
+ */
+public class AsyncStoreHttpBuildCacheService implements BuildCacheService {
+
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.http-build-cache.async-store";
+
+    private final BuildCacheService delegate;
+    private final TemporaryFileProvider temporaryFileProvider;
+    private final ManagedExecutor executor;
+    private final Semaphore uploadPermits;
+    private final ConcurrentMap<String, PendingUpload> pendingUploads = new ConcurrentHashMap<String, PendingUpload>();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+    public AsyncStoreHttpBuildCacheService(BuildCacheService delegate, TemporaryFileProvider temporaryFileProvider, ExecutorFactory executorFactory, int uploaders, int maxPendingUploads) {
+        this.delegate = delegate;
+        this.temporaryFileProvider = temporaryFileProvider;
+        this.executor = executorFactory.create("HTTP build cache uploads", uploaders);
+        this.uploadPermits = new Semaphore(maxPendingUploads);
+    }
+
+    @Override
+    public boolean load(BuildCacheKey key, BuildCacheEntryReader reader) throws BuildCacheException {
+        PendingUpload upload = pendingUploads.get(key.getHashCode());
+        if (upload != null && upload.readTo(reader)) {
+            return true;
+        }
+        return delegate.load(key, reader);
+    }
+
+    @Override
+    public void store(final BuildCacheKey key, BuildCacheEntryWriter writer) throws BuildCacheException {
+        rethrowFailure();
+        if (!uploadPermits.tryAcquire()) {
+            delegate.store(key, writer);
+            return;
+        }
+        final PendingUpload upload;
+        try {
+            upload = spool(writer);
+        } catch (RuntimeException e) {
+            uploadPermits.release();
+            throw e;
+        }
+        pendingUploads.put(key.getHashCode(), upload);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    delegate.store(key, upload);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    pendingUploads.remove(key.getHashCode(), upload);
+                    upload.discard();
+                    uploadPermits.release();
+                }
+            }
+        });
+    }
+
+    private PendingUpload spool(BuildCacheEntryWriter writer) {
+        File file = temporaryFileProvider.createTemporaryFile("http-build-cache-", ".bin");
+        try {
+            OutputStream output = new FileOutputStream(file);
+            try {
+                writer.writeTo(output);
+            } finally {
+                output.close();
+            }
+            return new PendingUpload(file);
+        } catch (IOException e) {
+            file.delete();
+            throw new BuildCacheException("Could not write entry to temporary file " + file, e);
+        } catch (RuntimeException e) {
+            file.delete();
+            throw e;
+        }
+    }
+
+    private void rethrowFailure() {
+        RuntimeException e = failure.get();
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            executor.stop();
+        } finally {
+            delegate.close();
+        }
+        rethrowFailure();
+    }
+
+    private static class PendingUpload implements BuildCacheEntryWriter {
+        private final File file;
+        private final long size;
+        private boolean discarded;
+
+        PendingUpload(File file) {
+            this.file = file;
+            this.size = file.length();
+        }
+
+        @Override
+        public void writeTo(OutputStream output) throws IOException {
+            Files.asByteSource(file).copyTo(output);
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        synchronized boolean readTo(BuildCacheEntryReader reader) {
+            if (discarded) {
+                return false;
+            }
+            try {
+                InputStream input = new FileInputStream(file);
+                try {
+                    reader.readFrom(input);
+                } finally {
+                    input.close();
+                }
+                return true;
+            } catch (IOException e) {
+                throw new BuildCacheException("Could not read entry from temporary file " + file, e);
+            }
+        }
+
+        synchronized void discard() {
+            discarded = true;
+            file.delete();
+        }
+    }
+}
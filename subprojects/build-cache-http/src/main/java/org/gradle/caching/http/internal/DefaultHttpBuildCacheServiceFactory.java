@@ -18,12 +18,15 @@ package org.gradle.caching.http.internal;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.gradle.api.GradleException;
+import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.authentication.Authentication;
 import org.gradle.caching.BuildCacheService;
 import org.gradle.caching.BuildCacheServiceFactory;
 import org.gradle.caching.http.HttpBuildCache;
 import org.gradle.caching.http.HttpBuildCacheCredentials;
 import org.gradle.internal.authentication.DefaultBasicAuthentication;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ParallelismConfigurationManager;
 import org.gradle.internal.resource.transport.http.DefaultHttpSettings;
 import org.gradle.internal.resource.transport.http.HttpClientHelper;
 import org.gradle.internal.resource.transport.http.SslContextFactory;
@@ -39,11 +42,19 @@ import java.util.Collections;
  */
 public class DefaultHttpBuildCacheServiceFactory implements BuildCacheServiceFactory<HttpBuildCache> {
 
+    private static final int MAX_PENDING_UPLOADS_PER_UPLOADER = 4;
+
     private final SslContextFactory sslContextFactory;
+    private final ParallelismConfigurationManager parallelismConfigurationManager;
+    private final ExecutorFactory executorFactory;
+    private final TemporaryFileProvider temporaryFileProvider;
 
     @Inject
-    public DefaultHttpBuildCacheServiceFactory(SslContextFactory sslContextFactory) {
+    public DefaultHttpBuildCacheServiceFactory(SslContextFactory sslContextFactory, ParallelismConfigurationManager parallelismConfigurationManager, ExecutorFactory executorFactory, TemporaryFileProvider temporaryFileProvider) {
         this.sslContextFactory = sslContextFactory;
+        this.parallelismConfigurationManager = parallelismConfigurationManager;
+        this.executorFactory = executorFactory;
+        this.temporaryFileProvider = temporaryFileProvider;
     }
 
     @Override
@@ -67,10 +78,12 @@ public class DefaultHttpBuildCacheServiceFactory implements BuildCacheServiceFac
         }
 
         boolean authenticated = !authentications.isEmpty();
+        int maxConnections = maxConnections(parallelismConfigurationManager.getParallelismConfiguration().getMaxWorkerCount());
         boolean allowUntrustedServer = configuration.isAllowUntrustedServer();
         DefaultHttpSettings.Builder builder = DefaultHttpSettings.builder()
             .withAuthenticationSettings(authentications)
-            .followRedirects(false);
+            .followRedirects(false)
+            .maxConnections(maxConnections);
         if (allowUntrustedServer) {
             builder.allowUntrustedConnections();
         } else {
@@ -83,7 +96,28 @@ public class DefaultHttpBuildCacheServiceFactory implements BuildCacheServiceFac
             .config("authenticated", Boolean.toString(authenticated))
             .config("allowUntrustedServer", Boolean.toString(allowUntrustedServer));
 
-        return new HttpBuildCacheService(httpClientHelper, noUserInfoUrl);
+        HttpBuildCacheService service = new HttpBuildCacheService(httpClientHelper, noUserInfoUrl);
+        if (Boolean.getBoolean(AsyncStoreHttpBuildCacheService.ENABLED_PROPERTY)) {
+            return new AsyncStoreHttpBuildCacheService(service, temporaryFileProvider, executorFactory, uploaders(maxConnections), MAX_PENDING_UPLOADS_PER_UPLOADER * uploaders(maxConnections));
+        }
+        return service;
+    }
+
+    /**
+     * Every worker can load from or store to the cache at the same time, so allow a connection per worker.
+     * Otherwise workers queue up for a connection when many tasks finish or start together.
+     */
+    @VisibleForTesting
+    static int maxConnections(int maxWorkerCount) {
+        return Math.max(DefaultHttpSettings.DEFAULT_MAX_CONNECTIONS, maxWorkerCount);
+    }
+
+    /**
+     * Leaves at least half of the connections to the workers loading entries.
+     */
+    @VisibleForTesting
+    static int uploaders(int maxConnections) {
+        return Math.max(1, maxConnections / 2);
     }
 
     @VisibleForTesting
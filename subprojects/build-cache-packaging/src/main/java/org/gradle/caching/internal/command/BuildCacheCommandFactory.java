@@ -24,11 +24,13 @@ import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.configuration.BuildCacheCompression;
 import org.gradle.caching.internal.CacheableEntity;
 import org.gradle.caching.internal.controller.BuildCacheLoadCommand;
 import org.gradle.caching.internal.controller.BuildCacheStoreCommand;
 import org.gradle.caching.internal.origin.OriginMetadata;
 import org.gradle.caching.internal.origin.OriginMetadataFactory;
+import org.gradle.caching.internal.packaging.BuildCacheEntryCodec;
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.UnrecoverableUnpackingException;
 import org.gradle.internal.file.FileType;
@@ -100,7 +102,7 @@ public class BuildCacheCommandFactory {
         public BuildCacheLoadCommand.Result<LoadMetadata> load(InputStream input) {
             loadListener.beforeLoad();
             try {
-                BuildCacheEntryPacker.UnpackResult unpackResult = packer.unpack(entity, input, originMetadataFactory.createReader(entity));
+                BuildCacheEntryPacker.UnpackResult unpackResult = packer.unpack(entity, BuildCacheEntryCodec.decompress(input), originMetadataFactory.createReader(entity));
                 ImmutableSortedMap<String, CurrentFileCollectionFingerprint> snapshots = snapshotUnpackedData(unpackResult.getSnapshots());
                 LOGGER.info("Unpacked trees for {} from cache.", entity.getDisplayName());
                 return new Result<LoadMetadata>() {
@@ -226,9 +228,10 @@ public class BuildCacheCommandFactory {
         }
 
         @Override
-        public BuildCacheStoreCommand.Result store(OutputStream output) throws IOException {
+        public BuildCacheStoreCommand.Result store(OutputStream output, BuildCacheCompression compression) throws IOException {
             LOGGER.info("Packing {}", entity.getDisplayName());
-            final BuildCacheEntryPacker.PackResult packResult = packer.pack(entity, fingerprints, output, originMetadataFactory.createWriter(entity, executionTime));
+            OutputStream compressedOutput = BuildCacheEntryCodec.of(compression).compress(output);
+            final BuildCacheEntryPacker.PackResult packResult = packer.pack(entity, fingerprints, compressedOutput, originMetadataFactory.createWriter(entity, executionTime));
             return new BuildCacheStoreCommand.Result() {
                 @Override
                 public long getArtifactEntryCount() {
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging;
+
+import org.gradle.caching.configuration.BuildCacheCompression;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The compression codecs for build cache entries.
+ *
+ * <p>Entries compressed with gzip are plain gzip streams, so that they can still be read by older Gradle versions. All other entries
+ * start with a header identifying the codec. The header cannot be mistaken for the start of a gzip stream, so readers can pick the
+ * right decoder for any entry.</p>
+ *
+ * <p>The fast codec uses gzip at its fastest level rather than Snappy or LZ4, as the pure Java implementations of those that are
+ * available are slower than the native zlib used by the JDK.</p>
+ */
+public enum BuildCacheEntryCodec {
+    GZIP(BuildCacheCompression.GZIP) {
+        @Override
+        protected OutputStream encode(OutputStream output) throws IOException {
+            return new GZIPOutputStream(output);
+        }
+
+        @Override
+        protected InputStream decode(InputStream input) throws IOException {
+            return new GZIPInputStream(input);
+        }
+    },
+    FAST(BuildCacheCompression.FAST) {
+        @Override
+        protected OutputStream encode(OutputStream output) throws IOException {
+            return new GZIPOutputStream(output) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+        }
+
+        @Override
+        protected InputStream decode(InputStream input) throws IOException {
+            return GZIP.decode(input);
+        }
+    },
+    NONE(BuildCacheCompression.NONE, (byte) 1) {
+        @Override
+        protected OutputStream encode(OutputStream output) {
+            return output;
+        }
+
+        @Override
+        protected InputStream decode(InputStream input) {
+            return input;
+        }
+    };
+
+    private static final byte GZIP_MAGIC = (byte) 0x1f;
+    private static final byte[] HEADER_MAGIC = {'G', 'B', 'C'};
+    private static final int HEADER_LENGTH = HEADER_MAGIC.length + 1;
+
+    private final BuildCacheCompression compression;
+    private final boolean header;
+    private final byte id;
+
+    /**
+     * A codec which writes plain gzip streams.
+     */
+    BuildCacheEntryCodec(BuildCacheCompression compression) {
+        this.compression = compression;
+        this.header = false;
+        this.id = 0;
+    }
+
+    BuildCacheEntryCodec(BuildCacheCompression compression, byte id) {
+        this.compression = compression;
+        this.header = true;
+        this.id = id;
+    }
+
+    public static BuildCacheEntryCodec of(BuildCacheCompression compression) {
+        for (BuildCacheEntryCodec codec : values()) {
+            if (codec.compression == compression) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported build cache compression: " + compression);
+    }
+
+    /**
+     * Returns a stream which compresses everything written to it into the given output. Closing the returned stream closes the output.
+     */
+    public OutputStream compress(OutputStream output) throws IOException {
+        if (header) {
+            output.write(HEADER_MAGIC);
+            output.write(id);
+        }
+        return encode(output);
+    }
+
+    /**
+     * Returns a stream which decompresses the given input, using the codec the entry was compressed with.
+     */
+    public static InputStream decompress(InputStream input) throws IOException {
+        PushbackInputStream pushbackInput = new PushbackInputStream(input, HEADER_LENGTH);
+        byte[] header = new byte[HEADER_LENGTH];
+        int first = pushbackInput.read();
+        if (first == -1) {
+            throw new IOException("Build cache entry is empty.");
+        }
+        if ((byte) first == GZIP_MAGIC) {
+            pushbackInput.unread(first);
+            return GZIP.decode(pushbackInput);
+        }
+        header[0] = (byte) first;
+        new DataInputStream(pushbackInput).readFully(header, 1, HEADER_LENGTH - 1);
+        if (!Arrays.equals(Arrays.copyOf(header, HEADER_MAGIC.length), HEADER_MAGIC)) {
+            throw new IOException("Build cache entry has an unknown format.");
+        }
+        byte id = header[HEADER_MAGIC.length];
+        for (BuildCacheEntryCodec codec : values()) {
+            if (codec.header && codec.id == id) {
+                return codec.decode(pushbackInput);
+            }
+        }
+        throw new IOException("Build cache entry was compressed with an unknown codec, it may have been stored by a newer Gradle version.");
+    }
+
+    protected abstract OutputStream encode(OutputStream output) throws IOException;
+
+    protected abstract InputStream decode(InputStream input) throws IOException;
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands bytes from a producing thread to a consuming thread through a bounded number of fixed size chunks.
+ *
+ * <p>The producer blocks while all chunks are in flight, so the amount of memory used by a pipeline is bounded
+ * and a fast stage cannot run arbitrarily far ahead of a slow one. Either side can abort the pipe, which makes
+ * the other side fail instead of waiting forever.</p>
+ */
+public class BoundedPipe {
+    private static final byte[] END_OF_STREAM = new byte[0];
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final int chunkSize;
+    private final BlockingQueue<byte[]> chunks;
+    private final PipeOutputStream output;
+    private final PipeInputStream input;
+    private volatile boolean aborted;
+
+    public BoundedPipe(int chunkSize, int maxChunksInFlight) {
+        this.chunkSize = chunkSize;
+        this.chunks = new ArrayBlockingQueue<byte[]>(maxChunksInFlight);
+        this.output = new PipeOutputStream();
+        this.input = new PipeInputStream();
+    }
+
+    /**
+     * The stream to write to from the producing thread. Closing the stream signals the end of the data to the consumer.
+     */
+    public OutputStream getOutput() {
+        return output;
+    }
+
+    /**
+     * The stream to read from on the consuming thread.
+     */
+    public InputStream getInput() {
+        return input;
+    }
+
+    /**
+     * Stops the transfer, for example because the other side has failed.
+     */
+    public void abort() {
+        aborted = true;
+        chunks.clear();
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    private void put(byte[] chunk) throws IOException {
+        try {
+            while (!chunks.offer(chunk, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkNotAborted();
+            }
+            checkNotAborted();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while writing to pipe.");
+        }
+    }
+
+    private byte[] take() throws IOException {
+        try {
+            byte[] chunk;
+            while ((chunk = chunks.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                checkNotAborted();
+            }
+            checkNotAborted();
+            return chunk;
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while reading from pipe.");
+        }
+    }
+
+    private void checkNotAborted() throws IOException {
+        if (aborted) {
+            throw new IOException("Pipe was aborted.");
+        }
+    }
+
+    private class PipeOutputStream extends OutputStream {
+        private byte[] buffer = new byte[chunkSize];
+        private int count;
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flushChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flushChunk();
+                }
+                int length = Math.min(len, buffer.length - count);
+                System.arraycopy(bytes, off, buffer, count, length);
+                count += length;
+                off += length;
+                len -= length;
+            }
+        }
+
+        private void flushChunk() throws IOException {
+            if (closed) {
+                throw new IOException("Pipe is closed.");
+            }
+            if (count == 0) {
+                return;
+            }
+            byte[] chunk = count == buffer.length ? buffer : Arrays.copyOf(buffer, count);
+            put(chunk);
+            buffer = new byte[chunkSize];
+            count = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            flushChunk();
+            closed = true;
+            put(END_OF_STREAM);
+        }
+    }
+
+    private class PipeInputStream extends InputStream {
+        private byte[] chunk;
+        private int pos;
+        private boolean finished;
+
+        @Override
+        public int read() throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+            return chunk[pos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextChunk()) {
+                return -1;
+            }
+            int length = Math.min(len, chunk.length - pos);
+            System.arraycopy(chunk, pos, bytes, off, length);
+            pos += length;
+            return length;
+        }
+
+        @Override
+        public int available() {
+            return chunk == null ? 0 : chunk.length - pos;
+        }
+
+        private boolean nextChunk() throws IOException {
+            while (chunk == null || pos == chunk.length) {
+                if (finished) {
+                    return false;
+                }
+                chunk = take();
+                pos = 0;
+                if (chunk == END_OF_STREAM) {
+                    finished = true;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (!finished) {
+                // The consumer is not interested in the rest of the data, so let the producer stop
+                abort();
+            }
+        }
+    }
+}
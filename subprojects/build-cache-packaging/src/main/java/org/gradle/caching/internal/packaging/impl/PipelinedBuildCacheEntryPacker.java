@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import org.gradle.caching.internal.CacheableEntity;
+import org.gradle.caching.internal.origin.OriginReader;
+import org.gradle.caching.internal.origin.OriginWriter;
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Produces the same entries as its delegate, but writes to and reads from the target stream on a separate thread.
+ *
+ * <p>While the delegate reads the output files and writes the archive on the calling thread, the archive is written
+ * to the target stream by a worker, and vice versa when unpacking. When the target stream compresses the entry, this
+ * moves compression off the calling thread. The stages are connected by a {@link BoundedPipe}, so packing takes
+ * roughly as long as the slower of the two stages.</p>
+ */
+public class PipelinedBuildCacheEntryPacker implements BuildCacheEntryPacker, Stoppable {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_CHUNKS_IN_FLIGHT = 16;
+
+    private final BuildCacheEntryPacker delegate;
+    private final ManagedExecutor executor;
+
+    public PipelinedBuildCacheEntryPacker(BuildCacheEntryPacker delegate, ExecutorFactory executorFactory) {
+        this.delegate = delegate;
+        this.executor = executorFactory.create("Build cache entry transfer");
+    }
+
+    @Override
+    public PackResult pack(CacheableEntity entity, Map<String, CurrentFileCollectionFingerprint> fingerprints, final OutputStream output, OriginWriter writeOrigin) throws IOException {
+        final BoundedPipe pipe = new BoundedPipe(CHUNK_SIZE, MAX_CHUNKS_IN_FLIGHT);
+        Future<?> writer = executor.submit(() -> {
+            try (InputStream archiveInput = pipe.getInput(); OutputStream target = output) {
+                copy(archiveInput, target);
+            } catch (Throwable t) {
+                pipe.abort();
+                throw t;
+            }
+            return null;
+        });
+        PackResult result;
+        try (OutputStream archiveOutput = pipe.getOutput()) {
+            result = delegate.pack(entity, fingerprints, archiveOutput, writeOrigin);
+        } catch (Throwable t) {
+            throw failed(t, pipe, writer);
+        }
+        waitFor(writer);
+        return result;
+    }
+
+    @Override
+    public UnpackResult unpack(CacheableEntity entity, final InputStream input, OriginReader readOrigin) throws IOException {
+        final BoundedPipe pipe = new BoundedPipe(CHUNK_SIZE, MAX_CHUNKS_IN_FLIGHT);
+        Future<?> reader = executor.submit(() -> {
+            try (InputStream source = input; OutputStream archiveOutput = pipe.getOutput()) {
+                copy(source, archiveOutput);
+            } catch (Throwable t) {
+                pipe.abort();
+                throw t;
+            }
+            return null;
+        });
+        UnpackResult result;
+        try (InputStream archiveInput = pipe.getInput()) {
+            result = delegate.unpack(entity, archiveInput, readOrigin);
+        } catch (Throwable t) {
+            throw failed(t, pipe, reader);
+        }
+        // The delegate may stop reading before the end of the archive, in which case the worker is stopped by closing the pipe
+        waitForQuietly(reader);
+        return result;
+    }
+
+    private static void copy(InputStream input, OutputStream output) throws IOException {
+        byte[] buffer = new byte[CHUNK_SIZE];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+    }
+
+    /**
+     * Stops the worker after the calling thread failed, and reports the failure of the worker if that is what made the calling thread fail.
+     */
+    private static RuntimeException failed(Throwable failure, BoundedPipe pipe, Future<?> worker) throws IOException {
+        boolean abortedByWorker = pipe.isAborted();
+        pipe.abort();
+        if (abortedByWorker) {
+            waitFor(worker);
+        } else {
+            waitForQuietly(worker);
+        }
+        throw rethrow(failure);
+    }
+
+    private static void waitFor(Future<?> stage) throws IOException {
+        try {
+            stage.get();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while waiting for build cache entry transfer.");
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable failure) throws IOException {
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        throw UncheckedException.throwAsUncheckedException(failure);
+    }
+
+    private static void waitForQuietly(Future<?> stage) {
+        try {
+            stage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Ignore, the failure of the other stage is reported instead
+        }
+    }
+
+    @Override
+    public void stop() {
+        executor.stop();
+    }
+}
@@ -20,12 +20,14 @@ import com.google.common.collect.ImmutableList
 import com.google.common.collect.ImmutableMap
 import org.gradle.api.internal.cache.StringInterner
 import org.gradle.caching.BuildCacheKey
+import org.gradle.caching.configuration.BuildCacheCompression
 import org.gradle.caching.internal.CacheableEntity
 import org.gradle.caching.internal.TestCacheableTree
 import org.gradle.caching.internal.origin.OriginMetadata
 import org.gradle.caching.internal.origin.OriginMetadataFactory
 import org.gradle.caching.internal.origin.OriginReader
 import org.gradle.caching.internal.origin.OriginWriter
+import org.gradle.caching.internal.packaging.BuildCacheEntryCodec
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker
 import org.gradle.caching.internal.packaging.UnrecoverableUnpackingException
 import org.gradle.internal.file.TreeType
@@ -40,6 +42,9 @@ import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.testing.internal.util.Specification
 import org.junit.Rule
 
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+
 import static org.gradle.internal.file.TreeType.DIRECTORY
 import static org.gradle.internal.file.TreeType.FILE
 
@@ -67,7 +72,7 @@ class BuildCacheCommandFactoryTest extends Specification {
         def outputFile = temporaryFolder.file("output.txt")
         def outputDir = temporaryFolder.file("outputDir")
         def outputDirFile = outputDir.file("file.txt")
-        def input = Mock(InputStream)
+        def input = compressedInput()
         def entity = entity(
             prop("outputDir", DIRECTORY, outputDir),
             prop("outputFile", FILE, outputFile)
@@ -87,7 +92,7 @@ class BuildCacheCommandFactoryTest extends Specification {
         1 * originFactory.createReader(entity) >> originReader
 
         then:
-        1 * packer.unpack(entity, input, originReader) >> new BuildCacheEntryPacker.UnpackResult(originMetadata, 123L, fileSnapshots)
+        1 * packer.unpack(entity, _ as GZIPInputStream, originReader) >> new BuildCacheEntryPacker.UnpackResult(originMetadata, 123L, fileSnapshots)
 
         then:
         1 * fileSystemMirror.putMetadata(outputDir.absolutePath, DefaultFileMetadata.directory())
@@ -116,7 +121,7 @@ class BuildCacheCommandFactoryTest extends Specification {
     }
 
     def "after failed unpacking output is cleaned up"() {
-        def input = Mock(InputStream)
+        def input = compressedInput()
         def outputFile = temporaryFolder.file("output.txt")
         def entity = this.entity(prop("output", FILE, outputFile))
         def command = commandFactory.createLoad(key, entity, loadListener)
@@ -129,7 +134,7 @@ class BuildCacheCommandFactoryTest extends Specification {
         1 * originFactory.createReader(entity) >> originReader
 
         then:
-        1 * packer.unpack(entity, input, originReader) >> {
+        1 * packer.unpack(entity, _ as GZIPInputStream, originReader) >> {
             outputFile << "partially extracted output fil..."
             throw new RuntimeException("unpacking error")
         }
@@ -149,7 +154,7 @@ class BuildCacheCommandFactoryTest extends Specification {
     }
 
     def "error during cleanup of failed unpacking is reported"() {
-        def input = Mock(InputStream)
+        def input = compressedInput()
         def entity = entity()
         def command = commandFactory.createLoad(key, entity, loadListener)
 
@@ -161,7 +166,7 @@ class BuildCacheCommandFactoryTest extends Specification {
         1 * originFactory.createReader(entity) >> originReader
 
         then:
-        1 * packer.unpack(entity, input, originReader) >> {
+        1 * packer.unpack(entity, _ as GZIPInputStream, originReader) >> {
             throw new RuntimeException("unpacking error")
         }
 
@@ -178,25 +183,31 @@ class BuildCacheCommandFactoryTest extends Specification {
     }
 
     def "store invokes packer"() {
-        def output = Mock(OutputStream)
+        def output = new ByteArrayOutputStream()
         def entity = entity(prop("output"))
         def outputFingerprints = Mock(Map)
         def command = commandFactory.createStore(key, entity, outputFingerprints, 421L)
 
         when:
-        def result = command.store(output)
+        def result = command.store(output, BuildCacheCompression.GZIP)
 
         then:
         1 * originFactory.createWriter(entity, 421L) >> originWriter
 
         then:
-        1 * packer.pack(entity, outputFingerprints, output, originWriter) >> new BuildCacheEntryPacker.PackResult(123)
+        1 * packer.pack(entity, outputFingerprints, _ as GZIPOutputStream, originWriter) >> new BuildCacheEntryPacker.PackResult(123)
 
         then:
         result.artifactEntryCount == 123
         0 * _
     }
 
+    private static InputStream compressedInput() {
+        def output = new ByteArrayOutputStream()
+        BuildCacheEntryCodec.GZIP.compress(output).close()
+        return new ByteArrayInputStream(output.toByteArray())
+    }
+
     def entity(TestCacheableTree... trees) {
         return Stub(CacheableEntity) {
             visitOutputTrees(_) >> { CacheableEntity.CacheableTreeVisitor visitor ->
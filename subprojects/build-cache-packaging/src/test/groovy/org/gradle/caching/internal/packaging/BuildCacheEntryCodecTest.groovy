@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging
+
+import org.gradle.caching.configuration.BuildCacheCompression
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+
+class BuildCacheEntryCodecTest extends Specification {
+    def content = "build cache entry ".multiply(1000).bytes
+
+    @Unroll
+    def "decompresses entries compressed with #compression"() {
+        def output = new ByteArrayOutputStream()
+
+        when:
+        BuildCacheEntryCodec.of(compression).compress(output).withStream { it.write(content) }
+
+        then:
+        BuildCacheEntryCodec.decompress(new ByteArrayInputStream(output.toByteArray())).bytes == content
+
+        where:
+        compression << BuildCacheCompression.values()
+    }
+
+    @Unroll
+    def "writes plain gzip streams for #codec"() {
+        def output = new ByteArrayOutputStream()
+
+        when:
+        codec.compress(output).withStream { it.write(content) }
+
+        then:
+        new GZIPInputStream(new ByteArrayInputStream(output.toByteArray())).bytes == content
+
+        where:
+        codec << [BuildCacheEntryCodec.GZIP, BuildCacheEntryCodec.FAST]
+    }
+
+    def "reads plain gzip streams"() {
+        def output = new ByteArrayOutputStream()
+        new GZIPOutputStream(output).withStream { it.write(content) }
+
+        expect:
+        BuildCacheEntryCodec.decompress(new ByteArrayInputStream(output.toByteArray())).bytes == content
+    }
+
+    def "marks uncompressed entries"() {
+        def output = new ByteArrayOutputStream()
+
+        when:
+        BuildCacheEntryCodec.NONE.compress(output).withStream { it.write(content) }
+
+        then:
+        output.size() == content.length + 4
+    }
+
+    def "fails on entries with unknown format"() {
+        when:
+        BuildCacheEntryCodec.decompress(new ByteArrayInputStream(bytes as byte[]))
+
+        then:
+        def e = thrown(IOException)
+        e.message == message
+
+        where:
+        bytes                     | message
+        []                        | "Build cache entry is empty."
+        "not a cache entry".bytes | "Build cache entry has an unknown format."
+        "GBC*".bytes              | "Build cache entry was compressed with an unknown codec, it may have been stored by a newer Gradle version."
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl
+
+import org.gradle.caching.internal.CacheableEntity
+import org.gradle.caching.internal.origin.OriginReader
+import org.gradle.caching.internal.origin.OriginWriter
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint
+import spock.lang.Specification
+
+class PipelinedBuildCacheEntryPackerTest extends Specification {
+    def entity = Stub(CacheableEntity)
+    def fingerprints = [:] as Map<String, CurrentFileCollectionFingerprint>
+    def delegate = Mock(BuildCacheEntryPacker)
+    def executorFactory = new DefaultExecutorFactory()
+    def packer = new PipelinedBuildCacheEntryPacker(delegate, executorFactory)
+    def content = new byte[3 * 1024 * 1024]
+
+    def setup() {
+        new Random(1234L).nextBytes(content)
+    }
+
+    def cleanup() {
+        packer.stop()
+        executorFactory.stop()
+    }
+
+    def "writes the archive written by the delegate"() {
+        def output = new ByteArrayOutputStream()
+        def packResult = new BuildCacheEntryPacker.PackResult(3)
+
+        when:
+        def result = packer.pack(entity, fingerprints, output, Stub(OriginWriter))
+
+        then:
+        1 * delegate.pack(entity, fingerprints, _, _) >> { CacheableEntity entity, Map fingerprints, OutputStream archiveOutput, OriginWriter writeOrigin ->
+            archiveOutput.write(content)
+            archiveOutput.close()
+            packResult
+        }
+        result == packResult
+        output.toByteArray() == content
+    }
+
+    def "reads the archive read by the delegate"() {
+        def unpackResult = new BuildCacheEntryPacker.UnpackResult(null, 3, [:])
+
+        when:
+        def result = packer.unpack(entity, new ByteArrayInputStream(content), Stub(OriginReader))
+
+        then:
+        1 * delegate.unpack(entity, _, _) >> { CacheableEntity entity, InputStream archiveInput, OriginReader readOrigin ->
+            assert archiveInput.bytes == content
+            unpackResult
+        }
+        result == unpackResult
+    }
+
+    def "stops reading when the delegate stops reading early"() {
+        def unpackResult = new BuildCacheEntryPacker.UnpackResult(null, 1, [:])
+
+        when:
+        def result = packer.unpack(entity, new ByteArrayInputStream(content), Stub(OriginReader))
+
+        then:
+        1 * delegate.unpack(entity, _, _) >> { CacheableEntity entity, InputStream archiveInput, OriginReader readOrigin ->
+            archiveInput.read(new byte[1024])
+            archiveInput.close()
+            unpackResult
+        }
+        result == unpackResult
+    }
+
+    def "reports failure to read the entry"() {
+        def failure = new IOException("broken")
+        def input = new InputStream() {
+            @Override
+            int read() throws IOException {
+                throw failure
+            }
+        }
+
+        when:
+        packer.unpack(entity, input, Stub(OriginReader))
+
+        then:
+        1 * delegate.unpack(entity, _, _) >> { CacheableEntity entity, InputStream archiveInput, OriginReader readOrigin ->
+            archiveInput.bytes
+        }
+        def e = thrown(IOException)
+        e.is(failure)
+    }
+
+    def "reports failure of the delegate"() {
+        def failure = new IOException("broken")
+
+        when:
+        packer.pack(entity, fingerprints, new ByteArrayOutputStream(), Stub(OriginWriter))
+
+        then:
+        1 * delegate.pack(entity, fingerprints, _, _) >> { CacheableEntity entity, Map fingerprints, OutputStream archiveOutput, OriginWriter writeOrigin ->
+            archiveOutput.write(content)
+            throw failure
+        }
+        def e = thrown(IOException)
+        e.is(failure)
+    }
+}
@@ -47,6 +47,8 @@ dependencies {
         }
     }
 
+    jmh(project(":snapshots"))
+    jmh(project(":buildCachePackaging"))
     jmh("io.airlift:aircompressor:0.8")
     jmh("org.iq80.snappy:snappy:0.4")
     jmh("org.kamranzafar:jtar:2.3")
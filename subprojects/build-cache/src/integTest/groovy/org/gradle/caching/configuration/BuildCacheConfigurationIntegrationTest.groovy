@@ -269,6 +269,57 @@ class BuildCacheConfigurationIntegrationTest extends AbstractIntegrationSpec {
         localBuildCache.empty
     }
 
+    @Unroll
+    def "can configure #compression compression with settings.gradle"() {
+        settingsFile << """
+            buildCache {
+                local(DirectoryBuildCache) {
+                    directory = '$cacheDir'
+                    compression = BuildCacheCompression.$compression
+                }
+            }
+        """
+        buildFile << customTaskCode()
+
+        when:
+        executer.withBuildCacheEnabled()
+        succeeds("customTask")
+
+        then:
+        def entries = localBuildCache.listCacheFiles()
+        entries.size() == 1
+        entries[0].bytes.take(header.length) == header
+
+        when:
+        file("build").deleteDir()
+        executer.withBuildCacheEnabled()
+        succeeds("customTask")
+
+        then:
+        output.contains("> Task :customTask FROM-CACHE")
+        file("build/tmp/customTask/output.txt").text == "done"
+
+        where:
+        compression | header
+        "GZIP"      | [0x1f, 0x8b] as byte[]
+        "FAST"      | [0x1f, 0x8b] as byte[]
+        "NONE"      | [0x47, 0x42, 0x43, 0x01] as byte[]
+    }
+
+    def "fails when compression is set to null"() {
+        settingsFile << """
+            buildCache {
+                local(DirectoryBuildCache) {
+                    compression = null
+                }
+            }
+        """
+
+        expect:
+        fails("help")
+        failureHasCause("Build cache compression cannot be null.")
+    }
+
     private static String customTaskCode() {
         """
             @CacheableTask
@@ -96,6 +96,72 @@ class DirectoryBuildCacheCleanupIntegrationTest extends AbstractIntegrationSpec
         assertCacheWasCleanedUpSince(lastCleanupCheck)
     }
 
+    def "evicts least recently used entries once the cache grows beyond its size limit"() {
+        // Each entry is slightly larger than 1 MB, so the cache holds two of them
+        settingsFile << configureMaxSize(3)
+
+        when:
+        runWith(1)
+        runWith(2)
+        file("build").deleteDir()
+        runWith(1)
+        then:
+        result.assertTaskSkipped(":cacheable")
+        listCacheFiles().size() == 2
+
+        when:
+        runWith(3)
+        then:
+        listCacheFiles().size() == 2
+
+        when:
+        file("build").deleteDir()
+        runWith(1)
+        then:
+        result.assertTaskSkipped(":cacheable")
+
+        when:
+        file("build").deleteDir()
+        runWith(2)
+        then:
+        result.assertTaskNotSkipped(":cacheable")
+        outputContains("Run 2")
+    }
+
+    def "entries removed by the time based cleanup no longer count towards the size limit"() {
+        executer.requireIsolatedDaemons() // needs to stop daemon
+        requireOwnGradleUserHomeDir() // needs its own journal
+        settingsFile << configureMaxSize(4)
+        runWith(1)
+        runWith(2)
+        def previousEntries = listCacheFiles()
+        runWith(3)
+        def entryOfRun3 = (listCacheFiles() - previousEntries).first()
+        run '--stop' // ensure daemon does not cache file access times in memory
+
+        when:
+        // The entry of run 3 is not the least recently used one, but has not been used for too long according to the journal
+        writeLastFileAccessTimeToJournal(entryOfRun3, daysAgo(MAX_CACHE_AGE_IN_DAYS + 1))
+        markCacheForCleanup()
+        file("build").deleteDir()
+        runWith(1)
+        then:
+        entryOfRun3.assertDoesNotExist()
+        listCacheFiles().size() == 2
+
+        when:
+        runWith(4)
+        then:
+        // Three entries fit the limit, unless the removed entry is still counted and the entry of run 2 is evicted
+        listCacheFiles().size() == 3
+
+        when:
+        file("build").deleteDir()
+        runWith(2)
+        then:
+        result.assertTaskSkipped(":cacheable")
+    }
+
     @Unroll
     def "produces reasonable message when cache retention is too short (#days days)"() {
         settingsFile << """
@@ -202,6 +268,20 @@ class DirectoryBuildCacheCleanupIntegrationTest extends AbstractIntegrationSpec
         return gcFile().lastModified()
     }
 
+    static def configureMaxSize(int maxSizeInMB) {
+        """
+            buildCache {
+                local {
+                    maxSizeInMB = ${maxSizeInMB}
+                }
+            }
+        """
+    }
+
+    private ExecutionResult runWith(int run) {
+        withBuildCache().succeeds("cacheable", "-Prun=${run}")
+    }
+
     private ExecutionResult run() {
         withBuildCache().succeeds("cacheable")
     }
@@ -17,6 +17,19 @@
 package org.gradle.caching.internal.tasks;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.tools.ant.DirectoryScanner;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.internal.MutableBoolean;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.file.FileMetadataSnapshot;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.nativeintegration.services.FileSystems;
+import org.gradle.internal.nativeintegration.services.NativeServices;
+import org.gradle.internal.snapshot.impl.DirectorySnapshotter;
+import org.gradle.internal.snapshot.impl.ParallelDirectorySnapshotter;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Level;
@@ -33,6 +46,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
 
 @Fork(1)
 @Warmup(iterations = 5)
@@ -77,6 +93,16 @@ public class FileWalkingBenchmark {
         Files.createDirectory(path);
     }
 
+    @Benchmark
+    public void sequentialSnapshot(FileTree tree, Blackhole blackhole) {
+        blackhole.consume(tree.sequentialSnapshotter.snapshot(tree.root.toString(), null, new MutableBoolean()));
+    }
+
+    @Benchmark
+    public void parallelSnapshot(FileTree tree, Blackhole blackhole) {
+        blackhole.consume(tree.parallelSnapshotter.snapshot(tree.root.toString(), null, new MutableBoolean()));
+    }
+
     @Benchmark
     public void java6walk(Blackhole blackhole) {
         File file = missing ? missingFile : existingFile;
@@ -108,4 +134,80 @@ public class FileWalkingBenchmark {
         Path path = missing ? missingPath : existingPath;
         blackhole.consume(Files.exists(path));
     }
+
+    /**
+     * A generated source tree with a fixed number of files spread over nested directories.
+     */
+    @State(Scope.Benchmark)
+    public static class FileTree {
+        private static final int FILES_PER_DIRECTORY = 20;
+        private static final int DIRECTORIES_PER_DIRECTORY = 4;
+
+        @Param({"10000", "100000"})
+        int fileCount;
+
+        Path root;
+        DirectorySnapshotter sequentialSnapshotter;
+        ParallelDirectorySnapshotter parallelSnapshotter;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            this.root = Files.createTempDirectory("file-tree");
+            NativeServices.initialize(root.toFile());
+            Random random = new Random(1234L);
+            byte[] content = new byte[1024];
+            int remaining = fileCount;
+            int directoryCount = 0;
+            Path directory = root;
+            while (remaining > 0) {
+                for (int i = 0; i < FILES_PER_DIRECTORY && remaining > 0; i++, remaining--) {
+                    random.nextBytes(content);
+                    Files.write(directory.resolve("file" + i + ".txt"), content);
+                }
+                directoryCount++;
+                // Fill the tree breadth first, so that it grows both wide and deep
+                Deque<String> segments = new ArrayDeque<String>();
+                for (int index = directoryCount; index > 0; index = (index - 1) / DIRECTORIES_PER_DIRECTORY) {
+                    segments.addFirst("dir" + (index - 1) % DIRECTORIES_PER_DIRECTORY);
+                }
+                directory = root;
+                for (String segment : segments) {
+                    directory = directory.resolve(segment);
+                }
+                mkdirs(directory);
+            }
+
+            FileHasher hasher = new ContentHasher();
+            StringInterner stringInterner = new StringInterner();
+            this.sequentialSnapshotter = new DirectorySnapshotter(hasher, FileSystems.getDefault(), stringInterner, DirectoryScanner.getDefaultExcludes());
+            this.parallelSnapshotter = new ParallelDirectorySnapshotter(hasher, FileSystems.getDefault(), stringInterner, DirectoryScanner.getDefaultExcludes());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            parallelSnapshotter.stop();
+            FileUtils.forceDelete(root.toFile());
+        }
+    }
+
+    private static class ContentHasher implements FileHasher {
+        @Override
+        public HashCode hash(File file) {
+            try {
+                return Hashing.hashBytes(Files.readAllBytes(file.toPath()));
+            } catch (IOException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+
+        @Override
+        public HashCode hash(FileTreeElement fileDetails) {
+            return hash(fileDetails.getFile());
+        }
+
+        @Override
+        public HashCode hash(File file, FileMetadataSnapshot fileDetails) {
+            return hash(file);
+        }
+    }
 }
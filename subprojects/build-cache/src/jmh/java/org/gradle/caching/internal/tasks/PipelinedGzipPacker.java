@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.io.IOUtils;
+import org.gradle.caching.internal.packaging.impl.BoundedPipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses on a separate thread, connected to the archiving thread by a {@link BoundedPipe}.
+ */
+public class PipelinedGzipPacker implements Packer {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_CHUNKS_IN_FLIGHT = 16;
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).build());
+
+    private final Packer delegate;
+
+    public PipelinedGzipPacker(Packer delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void pack(List<DataSource> inputs, final DataTarget output) throws IOException {
+        final BoundedPipe pipe = new BoundedPipe(CHUNK_SIZE, MAX_CHUNKS_IN_FLIGHT);
+        Future<?> compression = EXECUTOR.submit(() -> {
+            try (InputStream input = pipe.getInput(); OutputStream gzipOutput = new GZIPOutputStream(output.openOutput(), CHUNK_SIZE)) {
+                IOUtils.copyLarge(input, gzipOutput, new byte[CHUNK_SIZE]);
+            } catch (Throwable t) {
+                pipe.abort();
+                throw t;
+            }
+            return null;
+        });
+        delegate.pack(inputs, new DelegatingDataTarget(output) {
+            @Override
+            public OutputStream openOutput() {
+                return pipe.getOutput();
+            }
+        });
+        waitFor(compression);
+    }
+
+    @Override
+    public void unpack(final DataSource input, DataTargetFactory targetFactory) throws IOException {
+        final BoundedPipe pipe = new BoundedPipe(CHUNK_SIZE, MAX_CHUNKS_IN_FLIGHT);
+        Future<?> decompression = EXECUTOR.submit(() -> {
+            try (InputStream gzipInput = new GZIPInputStream(input.openInput(), CHUNK_SIZE); OutputStream output = pipe.getOutput()) {
+                IOUtils.copyLarge(gzipInput, output, new byte[CHUNK_SIZE]);
+            } catch (Throwable t) {
+                pipe.abort();
+                throw t;
+            }
+            return null;
+        });
+        delegate.unpack(new DelegatingDataSource(input) {
+            @Override
+            public InputStream openInput() {
+                return pipe.getInput();
+            }
+        }, targetFactory);
+        if (!pipe.isAborted()) {
+            waitFor(decompression);
+        }
+    }
+
+    private static void waitFor(Future<?> stage) throws IOException {
+        try {
+            stage.get();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+}
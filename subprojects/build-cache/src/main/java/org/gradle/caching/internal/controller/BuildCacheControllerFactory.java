@@ -23,7 +23,9 @@ import com.google.common.collect.Iterables;
 import org.gradle.api.internal.GeneratedSubclasses;
 import org.gradle.caching.BuildCacheService;
 import org.gradle.caching.BuildCacheServiceFactory;
+import org.gradle.caching.configuration.AbstractBuildCache;
 import org.gradle.caching.configuration.BuildCache;
+import org.gradle.caching.configuration.BuildCacheCompression;
 import org.gradle.caching.configuration.internal.BuildCacheConfigurationInternal;
 import org.gradle.caching.internal.FinalizeBuildCacheConfigurationBuildOperationType;
 import org.gradle.caching.internal.controller.service.BuildCacheServiceRole;
@@ -132,7 +134,11 @@ public final class BuildCacheControllerFactory {
     private static BuildCacheServicesConfiguration toConfiguration(BuildCache local, BuildCacheService localService, BuildCache remote, BuildCacheService remoteService) {
         boolean remotePush = remote != null && remote.isPush();
         boolean localPush = local != null && local.isPush();
-        return new BuildCacheServicesConfiguration(localService, localPush, remoteService, remotePush);
+        return new BuildCacheServicesConfiguration(localService, localPush, compressionOf(local), remoteService, remotePush, compressionOf(remote));
+    }
+
+    private static BuildCacheCompression compressionOf(@Nullable BuildCache buildCache) {
+        return buildCache instanceof AbstractBuildCache ? ((AbstractBuildCache) buildCache).getCompression() : BuildCacheCompression.GZIP;
     }
 
 
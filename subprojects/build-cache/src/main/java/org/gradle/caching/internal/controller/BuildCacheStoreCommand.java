@@ -17,6 +17,7 @@
 package org.gradle.caching.internal.controller;
 
 import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.configuration.BuildCacheCompression;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -26,11 +27,11 @@ public interface BuildCacheStoreCommand {
     BuildCacheKey getKey();
 
     /**
-     * Called at-most-once to initiate writing the artifact to the output stream.
+     * Called at-most-once per compression to initiate writing the artifact to the output stream.
      *
      * The output stream will be closed by this method.
      */
-    Result store(OutputStream outputStream) throws IOException;
+    Result store(OutputStream outputStream, BuildCacheCompression compression) throws IOException;
 
     interface Result {
 
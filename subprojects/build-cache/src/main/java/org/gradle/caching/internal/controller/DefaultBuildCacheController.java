@@ -22,6 +22,7 @@ import org.gradle.api.GradleException;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.configuration.BuildCacheCompression;
 import org.gradle.caching.internal.controller.operations.PackOperationDetails;
 import org.gradle.caching.internal.controller.operations.PackOperationResult;
 import org.gradle.caching.internal.controller.operations.UnpackOperationDetails;
@@ -65,6 +66,8 @@ public class DefaultBuildCacheController implements BuildCacheController {
     @VisibleForTesting
     final LocalBuildCacheServiceHandle local;
 
+    private final BuildCacheCompression localCompression;
+    private final BuildCacheCompression remoteCompression;
     private final BuildCacheTempFileStore tmp;
     private final BuildOperationExecutor buildOperationExecutor;
     private final boolean emitDebugLogging;
@@ -93,6 +96,8 @@ public class DefaultBuildCacheController implements BuildCacheController {
         }
 
         this.remote = toHandle(config.remote, config.remotePush, BuildCacheServiceRole.REMOTE, buildOperationExecutor, logStackTraces);
+        this.localCompression = config.localCompression;
+        this.remoteCompression = config.remoteCompression;
     }
 
     @Override
@@ -197,28 +202,39 @@ public class DefaultBuildCacheController implements BuildCacheController {
 
     @Override
     public void store(final BuildCacheStoreCommand command) {
-        boolean anyStore = local.canStore() || legacyLocal.canStore() || remote.canStore();
-        if (!anyStore) {
+        boolean localStore = local.canStore() || legacyLocal.canStore();
+        boolean remoteStore = remote.canStore();
+        if (!localStore && !remoteStore) {
             return;
         }
 
+        if (localStore && remoteStore && localCompression != remoteCompression) {
+            // Each entry contains a single compressed stream, so pack once for every compression
+            store(command, localCompression, true, false);
+            store(command, remoteCompression, false, true);
+        } else {
+            store(command, localStore ? localCompression : remoteCompression, localStore, remoteStore);
+        }
+    }
+
+    private void store(BuildCacheStoreCommand command, BuildCacheCompression compression, final boolean localStore, final boolean remoteStore) {
         final BuildCacheKey key = command.getKey();
-        final Pack pack = new Pack(command);
+        final Pack pack = new Pack(command, compression);
 
         tmp.withTempFile(command.getKey(), new Action<File>() {
             @Override
             public void execute(File file) {
                 pack.execute(file);
 
-                if (legacyLocal.canStore()) {
+                if (localStore && legacyLocal.canStore()) {
                     legacyLocal.store(key, new StoreTarget(file));
                 }
 
-                if (remote.canStore()) {
+                if (remoteStore) {
                     remote.store(key, new StoreTarget(file));
                 }
 
-                if (local.canStore()) {
+                if (localStore && local.canStore()) {
                     local.store(key, file);
                 }
             }
@@ -228,9 +244,11 @@ public class DefaultBuildCacheController implements BuildCacheController {
     private class Pack implements Action<File> {
 
         private final BuildCacheStoreCommand command;
+        private final BuildCacheCompression compression;
 
-        private Pack(BuildCacheStoreCommand command) {
+        private Pack(BuildCacheStoreCommand command, BuildCacheCompression compression) {
             this.command = command;
+            this.compression = compression;
         }
 
         @Override
@@ -239,7 +257,7 @@ public class DefaultBuildCacheController implements BuildCacheController {
                 @Override
                 public void run(BuildOperationContext context) {
                     try {
-                        BuildCacheStoreCommand.Result result = command.store(new FileOutputStream(file));
+                        BuildCacheStoreCommand.Result result = command.store(new FileOutputStream(file), compression);
                         context.setResult(new PackOperationResult(
                             result.getArtifactEntryCount(),
                             file.length()
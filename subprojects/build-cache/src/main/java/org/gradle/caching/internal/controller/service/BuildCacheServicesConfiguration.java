@@ -17,24 +17,31 @@
 package org.gradle.caching.internal.controller.service;
 
 import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.configuration.BuildCacheCompression;
 
 public final class BuildCacheServicesConfiguration {
 
     public final BuildCacheService local;
     public final boolean localPush;
+    public final BuildCacheCompression localCompression;
 
     public final BuildCacheService remote;
     public final boolean remotePush;
+    public final BuildCacheCompression remoteCompression;
 
     public BuildCacheServicesConfiguration(
         BuildCacheService local,
         boolean localPush,
+        BuildCacheCompression localCompression,
         BuildCacheService remote,
-        boolean remotePush
+        boolean remotePush,
+        BuildCacheCompression remoteCompression
     ) {
         this.remote = remote;
         this.remotePush = remotePush;
+        this.remoteCompression = remoteCompression;
         this.local = local;
         this.localPush = localPush;
+        this.localCompression = localCompression;
     }
 }
@@ -16,6 +16,7 @@
 
 package org.gradle.caching.local;
 
+import org.gradle.api.Incubating;
 import org.gradle.caching.configuration.AbstractBuildCache;
 
 import javax.annotation.Nullable;
@@ -29,6 +30,7 @@ import javax.annotation.Nullable;
 public class DirectoryBuildCache extends AbstractBuildCache {
     private Object directory;
     private int removeUnusedEntriesAfterDays = 7;
+    private int maxSizeInMB;
 
     /**
      * Returns the directory to use to store the build cache.
@@ -69,4 +71,29 @@ public class DirectoryBuildCache extends AbstractBuildCache {
         }
         this.removeUnusedEntriesAfterDays = removeUnusedEntriesAfterDays;
     }
+
+    /**
+     * Returns the size in megabytes the cache is allowed to grow to before the least recently used entries are evicted. Defaults to 0, which means the size of the cache is not limited.
+     *
+     * @since 5.2
+     */
+    @Incubating
+    public int getMaxSizeInMB() {
+        return maxSizeInMB;
+    }
+
+    /**
+     * Sets the size in megabytes the cache is allowed to grow to before the least recently used entries are evicted.
+     *
+     * Entries are still garbage collected when they have not been used for {@link #getRemoveUnusedEntriesAfterDays()} days. Must not be negative, 0 means the size of the cache is not limited.
+     *
+     * @since 5.2
+     */
+    @Incubating
+    public void setMaxSizeInMB(int maxSizeInMB) {
+        if (maxSizeInMB < 0) {
+            throw new IllegalArgumentException("Directory build cache size limit must not be negative.");
+        }
+        this.maxSizeInMB = maxSizeInMB;
+    }
 }
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.UncheckedIOException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps track of the size and the order of use of the entries of a directory build cache, so that the least recently used
+ * entries can be evicted once the cache grows beyond its size limit without scanning the cache directory.
+ *
+ * <p>The index is persisted as an append-only journal of stores, accesses and removals inside the cache directory. Each
+ * operation first replays the records appended by other processes since it last looked at the journal, so callers
+ * must hold the cross-process lock of the cache. Once the journal contains mostly stale records, it is rewritten
+ * with one record per live entry under a new generation, which makes other processes reload it from scratch.</p>
+ *
+ * <p>When the journal is created, the entries already in the cache directory are adopted, least recently modified first,
+ * so that they count against the size limit. Entries the index has not seen otherwise, for example because an older version
+ * stored them into a shared cache directory, are adopted when they are next used.</p>
+ */
+public class DirectoryBuildCacheAccessIndex {
+    public static final String INDEX_FILE_NAME = "access-index.bin";
+
+    private static final int MAGIC = 0x47424149;
+    private static final int HEADER_SIZE = 4 + 8;
+    private static final byte ACCESSED = 1;
+    private static final byte REMOVED = 2;
+    private static final int MIN_RECORDS_TO_COMPACT = 1000;
+    private static final int MAX_STALE_RECORDS_PER_ENTRY = 4;
+
+    private final File indexFile;
+    private final long maxSize;
+    private final LinkedHashMap<String, Long> entrySizes = new LinkedHashMap<String, Long>(16, 0.75f, true);
+    private long totalSize;
+    private long generation;
+    private long syncedLength;
+    private int records;
+
+    public DirectoryBuildCacheAccessIndex(File indexFile, long maxSize) {
+        this.indexFile = indexFile;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Records that the given entry has been used, and starts tracking it if it is not yet known.
+     */
+    public synchronized void accessed(String key, long size) {
+        RandomAccessFile file = open();
+        try {
+            sync(file);
+            record(file, key, size);
+            compactIfRequired(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            close(file);
+        }
+    }
+
+    /**
+     * Records that the given entry has been stored and evicts the least recently used entries, other than the stored one,
+     * until the cache fits its size limit again.
+     *
+     * @return the keys of the evicted entries, which the caller needs to delete from the cache.
+     */
+    public synchronized List<String> stored(String key, long size) {
+        RandomAccessFile file = open();
+        try {
+            sync(file);
+            record(file, key, size);
+            List<String> evicted = evict(file, key);
+            compactIfRequired(file);
+            return evicted;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            close(file);
+        }
+    }
+
+    /**
+     * Records that the given entry is no longer in the cache.
+     */
+    public void removed(String key) {
+        removed(Collections.singleton(key));
+    }
+
+    /**
+     * Records that the given entries are no longer in the cache.
+     */
+    public synchronized void removed(Collection<String> keys) {
+        RandomAccessFile file = open();
+        try {
+            sync(file);
+            for (String key : keys) {
+                if (entrySizes.containsKey(key)) {
+                    remove(file, key);
+                }
+            }
+            compactIfRequired(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            close(file);
+        }
+    }
+
+    public synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    private List<String> evict(RandomAccessFile file, String keep) throws IOException {
+        if (totalSize <= maxSize) {
+            return ImmutableList.of();
+        }
+        ImmutableList.Builder<String> evicted = ImmutableList.builder();
+        Iterator<Map.Entry<String, Long>> iterator = entrySizes.entrySet().iterator();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        while (totalSize > maxSize && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            iterator.remove();
+            totalSize -= entry.getValue();
+            writeRemoved(output, entry.getKey());
+            evicted.add(entry.getKey());
+        }
+        append(file, bytes.toByteArray());
+        return evicted.build();
+    }
+
+    private void record(RandomAccessFile file, String key, long size) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeAccessed(new DataOutputStream(bytes), key, size);
+        append(file, bytes.toByteArray());
+        applyAccessed(key, size);
+    }
+
+    private void writeAccessed(DataOutputStream output, String key, long size) throws IOException {
+        output.writeByte(ACCESSED);
+        output.writeUTF(key);
+        output.writeLong(size);
+    }
+
+    private void remove(RandomAccessFile file, String key) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeRemoved(new DataOutputStream(bytes), key);
+        append(file, bytes.toByteArray());
+        applyRemoved(key);
+    }
+
+    private void writeRemoved(DataOutputStream output, String key) throws IOException {
+        output.writeByte(REMOVED);
+        output.writeUTF(key);
+        records++;
+    }
+
+    private void append(RandomAccessFile file, byte[] bytes) throws IOException {
+        file.seek(syncedLength);
+        file.write(bytes);
+        syncedLength += bytes.length;
+    }
+
+    private void applyAccessed(String key, long size) {
+        Long previousSize = entrySizes.put(key, size);
+        totalSize += size - (previousSize == null ? 0 : previousSize);
+        records++;
+    }
+
+    private void applyRemoved(String key) {
+        Long previousSize = entrySizes.remove(key);
+        if (previousSize != null) {
+            totalSize -= previousSize;
+        }
+    }
+
+    /**
+     * Brings the in-memory state up to date with the journal, which may have been changed by other processes.
+     */
+    private void sync(RandomAccessFile file) throws IOException {
+        long length = file.length();
+        if (length < HEADER_SIZE) {
+            reset(file);
+            return;
+        }
+        file.seek(0);
+        int magic = file.readInt();
+        long fileGeneration = file.readLong();
+        if (magic != MAGIC) {
+            reset(file);
+            return;
+        }
+        if (fileGeneration != generation || length < syncedLength) {
+            clear();
+            generation = fileGeneration;
+            syncedLength = HEADER_SIZE;
+        }
+        if (length == syncedLength) {
+            return;
+        }
+
+        byte[] bytes = new byte[(int) (length - syncedLength)];
+        file.seek(syncedLength);
+        file.readFully(bytes);
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+        int consumed = 0;
+        try {
+            while (consumed < bytes.length) {
+                byte type = input.readByte();
+                String key = input.readUTF();
+                if (type == ACCESSED) {
+                    applyAccessed(key, input.readLong());
+                } else if (type == REMOVED) {
+                    applyRemoved(key);
+                    records++;
+                } else {
+                    break;
+                }
+                consumed = bytes.length - input.available();
+            }
+        } catch (EOFException e) {
+            // A process died while appending a record; the incomplete record is dropped below
+        }
+        syncedLength += consumed;
+        if (syncedLength < length) {
+            file.setLength(syncedLength);
+        }
+    }
+
+    private void reset(RandomAccessFile file) throws IOException {
+        clear();
+        generation = ThreadLocalRandom.current().nextLong();
+        file.setLength(0);
+        file.writeInt(MAGIC);
+        file.writeLong(generation);
+        syncedLength = HEADER_SIZE;
+        adoptExistingEntries(file);
+    }
+
+    private void adoptExistingEntries(RandomAccessFile file) throws IOException {
+        File[] files = indexFile.getParentFile().listFiles();
+        if (files == null) {
+            return;
+        }
+        final Map<File, Long> lastModified = new HashMap<File, Long>();
+        List<File> entries = new ArrayList<File>();
+        for (File candidate : files) {
+            if (isEntryName(candidate.getName()) && candidate.isFile()) {
+                entries.add(candidate);
+                lastModified.put(candidate, candidate.lastModified());
+            }
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        Collections.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File left, File right) {
+                return lastModified.get(left).compareTo(lastModified.get(right));
+            }
+        });
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        for (File entry : entries) {
+            long size = entry.length();
+            writeAccessed(output, entry.getName(), size);
+            applyAccessed(entry.getName(), size);
+        }
+        append(file, bytes.toByteArray());
+    }
+
+    /**
+     * Entries are named after their cache key, while the index, lock, temporary and failed files of the cache all have an extension.
+     */
+    static boolean isEntryName(String fileName) {
+        return fileName.indexOf('.') < 0;
+    }
+
+    private void clear() {
+        entrySizes.clear();
+        totalSize = 0;
+        records = 0;
+    }
+
+    private void compactIfRequired(RandomAccessFile file) throws IOException {
+        if (records < MIN_RECORDS_TO_COMPACT || records < MAX_STALE_RECORDS_PER_ENTRY * entrySizes.size()) {
+            return;
+        }
+        long newGeneration = ThreadLocalRandom.current().nextLong();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(MAGIC);
+        output.writeLong(newGeneration);
+        // Iterating an access ordered map does not change its order, so the least recently used entries are written first
+        for (Map.Entry<String, Long> entry : entrySizes.entrySet()) {
+            writeAccessed(output, entry.getKey(), entry.getValue());
+        }
+        close(file);
+        File compacted = new File(indexFile.getPath() + ".tmp");
+        Files.write(compacted.toPath(), bytes.toByteArray());
+        Files.move(compacted.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        generation = newGeneration;
+        syncedLength = bytes.size();
+        records = entrySizes.size();
+    }
+
+    private RandomAccessFile open() {
+        try {
+            return new RandomAccessFile(indexFile, "rw");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void close(RandomAccessFile file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
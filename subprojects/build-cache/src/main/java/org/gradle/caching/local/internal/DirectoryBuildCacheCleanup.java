@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import org.gradle.cache.CleanableStore;
+import org.gradle.cache.CleanupProgressMonitor;
+import org.gradle.cache.internal.FilesFinder;
+import org.gradle.cache.internal.LeastRecentlyUsedCacheCleanup;
+import org.gradle.internal.resource.local.FileAccessTimeJournal;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deletes the entries of a directory build cache which have not been used for the configured number of days,
+ * and removes them from the access index of the cache so that its size stays accurate.
+ */
+class DirectoryBuildCacheCleanup extends LeastRecentlyUsedCacheCleanup {
+    private final DirectoryBuildCacheAccessIndex accessIndex;
+    private final List<String> deletedKeys = new ArrayList<String>();
+
+    DirectoryBuildCacheCleanup(FilesFinder eligibleFilesFinder, FileAccessTimeJournal journal, long numberOfDays, DirectoryBuildCacheAccessIndex accessIndex) {
+        super(eligibleFilesFinder, journal, numberOfDays);
+        this.accessIndex = accessIndex;
+    }
+
+    @Override
+    public void clean(CleanableStore cleanableStore, CleanupProgressMonitor progressMonitor) {
+        try {
+            super.clean(cleanableStore, progressMonitor);
+            // Cleanup runs while holding the lock of the cache, which the access index requires
+            if (!deletedKeys.isEmpty()) {
+                accessIndex.removed(deletedKeys);
+            }
+        } finally {
+            deletedKeys.clear();
+        }
+    }
+
+    @Override
+    protected boolean shouldDelete(File file) {
+        // The access index is not tracked by the access time journal, so it would look unused
+        return !file.getName().startsWith(DirectoryBuildCacheAccessIndex.INDEX_FILE_NAME) && super.shouldDelete(file);
+    }
+
+    @Override
+    protected void handleDeletion(File file) {
+        super.handleDeletion(file);
+        if (DirectoryBuildCacheAccessIndex.isEntryName(file.getName())) {
+            deletedKeys.add(file.getName());
+        }
+    }
+}
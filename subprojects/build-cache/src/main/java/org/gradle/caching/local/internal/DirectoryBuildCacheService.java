@@ -32,6 +32,7 @@ import org.gradle.internal.resource.local.PathKeyFileStore;
 import org.gradle.util.GFileUtils;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -46,14 +47,16 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
     private final BuildCacheTempFileStore tempFileStore;
     private final FileAccessTracker fileAccessTracker;
     private final String failedFileSuffix;
+    private final DirectoryBuildCacheAccessIndex accessIndex;
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
-    public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, FileAccessTracker fileAccessTracker, String failedFileSuffix) {
+    public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, FileAccessTracker fileAccessTracker, String failedFileSuffix, @Nullable DirectoryBuildCacheAccessIndex accessIndex) {
         this.fileStore = fileStore;
         this.persistentCache = persistentCache;
         this.tempFileStore = tempFileStore;
         this.fileAccessTracker = fileAccessTracker;
         this.failedFileSuffix = failedFileSuffix;
+        this.accessIndex = accessIndex;
     }
 
     private static class LoadAction implements Action<File> {
@@ -107,11 +110,17 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
     private void loadInsideLock(BuildCacheKey key, Action<? super File> reader) {
         LocallyAvailableResource resource = fileStore.get(key.getHashCode());
         if (resource == null) {
+            if (accessIndex != null) {
+                accessIndex.removed(key.getHashCode());
+            }
             return;
         }
 
         File file = resource.getFile();
         fileAccessTracker.markAccessed(file);
+        if (accessIndex != null) {
+            accessIndex.accessed(key.getHashCode(), file.length());
+        }
 
         try {
             reader.execute(file);
@@ -122,6 +131,9 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
             GFileUtils.deleteQuietly(failedFile);
             //noinspection ResultOfMethodCallIgnored
             file.renameTo(failedFile);
+            if (accessIndex != null) {
+                accessIndex.removed(key.getHashCode());
+            }
 
             throw UncheckedException.throwAsUncheckedException(e);
         }
@@ -168,6 +180,14 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
     private void storeInsideLock(BuildCacheKey key, File file) {
         LocallyAvailableResource resource = fileStore.move(key.getHashCode(), file);
         fileAccessTracker.markAccessed(resource.getFile());
+        if (accessIndex != null) {
+            for (String evictedKey : accessIndex.stored(key.getHashCode(), resource.getFile().length())) {
+                LocallyAvailableResource evicted = fileStore.get(evictedKey);
+                if (evicted != null) {
+                    GFileUtils.deleteQuietly(evicted.getFile());
+                }
+            }
+        }
     }
 
     @Override
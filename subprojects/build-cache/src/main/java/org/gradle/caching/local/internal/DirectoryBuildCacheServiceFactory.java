@@ -19,6 +19,7 @@ package org.gradle.caching.local.internal;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.cache.CacheBuilder;
 import org.gradle.cache.CacheRepository;
+import org.gradle.cache.CleanupAction;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.internal.CacheScopeMapping;
 import org.gradle.cache.internal.CleanupActionFactory;
@@ -82,10 +83,21 @@ public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFacto
             config("location", target.getAbsolutePath()).
             config("removeUnusedEntriesAfter", String.valueOf(removeUnusedEntriesAfterDays) + " days");
 
+        DirectoryBuildCacheAccessIndex accessIndex = null;
+        int maxSizeInMB = configuration.getMaxSizeInMB();
+        if (maxSizeInMB > 0) {
+            describer.config("maxSize", maxSizeInMB + " MB");
+            accessIndex = new DirectoryBuildCacheAccessIndex(new File(target, DirectoryBuildCacheAccessIndex.INDEX_FILE_NAME), maxSizeInMB * 1024L * 1024L);
+        }
+
+        SingleDepthFilesFinder filesFinder = new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP);
+        CleanupAction cleanup = accessIndex == null
+            ? new LeastRecentlyUsedCacheCleanup(filesFinder, fileAccessTimeJournal, removeUnusedEntriesAfterDays)
+            : new DirectoryBuildCacheCleanup(filesFinder, fileAccessTimeJournal, removeUnusedEntriesAfterDays, accessIndex);
         PathKeyFileStore fileStore = fileStoreFactory.createFileStore(target);
         PersistentCache persistentCache = cacheRepository
             .cache(target)
-            .withCleanup(cleanupActionFactory.create(new LeastRecentlyUsedCacheCleanup(new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP), fileAccessTimeJournal, removeUnusedEntriesAfterDays)))
+            .withCleanup(cleanupActionFactory.create(cleanup))
             .withDisplayName("Build cache")
             .withLockOptions(mode(None))
             .withCrossVersionCache(CacheBuilder.LockTarget.DefaultTarget)
@@ -93,7 +105,7 @@ public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFacto
         BuildCacheTempFileStore tempFileStore = new DefaultBuildCacheTempFileStore(target);
         FileAccessTracker fileAccessTracker = new SingleDepthFileAccessTracker(fileAccessTimeJournal, target, FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP);
 
-        return new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, fileAccessTracker, FAILED_READ_SUFFIX);
+        return new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, fileAccessTracker, FAILED_READ_SUFFIX, accessIndex);
     }
 
     private static void checkDirectory(File directory) {
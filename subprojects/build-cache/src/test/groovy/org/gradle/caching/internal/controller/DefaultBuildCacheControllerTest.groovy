@@ -21,6 +21,7 @@ import org.gradle.caching.BuildCacheEntryReader
 import org.gradle.caching.BuildCacheEntryWriter
 import org.gradle.caching.BuildCacheKey
 import org.gradle.caching.BuildCacheService
+import org.gradle.caching.configuration.BuildCacheCompression
 import org.gradle.caching.internal.controller.service.BuildCacheServicesConfiguration
 import org.gradle.caching.local.internal.LocalBuildCacheService
 import org.gradle.internal.operations.TestBuildOperationExecutor
@@ -41,14 +42,16 @@ class DefaultBuildCacheControllerTest extends Specification {
         }
     }
     def localPush = true
+    def localCompression = BuildCacheCompression.GZIP
     def remote = Mock(BuildCacheService)
     def remotePush = true
+    def remoteCompression = BuildCacheCompression.GZIP
 
     BuildCacheService legacyLocal = null
 
     def storeCommand = Stub(BuildCacheStoreCommand) {
         getKey() >> key
-        store(_) >> { OutputStream output ->
+        store(_, _) >> { OutputStream output, BuildCacheCompression compression ->
             output.close()
             new BuildCacheStoreCommand.Result() {
                 @Override
@@ -59,6 +62,8 @@ class DefaultBuildCacheControllerTest extends Specification {
         }
     }
 
+    def storeResult = Stub(BuildCacheStoreCommand.Result)
+
     def loadCommand = Stub(BuildCacheLoadCommand) {
         getKey() >> key
         load(_) >> { InputStream input ->
@@ -87,8 +92,8 @@ class DefaultBuildCacheControllerTest extends Specification {
     BuildCacheController getController() {
         new DefaultBuildCacheController(
             new BuildCacheServicesConfiguration(
-                legacyLocal ?: local, localPush,
-                remote, remotePush
+                legacyLocal ?: local, localPush, localCompression,
+                remote, remotePush, remoteCompression
             ),
             operations,
             tmpDir.file("dir"),
@@ -133,6 +138,45 @@ class DefaultBuildCacheControllerTest extends Specification {
         0 * local.storeLocally(key, _)
     }
 
+    def "packs once for each compression used by the caches"() {
+        given:
+        localCompression = BuildCacheCompression.FAST
+        def command = Mock(BuildCacheStoreCommand) {
+            getKey() >> key
+        }
+
+        when:
+        controller.store(command)
+
+        then:
+        1 * command.store(_, BuildCacheCompression.FAST) >> { OutputStream output, BuildCacheCompression compression -> output.close(); storeResult }
+        1 * local.storeLocally(key, _)
+        0 * remote.store(key, _)
+
+        then:
+        1 * command.store(_, BuildCacheCompression.GZIP) >> { OutputStream output, BuildCacheCompression compression -> output.close(); storeResult }
+        1 * remote.store(key, _)
+        0 * local.storeLocally(key, _)
+    }
+
+    def "packs with the compression of the only cache that is stored to"() {
+        given:
+        localPush = false
+        localCompression = BuildCacheCompression.FAST
+        remoteCompression = BuildCacheCompression.NONE
+        def command = Mock(BuildCacheStoreCommand) {
+            getKey() >> key
+        }
+
+        when:
+        controller.store(command)
+
+        then:
+        1 * command.store(_, BuildCacheCompression.NONE) >> { OutputStream output, BuildCacheCompression compression -> output.close(); storeResult }
+        1 * remote.store(key, _)
+        0 * local.storeLocally(key, _)
+    }
+
     def "does not store to local if no local"() {
         given:
         local = null
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal
+
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+@CleanupTestDirectory
+class DirectoryBuildCacheAccessIndexTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+    def indexFile = temporaryFolder.file("cache/access-index.bin")
+
+    def setup() {
+        indexFile.parentFile.createDir()
+    }
+
+    def "evicts least recently used entries once the size limit is exceeded"() {
+        def index = new DirectoryBuildCacheAccessIndex(indexFile, 100)
+
+        expect:
+        index.stored("a", 40) == []
+        index.stored("b", 40) == []
+        index.accessed("a", 40)
+        index.stored("c", 40) == ["b"]
+        index.totalSize == 80
+        index.stored("d", 90) == ["a", "c"]
+        index.totalSize == 90
+    }
+
+    def "never evicts the entry which has just been stored"() {
+        def index = new DirectoryBuildCacheAccessIndex(indexFile, 100)
+
+        expect:
+        index.stored("a", 40) == []
+        index.stored("b", 150) == ["a"]
+        index.totalSize == 150
+    }
+
+    def "adopts entries it has not seen before when they are accessed"() {
+        def index = new DirectoryBuildCacheAccessIndex(indexFile, 100)
+
+        when:
+        index.accessed("old", 60)
+
+        then:
+        index.totalSize == 60
+        index.stored("new", 60) == ["old"]
+    }
+
+    def "adopts the entries already in the cache directory when the index is created"() {
+        entry("older", 40, 1000)
+        entry("newer", 40, 2000)
+        indexFile.parentFile.file("gc.properties").text = "not an entry"
+        indexFile.parentFile.file("failed.failed").bytes = new byte[500]
+        def index = new DirectoryBuildCacheAccessIndex(indexFile, 100)
+
+        expect:
+        index.stored("new", 40) == ["older"]
+        index.totalSize == 80
+    }
+
+    def "forgets removed entries"() {
+        def index = new DirectoryBuildCacheAccessIndex(indexFile, 100)
+
+        when:
+        index.stored("a", 60)
+        index.removed("a")
+        index.removed("unknown")
+
+        then:
+        index.totalSize == 0
+        index.stored("b", 60) == []
+    }
+
+    def "sees changes made by other instances sharing the index file"() {
+        def first = new DirectoryBuildCacheAccessIndex(indexFile, 100)
+        def second = new DirectoryBuildCacheAccessIndex(indexFile, 100)
+
+        when:
+        first.stored("a", 40)
+        second.stored("b", 40)
+        first.accessed("a", 40)
+
+        then:
+        second.stored("c", 40) == ["b"]
+        first.stored("d", 10) == []
+        first.totalSize == 90
+    }
+
+    def "keeps order of use across compaction"() {
+        def first = new DirectoryBuildCacheAccessIndex(indexFile, 1000)
+        def second = new DirectoryBuildCacheAccessIndex(indexFile, 1000)
+        second.stored("x", 1)
+
+        when:
+        first.stored("a", 300)
+        first.stored("b", 300)
+        first.stored("c", 300)
+        2000.times {
+            first.accessed("b", 300)
+        }
+        def lengthBeforeRestart = indexFile.length()
+
+        then:
+        lengthBeforeRestart < 1000
+        second.stored("d", 300) == ["x", "a"]
+        new DirectoryBuildCacheAccessIndex(indexFile, 1000).stored("e", 300) == ["c"]
+    }
+
+    def "recovers from a truncated or corrupt index"() {
+        def index = new DirectoryBuildCacheAccessIndex(indexFile, 100)
+        index.stored("a", 40)
+        index.stored("b", 40)
+
+        when:
+        indexFile.bytes = Arrays.copyOf(indexFile.bytes, (int) indexFile.length() - 3)
+
+        then:
+        new DirectoryBuildCacheAccessIndex(indexFile, 70).stored("c", 40) == ["a"]
+
+        when:
+        indexFile.text = "this is not an index file"
+
+        then:
+        new DirectoryBuildCacheAccessIndex(indexFile, 100).stored("d", 40) == []
+    }
+
+    private void entry(String key, int size, long lastModified) {
+        def file = indexFile.parentFile.file(key)
+        file.bytes = new byte[size]
+        file.lastModified = lastModified
+    }
+}
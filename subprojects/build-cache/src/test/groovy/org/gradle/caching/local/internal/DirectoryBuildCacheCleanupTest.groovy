@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal
+
+import org.gradle.cache.CleanableStore
+import org.gradle.cache.CleanupProgressMonitor
+import org.gradle.cache.internal.SingleDepthFilesFinder
+import org.gradle.internal.resource.local.ModificationTimeFileAccessTimeJournal
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+@CleanupTestDirectory
+class DirectoryBuildCacheCleanupTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+    def cacheDir = temporaryFolder.file("cache-dir").createDir()
+    def cleanableStore = Stub(CleanableStore) {
+        getBaseDir() >> cacheDir
+    }
+    def accessIndex = new DirectoryBuildCacheAccessIndex(cacheDir.file(DirectoryBuildCacheAccessIndex.INDEX_FILE_NAME), 10000)
+    def cleanup = new DirectoryBuildCacheCleanup(new SingleDepthFilesFinder(1), new ModificationTimeFileAccessTimeJournal(), 1, accessIndex)
+
+    def "removes the entries it deletes from the access index"() {
+        long now = System.currentTimeMillis()
+        createCacheEntry("recent", now)
+        def old = createCacheEntry("old", now - TimeUnit.DAYS.toMillis(5))
+        accessIndex.stored("recent", 1000)
+        accessIndex.stored("old", 1000)
+
+        when:
+        cleanup.clean(cleanableStore, Stub(CleanupProgressMonitor))
+
+        then:
+        old.assertDoesNotExist()
+        accessIndex.totalSize == 1000
+
+        and:
+        new DirectoryBuildCacheAccessIndex(cacheDir.file(DirectoryBuildCacheAccessIndex.INDEX_FILE_NAME), 10000).stored("new", 9000) == []
+    }
+
+    def "does not delete the access index"() {
+        def indexFile = cacheDir.file(DirectoryBuildCacheAccessIndex.INDEX_FILE_NAME)
+        accessIndex.stored("recent", 1000)
+        indexFile.lastModified = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(5)
+
+        when:
+        cleanup.clean(cleanableStore, Stub(CleanupProgressMonitor))
+
+        then:
+        indexFile.assertIsFile()
+        accessIndex.totalSize == 1000
+    }
+
+    def createCacheEntry(String key, long timestamp) {
+        def cacheEntry = cacheDir.file(key)
+        cacheEntry.bytes = new byte[1000]
+        cacheEntry.lastModified = timestamp
+        return cacheEntry
+    }
+}
@@ -40,7 +40,7 @@ class DirectoryBuildCacheServiceTest extends Specification {
     }
     def tempFileStore = new DefaultBuildCacheTempFileStore(cacheDir)
     def fileAccessTracker = Mock(FileAccessTracker)
-    def service = new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, fileAccessTracker, ".failed")
+    def service = new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, fileAccessTracker, ".failed", null)
     def hashCode = "1234abcd"
     def key = Mock(BuildCacheKey) {
         getHashCode() >> hashCode
@@ -132,4 +132,23 @@ class DirectoryBuildCacheServiceTest extends Specification {
         1 * fileAccessTracker.markAccessed(cachedFile)
         loaded
     }
+
+    def "evicts least recently used entries when the cache grows beyond its size limit"() {
+        def accessIndex = new DirectoryBuildCacheAccessIndex(new File(cacheDir, DirectoryBuildCacheAccessIndex.INDEX_FILE_NAME), 10)
+        def sizeLimitedService = new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, fileAccessTracker, ".failed", accessIndex)
+        def keys = ["aaaa", "bbbb", "cccc"].collect { hash -> Stub(BuildCacheKey) { getHashCode() >> hash } }
+
+        when:
+        keys.each { key ->
+            def entry = temporaryFolder.createFile(key.hashCode)
+            entry.text = "1234"
+            sizeLimitedService.storeLocally(key, entry)
+        }
+
+        then:
+        fileStore.get("aaaa") == null
+        fileStore.get("bbbb") != null
+        fileStore.get("cccc") != null
+        accessIndex.totalSize == 8
+    }
 }
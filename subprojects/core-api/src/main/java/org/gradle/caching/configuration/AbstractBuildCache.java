@@ -16,6 +16,8 @@
 
 package org.gradle.caching.configuration;
 
+import org.gradle.api.Incubating;
+
 /**
  * Base implementation for build cache service configuration.
  *
@@ -24,6 +26,7 @@ package org.gradle.caching.configuration;
 public abstract class AbstractBuildCache implements BuildCache {
     private boolean enabled = true;
     private boolean push;
+    private BuildCacheCompression compression = BuildCacheCompression.GZIP;
 
     /**
      * {@inheritDoc}
@@ -56,4 +59,27 @@ public abstract class AbstractBuildCache implements BuildCache {
     public void setPush(boolean push) {
         this.push = push;
     }
+
+    /**
+     * Returns the compression used for the entries stored in this build cache. Defaults to {@link BuildCacheCompression#GZIP}.
+     *
+     * @since 5.2
+     */
+    @Incubating
+    public BuildCacheCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Sets the compression used for the entries stored in this build cache.
+     *
+     * @since 5.2
+     */
+    @Incubating
+    public void setCompression(BuildCacheCompression compression) {
+        if (compression == null) {
+            throw new IllegalArgumentException("Build cache compression cannot be null.");
+        }
+        this.compression = compression;
+    }
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.configuration;
+
+import org.gradle.api.Incubating;
+
+/**
+ * The compression used for the entries stored in a build cache.
+ *
+ * <p>Entries can be loaded regardless of the compression they were stored with, so the compression of a build cache can be changed at any time.</p>
+ *
+ * @since 5.2
+ */
+@Incubating
+public enum BuildCacheCompression {
+    /**
+     * Compresses entries with gzip. This produces the smallest entries, and entries that can be loaded by all Gradle versions.
+     */
+    GZIP,
+
+    /**
+     * Compresses entries as fast as possible. This is considerably faster than {@link #GZIP}, at the cost of larger entries.
+     */
+    FAST,
+
+    /**
+     * Stores entries without compression. This is the fastest option when most outputs are already compressed, for example jar files.
+     */
+    NONE
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution
+
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+
+class ParallelProjectConfigurationIntegrationTest extends AbstractIntegrationSpec {
+
+    def setup() {
+        executer.withArguments("--parallel", "--max-workers=4", "-D${ParallelProjectConfigurer.ENABLED_PROPERTY}=true")
+        settingsFile << "include 'a', 'b', 'c'"
+    }
+
+    def "configures a sibling once when other siblings depend on its evaluation"() {
+        given:
+        file("a/build.gradle") << """
+            evaluationDependsOn(':c')
+            println "configured project \${path}"
+        """
+        file("b/build.gradle") << """
+            evaluationDependsOn(':c')
+            println "configured project \${path}"
+        """
+        file("c/build.gradle") << """
+            Thread.sleep(500)
+            println "configured project \${path}"
+        """
+
+        when:
+        succeeds "help"
+
+        then:
+        configuredOnce(":a")
+        configuredOnce(":b")
+        configuredOnce(":c")
+    }
+
+    def "configures a sibling once when another sibling depends on its evaluation"() {
+        given:
+        file("a/build.gradle") << """
+            evaluationDependsOn(':b')
+            println "configured project \${path}"
+        """
+        file("b/build.gradle") << """
+            Thread.sleep(500)
+            println "configured project \${path}"
+        """
+
+        when:
+        succeeds "help"
+
+        then:
+        configuredOnce(":a")
+        configuredOnce(":b")
+    }
+
+    private boolean configuredOnce(String path) {
+        output.count("configured project ${path}\n") == 1
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import com.google.common.collect.Lists;
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Drains a synthetic execution plan the way {@link DefaultExecutionPlan#selectNext} does with a number of busy workers,
+ * each of them holding the lock of the project it last started a node in.
+ *
+ * Compares scanning the whole execution queue with looking up the {@link ReadyNodes} index.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class ReadyNodesBenchmark {
+    private static final int WORKERS = 32;
+
+    @Param({"5000", "50000"})
+    int nodeCount;
+
+    @Param({"100", "600"})
+    int projectCount;
+
+    private List<Node> nodes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(1234L);
+        List<Project> projects = Lists.newArrayList();
+        for (int i = 0; i < projectCount; i++) {
+            projects.add(project(":project" + i));
+        }
+        nodes = Lists.newArrayList();
+        for (int i = 0; i < nodeCount; i++) {
+            nodes.add(new SyntheticNode(i, projects.get(random.nextInt(projectCount))));
+        }
+    }
+
+    @Benchmark
+    public void scanExecutionQueue(Blackhole bh) {
+        List<Node> executionQueue = Lists.newLinkedList(nodes);
+        LockedProjects lockedProjects = new LockedProjects();
+        while (!executionQueue.isEmpty()) {
+            Iterator<Node> iterator = executionQueue.iterator();
+            while (iterator.hasNext()) {
+                Node node = iterator.next();
+                if (node.allDependenciesComplete() && lockedProjects.tryLock(node.getProject())) {
+                    iterator.remove();
+                    bh.consume(node);
+                    break;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void lookUpReadyNodes(Blackhole bh) {
+        ReadyNodes readyNodes = new ReadyNodes();
+        readyNodes.setExecutionOrder(nodes);
+        for (Node node : nodes) {
+            readyNodes.add(node);
+        }
+        LockedProjects lockedProjects = new LockedProjects();
+        while (!readyNodes.isEmpty()) {
+            Node selected = null;
+            for (ReadyNodes.ProjectNodes projectNodes : readyNodes.getProjectsInExecutionOrder()) {
+                if (lockedProjects.tryLock(projectNodes.getProject())) {
+                    selected = projectNodes.getNodes().iterator().next();
+                    break;
+                }
+            }
+            readyNodes.remove(selected);
+            bh.consume(selected);
+        }
+    }
+
+    private static Project project(final String path) {
+        return (Project) Proxy.newProxyInstance(Project.class.getClassLoader(), new Class<?>[]{Project.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                }
+                if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+                return path;
+            }
+        });
+    }
+
+    /**
+     * The projects locked by the workers, with the oldest lock being released whenever a new one is taken.
+     */
+    private static class LockedProjects {
+        private final Deque<Project> locks = new ArrayDeque<Project>();
+        private final Set<Project> lockedProjects = new HashSet<Project>();
+
+        boolean tryLock(Project project) {
+            if (lockedProjects.contains(project)) {
+                return false;
+            }
+            if (locks.size() == WORKERS - 1) {
+                lockedProjects.remove(locks.removeFirst());
+            }
+            locks.addLast(project);
+            lockedProjects.add(project);
+            return true;
+        }
+    }
+
+    private static class SyntheticNode extends Node {
+        private final int id;
+        private final Project project;
+
+        SyntheticNode(int id, Project project) {
+            this.id = id;
+            this.project = project;
+            require();
+        }
+
+        @Override
+        public Throwable getNodeFailure() {
+            return null;
+        }
+
+        @Override
+        public void rethrowNodeFailure() {
+        }
+
+        @Override
+        public void prepareForExecution() {
+        }
+
+        @Override
+        public void resolveDependencies(TaskDependencyResolver dependencyResolver, Action<Node> processHardSuccessor) {
+        }
+
+        @Override
+        public Set<Node> getFinalizers() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Project getProject() {
+            return project;
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            return Integer.compare(id, ((SyntheticNode) other).id);
+        }
+
+        @Override
+        public String toString() {
+            return "node " + id;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.execution.plan.TaskDurationHistory;
+import org.gradle.internal.execution.history.ExecutionHistoryCacheAccess;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+
+import static org.gradle.internal.serialize.BaseSerializerFactory.LONG_SERIALIZER;
+
+/**
+ * Keeps the task durations in the execution history cache, next to the execution history of the tasks.
+ *
+ * <p>The cache is only created when the durations are first used, so builds which do not prioritize the critical path do not open it.</p>
+ */
+public class DefaultTaskDurationHistory implements TaskDurationHistory {
+    private final ExecutionHistoryCacheAccess executionHistoryCacheAccess;
+    private PersistentIndexedCache<String, Long> store;
+
+    public DefaultTaskDurationHistory(ExecutionHistoryCacheAccess executionHistoryCacheAccess) {
+        this.executionHistoryCacheAccess = executionHistoryCacheAccess;
+    }
+
+    @Nullable
+    @Override
+    public Long getPreviousDuration(String taskPath) {
+        return getStore().get(taskPath);
+    }
+
+    @Override
+    public void recordDurations(Map<String, Long> durations) {
+        PersistentIndexedCache<String, Long> store = getStore();
+        for (Map.Entry<String, Long> entry : durations.entrySet()) {
+            store.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private synchronized PersistentIndexedCache<String, Long> getStore() {
+        if (store == null) {
+            store = executionHistoryCacheAccess.createCache(
+                PersistentIndexedCacheParameters.of("taskDurations", String.class, LONG_SERIALIZER),
+                10000,
+                false
+            );
+        }
+        return store;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.project;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Detects projects which access the mutable state of other projects while projects are configured in parallel.
+ */
+public class CrossProjectAccessDetector {
+    private static final Logger LOGGER = Logging.getLogger(CrossProjectAccessDetector.class);
+
+    private final ThreadLocal<ProjectConfiguration> currentConfiguration = new ThreadLocal<ProjectConfiguration>();
+
+    /**
+     * Starts a session in which projects are configured in parallel.
+     */
+    public Session startSession() {
+        return new Session();
+    }
+
+    /**
+     * Called before the current thread accesses the mutable state of the given project.
+     *
+     * @return true when the current thread configures another project in parallel with other projects.
+     */
+    public boolean accessing(ProjectState target) {
+        ProjectConfiguration configuration = currentConfiguration.get();
+        if (configuration == null || configuration.project == target) {
+            return false;
+        }
+        configuration.session.detected(configuration.project, target);
+        return true;
+    }
+
+    public class Session {
+        private final AtomicBoolean crossProjectAccess = new AtomicBoolean();
+
+        /**
+         * Runs the given action to configure the given project, detecting accesses to other projects made by the current thread.
+         */
+        public void configure(ProjectState project, Runnable action) {
+            ProjectConfiguration previous = currentConfiguration.get();
+            currentConfiguration.set(new ProjectConfiguration(this, project));
+            try {
+                action.run();
+            } finally {
+                currentConfiguration.set(previous);
+            }
+        }
+
+        /**
+         * Returns true when a project configured in this session has accessed another project.
+         */
+        public boolean isCrossProjectAccessDetected() {
+            return crossProjectAccess.get();
+        }
+
+        private void detected(ProjectState project, ProjectState target) {
+            if (crossProjectAccess.compareAndSet(false, true)) {
+                LOGGER.warn("{} accessed {} while projects were configured in parallel. The projects which have not started to be configured yet will be configured serially. "
+                    + "The access is only detected once it has happened, and the projects being configured at that point carry on in parallel, so they are not protected from it.", project, target);
+            }
+        }
+    }
+
+    private static class ProjectConfiguration {
+        private final Session session;
+        private final ProjectState project;
+
+        ProjectConfiguration(Session session, ProjectState project) {
+            this.session = session;
+            this.project = project;
+        }
+    }
+}
@@ -161,6 +161,8 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
 
     private ProjectEvaluator projectEvaluator;
 
+    private CrossProjectAccessDetector crossProjectAccessDetector;
+
     private ScriptSource buildScriptSource;
 
     private final File projectDir;
@@ -370,6 +372,13 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
         return projectEvaluator;
     }
 
+    private CrossProjectAccessDetector getCrossProjectAccessDetector() {
+        if (crossProjectAccessDetector == null) {
+            crossProjectAccessDetector = services.get(CrossProjectAccessDetector.class);
+        }
+        return crossProjectAccessDetector;
+    }
+
     public void setProjectEvaluator(ProjectEvaluator projectEvaluator) {
         this.projectEvaluator = projectEvaluator;
     }
@@ -768,6 +777,10 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
     }
 
     private Project evaluationDependsOn(DefaultProject projectToEvaluate) {
+        if (getCrossProjectAccessDetector().accessing(projectToEvaluate.getMutationState())) {
+            // The project may be configured by another thread, so wait for it to finish
+            projectToEvaluate.getMutationState().withMutableState(Factories.<Void>constant(null));
+        }
         if (projectToEvaluate.getState().isConfiguring()) {
             throw new CircularReferenceException(String.format("Circular referencing during evaluation for %s.",
                 projectToEvaluate));
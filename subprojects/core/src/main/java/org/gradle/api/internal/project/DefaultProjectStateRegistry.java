@@ -38,6 +38,7 @@ import java.util.concurrent.locks.ReentrantLock;
 
 public class DefaultProjectStateRegistry implements ProjectStateRegistry {
     private final WorkerLeaseService workerLeaseService;
+    private final CrossProjectAccessDetector crossProjectAccessDetector;
     private final Object lock = new Object();
     private final Map<Path, ProjectStateImpl> projectsByPath = Maps.newLinkedHashMap();
     private final Map<ProjectComponentIdentifier, ProjectStateImpl> projectsById = Maps.newLinkedHashMap();
@@ -49,8 +50,9 @@ public class DefaultProjectStateRegistry implements ProjectStateRegistry {
         }
     };
 
-    public DefaultProjectStateRegistry(WorkerLeaseService workerLeaseService) {
+    public DefaultProjectStateRegistry(WorkerLeaseService workerLeaseService, CrossProjectAccessDetector crossProjectAccessDetector) {
         this.workerLeaseService = workerLeaseService;
+        this.crossProjectAccessDetector = crossProjectAccessDetector;
     }
 
     public void registerProjects(BuildState owner) {
@@ -135,6 +137,17 @@ public class DefaultProjectStateRegistry implements ProjectStateRegistry {
         }
     }
 
+    @Override
+    public <T> T withStrictState(Factory<T> factory) {
+        Boolean originalState = LENIENT_MUTATION_STATE.get();
+        LENIENT_MUTATION_STATE.set(false);
+        try {
+            return factory.create();
+        } finally {
+            LENIENT_MUTATION_STATE.set(originalState);
+        }
+    }
+
     @Override
     public SafeExclusiveLock newExclusiveOperationLock() {
         return new SafeExclusiveLockImpl();
@@ -207,6 +220,7 @@ public class DefaultProjectStateRegistry implements ProjectStateRegistry {
             } else {
                 // we don't currently hold the project lock
                 if (!currentLocks.isEmpty()) {
+                    crossProjectAccessDetector.accessing(this);
                     // we hold other project locks that we should release first
                     return workerLeaseService.withoutLocks(currentLocks, new Factory<T>() {
                         @Nullable
@@ -72,6 +72,12 @@ public interface ProjectStateRegistry {
      */
     <T> T withLenientState(Factory<T> factory);
 
+    /**
+     * Creates the object with state locking enabled, even when called from a section of code that runs with state locking disabled.
+     * This should be used when the object is created using other threads, which access the state of projects under their project locks.
+     */
+    <T> T withStrictState(Factory<T> factory);
+
     /**
      * Returns a {@link SafeExclusiveLock}.
      */
@@ -30,10 +30,11 @@ import org.gradle.caching.internal.controller.BuildCacheControllerFactory.Remote
 import org.gradle.caching.internal.controller.RootBuildCacheControllerRef;
 import org.gradle.caching.internal.origin.OriginMetadataFactory;
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
-import org.gradle.caching.internal.packaging.impl.GZipBuildCacheEntryPacker;
+import org.gradle.caching.internal.packaging.impl.PipelinedBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.TarBuildCacheEntryPacker;
 import org.gradle.initialization.buildsrc.BuildSourceBuilder;
 import org.gradle.internal.SystemProperties;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.nativeplatform.filesystem.FileSystem;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -55,10 +56,19 @@ import static org.gradle.caching.internal.controller.BuildCacheControllerFactory
 
 public class BuildCacheServices {
 
+    /**
+     * Compresses build cache entries on a separate thread while they are being packed when set to {@code true}.
+     */
+    public static final String PIPELINED_PACKING_PROPERTY = "org.gradle.internal.build-cache.pipelined-packing";
+
     private static final Path ROOT_BUILD_SRC_PATH = Path.path(":" + BuildSourceBuilder.BUILD_SRC);
 
-    BuildCacheEntryPacker createResultPacker(FileSystem fileSystem, StreamHasher fileHasher, StringInterner stringInterner) {
-        return new GZipBuildCacheEntryPacker(new TarBuildCacheEntryPacker(fileSystem, fileHasher, stringInterner));
+    BuildCacheEntryPacker createResultPacker(FileSystem fileSystem, StreamHasher fileHasher, StringInterner stringInterner, ExecutorFactory executorFactory) {
+        TarBuildCacheEntryPacker tarPacker = new TarBuildCacheEntryPacker(fileSystem, fileHasher, stringInterner);
+        if (Boolean.getBoolean(PIPELINED_PACKING_PROPERTY)) {
+            return new PipelinedBuildCacheEntryPacker(tarPacker, executorFactory);
+        }
+        return tarPacker;
     }
 
     OriginMetadataFactory createOriginMetadataFactory(
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.time.Time;
+import org.gradle.internal.time.Timer;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compiles the build scripts of the projects of a build in parallel before the projects are configured, so that configuring a project finds its compiled script in the cache.
+ *
+ * <p>The classpath pass of each script, which extracts the {@code buildscript {}} and {@code plugins {}} blocks, is compiled against the class loader of the build's root
+ * class loader scope, which is known once the settings have been loaded. The body of a script is compiled against the classpath of its project, which is only known once
+ * the project and its parents have been configured. When neither the project nor its parents have a {@code buildscript {}} or {@code plugins {}} block, that classpath is
+ * usually the one of the build's root class loader scope, and the body is compiled against it too. When the classpath turns out to differ, for example because a parent
+ * adds to the classpath of its children, the body is compiled again when the project is configured.</p>
+ */
+public class BuildScriptPrecompiler {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.precompile-build-scripts";
+
+    private static final Logger LOGGER = Logging.getLogger(BuildScriptPrecompiler.class);
+
+    private final ScriptPluginFactorySelector scriptPluginFactory;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final boolean enabled;
+
+    public BuildScriptPrecompiler(ScriptPluginFactorySelector scriptPluginFactory, BuildOperationExecutor buildOperationExecutor, boolean enabled) {
+        this.scriptPluginFactory = scriptPluginFactory;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Compiles the build scripts of the given projects in parallel.
+     */
+    public void precompile(final Collection<? extends ProjectInternal> projects) {
+        if (!enabled || projects.size() < 2) {
+            return;
+        }
+        final Statistics statistics = new Statistics();
+        Timer timer = Time.startTimer();
+        buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+            @Override
+            public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                for (ProjectInternal project : projects) {
+                    if (project.getBuildScriptSource().getResource().getExists()) {
+                        queue.add(new PrecompileBuildScript(project, statistics));
+                    }
+                }
+            }
+        });
+        LOGGER.info("Precompiled {} build scripts, {} of them with their body, in {} ms. The precompile operations took {} ms in total, including the time spent waiting for caches.",
+            statistics.classpathPasses.get(), statistics.bodies.get(), timer.getElapsedMillis(), statistics.operationTime.get());
+    }
+
+    private boolean parentsKeepClasspath(ProjectInternal project) {
+        for (ProjectInternal parent = project.getParent(); parent != null; parent = parent.getParent()) {
+            if (!parent.getBuildScriptSource().getResource().getExists()) {
+                continue;
+            }
+            // The classpath pass of a parent is compiled by another operation, or is being compiled, and is then taken from the cache
+            if (!scriptPluginFactory.canPrecompile(parent) || !scriptPluginFactory.precompileClasspathPass(parent)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Statistics {
+        private final AtomicInteger classpathPasses = new AtomicInteger();
+        private final AtomicInteger bodies = new AtomicInteger();
+        private final AtomicLong operationTime = new AtomicLong();
+    }
+
+    private class PrecompileBuildScript implements RunnableBuildOperation {
+        private final ProjectInternal project;
+        private final Statistics statistics;
+
+        PrecompileBuildScript(ProjectInternal project, Statistics statistics) {
+            this.project = project;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            if (!scriptPluginFactory.canPrecompile(project)) {
+                return;
+            }
+            Timer timer = Time.startTimer();
+            try {
+                boolean keepsClasspath = scriptPluginFactory.precompileClasspathPass(project);
+                statistics.classpathPasses.incrementAndGet();
+                if (keepsClasspath && parentsKeepClasspath(project)) {
+                    scriptPluginFactory.precompileBody(project);
+                    statistics.bodies.incrementAndGet();
+                }
+            } catch (Exception e) {
+                // The failure is reported when the project is configured
+                LOGGER.debug("Could not precompile {}.", project.getBuildScriptSource().getDisplayName(), e);
+            } finally {
+                statistics.operationTime.addAndGet(timer.getElapsedMillis());
+            }
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Precompile " + project.getBuildScriptSource().getDisplayName());
+        }
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Sets;
+import org.gradle.StartParameter;
+import org.gradle.TaskExecutionRequest;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.FileLockManager;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.execution.taskgraph.TaskExecutionGraphInternal;
+import org.gradle.groovy.scripts.ScriptSource;
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.resource.ResourceLocation;
+import org.gradle.internal.serialize.AbstractSerializer;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * Remembers the task graph calculated for an invocation of the root build in configure on demand mode, so that a later invocation with the same inputs
+ * configures the projects which own the tasks of that graph up front, and selects the tasks of the graph without resolving the requested task names again.
+ *
+ * <p>Nothing but the paths of the projects and tasks is stored: the projects of the graph are still configured, and as with configure on demand, the other
+ * projects are not. The cache is only used when configure on demand is enabled, as it relies on the projects being decoupled.</p>
+ *
+ * <p>The graph is keyed by the requested tasks, the excluded tasks, whether the dependencies of project dependencies are built, and the properties given
+ * on the command line. It is reused while the scripts applied to the build, the build scripts of all projects, the {@code gradle.properties} files and the
+ * classpath of the settings script, which includes {@code buildSrc}, are unchanged. Build logic which reads other inputs, such as environment variables,
+ * is not supported.</p>
+ */
+public class ConfigureOnDemandTaskGraphCache implements Closeable {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.configure-on-demand.task-graph-cache";
+
+    private static final Logger LOGGER = Logging.getLogger(ConfigureOnDemandTaskGraphCache.class);
+    // Recorded for inputs that do not exist. Never equal to the hash of a file, which has a different length.
+    private static final HashCode MISSING_FILE = HashCode.fromInt(0);
+
+    private final CacheRepository cacheRepository;
+    private final FileHasher fileHasher;
+    private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
+    private final boolean enabled;
+    private final Set<File> scripts = Sets.newConcurrentHashSet();
+    private volatile boolean scriptsWithoutFile;
+    private boolean loaded;
+    private CachedTaskGraph cachedTaskGraph;
+    private PersistentCache cache;
+    private PersistentIndexedCache<String, CachedTaskGraph> store;
+
+    public ConfigureOnDemandTaskGraphCache(CacheRepository cacheRepository, FileHasher fileHasher, ClassLoaderHierarchyHasher classLoaderHierarchyHasher, boolean enabled) {
+        this.cacheRepository = cacheRepository;
+        this.fileHasher = fileHasher;
+        this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Records a script applied to the build, so that changing it invalidates the cached task graph.
+     */
+    public void scriptApplied(ScriptSource source) {
+        if (!enabled) {
+            return;
+        }
+        ResourceLocation location = source.getResource().getLocation();
+        if (location.getFile() != null) {
+            scripts.add(location.getFile());
+        } else if (location.getURI() != null) {
+            // A remote script, which may change without notice
+            scriptsWithoutFile = true;
+        }
+    }
+
+    /**
+     * Returns the task graph calculated by a previous invocation with the same inputs, or {@code null} when there is none.
+     * Must be called once the settings have been loaded.
+     */
+    @Nullable
+    public synchronized CachedTaskGraph load(GradleInternal gradle) {
+        if (loaded) {
+            return cachedTaskGraph;
+        }
+        loaded = true;
+        if (!isCacheable(gradle)) {
+            return null;
+        }
+        CachedTaskGraph candidate = getStore(gradle).get(invocationKey(gradle.getStartParameter()));
+        if (candidate == null) {
+            return null;
+        }
+        if (!candidate.classpathHash.equals(classLoaderHierarchyHasher.getClassLoaderHash(gradle.getSettings().getClassLoaderScope().getExportClassLoader()))) {
+            LOGGER.info("Not using cached task graph, as the classpath of the build has changed.");
+            return null;
+        }
+        for (Map.Entry<String, HashCode> entry : candidate.inputs.entrySet()) {
+            if (!entry.getValue().equals(hash(new File(entry.getKey())))) {
+                LOGGER.info("Not using cached task graph, as {} has changed.", entry.getKey());
+                return null;
+            }
+        }
+        LOGGER.info("Using cached task graph, configuring {} projects.", candidate.projectPaths.size());
+        cachedTaskGraph = candidate;
+        return cachedTaskGraph;
+    }
+
+    /**
+     * Discards the task graph returned by {@link #load(GradleInternal)}, when it cannot be used for the build, so that the task graph calculated instead is stored.
+     */
+    public synchronized void discard() {
+        cachedTaskGraph = null;
+    }
+
+    /**
+     * Stores the task graph calculated for the given build, unless it was loaded from the cache.
+     */
+    public synchronized void store(GradleInternal gradle, TaskExecutionGraphInternal taskGraph) {
+        if (cachedTaskGraph != null || scriptsWithoutFile || !isCacheable(gradle)) {
+            return;
+        }
+        HashCode classpathHash = classLoaderHierarchyHasher.getClassLoaderHash(gradle.getSettings().getClassLoaderScope().getExportClassLoader());
+        if (classpathHash == null) {
+            return;
+        }
+
+        Set<File> inputFiles = Sets.newHashSet(scripts);
+        inputFiles.add(gradle.getSettings().getSettingsScript().getResource().getLocation().getFile());
+        inputFiles.add(new File(gradle.getRootProject().getProjectDir(), Project.GRADLE_PROPERTIES));
+        inputFiles.add(new File(gradle.getStartParameter().getGradleUserHomeDir(), Project.GRADLE_PROPERTIES));
+        for (Project project : gradle.getRootProject().getAllprojects()) {
+            inputFiles.add(project.getBuildFile());
+            inputFiles.add(new File(project.getProjectDir(), Project.GRADLE_PROPERTIES));
+        }
+        inputFiles.remove(null);
+        ImmutableSortedMap.Builder<String, HashCode> inputs = ImmutableSortedMap.naturalOrder();
+        for (File inputFile : inputFiles) {
+            inputs.put(inputFile.getAbsolutePath(), hash(inputFile));
+        }
+
+        ImmutableSortedSet.Builder<String> projectPaths = ImmutableSortedSet.naturalOrder();
+        for (Task task : taskGraph.getAllTasks()) {
+            projectPaths.add(task.getProject().getPath());
+        }
+        ImmutableList.Builder<List<String>> entryTaskPaths = ImmutableList.builder();
+        for (Set<Task> entryTasks : taskGraph.getEntryTaskGroups()) {
+            entryTaskPaths.add(taskPaths(entryTasks));
+        }
+        CachedTaskGraph taskGraphToStore = new CachedTaskGraph(inputs.build(), classpathHash, projectPaths.build().asList(), entryTaskPaths.build(), taskPaths(taskGraph.getFilteredTasks()));
+        getStore(gradle).put(invocationKey(gradle.getStartParameter()), taskGraphToStore);
+    }
+
+    private boolean isCacheable(GradleInternal gradle) {
+        if (!enabled || gradle.getParent() != null || !gradle.getStartParameter().isConfigureOnDemand()) {
+            return false;
+        }
+        for (TaskExecutionRequest request : gradle.getStartParameter().getTaskRequests()) {
+            for (String arg : request.getArgs()) {
+                if (arg.startsWith("-")) {
+                    // Task options are applied while the requested tasks are selected
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private HashCode hash(File file) {
+        return file.isFile() ? fileHasher.hash(file) : MISSING_FILE;
+    }
+
+    private static List<String> taskPaths(Collection<Task> tasks) {
+        ImmutableList.Builder<String> paths = ImmutableList.builder();
+        for (Task task : tasks) {
+            paths.add(task.getPath());
+        }
+        return paths.build();
+    }
+
+    private static String invocationKey(StartParameter startParameter) {
+        Hasher hasher = Hashing.newHasher();
+        hasher.putString(startParameter.getCurrentDir().getAbsolutePath());
+        for (TaskExecutionRequest request : startParameter.getTaskRequests()) {
+            hasher.putString(String.valueOf(request.getProjectPath()));
+            hasher.putString(String.valueOf(request.getRootDir()));
+            hasher.putInt(request.getArgs().size());
+            for (String arg : request.getArgs()) {
+                hasher.putString(arg);
+            }
+        }
+        hasher.putInt(startParameter.getExcludedTaskNames().size());
+        for (String excludedTaskName : ImmutableSortedSet.copyOf(startParameter.getExcludedTaskNames())) {
+            hasher.putString(excludedTaskName);
+        }
+        hasher.putBoolean(startParameter.isBuildProjectDependencies());
+        putProperties(hasher, startParameter.getProjectProperties());
+        putProperties(hasher, startParameter.getSystemPropertiesArgs());
+        return hasher.hash().toString();
+    }
+
+    private static void putProperties(Hasher hasher, Map<String, String> properties) {
+        hasher.putInt(properties.size());
+        for (Map.Entry<String, String> entry : ImmutableSortedMap.copyOf(properties).entrySet()) {
+            hasher.putString(entry.getKey());
+            hasher.putString(String.valueOf(entry.getValue()));
+        }
+    }
+
+    private PersistentIndexedCache<String, CachedTaskGraph> getStore(GradleInternal gradle) {
+        if (store == null) {
+            cache = cacheRepository
+                .cache(gradle, "taskGraphCache")
+                .withDisplayName("configuration cache")
+                .withLockOptions(mode(FileLockManager.LockMode.None)) // Lock on demand
+                .open();
+            store = cache.createCache(PersistentIndexedCacheParameters.of("taskGraphs", String.class, new CachedTaskGraphSerializer()));
+        }
+        return store;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (cache != null) {
+            cache.close();
+            cache = null;
+            store = null;
+        }
+    }
+
+    public static class CachedTaskGraph {
+        private final Map<String, HashCode> inputs;
+        private final HashCode classpathHash;
+        private final List<String> projectPaths;
+        private final List<List<String>> entryTaskPaths;
+        private final List<String> excludedTaskPaths;
+
+        CachedTaskGraph(Map<String, HashCode> inputs, HashCode classpathHash, List<String> projectPaths, List<List<String>> entryTaskPaths, List<String> excludedTaskPaths) {
+            this.inputs = inputs;
+            this.classpathHash = classpathHash;
+            this.projectPaths = projectPaths;
+            this.entryTaskPaths = entryTaskPaths;
+            this.excludedTaskPaths = excludedTaskPaths;
+        }
+
+        /**
+         * The paths of the projects which own a task of the graph, sorted so that a project comes after its parent.
+         */
+        public List<String> getProjectPaths() {
+            return projectPaths;
+        }
+
+        /**
+         * The paths of the requested tasks, grouped as they were added to the task graph, so that the tasks of a group run before the tasks of a later group.
+         */
+        public List<List<String>> getEntryTaskPaths() {
+            return entryTaskPaths;
+        }
+
+        public List<String> getExcludedTaskPaths() {
+            return excludedTaskPaths;
+        }
+    }
+
+    private static class CachedTaskGraphSerializer extends AbstractSerializer<CachedTaskGraph> {
+        @Override
+        public CachedTaskGraph read(Decoder decoder) throws Exception {
+            int inputCount = decoder.readSmallInt();
+            ImmutableSortedMap.Builder<String, HashCode> inputs = ImmutableSortedMap.naturalOrder();
+            for (int i = 0; i < inputCount; i++) {
+                inputs.put(decoder.readString(), HashCode.fromBytes(decoder.readBinary()));
+            }
+            HashCode classpathHash = HashCode.fromBytes(decoder.readBinary());
+            List<String> projectPaths = readStrings(decoder);
+            int entryTaskGroupCount = decoder.readSmallInt();
+            ImmutableList.Builder<List<String>> entryTaskPaths = ImmutableList.builder();
+            for (int i = 0; i < entryTaskGroupCount; i++) {
+                entryTaskPaths.add(readStrings(decoder));
+            }
+            return new CachedTaskGraph(inputs.build(), classpathHash, projectPaths, entryTaskPaths.build(), readStrings(decoder));
+        }
+
+        @Override
+        public void write(Encoder encoder, CachedTaskGraph value) throws Exception {
+            encoder.writeSmallInt(value.inputs.size());
+            for (Map.Entry<String, HashCode> entry : value.inputs.entrySet()) {
+                encoder.writeString(entry.getKey());
+                encoder.writeBinary(entry.getValue().toByteArray());
+            }
+            encoder.writeBinary(value.classpathHash.toByteArray());
+            writeStrings(encoder, value.projectPaths);
+            encoder.writeSmallInt(value.entryTaskPaths.size());
+            for (List<String> entryTaskPaths : value.entryTaskPaths) {
+                writeStrings(encoder, entryTaskPaths);
+            }
+            writeStrings(encoder, value.excludedTaskPaths);
+        }
+
+        private static List<String> readStrings(Decoder decoder) throws Exception {
+            int count = decoder.readSmallInt();
+            ImmutableList.Builder<String> strings = ImmutableList.builder();
+            for (int i = 0; i < count; i++) {
+                strings.add(decoder.readString());
+            }
+            return strings.build();
+        }
+
+        private static void writeStrings(Encoder encoder, List<String> strings) throws Exception {
+            encoder.writeSmallInt(strings.size());
+            for (String string : strings) {
+                encoder.writeString(string);
+            }
+        }
+    }
+}
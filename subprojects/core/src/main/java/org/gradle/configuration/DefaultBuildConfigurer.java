@@ -16,18 +16,29 @@
 package org.gradle.configuration;
 
 import org.gradle.StartParameter;
+import org.gradle.api.Project;
 import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.execution.ProjectConfigurer;
 import org.gradle.internal.build.BuildStateRegistry;
 import org.gradle.util.SingleMessageLogger;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 public class DefaultBuildConfigurer implements BuildConfigurer {
     private final ProjectConfigurer projectConfigurer;
     private final BuildStateRegistry buildRegistry;
+    private final ConfigureOnDemandTaskGraphCache taskGraphCache;
+    private final BuildScriptPrecompiler buildScriptPrecompiler;
 
-    public DefaultBuildConfigurer(ProjectConfigurer projectConfigurer, BuildStateRegistry buildRegistry) {
+    public DefaultBuildConfigurer(ProjectConfigurer projectConfigurer, BuildStateRegistry buildRegistry, ConfigureOnDemandTaskGraphCache taskGraphCache, BuildScriptPrecompiler buildScriptPrecompiler) {
         this.projectConfigurer = projectConfigurer;
         this.buildRegistry = buildRegistry;
+        this.taskGraphCache = taskGraphCache;
+        this.buildScriptPrecompiler = buildScriptPrecompiler;
     }
 
     public void configure(GradleInternal gradle) {
@@ -36,12 +47,50 @@ public class DefaultBuildConfigurer implements BuildConfigurer {
             buildRegistry.beforeConfigureRootBuild();
         }
         if (gradle.getStartParameter().isConfigureOnDemand()) {
-            projectConfigurer.configure(gradle.getRootProject());
+            ConfigureOnDemandTaskGraphCache.CachedTaskGraph cachedTaskGraph = taskGraphCache.load(gradle);
+            if (cachedTaskGraph != null) {
+                Set<ProjectInternal> projects = projectsOf(gradle, cachedTaskGraph);
+                buildScriptPrecompiler.precompile(projects);
+                for (ProjectInternal project : projects) {
+                    projectConfigurer.configure(project);
+                }
+            } else {
+                projectConfigurer.configure(gradle.getRootProject());
+            }
         } else {
+            buildScriptPrecompiler.precompile(allProjects(gradle));
             projectConfigurer.configureHierarchy(gradle.getRootProject());
         }
     }
 
+    private static Set<ProjectInternal> projectsOf(GradleInternal gradle, ConfigureOnDemandTaskGraphCache.CachedTaskGraph cachedTaskGraph) {
+        ProjectInternal rootProject = gradle.getRootProject();
+        Set<ProjectInternal> projects = new LinkedHashSet<ProjectInternal>();
+        projects.add(rootProject);
+        for (String projectPath : cachedTaskGraph.getProjectPaths()) {
+            ProjectInternal project = rootProject.findProject(projectPath);
+            if (project != null) {
+                addWithParents(project, projects);
+            }
+        }
+        return projects;
+    }
+
+    private static void addWithParents(ProjectInternal project, Set<ProjectInternal> projects) {
+        if (project.getParent() != null) {
+            addWithParents(project.getParent(), projects);
+        }
+        projects.add(project);
+    }
+
+    private static List<ProjectInternal> allProjects(GradleInternal gradle) {
+        List<ProjectInternal> projects = new ArrayList<ProjectInternal>();
+        for (Project project : gradle.getRootProject().getAllprojects()) {
+            projects.add((ProjectInternal) project);
+        }
+        return projects;
+    }
+
     private void maybeInformAboutIncubatingMode(GradleInternal gradle) {
         StartParameter startParameter = gradle.getStartParameter();
 
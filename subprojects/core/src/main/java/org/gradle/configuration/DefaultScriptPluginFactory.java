@@ -124,6 +124,45 @@ public class DefaultScriptPluginFactory implements ScriptPluginFactory {
         return new ScriptPluginImpl(scriptSource, (ScriptHandlerInternal) scriptHandler, targetScope, baseScope, topLevelScript);
     }
 
+    /**
+     * Compiles the classpath pass of the build script of the given project without running it, so that the compiled script is cached when the project is configured.
+     *
+     * @return true when the script has neither a {@code buildscript {}} nor a {@code plugins {}} block, so that it does not add to the classpath of its project
+     */
+    public boolean precompileClasspathPass(ProjectInternal project) {
+        ScriptSource scriptSource = project.getBuildScriptSource();
+        ScriptRunner<? extends BasicScript, PluginRequests> runner = compileClasspathPass(scriptCompilerFactory.createCompiler(scriptSource), scriptSource, new ProjectScriptTarget(project), project.getBaseClassLoaderScope());
+        return !runner.getRunDoesSomething() && runner.getData().isEmpty();
+    }
+
+    /**
+     * Compiles the body of the build script of the given project without running it, against the export class loader of the build's root class loader scope.
+     * This is the class loader the body is compiled against when neither the project nor its parents add to their classpath.
+     */
+    public void precompileBody(ProjectInternal project) {
+        ScriptSource scriptSource = project.getBuildScriptSource();
+        compileBody(scriptCompilerFactory.createCompiler(scriptSource), scriptSource, new ProjectScriptTarget(project), project.getBaseClassLoaderScope().getExportClassLoader());
+    }
+
+    private ScriptRunner<? extends BasicScript, PluginRequests> compileClasspathPass(ScriptCompiler compiler, ScriptSource scriptSource, ScriptTarget initialPassScriptTarget, ClassLoaderScope baseScope) {
+        Class<? extends BasicScript> scriptType = initialPassScriptTarget.getScriptClass();
+        InitialPassStatementTransformer initialPassStatementTransformer = new InitialPassStatementTransformer(scriptSource, initialPassScriptTarget, documentationRegistry);
+        SubsetScriptTransformer initialTransformer = new SubsetScriptTransformer(initialPassStatementTransformer);
+        String id = INTERNER.intern("cp_" + initialPassScriptTarget.getId());
+        CompileOperation<PluginRequests> initialOperation = new FactoryBackedCompileOperation<PluginRequests>(id, CLASSPATH_COMPILE_STAGE, initialTransformer, initialPassStatementTransformer, pluginRequestsSerializer);
+
+        return compiler.compile(scriptType, initialOperation, baseScope.getExportClassLoader(), Actions.doNothing());
+    }
+
+    private ScriptRunner<? extends BasicScript, BuildScriptData> compileBody(ScriptCompiler compiler, ScriptSource scriptSource, ScriptTarget scriptTarget, ClassLoader classLoader) {
+        Class<? extends BasicScript> scriptType = scriptTarget.getScriptClass();
+        BuildScriptTransformer buildScriptTransformer = new BuildScriptTransformer(scriptSource, scriptTarget);
+        String operationId = scriptTarget.getId();
+        CompileOperation<BuildScriptData> operation = new FactoryBackedCompileOperation<BuildScriptData>(operationId, BODY_COMPILE_STAGE, buildScriptTransformer, buildScriptTransformer, buildScriptDataSerializer);
+
+        return compiler.compile(scriptType, operation, classLoader, ClosureCreationInterceptingVerifier.INSTANCE);
+    }
+
     private class ScriptPluginImpl implements ScriptPlugin {
         private final ScriptSource scriptSource;
         private final ClassLoaderScope targetScope;
@@ -170,13 +209,7 @@ public class DefaultScriptPluginFactory implements ScriptPluginFactory {
 
             // Pass 1, extract plugin requests and plugin repositories and execute buildscript {}, ignoring (i.e. not even compiling) anything else
 
-            Class<? extends BasicScript> scriptType = initialPassScriptTarget.getScriptClass();
-            InitialPassStatementTransformer initialPassStatementTransformer = new InitialPassStatementTransformer(scriptSource, initialPassScriptTarget, documentationRegistry);
-            SubsetScriptTransformer initialTransformer = new SubsetScriptTransformer(initialPassStatementTransformer);
-            String id = INTERNER.intern("cp_" + initialPassScriptTarget.getId());
-            CompileOperation<PluginRequests> initialOperation = new FactoryBackedCompileOperation<PluginRequests>(id, CLASSPATH_COMPILE_STAGE, initialTransformer, initialPassStatementTransformer, pluginRequestsSerializer);
-
-            ScriptRunner<? extends BasicScript, PluginRequests> initialRunner = compiler.compile(scriptType, initialOperation, baseScope.getExportClassLoader(), Actions.doNothing());
+            ScriptRunner<? extends BasicScript, PluginRequests> initialRunner = compileClasspathPass(compiler, scriptSource, initialPassScriptTarget, baseScope);
             initialRunner.run(target, services);
 
             PluginRequests initialPluginRequests = initialRunner.getData();
@@ -187,13 +220,7 @@ public class DefaultScriptPluginFactory implements ScriptPluginFactory {
 
             // Pass 2, compile everything except buildscript {}, pluginRepositories{}, and plugin requests, then run
             final ScriptTarget scriptTarget = secondPassTarget(target);
-            scriptType = scriptTarget.getScriptClass();
-
-            BuildScriptTransformer buildScriptTransformer = new BuildScriptTransformer(scriptSource, scriptTarget);
-            String operationId = scriptTarget.getId();
-            CompileOperation<BuildScriptData> operation = new FactoryBackedCompileOperation<BuildScriptData>(operationId, BODY_COMPILE_STAGE, buildScriptTransformer, buildScriptTransformer, buildScriptDataSerializer);
-
-            final ScriptRunner<? extends BasicScript, BuildScriptData> runner = compiler.compile(scriptType, operation, targetScope.getLocalClassLoader(), ClosureCreationInterceptingVerifier.INSTANCE);
+            final ScriptRunner<? extends BasicScript, BuildScriptData> runner = compileBody(compiler, scriptSource, scriptTarget, targetScope.getLocalClassLoader());
             if (scriptTarget.getSupportsMethodInheritance() && runner.getHasMethods()) {
                 scriptTarget.attachScript(runner.getScript());
             }
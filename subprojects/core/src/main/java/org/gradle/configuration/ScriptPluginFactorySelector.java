@@ -18,6 +18,7 @@ package org.gradle.configuration;
 
 import org.gradle.api.initialization.dsl.ScriptHandler;
 import org.gradle.api.internal.initialization.ClassLoaderScope;
+import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.configuration.internal.UserCodeApplicationContext;
 import org.gradle.groovy.scripts.ScriptSource;
 import org.gradle.internal.UncheckedException;
@@ -83,24 +84,55 @@ public class ScriptPluginFactorySelector implements ScriptPluginFactory {
     private final ProviderInstantiator providerInstantiator;
     private final BuildOperationExecutor buildOperationExecutor;
     private final UserCodeApplicationContext userCodeApplicationContext;
+    private final ConfigureOnDemandTaskGraphCache taskGraphCache;
 
     public ScriptPluginFactorySelector(ScriptPluginFactory defaultScriptPluginFactory,
                                        ProviderInstantiator providerInstantiator,
-                                       BuildOperationExecutor buildOperationExecutor, UserCodeApplicationContext userCodeApplicationContext) {
+                                       BuildOperationExecutor buildOperationExecutor, UserCodeApplicationContext userCodeApplicationContext,
+                                       ConfigureOnDemandTaskGraphCache taskGraphCache) {
         this.defaultScriptPluginFactory = defaultScriptPluginFactory;
         this.providerInstantiator = providerInstantiator;
         this.buildOperationExecutor = buildOperationExecutor;
         this.userCodeApplicationContext = userCodeApplicationContext;
+        this.taskGraphCache = taskGraphCache;
     }
 
     @Override
     public ScriptPlugin create(ScriptSource scriptSource, ScriptHandler scriptHandler, ClassLoaderScope targetScope,
                                ClassLoaderScope baseScope, boolean topLevelScript) {
+        taskGraphCache.scriptApplied(scriptSource);
         ScriptPlugin scriptPlugin = scriptPluginFactoryFor(scriptSource.getFileName())
             .create(scriptSource, scriptHandler, targetScope, baseScope, topLevelScript);
         return new BuildOperationScriptPlugin(scriptPlugin, buildOperationExecutor, userCodeApplicationContext);
     }
 
+    /**
+     * Returns true when the build script of the given project is handled by the {@link DefaultScriptPluginFactory}, so that it can be compiled ahead of its configuration.
+     */
+    public boolean canPrecompile(ProjectInternal project) {
+        ScriptPluginFactory scriptPluginFactory = scriptPluginFactoryFor(project.getBuildScriptSource().getFileName());
+        return scriptPluginFactory == defaultScriptPluginFactory && scriptPluginFactory instanceof DefaultScriptPluginFactory;
+    }
+
+    /**
+     * Compiles the classpath pass of the build script of the given project ahead of its configuration.
+     *
+     * @return true when the script does not add to the classpath of its project
+     * @see DefaultScriptPluginFactory#precompileClasspathPass(ProjectInternal)
+     */
+    public boolean precompileClasspathPass(ProjectInternal project) {
+        return ((DefaultScriptPluginFactory) defaultScriptPluginFactory).precompileClasspathPass(project);
+    }
+
+    /**
+     * Compiles the body of the build script of the given project ahead of its configuration.
+     *
+     * @see DefaultScriptPluginFactory#precompileBody(ProjectInternal)
+     */
+    public void precompileBody(ProjectInternal project) {
+        ((DefaultScriptPluginFactory) defaultScriptPluginFactory).precompileBody(project);
+    }
+
     private ScriptPluginFactory scriptPluginFactoryFor(String fileName) {
         for (ScriptingLanguage scriptingLanguage : scriptingLanguages()) {
             if (fileName.endsWith(scriptingLanguage.getExtension())) {
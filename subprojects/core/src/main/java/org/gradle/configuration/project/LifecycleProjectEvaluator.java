@@ -56,15 +56,29 @@ public class LifecycleProjectEvaluator implements ProjectEvaluator {
 
     private final BuildOperationExecutor buildOperationExecutor;
     private final ProjectEvaluator delegate;
+    private final boolean parallelConfiguration;
 
-    public LifecycleProjectEvaluator(BuildOperationExecutor buildOperationExecutor, ProjectEvaluator delegate) {
+    public LifecycleProjectEvaluator(BuildOperationExecutor buildOperationExecutor, ProjectEvaluator delegate, boolean parallelConfiguration) {
         this.buildOperationExecutor = buildOperationExecutor;
         this.delegate = delegate;
+        this.parallelConfiguration = parallelConfiguration;
     }
 
     public void evaluate(final ProjectInternal project, final ProjectStateInternal state) {
         if (state.isUnconfigured()) {
-            buildOperationExecutor.run(new EvaluateProject(project, state));
+            if (parallelConfiguration) {
+                project.getMutationState().withMutableState(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Another thread may have configured the project while this thread waited for its lock
+                        if (state.isUnconfigured()) {
+                            buildOperationExecutor.run(new EvaluateProject(project, state));
+                        }
+                    }
+                });
+            } else {
+                buildOperationExecutor.run(new EvaluateProject(project, state));
+            }
         }
     }
 
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution;
+
+import com.google.common.collect.ImmutableSet;
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.api.execution.TaskExecutionGraph;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.project.ProjectStateRegistry;
+import org.gradle.api.specs.Spec;
+import org.gradle.configuration.ConfigureOnDemandTaskGraphCache;
+import org.gradle.execution.taskgraph.TaskExecutionGraphInternal;
+import org.gradle.internal.Factory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Selects the tasks of the task graph cached by the {@link ConfigureOnDemandTaskGraphCache}, when there is one, instead of resolving the requested tasks again.
+ * Otherwise, selects the tasks using the given executer and caches the resulting task graph.
+ */
+public class CachingBuildConfigurationActionExecuter implements BuildConfigurationActionExecuter {
+    private final BuildConfigurationActionExecuter delegate;
+    private final ConfigureOnDemandTaskGraphCache taskGraphCache;
+    private final ProjectStateRegistry projectStateRegistry;
+    private boolean customTaskSelectors;
+
+    public CachingBuildConfigurationActionExecuter(BuildConfigurationActionExecuter delegate, ConfigureOnDemandTaskGraphCache taskGraphCache, ProjectStateRegistry projectStateRegistry) {
+        this.delegate = delegate;
+        this.taskGraphCache = taskGraphCache;
+        this.projectStateRegistry = projectStateRegistry;
+    }
+
+    @Override
+    public void select(final GradleInternal gradle) {
+        if (customTaskSelectors) {
+            delegate.select(gradle);
+            return;
+        }
+        ConfigureOnDemandTaskGraphCache.CachedTaskGraph cachedTaskGraph = taskGraphCache.load(gradle);
+        if (cachedTaskGraph != null) {
+            if (selectCached(gradle, cachedTaskGraph)) {
+                return;
+            }
+            taskGraphCache.discard();
+        }
+        delegate.select(gradle);
+        gradle.getTaskGraph().whenReady(new Action<TaskExecutionGraph>() {
+            @Override
+            public void execute(TaskExecutionGraph taskGraph) {
+                taskGraphCache.store(gradle, (TaskExecutionGraphInternal) taskGraph);
+            }
+        });
+    }
+
+    private boolean selectCached(final GradleInternal gradle, final ConfigureOnDemandTaskGraphCache.CachedTaskGraph cachedTaskGraph) {
+        List<List<Task>> entryTaskGroups = projectStateRegistry.withLenientState(new Factory<List<List<Task>>>() {
+            @Nullable
+            @Override
+            public List<List<Task>> create() {
+                List<List<Task>> entryTaskGroups = new ArrayList<List<Task>>(cachedTaskGraph.getEntryTaskPaths().size());
+                for (List<String> paths : cachedTaskGraph.getEntryTaskPaths()) {
+                    List<Task> entryTasks = new ArrayList<Task>(paths.size());
+                    for (String path : paths) {
+                        Task task = gradle.getRootProject().getTasks().findByPath(path);
+                        if (task == null) {
+                            return null;
+                        }
+                        entryTasks.add(task);
+                    }
+                    entryTaskGroups.add(entryTasks);
+                }
+                return entryTaskGroups;
+            }
+        });
+        if (entryTaskGroups == null) {
+            // The build no longer defines some of the tasks, so select the tasks again
+            return false;
+        }
+        TaskExecutionGraphInternal taskGraph = gradle.getTaskGraph();
+        if (!cachedTaskGraph.getExcludedTaskPaths().isEmpty()) {
+            final Set<String> excludedTaskPaths = ImmutableSet.copyOf(cachedTaskGraph.getExcludedTaskPaths());
+            taskGraph.useFilter(new Spec<Task>() {
+                @Override
+                public boolean isSatisfiedBy(Task task) {
+                    return !excludedTaskPaths.contains(task.getPath());
+                }
+            });
+        }
+        // Add the tasks in the groups they were requested in, as the tasks of a group are sorted and run before those of later groups
+        for (List<Task> entryTasks : entryTaskGroups) {
+            taskGraph.addEntryTasks(entryTasks);
+        }
+        return true;
+    }
+
+    @Override
+    public void setTaskSelectors(List<? extends BuildConfigurationAction> taskSelectors) {
+        // The task selectors of the tooling API do not select the requested tasks, so the task graph cannot be reused
+        customTaskSelectors = true;
+        delegate.setTaskSelectors(taskSelectors);
+    }
+}
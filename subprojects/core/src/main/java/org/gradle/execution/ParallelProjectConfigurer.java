@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution;
+
+import org.gradle.StartParameter;
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.internal.project.CrossProjectAccessDetector;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.util.SingleMessageLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configures the projects of a hierarchy in parallel, one level of the hierarchy at a time, so that a project is configured after its parent.
+ *
+ * <p>Each project is configured while holding its project lock. When a project accesses the mutable state of another project,
+ * the access is reported and the projects which have not started to be configured yet are configured serially. The access is only
+ * detected as it happens, once the accessing project has been entered, and the projects being configured at that point carry on in parallel.</p>
+ */
+public class ParallelProjectConfigurer implements ProjectConfigurer {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.parallel-configuration";
+
+    /**
+     * Returns true when the projects of the given build are configured in parallel, which requires {@code --parallel} and the {@link #ENABLED_PROPERTY} system property.
+     */
+    public static boolean isEnabled(StartParameter startParameter) {
+        return startParameter.isParallelProjectExecutionEnabled() && Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    private final ProjectConfigurer delegate;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final CrossProjectAccessDetector crossProjectAccessDetector;
+
+    public ParallelProjectConfigurer(ProjectConfigurer delegate, BuildOperationExecutor buildOperationExecutor, CrossProjectAccessDetector crossProjectAccessDetector) {
+        this.delegate = delegate;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.crossProjectAccessDetector = crossProjectAccessDetector;
+    }
+
+    @Override
+    public void configure(ProjectInternal project) {
+        delegate.configure(project);
+    }
+
+    @Override
+    public void configureFully(ProjectInternal project) {
+        delegate.configureFully(project);
+    }
+
+    @Override
+    public void configureHierarchy(ProjectInternal project) {
+        SingleMessageLogger.incubatingFeatureUsed("Parallel project configuration");
+        delegate.configure(project);
+        CrossProjectAccessDetector.Session session = crossProjectAccessDetector.startSession();
+        List<ProjectInternal> level = childrenOf(project);
+        while (!level.isEmpty() && !session.isCrossProjectAccessDetected()) {
+            configureInParallel(level, session);
+            List<ProjectInternal> nextLevel = new ArrayList<ProjectInternal>();
+            for (ProjectInternal parent : level) {
+                nextLevel.addAll(childrenOf(parent));
+            }
+            level = nextLevel;
+        }
+        if (session.isCrossProjectAccessDetected()) {
+            // Projects which have been configured already are skipped
+            for (Project sub : project.getSubprojects()) {
+                delegate.configure((ProjectInternal) sub);
+            }
+        }
+    }
+
+    @Override
+    public void configureHierarchyFully(ProjectInternal project) {
+        delegate.configureHierarchyFully(project);
+    }
+
+    private void configureInParallel(final List<ProjectInternal> projects, final CrossProjectAccessDetector.Session session) {
+        final Object serialLock = new Object();
+        buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+            @Override
+            public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                for (final ProjectInternal project : projects) {
+                    queue.add(new RunnableBuildOperation() {
+                        @Override
+                        public void run(BuildOperationContext context) {
+                            if (session.isCrossProjectAccessDetected()) {
+                                synchronized (serialLock) {
+                                    delegate.configure(project);
+                                }
+                                return;
+                            }
+                            session.configure(project.getMutationState(), new Runnable() {
+                                @Override
+                                public void run() {
+                                    delegate.configure(project);
+                                }
+                            });
+                        }
+
+                        @Override
+                        public BuildOperationDescriptor.Builder description() {
+                            return BuildOperationDescriptor.displayName("Configure " + project.getDisplayName() + " in parallel");
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private static List<ProjectInternal> childrenOf(ProjectInternal project) {
+        List<ProjectInternal> children = new ArrayList<ProjectInternal>();
+        for (Project child : project.getChildProjects().values()) {
+            children.add((ProjectInternal) child);
+        }
+        return children;
+    }
+}
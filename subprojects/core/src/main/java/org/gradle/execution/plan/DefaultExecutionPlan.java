@@ -23,6 +23,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import org.gradle.api.Action;
 import org.gradle.api.BuildCancelledException;
@@ -53,6 +54,8 @@ import org.gradle.internal.resources.ResourceDeadlockException;
 import org.gradle.internal.resources.ResourceLock;
 import org.gradle.internal.resources.ResourceLockState;
 import org.gradle.internal.service.ServiceRegistry;
+import org.gradle.internal.time.Time;
+import org.gradle.internal.time.Timer;
 import org.gradle.internal.work.WorkerLeaseRegistry;
 import org.gradle.internal.work.WorkerLeaseService;
 import org.gradle.util.CollectionUtils;
@@ -67,6 +70,7 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -82,7 +86,15 @@ public class DefaultExecutionPlan implements ExecutionPlan {
     private final Set<Node> nodesInUnknownState = Sets.newLinkedHashSet();
     private final Set<TaskNode> entryTasks = new LinkedHashSet<TaskNode>();
     private final NodeMapping nodeMapping = new NodeMapping();
-    private final List<Node> executionQueue = Lists.newLinkedList();
+    private final Set<Node> executionQueue = Sets.newLinkedHashSet();
+    private final ReadyNodes readyNodes = new ReadyNodes();
+    private final Set<Node> nodesWaitingForOtherBuilds = Sets.newLinkedHashSet();
+    private final Set<Node> nodesThatMustNotRun = Sets.newIdentityHashSet();
+    private final SetMultimap<Node, Node> dependents = HashMultimap.create();
+    private List<Node> nodesInPreferredOrder = Collections.emptyList();
+    private final Map<Node, Timer> taskTimers = Maps.newIdentityHashMap();
+    private final Map<String, Long> taskDurations = Maps.newLinkedHashMap();
+    private boolean recordTaskDurations;
     private final Map<Project, ResourceLock> projectLocks = Maps.newHashMap();
     private final FailureCollector failureCollector = new FailureCollector();
     private final TaskNodeFactory taskNodeFactory;
@@ -96,7 +108,6 @@ public class DefaultExecutionPlan implements ExecutionPlan {
     private final Map<Node, MutationInfo> mutations = Maps.newIdentityHashMap();
     private final Map<File, String> canonicalizedFileCache = Maps.newIdentityHashMap();
     private final Map<Pair<Node, Node>, Boolean> reachableCache = Maps.newHashMap();
-    private final Set<Node> dependenciesCompleteCache = Sets.newHashSet();
     private final WorkerLeaseService workerLeaseService;
     private final GradleInternal gradle;
 
@@ -327,6 +338,143 @@ public class DefaultExecutionPlan implements ExecutionPlan {
         }
         executionQueue.clear();
         Iterables.addAll(executionQueue, nodeMapping);
+        dependents.clear();
+        for (Node node : executionQueue) {
+            for (Node successor : node.getAllSuccessors()) {
+                dependents.put(successor, node);
+            }
+        }
+        nodesInPreferredOrder = Lists.newArrayList(executionQueue);
+        refreshReadyNodes();
+    }
+
+    /**
+     * Prefers the ready nodes that start the longest chains of remaining work, rather than the nodes that come first in the plan.
+     * The length of a chain is estimated from the durations the tasks in it took in previous builds.
+     * Also starts recording the durations of the tasks executed by this plan.
+     *
+     * @return the estimated length in milliseconds of the longest chain starting with each node, in the order the nodes are preferred.
+     */
+    public Map<Node, Long> prioritizeCriticalPath(TaskDurationHistory durationHistory) {
+        Map<Node, Long> previousDurations = Maps.newIdentityHashMap();
+        long totalDuration = 0;
+        for (Node node : executionQueue) {
+            if (node instanceof LocalTaskNode) {
+                Long previousDuration = durationHistory.getPreviousDuration(((LocalTaskNode) node).getTask().getPath());
+                if (previousDuration != null) {
+                    previousDurations.put(node, previousDuration);
+                    totalDuration += previousDuration;
+                }
+            }
+        }
+        // Work we know nothing about is assumed to take as long as the average task
+        long unknownDuration = previousDurations.isEmpty() ? 0 : totalDuration / previousDurations.size();
+
+        // Dependents come after their dependencies in the plan, so visiting the plan backwards visits them first
+        final Map<Node, Long> criticalPathDurations = Maps.newIdentityHashMap();
+        List<Node> nodes = Lists.newArrayList(executionQueue);
+        for (Node node : Lists.reverse(nodes)) {
+            long longestDependentPath = 0;
+            for (Node dependent : dependents.get(node)) {
+                Long dependentPath = criticalPathDurations.get(dependent);
+                if (dependentPath != null) {
+                    longestDependentPath = Math.max(longestDependentPath, dependentPath);
+                }
+            }
+            Long previousDuration = previousDurations.get(node);
+            criticalPathDurations.put(node, (previousDuration != null ? previousDuration : unknownDuration) + longestDependentPath);
+        }
+
+        // Stable sort, so nodes on equally long paths keep their order in the plan
+        Collections.sort(nodes, new Comparator<Node>() {
+            @Override
+            public int compare(Node o1, Node o2) {
+                return Long.compare(criticalPathDurations.get(o2), criticalPathDurations.get(o1));
+            }
+        });
+        nodesInPreferredOrder = nodes;
+        recordTaskDurations = true;
+        refreshReadyNodes();
+
+        Map<Node, Long> prioritized = Maps.newLinkedHashMap();
+        for (Node node : nodes) {
+            prioritized.put(node, criticalPathDurations.get(node));
+        }
+        return prioritized;
+    }
+
+    /**
+     * Returns the durations in milliseconds of the tasks executed so far, keyed by task path, when recording them has been requested by {@link #prioritizeCriticalPath(TaskDurationHistory)}.
+     */
+    public Map<String, Long> getTaskDurations() {
+        return Collections.unmodifiableMap(taskDurations);
+    }
+
+    private void clearReadyNodes() {
+        readyNodes.clear();
+        nodesWaitingForOtherBuilds.clear();
+        nodesThatMustNotRun.clear();
+        dependents.clear();
+    }
+
+    /**
+     * Sorts every node that has not been selected yet into the ready nodes or one of the waiting sets.
+     * Called once the plan has been determined, and after nodes changed state in bulk, as when execution is aborted.
+     */
+    private void refreshReadyNodes() {
+        readyNodes.setExecutionOrder(nodesInPreferredOrder);
+        nodesWaitingForOtherBuilds.clear();
+        nodesThatMustNotRun.clear();
+        Iterator<Node> iterator = executionQueue.iterator();
+        while (iterator.hasNext()) {
+            Node node = iterator.next();
+            if (node.isReady()) {
+                scheduleIfDependenciesComplete(node);
+            } else if (node.isMustNotRun()) {
+                // May still be enforced by a finalized node
+                nodesThatMustNotRun.add(node);
+            } else if (node.isComplete()) {
+                iterator.remove();
+            }
+            // Otherwise the node completes outside of this plan, for example a task in another build. Keep it so that the plan waits for it
+        }
+    }
+
+    private void scheduleIfDependenciesComplete(Node node) {
+        if (node.allDependenciesComplete()) {
+            nodesWaitingForOtherBuilds.remove(node);
+            readyNodes.add(node);
+        } else if (waitsForNodeOutsideOfThisPlan(node)) {
+            nodesWaitingForOtherBuilds.add(node);
+        } else {
+            // Will be rescheduled when the next of its dependencies completes
+            nodesWaitingForOtherBuilds.remove(node);
+        }
+    }
+
+    private boolean waitsForNodeOutsideOfThisPlan(Node node) {
+        for (Node successor : node.getAllSuccessors()) {
+            if (!successor.isComplete() && !successor.isReady() && !runningNodes.contains(successor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scheduleDependentsOf(Node node) {
+        for (Node dependent : dependents.get(node)) {
+            if (dependent.isReady() && executionQueue.contains(dependent) && !readyNodes.contains(dependent)) {
+                scheduleIfDependenciesComplete(dependent);
+            }
+        }
+    }
+
+    private void scheduleNodesWaitingForOtherBuilds() {
+        if (!nodesWaitingForOtherBuilds.isEmpty()) {
+            for (Node node : Lists.newArrayList(nodesWaitingForOtherBuilds)) {
+                scheduleIfDependenciesComplete(node);
+            }
+        }
     }
 
     private MutationInfo getOrCreateMutationsOf(Node node) {
@@ -497,8 +645,12 @@ public class DefaultExecutionPlan implements ExecutionPlan {
         mutations.clear();
         canonicalizedFileCache.clear();
         reachableCache.clear();
-        dependenciesCompleteCache.clear();
         runningNodes.clear();
+        clearReadyNodes();
+        nodesInPreferredOrder = Collections.emptyList();
+        taskTimers.clear();
+        taskDurations.clear();
+        recordTaskDurations = false;
     }
 
     @Override
@@ -532,34 +684,76 @@ public class DefaultExecutionPlan implements ExecutionPlan {
             return null;
         }
 
-        Iterator<Node> iterator = executionQueue.iterator();
-        while (iterator.hasNext()) {
-            Node node = iterator.next();
-            if (node.isReady() && allDependenciesComplete(node)) {
+        scheduleNodesWaitingForOtherBuilds();
+
+        List<Node> staleNodes = Lists.newArrayList();
+        Node selected = null;
+        try {
+            selected = selectReadyNode(workerLease, resourceLockState, staleNodes);
+        } finally {
+            for (Node staleNode : staleNodes) {
+                discardStaleReadyNode(staleNode);
+            }
+        }
+        if (selected == null) {
+            return null;
+        }
+
+        readyNodes.remove(selected);
+        executionQueue.remove(selected);
+        if (selected.allDependenciesSuccessful()) {
+            recordNodeStarted(selected);
+            selected.startExecution();
+        } else {
+            selected.skipExecution();
+            scheduleDependentsOf(selected);
+        }
+        return selected;
+    }
+
+    @Nullable
+    private Node selectReadyNode(WorkerLeaseRegistry.WorkerLease workerLease, ResourceLockState resourceLockState, List<Node> staleNodes) {
+        for (ReadyNodes.ProjectNodes projectNodes : readyNodes.getProjectsInExecutionOrder()) {
+            for (Node node : projectNodes.getNodes()) {
+                if (!node.isReady() || !node.allDependenciesComplete()) {
+                    staleNodes.add(node);
+                    continue;
+                }
                 MutationInfo mutations = getResolvedMutationInfo(node);
 
+                if (!tryLockProjectFor(node)) {
+                    // None of the nodes of this project can run at the moment
+                    resourceLockState.releaseLocks();
+                    break;
+                }
+                if (!workerLease.tryLock()) {
+                    resourceLockState.releaseLocks();
+                    return null;
+                }
                 // TODO: convert output file checks to a resource lock
-                if (!tryLockProjectFor(node)
-                    || !workerLease.tryLock()
-                    || !canRunWithCurrentlyExecutedNodes(node, mutations)) {
+                if (!canRunWithCurrentlyExecutedNodes(node, mutations)) {
                     resourceLockState.releaseLocks();
                     continue;
                 }
-
-                if (node.allDependenciesSuccessful()) {
-                    recordNodeStarted(node);
-                    node.startExecution();
-                } else {
-                    node.skipExecution();
-                }
-                iterator.remove();
-
                 return node;
             }
         }
         return null;
     }
 
+    private void discardStaleReadyNode(Node node) {
+        readyNodes.remove(node);
+        if (node.isReady()) {
+            // One of its dependencies has been enforced after the node has been scheduled
+            scheduleIfDependenciesComplete(node);
+        } else if (node.isMustNotRun()) {
+            nodesThatMustNotRun.add(node);
+        } else if (node.isComplete()) {
+            executionQueue.remove(node);
+            scheduleDependentsOf(node);
+        }
+    }
+
     private boolean tryLockProjectFor(Node node) {
         if (node.getProject() != null) {
             return getProjectLock(node.getProject()).tryLock();
@@ -616,19 +810,6 @@ public class DefaultExecutionPlan implements ExecutionPlan {
         }
     }
 
-    private boolean allDependenciesComplete(Node node) {
-        if (dependenciesCompleteCache.contains(node)) {
-            return true;
-        }
-
-        boolean dependenciesComplete = node.allDependenciesComplete();
-        if (dependenciesComplete) {
-            dependenciesCompleteCache.add(node);
-        }
-
-        return dependenciesComplete;
-    }
-
     private boolean allProjectsLocked() {
         for (ResourceLock lock : projectLocks.values()) {
             if (!lock.isLocked()) {
@@ -801,10 +982,17 @@ public class DefaultExecutionPlan implements ExecutionPlan {
 
     private void recordNodeStarted(Node node) {
         runningNodes.add(node);
+        if (recordTaskDurations && node instanceof LocalTaskNode) {
+            taskTimers.put(node, Time.startTimer());
+        }
     }
 
     private void recordNodeCompleted(Node node) {
         runningNodes.remove(node);
+        Timer timer = taskTimers.remove(node);
+        if (timer != null) {
+            taskDurations.put(((LocalTaskNode) node).getTask().getPath(), timer.getElapsedMillis());
+        }
         MutationInfo mutations = this.mutations.get(node);
         for (Node producer : mutations.producingNodes) {
             MutationInfo producerMutations = this.mutations.get(producer);
@@ -826,23 +1014,34 @@ public class DefaultExecutionPlan implements ExecutionPlan {
     public void nodeComplete(Node node) {
         try {
             if (!node.isComplete()) {
-                enforceFinalizers(node);
+                scheduleEnforcedNodes(enforceFinalizers(node));
                 if (node.isFailed()) {
                     handleFailure(node);
                 }
 
                 node.finishExecution();
                 recordNodeCompleted(node);
+                scheduleDependentsOf(node);
             }
         } finally {
             unlockProjectFor(node);
         }
     }
 
-    private static void enforceFinalizers(Node node) {
+    private static Set<Node> enforceFinalizers(Node node) {
+        Set<Node> enforcedNodes = Sets.newHashSet();
         for (Node finalizerNode : node.getFinalizers()) {
             if (finalizerNode.isRequired() || finalizerNode.isMustNotRun()) {
-                enforceWithDependencies(finalizerNode, Sets.<Node>newHashSet());
+                enforceWithDependencies(finalizerNode, enforcedNodes);
+            }
+        }
+        return enforcedNodes;
+    }
+
+    private void scheduleEnforcedNodes(Set<Node> enforcedNodes) {
+        for (Node enforcedNode : enforcedNodes) {
+            if (nodesThatMustNotRun.remove(enforcedNode)) {
+                scheduleIfDependenciesComplete(enforcedNode);
             }
         }
     }
@@ -903,6 +1102,14 @@ public class DefaultExecutionPlan implements ExecutionPlan {
     }
 
     private boolean abortExecution(boolean abortAll) {
+        boolean aborted = skipOrAbortNodes(abortAll);
+        if (aborted) {
+            refreshReadyNodes();
+        }
+        return aborted;
+    }
+
+    private boolean skipOrAbortNodes(boolean abortAll) {
         boolean aborted = false;
         for (Node node : nodeMapping) {
             // Allow currently executing and enforced tasks to complete, but skip everything else.
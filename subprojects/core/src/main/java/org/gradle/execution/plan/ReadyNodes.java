@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import com.google.common.collect.Maps;
+import org.gradle.api.NonNullApi;
+import org.gradle.api.Project;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * The nodes of an execution plan whose dependencies are complete, indexed by the project whose lock they require.
+ *
+ * <p>Nodes of a project are kept in execution order, and projects are ordered by the position of their first ready node.
+ * This allows the plan to skip all the nodes of a project as soon as the project lock turns out to be unavailable,
+ * and keeps adding and removing nodes at O(log n).</p>
+ */
+@NonNullApi
+class ReadyNodes {
+    private final Map<Node, Integer> executionOrder = Maps.newIdentityHashMap();
+    private final Map<Project, ProjectNodes> nodesByProject = Maps.newHashMap();
+    private final NavigableSet<ProjectNodes> projectsInExecutionOrder = new TreeSet<ProjectNodes>(new Comparator<ProjectNodes>() {
+        @Override
+        public int compare(ProjectNodes o1, ProjectNodes o2) {
+            return Integer.compare(o1.firstPosition(), o2.firstPosition());
+        }
+    });
+    private final Comparator<Node> nodeOrder = new Comparator<Node>() {
+        @Override
+        public int compare(Node o1, Node o2) {
+            return Integer.compare(positionOf(o1), positionOf(o2));
+        }
+    };
+
+    /**
+     * Discards all ready nodes and records the order in which nodes should be preferred from now on.
+     */
+    public void setExecutionOrder(Iterable<? extends Node> nodes) {
+        clear();
+        int position = 0;
+        for (Node node : nodes) {
+            executionOrder.put(node, position++);
+        }
+    }
+
+    public boolean add(Node node) {
+        ProjectNodes projectNodes = nodesByProject.get(node.getProject());
+        if (projectNodes == null) {
+            projectNodes = new ProjectNodes(node.getProject());
+            nodesByProject.put(node.getProject(), projectNodes);
+        } else if (projectNodes.nodes.contains(node)) {
+            return false;
+        } else {
+            projectsInExecutionOrder.remove(projectNodes);
+        }
+        projectNodes.nodes.add(node);
+        projectsInExecutionOrder.add(projectNodes);
+        return true;
+    }
+
+    public boolean remove(Node node) {
+        ProjectNodes projectNodes = nodesByProject.get(node.getProject());
+        if (projectNodes == null || !projectNodes.nodes.contains(node)) {
+            return false;
+        }
+        projectsInExecutionOrder.remove(projectNodes);
+        projectNodes.nodes.remove(node);
+        if (projectNodes.nodes.isEmpty()) {
+            nodesByProject.remove(node.getProject());
+        } else {
+            projectsInExecutionOrder.add(projectNodes);
+        }
+        return true;
+    }
+
+    public boolean contains(Node node) {
+        ProjectNodes projectNodes = nodesByProject.get(node.getProject());
+        return projectNodes != null && projectNodes.nodes.contains(node);
+    }
+
+    public boolean isEmpty() {
+        return projectsInExecutionOrder.isEmpty();
+    }
+
+    /**
+     * Returns the ready nodes of each project, with the project holding the earliest ready node first.
+     *
+     * The returned collections must not be iterated while nodes are being added or removed.
+     */
+    public Iterable<ProjectNodes> getProjectsInExecutionOrder() {
+        return Collections.unmodifiableSet(projectsInExecutionOrder);
+    }
+
+    public void clear() {
+        executionOrder.clear();
+        nodesByProject.clear();
+        projectsInExecutionOrder.clear();
+    }
+
+    private int positionOf(Node node) {
+        Integer position = executionOrder.get(node);
+        if (position == null) {
+            throw new IllegalStateException("Node " + node + " is not part of the execution plan.");
+        }
+        return position;
+    }
+
+    public class ProjectNodes {
+        @Nullable
+        private final Project project;
+        private final NavigableSet<Node> nodes = new TreeSet<Node>(nodeOrder);
+
+        private ProjectNodes(@Nullable Project project) {
+            this.project = project;
+        }
+
+        /**
+         * Returns the project whose lock the nodes require, or {@code null} if the nodes do not require a project lock.
+         */
+        @Nullable
+        public Project getProject() {
+            return project;
+        }
+
+        public Iterable<Node> getNodes() {
+            return Collections.unmodifiableSet(nodes);
+        }
+
+        private int firstPosition() {
+            return positionOf(nodes.first());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+
+/**
+ * Remembers how long tasks took to execute in previous builds.
+ */
+public interface TaskDurationHistory {
+    /**
+     * Returns the duration in milliseconds of the last recorded execution of the task with the given path, or {@code null} if it is not known.
+     */
+    @Nullable
+    Long getPreviousDuration(String taskPath);
+
+    /**
+     * Records the durations in milliseconds of the tasks executed by the current build, keyed by task path.
+     */
+    void recordDurations(Map<String, Long> durations);
+}
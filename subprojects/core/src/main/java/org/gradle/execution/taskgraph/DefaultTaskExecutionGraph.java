@@ -41,6 +41,7 @@ import org.gradle.execution.plan.Node;
 import org.gradle.execution.plan.NodeExecutor;
 import org.gradle.execution.plan.PlanExecutor;
 import org.gradle.execution.plan.TaskDependencyResolver;
+import org.gradle.execution.plan.TaskDurationHistory;
 import org.gradle.execution.plan.TaskNode;
 import org.gradle.execution.plan.TaskNodeFactory;
 import org.gradle.internal.Cast;
@@ -53,6 +54,7 @@ import org.gradle.internal.operations.CurrentBuildOperationRef;
 import org.gradle.internal.operations.RunnableBuildOperation;
 import org.gradle.internal.resources.ResourceLockCoordinationService;
 import org.gradle.internal.resources.ResourceLockState;
+import org.gradle.internal.taskgraph.PrioritizeTaskGraphBuildOperationType;
 import org.gradle.internal.time.Time;
 import org.gradle.internal.time.Timer;
 import org.gradle.internal.work.WorkerLeaseService;
@@ -60,14 +62,18 @@ import org.gradle.listener.ClosureBackedMethodInvocationDispatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @NonNullApi
 public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultTaskExecutionGraph.class);
+    public static final String PRIORITIZE_CRITICAL_PATH_PROPERTY = "org.gradle.internal.plan.critical-path";
 
     private enum GraphState {
         EMPTY, DIRTY, POPULATED
@@ -82,11 +88,14 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
     private final DefaultExecutionPlan executionPlan;
     private final BuildOperationExecutor buildOperationExecutor;
     private final ListenerBuildOperationDecorator listenerBuildOperationDecorator;
+    private final TaskDurationHistory taskDurationHistory;
+    private final boolean prioritizeCriticalPath;
     private GraphState graphState = GraphState.EMPTY;
     private List<Task> allTasks;
     private boolean hasFiredWhenReady;
 
     private final Set<Task> requestedTasks = Sets.newTreeSet();
+    private final List<Set<Task>> entryTaskGroups = new ArrayList<Set<Task>>();
 
     public DefaultTaskExecutionGraph(
         PlanExecutor planExecutor,
@@ -98,6 +107,7 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
         GradleInternal gradleInternal,
         TaskNodeFactory taskNodeFactory,
         TaskDependencyResolver dependencyResolver,
+        TaskDurationHistory taskDurationHistory,
         ListenerBroadcast<TaskExecutionGraphListener> graphListeners,
         ListenerBroadcast<TaskExecutionListener> taskListeners
     ) {
@@ -109,6 +119,8 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
         this.gradleInternal = gradleInternal;
         this.graphListeners = graphListeners;
         this.taskListeners = taskListeners;
+        this.taskDurationHistory = taskDurationHistory;
+        this.prioritizeCriticalPath = Boolean.getBoolean(PRIORITIZE_CRITICAL_PATH_PROPERTY);
         this.executionPlan = new DefaultExecutionPlan(workerLeaseService, gradleInternal, taskNodeFactory, dependencyResolver);
     }
 
@@ -135,6 +147,7 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
             taskSet.add(task);
             requestedTasks.add(task);
         }
+        entryTaskGroups.add(taskSet);
 
         executionPlan.addEntryTasks(taskSet);
         graphState = GraphState.DIRTY;
@@ -186,6 +199,9 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
             coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
                 @Override
                 public ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                    if (prioritizeCriticalPath) {
+                        taskDurationHistory.recordDurations(executionPlan.getTaskDurations());
+                    }
                     executionPlan.clear();
                     return ResourceLockState.Disposition.FINISHED;
                 }
@@ -309,6 +325,9 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
                     "Task information is not available, as this task execution graph has not been populated.");
             case DIRTY:
                 executionPlan.determineExecutionPlan();
+                if (prioritizeCriticalPath) {
+                    buildOperationExecutor.run(new PrioritizeTaskGraph());
+                }
                 allTasks = null;
                 graphState = GraphState.POPULATED;
                 return;
@@ -316,6 +335,35 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
         }
     }
 
+    private class PrioritizeTaskGraph implements RunnableBuildOperation {
+        @Override
+        public void run(BuildOperationContext context) {
+            final Map<String, Long> criticalPathDurations = new LinkedHashMap<String, Long>();
+            for (Map.Entry<Node, Long> entry : executionPlan.prioritizeCriticalPath(taskDurationHistory).entrySet()) {
+                if (entry.getKey() instanceof TaskNode) {
+                    criticalPathDurations.put(((TaskNode) entry.getKey()).getTask().getPath(), entry.getValue());
+                }
+            }
+            context.setResult(new PrioritizeTaskGraphBuildOperationType.Result() {
+                @Override
+                public Map<String, Long> getCriticalPathDurations() {
+                    return criticalPathDurations;
+                }
+            });
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName(gradleInternal.contextualize("Prioritize task graph"))
+                .details(new PrioritizeTaskGraphBuildOperationType.Details() {
+                    @Override
+                    public String getBuildPath() {
+                        return gradleInternal.getIdentityPath().getPath();
+                    }
+                });
+        }
+    }
+
     /**
      * This action wraps the execution of a node into a build operation.
      */
@@ -365,6 +413,11 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
         return requestedTasks;
     }
 
+    @Override
+    public List<Set<Task>> getEntryTaskGroups() {
+        return entryTaskGroups;
+    }
+
     @Override
     public Set<Task> getFilteredTasks() {
         /*
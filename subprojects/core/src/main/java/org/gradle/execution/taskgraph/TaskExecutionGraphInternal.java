@@ -21,6 +21,7 @@ import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.specs.Spec;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 public interface TaskExecutionGraphInternal extends TaskExecutionGraph {
@@ -57,6 +58,11 @@ public interface TaskExecutionGraphInternal extends TaskExecutionGraph {
      */
     Set<Task> getRequestedTasks();
 
+    /**
+     * The requested tasks, grouped by the call to {@link #addEntryTasks(Iterable)} which added them, in the order of the calls.
+     */
+    List<Set<Task>> getEntryTaskGroups();
+
     /**
      * Set of requested tasks.
      */
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.filewatch;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.file.FileSystemSubset;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.snapshot.FileSystemChangeSource;
+import org.gradle.internal.snapshot.impl.DefaultFileSystemMirror;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Watches the root directories of the builds run by the daemon, and reports each change to the {@link DefaultFileSystemMirror}, so that the
+ * state of unchanged files can be used by the next build without checking the file system again.
+ *
+ * <p>Watch events are delivered asynchronously. Before each build, a new marker file is written to every watched hierarchy and the build waits
+ * for the watcher to report it, which means that all changes made before the build started have been reported. When the watcher loses
+ * events, fails, or does not report the marker in time, all state which is not in an append-only cache is discarded.</p>
+ */
+public class WatchingFileSystemChangeSource implements FileSystemChangeSource, Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WatchingFileSystemChangeSource.class);
+    private static final String SYNC_MARKER_PREFIX = "file-system-";
+    private static final String SYNC_MARKER_SUFFIX = ".sync";
+    private static final long SYNC_TIMEOUT_MILLIS = 2000;
+
+    private final FileWatcherFactory fileWatcherFactory;
+    private final DefaultFileSystemMirror fileSystemMirror;
+    private final boolean enabled;
+    private final List<String> watchedRoots = new CopyOnWriteArrayList<String>();
+    private final Lock syncLock = new ReentrantLock();
+    private final Condition syncReported = syncLock.newCondition();
+    private final Set<String> reportedSyncMarkers = new HashSet<String>();
+    private long syncCount;
+    private FileWatcher watcher;
+    private boolean failed;
+
+    public WatchingFileSystemChangeSource(FileWatcherFactory fileWatcherFactory, DefaultFileSystemMirror fileSystemMirror, boolean enabled) {
+        this.fileWatcherFactory = fileWatcherFactory;
+        this.fileSystemMirror = fileSystemMirror;
+        this.enabled = enabled;
+        if (enabled) {
+            fileSystemMirror.setChangeSource(this);
+        }
+    }
+
+    @Override
+    public boolean isWatching(String absolutePath) {
+        for (String root : watchedRoots) {
+            if (absolutePath.startsWith(root) && (absolutePath.length() == root.length() || absolutePath.charAt(root.length()) == File.separatorChar)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Called before a build starts. Waits until all changes made so far have been reported and starts watching the given root directory, if not already watched.
+     */
+    public synchronized void beforeBuild(File rootDirectory) {
+        if (!enabled || failed) {
+            return;
+        }
+        if (!watchedRoots.isEmpty() && !waitForPendingChanges()) {
+            LOGGER.info("Timed out waiting for file system changes to be reported, discarding file system state.");
+            fileSystemMirror.invalidateAll();
+        }
+        String root = rootDirectory.getAbsolutePath();
+        if (!isWatching(root)) {
+            watch(rootDirectory);
+        }
+    }
+
+    private void watch(File rootDirectory) {
+        try {
+            if (watcher == null) {
+                watcher = fileWatcherFactory.watch(new Action<Throwable>() {
+                    @Override
+                    public void execute(Throwable throwable) {
+                        fail(throwable);
+                    }
+                }, new FileWatcherListener() {
+                    @Override
+                    public void onChange(FileWatcher watcher, FileWatcherEvent event) {
+                        changed(event);
+                    }
+                });
+            }
+            // The marker needs to be written to a directory which is already watched, as it would be reported before the directory is watched otherwise
+            syncMarkerDirFor(rootDirectory).mkdirs();
+            watcher.watch(FileSystemSubset.builder().add(rootDirectory).build());
+            watchedRoots.add(rootDirectory.getAbsolutePath());
+        } catch (Exception e) {
+            // Usually caused by running out of inotify watches for a large tree
+            fail(e);
+        }
+    }
+
+    private void changed(FileWatcherEvent event) {
+        File file = event.getFile();
+        if (event.getType() == FileWatcherEvent.Type.UNDEFINED || file == null) {
+            // The watcher dropped events, so any of the watched files may have changed
+            fileSystemMirror.invalidateAll();
+            return;
+        }
+        if (file.getName().startsWith(SYNC_MARKER_PREFIX) && file.getName().endsWith(SYNC_MARKER_SUFFIX)) {
+            syncLock.lock();
+            try {
+                reportedSyncMarkers.add(file.getAbsolutePath());
+                syncReported.signalAll();
+            } finally {
+                syncLock.unlock();
+            }
+            return;
+        }
+        fileSystemMirror.invalidate(Collections.singleton(file.getAbsolutePath()));
+    }
+
+    private boolean waitForPendingChanges() {
+        // Each build uses new markers, so that events for the markers of an earlier build cannot be mistaken for them
+        String markerName = SYNC_MARKER_PREFIX + (++syncCount) + SYNC_MARKER_SUFFIX;
+        List<File> markers = new ArrayList<File>(watchedRoots.size());
+        try {
+            for (String root : watchedRoots) {
+                File marker = new File(syncMarkerDirFor(new File(root)), markerName);
+                markers.add(marker);
+                Files.write(marker.toPath(), new byte[0]);
+            }
+            return waitUntilReported(markers);
+        } catch (IOException e) {
+            LOGGER.debug("Could not write file system sync marker.", e);
+            return false;
+        } finally {
+            for (File marker : markers) {
+                marker.delete();
+            }
+        }
+    }
+
+    private boolean waitUntilReported(List<File> markers) {
+        syncLock.lock();
+        try {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(SYNC_TIMEOUT_MILLIS);
+            for (File marker : markers) {
+                while (!reportedSyncMarkers.remove(marker.getAbsolutePath())) {
+                    if (remainingNanos <= 0) {
+                        return false;
+                    }
+                    remainingNanos = syncReported.awaitNanos(remainingNanos);
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            // Forget about markers reported late, or reported again when they were deleted
+            reportedSyncMarkers.clear();
+            syncLock.unlock();
+        }
+    }
+
+    private void fail(Throwable failure) {
+        LOGGER.info("Stopped watching the file system, file system state will not be retained between builds.", failure);
+        synchronized (this) {
+            failed = true;
+            fileSystemMirror.setChangeSource(null);
+            watchedRoots.clear();
+            stopWatcher();
+        }
+        fileSystemMirror.invalidateAll();
+    }
+
+    private static File syncMarkerDirFor(File rootDirectory) {
+        return new File(rootDirectory, ".gradle");
+    }
+
+    @Override
+    public synchronized void stop() {
+        watchedRoots.clear();
+        stopWatcher();
+    }
+
+    private void stopWatcher() {
+        if (watcher != null) {
+            watcher.stop();
+            watcher = null;
+        }
+    }
+}
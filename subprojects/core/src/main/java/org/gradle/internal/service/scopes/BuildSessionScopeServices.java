@@ -49,6 +49,7 @@ import org.gradle.initialization.BuildCancellationToken;
 import org.gradle.initialization.BuildClientMetaData;
 import org.gradle.initialization.BuildEventConsumer;
 import org.gradle.initialization.BuildRequestMetaData;
+import org.gradle.initialization.RootBuildLifecycleListener;
 import org.gradle.initialization.layout.BuildLayout;
 import org.gradle.initialization.layout.BuildLayoutConfiguration;
 import org.gradle.initialization.layout.BuildLayoutFactory;
@@ -58,6 +59,7 @@ import org.gradle.internal.classpath.ClassPath;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.featurelifecycle.DeprecatedUsageBuildOperationProgressBroadaster;
 import org.gradle.internal.filewatch.PendingChangesManager;
+import org.gradle.internal.filewatch.WatchingFileSystemChangeSource;
 import org.gradle.internal.fingerprint.classpath.CompileClasspathFingerprinter;
 import org.gradle.internal.fingerprint.classpath.impl.DefaultCompileClasspathFingerprinter;
 import org.gradle.internal.fingerprint.impl.AbsolutePathFileCollectionFingerprinter;
@@ -72,9 +74,12 @@ import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.isolation.IsolatableFactory;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
 import org.gradle.internal.nativeplatform.filesystem.FileSystem;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.BuildOperationListenerManager;
 import org.gradle.internal.operations.CurrentBuildOperationRef;
+import org.gradle.internal.operations.RunnableBuildOperation;
 import org.gradle.internal.resources.ProjectLeaseRegistry;
 import org.gradle.internal.scopeids.PersistentScopeIdLoader;
 import org.gradle.internal.scopeids.ScopeIdsServices;
@@ -87,7 +92,11 @@ import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.internal.snapshot.FileSystemMirror;
 import org.gradle.internal.snapshot.FileSystemSnapshotter;
 import org.gradle.internal.snapshot.WellKnownFileLocations;
+import org.gradle.internal.snapshot.impl.DefaultFileSystemMirror;
 import org.gradle.internal.snapshot.impl.DefaultFileSystemSnapshotter;
+import org.gradle.internal.snapshot.impl.DirectorySnapshotter;
+import org.gradle.internal.snapshot.impl.ParallelDirectorySnapshotter;
+import org.gradle.internal.snapshot.impl.RetainFileSystemStateBuildOperationType;
 import org.gradle.internal.time.Clock;
 import org.gradle.internal.work.AsyncWorkTracker;
 import org.gradle.internal.work.DefaultAsyncWorkTracker;
@@ -101,6 +110,10 @@ import java.io.File;
  * Contains the services for a single build session, which could be a single build or multiple builds when in continuous mode.
  */
 public class BuildSessionScopeServices extends DefaultServiceRegistry {
+    /**
+     * Snapshots the directories of a file tree concurrently when set to {@code true}.
+     */
+    public static final String PARALLEL_DIRECTORY_WALK_PROPERTY = "org.gradle.internal.snapshot.parallel-walk";
 
     public BuildSessionScopeServices(final ServiceRegistry parent, CrossBuildSessionScopeServices crossBuildSessionScopeServices, final StartParameter startParameter, BuildRequestMetaData buildRequestMetaData, ClassPath injectedPluginClassPath, BuildCancellationToken buildCancellationToken, BuildClientMetaData buildClientMetaData, BuildEventConsumer buildEventConsumer) {
         super(parent);
@@ -123,6 +136,8 @@ public class BuildSessionScopeServices extends DefaultServiceRegistry {
 
         // Must be no higher than this scope as needs cache repository services.
         addProvider(new ScopeIdsServices());
+        // Needs the build operation executor from the cross build session services.
+        addProvider(new FileSystemMirrorLifecycleServices());
     }
 
     PendingChangesManager createPendingChangesManager(ListenerManager listenerManager) {
@@ -168,8 +183,15 @@ public class BuildSessionScopeServices extends DefaultServiceRegistry {
         return new DefaultScriptSourceHasher();
     }
 
-    FileSystemSnapshotter createFileSystemSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, FileSystemMirror fileSystemMirror) {
-        return new DefaultFileSystemSnapshotter(hasher, stringInterner, fileSystem, fileSystemMirror, DirectoryScanner.getDefaultExcludes());
+    DirectorySnapshotter createDirectorySnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem) {
+        if (Boolean.getBoolean(PARALLEL_DIRECTORY_WALK_PROPERTY)) {
+            return new ParallelDirectorySnapshotter(hasher, fileSystem, stringInterner, DirectoryScanner.getDefaultExcludes());
+        }
+        return new DirectorySnapshotter(hasher, fileSystem, stringInterner, DirectoryScanner.getDefaultExcludes());
+    }
+
+    FileSystemSnapshotter createFileSystemSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, FileSystemMirror fileSystemMirror, DirectorySnapshotter directorySnapshotter) {
+        return new DefaultFileSystemSnapshotter(hasher, stringInterner, fileSystem, fileSystemMirror, directorySnapshotter);
     }
 
     AbsolutePathFileCollectionFingerprinter createAbsolutePathFileCollectionFingerprinter(StringInterner stringInterner, FileSystemSnapshotter fileSystemSnapshotter) {
@@ -246,4 +268,35 @@ public class BuildSessionScopeServices extends DefaultServiceRegistry {
             currentBuildOperationRef
         );
     }
+
+    private static class FileSystemMirrorLifecycleServices {
+        private static final RetainFileSystemStateBuildOperationType.Details DETAILS = new RetainFileSystemStateBuildOperationType.Details() {
+        };
+
+        void configure(ServiceRegistration registration, ListenerManager listenerManager, final BuildOperationExecutor buildOperationExecutor, final DefaultFileSystemMirror fileSystemMirror,
+                       final WatchingFileSystemChangeSource changeSource, final BuildLayoutFactory buildLayoutFactory, final StartParameter startParameter) {
+            listenerManager.addListener(new RootBuildLifecycleListener() {
+                @Override
+                public void afterStart() {
+                    // Start watching before anything is snapshotted, so that the snapshots taken by this build can be retained
+                    changeSource.beforeBuild(buildLayoutFactory.getLayoutFor(new BuildLayoutConfiguration(startParameter)).getRootDirectory());
+                }
+
+                @Override
+                public void beforeComplete() {
+                    buildOperationExecutor.run(new RunnableBuildOperation() {
+                        @Override
+                        public void run(BuildOperationContext context) {
+                            context.setResult(fileSystemMirror.beforeBuildFinished());
+                        }
+
+                        @Override
+                        public BuildOperationDescriptor.Builder description() {
+                            return BuildOperationDescriptor.displayName("Retain file system state").details(DETAILS);
+                        }
+                    });
+                }
+            });
+        }
+    }
 }
@@ -18,6 +18,7 @@ package org.gradle.internal.service.scopes;
 
 import org.gradle.api.Action;
 import org.gradle.initialization.exception.ExceptionAnalyser;
+import org.gradle.api.internal.project.CrossProjectAccessDetector;
 import org.gradle.api.internal.project.DefaultProjectStateRegistry;
 import org.gradle.api.logging.configuration.LoggingConfiguration;
 import org.gradle.api.logging.configuration.ShowStacktrace;
@@ -53,7 +54,11 @@ public class BuildTreeScopeServices extends DefaultServiceRegistry {
         return exceptionAnalyser;
     }
 
-    public DefaultProjectStateRegistry createProjectPathRegistry(WorkerLeaseService workerLeaseService) {
-        return new DefaultProjectStateRegistry(workerLeaseService);
+    protected CrossProjectAccessDetector createCrossProjectAccessDetector() {
+        return new CrossProjectAccessDetector();
+    }
+
+    public DefaultProjectStateRegistry createProjectPathRegistry(WorkerLeaseService workerLeaseService, CrossProjectAccessDetector crossProjectAccessDetector) {
+        return new DefaultProjectStateRegistry(workerLeaseService, crossProjectAccessDetector);
     }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.taskgraph;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+import java.util.Map;
+
+/**
+ * Ordering the calculated task graph so that tasks starting the longest chains of remaining work are preferred.
+ *
+ * @since 5.2
+ */
+public final class PrioritizeTaskGraphBuildOperationType implements BuildOperationType<PrioritizeTaskGraphBuildOperationType.Details, PrioritizeTaskGraphBuildOperationType.Result> {
+
+    public interface Details {
+
+        /**
+         * The build path the prioritized task graph belongs to.
+         * Never null.
+         */
+        String getBuildPath();
+    }
+
+    public interface Result {
+
+        /**
+         * The estimated length in milliseconds of the longest chain of work starting with each task, keyed by task path.
+         * Iterates in the order in which ready tasks are preferred.
+         * Never null.
+         */
+        Map<String, Long> getCriticalPathDurations();
+    }
+
+    private PrioritizeTaskGraphBuildOperationType() {
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.execution.history.ExecutionHistoryCacheAccess
+import spock.lang.Specification
+
+class DefaultTaskDurationHistoryTest extends Specification {
+    def cacheAccess = Mock(ExecutionHistoryCacheAccess)
+    def cache = Mock(PersistentIndexedCache)
+
+    def "creates the cache only when the durations are first used"() {
+        when:
+        def history = new DefaultTaskDurationHistory(cacheAccess)
+
+        then:
+        0 * cacheAccess._
+
+        when:
+        def duration = history.getPreviousDuration(":a")
+        history.recordDurations([":a": 12L])
+
+        then:
+        duration == 10L
+        1 * cacheAccess.createCache(_, 10000, false) >> cache
+        1 * cache.get(":a") >> 10L
+        1 * cache.put(":a", 12L)
+        0 * cacheAccess._
+    }
+}
@@ -31,7 +31,7 @@ import org.gradle.util.Path
 class DefaultProjectStateRegistryTest extends ConcurrentSpec {
     def workerLeaseService =  new DefaultWorkerLeaseService(new DefaultResourceLockCoordinationService(), new ParallelismConfigurationManagerFixture(true, 4))
     def parentLease = workerLeaseService.getWorkerLease()
-    def registry = new DefaultProjectStateRegistry(workerLeaseService)
+    def registry = new DefaultProjectStateRegistry(workerLeaseService, new CrossProjectAccessDetector())
 
     def "adds projects for a build"() {
         given:
@@ -149,6 +149,28 @@ class DefaultProjectStateRegistryTest extends ConcurrentSpec {
         !registry.stateFor(project("p1")).hasMutableState()
     }
 
+    def "can enforce state locking in a section with lenient state"() {
+        given:
+        def build = build("p1", "p2")
+        registry.registerProjects(build)
+        def state = registry.stateFor(project("p1"))
+
+        expect:
+        async {
+            workerThread {
+                registry.withLenientState({
+                    assert state.hasMutableState()
+                    registry.withStrictState({
+                        assert !state.hasMutableState()
+                        state.withMutableState({ assert state.hasMutableState() })
+                        assert !state.hasMutableState()
+                    })
+                    assert state.hasMutableState()
+                })
+            }
+        }
+    }
+
     ProjectInternal project(String name) {
         def project = Stub(ProjectInternal)
         project.identityPath >> (name == ':' ? Path.ROOT : Path.ROOT.child(name))
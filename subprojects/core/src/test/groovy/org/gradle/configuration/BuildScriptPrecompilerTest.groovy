@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration
+
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.groovy.scripts.ScriptSource
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.internal.resource.TextResource
+import spock.lang.Specification
+
+class BuildScriptPrecompilerTest extends Specification {
+    def scriptPluginFactory = Mock(ScriptPluginFactorySelector)
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+    def precompiler = new BuildScriptPrecompiler(scriptPluginFactory, buildOperationExecutor, true)
+
+    def "precompiles the classpath pass of existing build scripts and the body of those which keep the root classpath"() {
+        def root = project(true, null)
+        def a = project(true, root)
+        def b = project(false, root)
+
+        when:
+        precompiler.precompile([root, a, b])
+
+        then:
+        1 * scriptPluginFactory.canPrecompile(root) >> true
+        1 * scriptPluginFactory.precompileClasspathPass(root) >> true
+        1 * scriptPluginFactory.precompileBody(root)
+        1 * scriptPluginFactory.canPrecompile(a) >> true
+        1 * scriptPluginFactory.precompileClasspathPass(a) >> false
+        0 * scriptPluginFactory._
+    }
+
+    def "does not precompile the body of a build script when a parent changes the classpath"() {
+        def root = project(true, null)
+        def a = project(false, root)
+        def b = project(true, a)
+
+        when:
+        precompiler.precompile([root, a, b])
+
+        then:
+        _ * scriptPluginFactory.canPrecompile(_) >> true
+        _ * scriptPluginFactory.precompileClasspathPass(root) >> false
+        1 * scriptPluginFactory.precompileClasspathPass(b) >> true
+        0 * scriptPluginFactory.precompileBody(_)
+    }
+
+    def "precompiles the body of a build script when its parents keep the classpath"() {
+        def root = project(true, null)
+        def a = project(false, root)
+        def b = project(true, a)
+
+        when:
+        precompiler.precompile([root, a, b])
+
+        then:
+        _ * scriptPluginFactory.canPrecompile(_) >> true
+        _ * scriptPluginFactory.precompileClasspathPass(_) >> true
+        1 * scriptPluginFactory.precompileBody(root)
+        1 * scriptPluginFactory.precompileBody(b)
+        0 * scriptPluginFactory.precompileBody(_)
+    }
+
+    def "does not precompile build scripts which are not handled by the default script plugin factory"() {
+        def root = project(true, null)
+        def a = project(true, root)
+
+        when:
+        precompiler.precompile([root, a])
+
+        then:
+        1 * scriptPluginFactory.canPrecompile(root) >> false
+        1 * scriptPluginFactory.canPrecompile(a) >> false
+        0 * scriptPluginFactory._
+    }
+
+    def "ignores failures to precompile build scripts"() {
+        def root = project(true, null)
+        def a = project(true, null)
+
+        when:
+        precompiler.precompile([root, a])
+
+        then:
+        _ * scriptPluginFactory.canPrecompile(_) >> true
+        1 * scriptPluginFactory.precompileClasspathPass(root) >> { throw new RuntimeException("broken") }
+        1 * scriptPluginFactory.precompileClasspathPass(a) >> true
+        1 * scriptPluginFactory.precompileBody(a)
+        noExceptionThrown()
+    }
+
+    def "does nothing when disabled"() {
+        def disabled = new BuildScriptPrecompiler(scriptPluginFactory, buildOperationExecutor, false)
+
+        when:
+        disabled.precompile([project(true, null), project(true, null)])
+
+        then:
+        0 * scriptPluginFactory._
+    }
+
+    private ProjectInternal project(boolean buildScriptExists, ProjectInternal parent) {
+        def resource = Stub(TextResource)
+        resource.exists >> buildScriptExists
+        def source = Stub(ScriptSource)
+        source.resource >> resource
+        source.displayName >> "build file"
+        def project = Stub(ProjectInternal)
+        project.buildScriptSource >> source
+        project.parent >> parent
+        return project
+    }
+}
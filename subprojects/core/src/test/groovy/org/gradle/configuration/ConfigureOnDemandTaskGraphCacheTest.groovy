@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration
+
+import org.gradle.StartParameter
+import org.gradle.api.Task
+import org.gradle.api.internal.GradleInternal
+import org.gradle.api.internal.SettingsInternal
+import org.gradle.api.internal.initialization.ClassLoaderScope
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.cache.internal.DefaultCacheRepository
+import org.gradle.cache.internal.DefaultCacheScopeMapping
+import org.gradle.execution.taskgraph.TaskExecutionGraphInternal
+import org.gradle.groovy.scripts.ScriptSource
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.TestFileHasher
+import org.gradle.internal.resource.ResourceLocation
+import org.gradle.internal.resource.TextResource
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.testfixtures.internal.InMemoryCacheFactory
+import org.gradle.util.GradleVersion
+import org.junit.Rule
+import spock.lang.Specification
+
+class ConfigureOnDemandTaskGraphCacheTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheRepository = new DefaultCacheRepository(new DefaultCacheScopeMapping(tmpDir.file("user-home"), tmpDir.file("build-dir"), GradleVersion.current()), new InMemoryCacheFactory())
+    def classpathHash = HashCode.fromInt(1)
+    def classLoaderHierarchyHasher = Stub(ClassLoaderHierarchyHasher) {
+        getClassLoaderHash(_) >> { classpathHash }
+    }
+    def startParameter = new StartParameter()
+    def buildFile = tmpDir.file("build.gradle")
+    def settingsFile = tmpDir.file("settings.gradle")
+    def rootProject = Stub(ProjectInternal)
+    def gradle = Stub(GradleInternal)
+    def clean = task(":clean")
+    def build = task(":build")
+    def taskGraph = Stub(TaskExecutionGraphInternal) {
+        getEntryTaskGroups() >> [[clean] as Set, [build] as Set]
+        getAllTasks() >> [clean, build]
+        getFilteredTasks() >> ([] as Set)
+    }
+
+    def setup() {
+        buildFile.text = "apply plugin: 'base'"
+        settingsFile.text = ""
+        startParameter.configureOnDemand = true
+        startParameter.currentDir = tmpDir.testDirectory
+        startParameter.gradleUserHomeDir = tmpDir.file("user-home")
+        startParameter.taskNames = ["clean", "build"]
+
+        rootProject.path >> ":"
+        rootProject.projectDir >> tmpDir.testDirectory
+        rootProject.buildFile >> buildFile
+        rootProject.allprojects >> ([rootProject] as Set)
+        gradle.parent >> null
+        gradle.startParameter >> startParameter
+        gradle.rootProject >> rootProject
+        gradle.settings >> Stub(SettingsInternal) {
+            getClassLoaderScope() >> Stub(ClassLoaderScope) {
+                getExportClassLoader() >> getClass().classLoader
+            }
+            getSettingsScript() >> Stub(ScriptSource) {
+                getResource() >> Stub(TextResource) {
+                    getLocation() >> Stub(ResourceLocation) {
+                        getFile() >> settingsFile
+                    }
+                }
+            }
+        }
+    }
+
+    def "stores the requested tasks in the groups they were added to the task graph"() {
+        when:
+        newCache().store(gradle, taskGraph)
+        def cachedTaskGraph = newCache().load(gradle)
+
+        then:
+        cachedTaskGraph.entryTaskPaths == [[":clean"], [":build"]]
+        cachedTaskGraph.projectPaths == [":"]
+        cachedTaskGraph.excludedTaskPaths == []
+    }
+
+    def "does not use the task graph of other requested tasks"() {
+        when:
+        newCache().store(gradle, taskGraph)
+        startParameter.taskNames = ["build", "clean"]
+
+        then:
+        newCache().load(gradle) == null
+    }
+
+    def "does not use the task graph when a build script has changed"() {
+        when:
+        newCache().store(gradle, taskGraph)
+        buildFile.text = "apply plugin: 'java'"
+
+        then:
+        newCache().load(gradle) == null
+    }
+
+    def "does not use the task graph when the classpath of the build has changed"() {
+        when:
+        newCache().store(gradle, taskGraph)
+        classpathHash = HashCode.fromInt(2)
+
+        then:
+        newCache().load(gradle) == null
+    }
+
+    def "does not store the task graph when configure on demand is disabled"() {
+        when:
+        startParameter.configureOnDemand = false
+        newCache().store(gradle, taskGraph)
+        startParameter.configureOnDemand = true
+
+        then:
+        newCache().load(gradle) == null
+    }
+
+    def "does not store the task graph when task options are given"() {
+        when:
+        startParameter.taskNames = ["test", "--tests", "Foo"]
+        newCache().store(gradle, taskGraph)
+
+        then:
+        newCache().load(gradle) == null
+    }
+
+    def "does nothing when disabled"() {
+        when:
+        def cache = new ConfigureOnDemandTaskGraphCache(cacheRepository, new TestFileHasher(), classLoaderHierarchyHasher, false)
+        cache.store(gradle, taskGraph)
+
+        then:
+        cache.load(gradle) == null
+        newCache().load(gradle) == null
+    }
+
+    private ConfigureOnDemandTaskGraphCache newCache() {
+        return new ConfigureOnDemandTaskGraphCache(cacheRepository, new TestFileHasher(), classLoaderHierarchyHasher, true)
+    }
+
+    private Task task(String path) {
+        return Stub(Task) {
+            getPath() >> path
+            getProject() >> rootProject
+        }
+    }
+}
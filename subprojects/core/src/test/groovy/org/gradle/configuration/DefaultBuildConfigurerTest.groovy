@@ -28,19 +28,26 @@ class DefaultBuildConfigurerTest extends Specification {
     private rootProject = Mock(ProjectInternal)
     private projectConfigurer = Mock(ProjectConfigurer)
     private buildRegistry = Mock(BuildStateRegistry)
-    private configurer = new DefaultBuildConfigurer(projectConfigurer, buildRegistry)
+    private taskGraphCache = Mock(ConfigureOnDemandTaskGraphCache)
+    private buildScriptPrecompiler = Mock(BuildScriptPrecompiler)
+    private configurer = new DefaultBuildConfigurer(projectConfigurer, buildRegistry, taskGraphCache, buildScriptPrecompiler)
 
     def setup() {
         gradle.startParameter >> startParameter
         gradle.rootProject >> rootProject
+        rootProject.allprojects >> ([rootProject] as Set)
     }
 
     def "configures build for standard mode"() {
         when:
         configurer.configure(gradle)
 
+        then:
+        1 * buildScriptPrecompiler.precompile([rootProject])
+
         then:
         1 * projectConfigurer.configureHierarchy(rootProject)
+        0 * taskGraphCache._
     }
 
     def "configures build for on demand mode"() {
@@ -51,4 +58,30 @@ class DefaultBuildConfigurerTest extends Specification {
         startParameter.isConfigureOnDemand() >> true
         1 * projectConfigurer.configure(rootProject)
     }
+
+    def "configures projects of cached task graph with their parents"() {
+        def cachedTaskGraph = new ConfigureOnDemandTaskGraphCache.CachedTaskGraph([:], null, [":", ":a:b", ":c"], [[":a:b:build"]], [])
+        def a = Mock(ProjectInternal)
+        def b = Mock(ProjectInternal)
+        def c = Mock(ProjectInternal)
+        rootProject.findProject(":") >> rootProject
+        rootProject.findProject(":a:b") >> b
+        rootProject.findProject(":c") >> c
+        b.parent >> a
+        a.parent >> rootProject
+        c.parent >> rootProject
+        startParameter.isConfigureOnDemand() >> true
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        1 * taskGraphCache.load(gradle) >> cachedTaskGraph
+        1 * buildScriptPrecompiler.precompile([rootProject, c, a, b] as Set)
+        1 * projectConfigurer.configure(rootProject)
+        1 * projectConfigurer.configure(a)
+        1 * projectConfigurer.configure(b)
+        1 * projectConfigurer.configure(c)
+        0 * projectConfigurer.configureHierarchy(_)
+    }
 }
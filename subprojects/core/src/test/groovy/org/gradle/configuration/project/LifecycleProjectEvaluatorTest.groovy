@@ -34,7 +34,7 @@ class LifecycleProjectEvaluatorTest extends Specification {
     private listener = Mock(ProjectEvaluationListener)
     private delegate = Mock(ProjectEvaluator)
     private buildOperationExecutor = new TestBuildOperationExecutor()
-    private evaluator = new LifecycleProjectEvaluator(buildOperationExecutor, delegate)
+    private evaluator = new LifecycleProjectEvaluator(buildOperationExecutor, delegate, false)
     private state = new ProjectStateInternal()
     private mutationState = Mock(ProjectState)
 
@@ -89,6 +89,49 @@ class LifecycleProjectEvaluatorTest extends Specification {
         operations.empty
     }
 
+    void "nothing happens if project was configured by another thread while waiting for its lock"() {
+        given:
+        evaluator = new LifecycleProjectEvaluator(buildOperationExecutor, delegate, true)
+
+        when:
+        evaluate()
+
+        then:
+        1 * mutationState.withMutableState(_) >> { args ->
+            state.toBeforeEvaluate()
+            state.configured()
+            args[0].run()
+        }
+        state.executed
+        0 * delegate._
+
+        and:
+        operations.empty
+    }
+
+    void "takes the project lock once to evaluate the project when projects are configured serially"() {
+        when:
+        evaluate()
+
+        then:
+        1 * mutationState.withMutableState(_) >> { args -> args[0].run() }
+        1 * delegate.evaluate(project, state)
+        state.executed
+    }
+
+    void "takes the project lock to check the state again when projects are configured in parallel"() {
+        given:
+        evaluator = new LifecycleProjectEvaluator(buildOperationExecutor, delegate, true)
+
+        when:
+        evaluate()
+
+        then:
+        2 * mutationState.withMutableState(_) >> { args -> args[0].run() }
+        1 * delegate.evaluate(project, state)
+        state.executed
+    }
+
     void "evaluates the project firing all necessary listeners and updating the state"() {
         when:
         evaluate()
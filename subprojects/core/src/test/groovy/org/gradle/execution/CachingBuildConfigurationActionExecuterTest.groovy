@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution
+
+import org.gradle.api.Action
+import org.gradle.api.Task
+import org.gradle.api.internal.GradleInternal
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.project.ProjectStateRegistry
+import org.gradle.api.internal.tasks.TaskContainerInternal
+import org.gradle.configuration.ConfigureOnDemandTaskGraphCache
+import org.gradle.execution.taskgraph.TaskExecutionGraphInternal
+import org.gradle.internal.Factory
+import spock.lang.Specification
+
+class CachingBuildConfigurationActionExecuterTest extends Specification {
+    final delegate = Mock(BuildConfigurationActionExecuter)
+    final taskGraphCache = Mock(ConfigureOnDemandTaskGraphCache)
+    final projectStateRegistry = Stub(ProjectStateRegistry)
+    final gradle = Stub(GradleInternal)
+    final tasks = Stub(TaskContainerInternal)
+    final taskGraph = Mock(TaskExecutionGraphInternal)
+    final clean = Stub(Task)
+    final build = Stub(Task)
+    final jar = Stub(Task)
+    final executer = new CachingBuildConfigurationActionExecuter(delegate, taskGraphCache, projectStateRegistry)
+
+    def setup() {
+        projectStateRegistry.withLenientState(_ as Factory) >> { Factory factory -> factory.create() }
+        gradle.rootProject >> Stub(ProjectInternal) {
+            getTasks() >> tasks
+        }
+        gradle.taskGraph >> taskGraph
+        tasks.findByPath(":clean") >> clean
+        tasks.findByPath(":build") >> build
+        tasks.findByPath(":a:jar") >> jar
+        tasks.findByPath(_) >> null
+    }
+
+    def "adds the tasks of the cached task graph in the groups they were requested in"() {
+        given:
+        def cachedTaskGraph = new ConfigureOnDemandTaskGraphCache.CachedTaskGraph([:], null, [":", ":a"], [[":clean"], [":build", ":a:jar"]], [])
+
+        when:
+        executer.select(gradle)
+
+        then:
+        1 * taskGraphCache.load(gradle) >> cachedTaskGraph
+
+        then:
+        1 * taskGraph.addEntryTasks([clean])
+
+        then:
+        1 * taskGraph.addEntryTasks([build, jar])
+        0 * taskGraph._
+        0 * delegate._
+        0 * taskGraphCache._
+    }
+
+    def "filters the excluded tasks of the cached task graph"() {
+        given:
+        def cachedTaskGraph = new ConfigureOnDemandTaskGraphCache.CachedTaskGraph([:], null, [":"], [[":build"]], [":a:jar"])
+        def excludedTask = Stub(Task) { getPath() >> ":a:jar" }
+        def otherTask = Stub(Task) { getPath() >> ":a:test" }
+        def filter = null
+
+        when:
+        executer.select(gradle)
+
+        then:
+        1 * taskGraphCache.load(gradle) >> cachedTaskGraph
+        1 * taskGraph.useFilter(_) >> { args -> filter = args[0] }
+
+        then:
+        1 * taskGraph.addEntryTasks([build])
+        0 * delegate._
+
+        and:
+        !filter.isSatisfiedBy(excludedTask)
+        filter.isSatisfiedBy(otherTask)
+    }
+
+    def "selects the tasks again and stores the task graph when a cached task no longer exists"() {
+        given:
+        def cachedTaskGraph = new ConfigureOnDemandTaskGraphCache.CachedTaskGraph([:], null, [":"], [[":clean"], [":unknown"]], [])
+
+        when:
+        executer.select(gradle)
+
+        then:
+        1 * taskGraphCache.load(gradle) >> cachedTaskGraph
+        1 * taskGraphCache.discard()
+        1 * delegate.select(gradle)
+        1 * taskGraph.whenReady(_ as Action) >> { Action action -> action.execute(taskGraph) }
+        1 * taskGraphCache.store(gradle, taskGraph)
+        0 * taskGraph.addEntryTasks(_)
+    }
+
+    def "selects the tasks and stores the task graph when nothing is cached"() {
+        when:
+        executer.select(gradle)
+
+        then:
+        1 * taskGraphCache.load(gradle) >> null
+        1 * delegate.select(gradle)
+        1 * taskGraph.whenReady(_ as Action) >> { Action action -> action.execute(taskGraph) }
+        1 * taskGraphCache.store(gradle, taskGraph)
+        0 * taskGraphCache._
+    }
+
+    def "does not use the cache when the task selectors are replaced"() {
+        def taskSelector = Stub(BuildConfigurationAction)
+
+        when:
+        executer.setTaskSelectors([taskSelector])
+        executer.select(gradle)
+
+        then:
+        1 * delegate.setTaskSelectors([taskSelector])
+        1 * delegate.select(gradle)
+        0 * taskGraphCache._
+        0 * taskGraph._
+    }
+}
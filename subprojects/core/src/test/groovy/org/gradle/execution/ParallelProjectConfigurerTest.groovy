@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution
+
+import org.gradle.api.internal.project.CrossProjectAccessDetector
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.project.ProjectState
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import spock.lang.Specification
+
+class ParallelProjectConfigurerTest extends Specification {
+    private delegate = Mock(ProjectConfigurer)
+    private detector = new CrossProjectAccessDetector()
+    private configurer = new ParallelProjectConfigurer(delegate, new TestBuildOperationExecutor(), detector)
+    private root = project("root")
+    private a = project("a")
+    private b = project("b")
+    private c = project("c")
+
+    def setup() {
+        root.childProjects >> [a: a, b: b]
+        a.childProjects >> [c: c]
+        root.subprojects >> ([a, b, c] as Set)
+    }
+
+    def "configures project hierarchy one level at a time"() {
+        when:
+        configurer.configureHierarchy(root)
+
+        then:
+        1 * delegate.configure(root)
+
+        then:
+        1 * delegate.configure(a)
+        1 * delegate.configure(b)
+
+        then:
+        1 * delegate.configure(c)
+        0 * delegate._
+    }
+
+    def "configures remaining projects serially when a project accesses another project"() {
+        when:
+        configurer.configureHierarchy(root)
+
+        then:
+        1 * delegate.configure(root)
+        1 * delegate.configure(a) >> { detector.accessing(b.mutationState) }
+        1 * delegate.configure(b)
+
+        then:
+        1 * delegate.configure(a)
+        1 * delegate.configure(b)
+        1 * delegate.configure(c)
+        0 * delegate._
+    }
+
+    def "does not report access to the project being configured"() {
+        when:
+        configurer.configureHierarchy(root)
+
+        then:
+        1 * delegate.configure(root)
+        1 * delegate.configure(a) >> { assert !detector.accessing(a.mutationState) }
+        1 * delegate.configure(b)
+        1 * delegate.configure(c)
+        0 * delegate._
+    }
+
+    def "does not report access to other projects outside of parallel configuration"() {
+        expect:
+        !detector.accessing(a.mutationState)
+    }
+
+    private ProjectInternal project(String name) {
+        def state = Stub(ProjectState)
+        state.toString() >> "project '$name'"
+        def project = Stub(ProjectInternal)
+        project.mutationState >> state
+        project.displayName >> "project '$name'"
+        return project
+    }
+}
@@ -93,6 +93,29 @@ class DefaultExecutionPlanTest extends AbstractProjectBuilderSpec {
         executes(a, b, c, d)
     }
 
+    def "prefers tasks starting the longest chain of work when prioritizing the critical path"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        Task d = task("d", dependsOn: [a, c])
+        def durationHistory = Stub(TaskDurationHistory) {
+            getPreviousDuration(":a") >> 10L
+            getPreviousDuration(":b") >> 10L
+            getPreviousDuration(":c") >> 100L
+            getPreviousDuration(":d") >> 1L
+        }
+
+        when:
+        addToGraphAndPopulate([d])
+        def criticalPathDurations = executionPlan.prioritizeCriticalPath(durationHistory)
+
+        then:
+        criticalPathDurations.collect { node, duration -> [node.task, duration] } == [[b, 111L], [c, 101L], [a, 11L], [d, 1L]]
+        executedTasks == [b, c, a, d]
+        executionPlan.taskDurations.keySet() == [':b', ':c', ':a', ':d'] as Set
+    }
+
     def "schedules a single batch of tasks in name order"() {
         given:
         Task a = task("a")
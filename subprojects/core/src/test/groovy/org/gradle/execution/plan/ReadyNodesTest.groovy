@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan
+
+import org.gradle.api.Project
+import spock.lang.Specification
+
+class ReadyNodesTest extends Specification {
+    def projectA = Stub(Project)
+    def projectB = Stub(Project)
+    def a1 = node(projectA)
+    def a2 = node(projectA)
+    def b1 = node(projectB)
+    def b2 = node(projectB)
+    def noProject = node(null)
+    def readyNodes = new ReadyNodes()
+
+    def setup() {
+        readyNodes.setExecutionOrder([a1, b1, noProject, a2, b2])
+    }
+
+    def "groups nodes by project in execution order"() {
+        when:
+        readyNodes.add(b2)
+        readyNodes.add(a2)
+        readyNodes.add(noProject)
+        readyNodes.add(b1)
+
+        then:
+        contents() == [[projectB, [b1, b2]], [null, [noProject]], [projectA, [a2]]]
+    }
+
+    def "reorders projects when their first node is removed"() {
+        given:
+        [a1, a2, b1, b2].each { readyNodes.add(it) }
+
+        when:
+        readyNodes.remove(a1)
+
+        then:
+        contents() == [[projectB, [b1, b2]], [projectA, [a2]]]
+
+        when:
+        readyNodes.remove(a2)
+
+        then:
+        contents() == [[projectB, [b1, b2]]]
+        !readyNodes.contains(a2)
+        readyNodes.contains(b2)
+    }
+
+    def "adding and removing is idempotent"() {
+        expect:
+        readyNodes.add(a1)
+        !readyNodes.add(a1)
+        readyNodes.remove(a1)
+        !readyNodes.remove(a1)
+        readyNodes.isEmpty()
+    }
+
+    def "fails for nodes that are not part of the execution order"() {
+        given:
+        readyNodes.add(a1)
+
+        when:
+        readyNodes.add(node(projectA))
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    private List contents() {
+        readyNodes.projectsInExecutionOrder.collect { [it.project, it.nodes as List] }
+    }
+
+    private Node node(Project project) {
+        Stub(Node) {
+            getProject() >> project
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.filewatch
+
+import org.gradle.api.Action
+import org.gradle.internal.snapshot.impl.DefaultFileSystemMirror
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import static org.gradle.internal.filewatch.FileWatcherEvent.Type.*
+
+class WatchingFileSystemChangeSourceTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def fileWatcherFactory = Mock(FileWatcherFactory)
+    def fileSystemMirror = Mock(DefaultFileSystemMirror)
+    def watcher = Mock(FileWatcher)
+    Action<? super Throwable> onError
+    FileWatcherListener listener
+
+    def "watches the root directory of the build"() {
+        def root = tmpDir.createDir("root")
+
+        when:
+        def changeSource = new WatchingFileSystemChangeSource(fileWatcherFactory, fileSystemMirror, true)
+
+        then:
+        1 * fileSystemMirror.setChangeSource(_)
+
+        when:
+        changeSource.beforeBuild(root)
+
+        then:
+        1 * fileWatcherFactory.watch(_, _) >> watcher
+        1 * watcher.watch(_)
+        root.file(".gradle").directory
+        changeSource.isWatching(root.absolutePath)
+        changeSource.isWatching(root.file("src/a.txt").absolutePath)
+        !changeSource.isWatching(tmpDir.file("root-sibling").absolutePath)
+        !changeSource.isWatching(tmpDir.testDirectory.absolutePath)
+    }
+
+    def "does nothing when not enabled"() {
+        def root = tmpDir.createDir("root")
+
+        when:
+        def changeSource = new WatchingFileSystemChangeSource(fileWatcherFactory, fileSystemMirror, false)
+        changeSource.beforeBuild(root)
+
+        then:
+        0 * _
+        !changeSource.isWatching(root.absolutePath)
+    }
+
+    def "invalidates changed files"() {
+        def root = tmpDir.createDir("root")
+        def changeSource = watching(root)
+        def file = root.file("src/a.txt")
+
+        when:
+        listener.onChange(watcher, new FileWatcherEvent(MODIFY, file))
+
+        then:
+        1 * fileSystemMirror.invalidate([file.absolutePath])
+        0 * fileSystemMirror._
+
+        when:
+        listener.onChange(watcher, FileWatcherEvent.undefined())
+
+        then:
+        1 * fileSystemMirror.invalidateAll()
+        0 * fileSystemMirror._
+
+        cleanup:
+        changeSource.stop()
+    }
+
+    def "stops watching and invalidates everything when watching fails"() {
+        def root = tmpDir.createDir("root")
+        def changeSource = watching(root)
+
+        when:
+        onError.execute(new RuntimeException("broken"))
+
+        then:
+        1 * watcher.stop()
+        1 * fileSystemMirror.setChangeSource(null)
+        1 * fileSystemMirror.invalidateAll()
+        !changeSource.isWatching(root.absolutePath)
+
+        when:
+        changeSource.beforeBuild(root)
+
+        then:
+        0 * _
+    }
+
+    def "stops watching when the watch cannot be registered"() {
+        def root = tmpDir.createDir("root")
+        def changeSource = new WatchingFileSystemChangeSource(fileWatcherFactory, fileSystemMirror, true)
+
+        when:
+        changeSource.beforeBuild(root)
+
+        then:
+        1 * fileWatcherFactory.watch(_, _) >> watcher
+        1 * watcher.watch(_) >> { throw new IOException("out of watches") }
+        1 * watcher.stop()
+        1 * fileSystemMirror.invalidateAll()
+        !changeSource.isWatching(root.absolutePath)
+    }
+
+    def "waits for changes to be reported before the next build"() {
+        def root = tmpDir.createDir("root")
+        def changeSource = watching(root)
+        def reporter = Thread.start {
+            File[] markers = []
+            while (markers.length == 0) {
+                markers = root.file(".gradle").listFiles()
+            }
+            listener.onChange(watcher, new FileWatcherEvent(CREATE, markers[0]))
+        }
+
+        when:
+        changeSource.beforeBuild(root)
+        reporter.join()
+
+        then:
+        0 * watcher.watch(_)
+        0 * fileSystemMirror.invalidateAll()
+        0 * fileSystemMirror.invalidate(_)
+        !root.file(".gradle").list()
+    }
+
+    def "discards file system state when changes are not reported in time"() {
+        def root = tmpDir.createDir("root")
+        def changeSource = watching(root)
+
+        when:
+        changeSource.beforeBuild(root)
+
+        then:
+        0 * watcher.watch(_)
+        1 * fileSystemMirror.invalidateAll()
+    }
+
+    private WatchingFileSystemChangeSource watching(File root) {
+        def changeSource = new WatchingFileSystemChangeSource(fileWatcherFactory, fileSystemMirror, true)
+        1 * fileWatcherFactory.watch(_, _) >> { Action<? super Throwable> onError, FileWatcherListener listener ->
+            this.onError = onError
+            this.listener = listener
+            watcher
+        }
+        changeSource.beforeBuild(root)
+        return changeSource
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.gradle.integtests.resolve.transform
 
+import org.gradle.api.internal.artifacts.transform.DefaultArtifactTransforms
 import org.gradle.integtests.fixtures.AbstractDependencyResolutionTest
 import org.gradle.integtests.fixtures.ExperimentalIncrementalArtifactTransformationsRunner
 import org.gradle.integtests.fixtures.build.BuildTestFile
@@ -131,6 +132,45 @@ class ArtifactTransformParallelIntegrationTest extends AbstractDependencyResolut
         outputContains("Transforming test3-3.3.jar to test3-3.3.jar.txt")
     }
 
+    def "transformations of cached external dependency artifacts resolved while configuring are applied in parallel when enabled"() {
+        def m1 = mavenRepo.module("test", "test", "1.3").publish()
+        m1.artifactFile.text = "1234"
+        def m2 = mavenRepo.module("test", "test2", "2.3").publish()
+        m2.artifactFile.text = "12"
+        def m3 = mavenRepo.module("test", "test3", "3.3").publish()
+        m3.artifactFile.text = "12"
+
+        given:
+
+        buildFile << """
+            repositories {
+                maven { url "${mavenRepo.uri}" }
+            }
+            dependencies {
+                compile 'test:test:1.3'
+                compile 'test:test2:2.3'
+                compile 'test:test3:3.3'
+            }
+            // Resolve the artifacts first, so that they are available without further resolution
+            assert configurations.compile.files.collect { it.name } == ['test-1.3.jar', 'test2-2.3.jar', 'test3-3.3.jar']
+            def artifacts = configurations.compile.incoming.artifactView {
+                attributes { it.attribute(artifactType, 'size') }
+            }.artifacts
+            assert artifacts.artifactFiles.collect { it.name } == ['test-1.3.jar.txt', 'test2-2.3.jar.txt', 'test3-3.3.jar.txt']
+        """
+
+        server.expectConcurrent("test-1.3.jar", "test2-2.3.jar", "test3-3.3.jar")
+
+        when:
+        executer.withArgument("-D${DefaultArtifactTransforms.PARALLEL_ARTIFACT_TRANSFORMATIONS_PROPERTY}=true")
+        succeeds "help"
+
+        then:
+        outputContains("Transforming test-1.3.jar to test-1.3.jar.txt")
+        outputContains("Transforming test2-2.3.jar to test2-2.3.jar.txt")
+        outputContains("Transforming test3-3.3.jar to test3-3.3.jar.txt")
+    }
+
     def "transformations are applied in parallel for project artifacts"() {
         given:
         settingsFile << """
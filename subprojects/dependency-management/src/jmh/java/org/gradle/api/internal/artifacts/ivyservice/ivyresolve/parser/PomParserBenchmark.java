@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * Parses POMs of typical shapes into a DOM, as {@link PomReader} used to, and with {@link PomStaxParser}.
+ *
+ * <ul>
+ *     <li>{@code library}: a handful of dependencies and a large build section, like most published modules.</li>
+ *     <li>{@code parent}: many properties, plugin management and dependency management, like the parent POMs of large projects.</li>
+ *     <li>{@code bom}: nothing but a large dependency management section, like the Spring or AWS SDK BOMs.</li>
+ * </ul>
+ *
+ * Both parsers see the same document: with {@code dtd=m2-entities} the Maven DTD is added and its entities are expanded, as for a POM which uses them,
+ * and with {@code dtd=none} the POM is parsed as is, which is how {@link PomStaxParser} first tries to parse every POM.
+ *
+ * Run with the {@code gc} profiler to compare the allocation rates.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class PomParserBenchmark {
+    private static final byte[] M2_ENTITIES_RESOURCE;
+
+    static {
+        try {
+            M2_ENTITIES_RESOURCE = IOUtils.toByteArray(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Param({"library", "parent", "bom"})
+    String shape;
+
+    @Param({"none", "m2-entities"})
+    String dtd;
+
+    private byte[] pom;
+    private DocumentBuilderFactory documentBuilderFactory;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setValidating(false);
+        StringBuilder builder = new StringBuilder();
+        builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        builder.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">\n");
+        builder.append("  <modelVersion>4.0.0</modelVersion>\n");
+        if (!shape.equals("parent")) {
+            builder.append("  <parent><groupId>org.example</groupId><artifactId>example-parent</artifactId><version>1.0</version></parent>\n");
+        }
+        builder.append("  <groupId>org.example</groupId>\n");
+        builder.append("  <artifactId>example-").append(shape).append("</artifactId>\n");
+        builder.append("  <version>1.0</version>\n");
+        builder.append("  <packaging>").append(shape.equals("library") ? "jar" : "pom").append("</packaging>\n");
+        builder.append("  <name>Example</name>\n");
+        builder.append("  <description>An example module &amp; its &quot;dependencies&quot; for benchmarking</description>\n");
+        builder.append("  <url>https://example.org</url>\n");
+        builder.append("  <licenses><license><name>Apache License, Version 2.0</name><url>https://www.apache.org/licenses/LICENSE-2.0</url></license></licenses>\n");
+        builder.append("  <developers>\n");
+        for (int i = 0; i < 10; i++) {
+            builder.append("    <developer><id>dev").append(i).append("</id><name>Developer ").append(i).append("</name><email>dev").append(i).append("@example.org</email><roles><role>developer</role></roles></developer>\n");
+        }
+        builder.append("  </developers>\n");
+        builder.append("  <scm><url>https://example.org/scm</url><connection>scm:git:https://example.org/scm.git</connection></scm>\n");
+        if (shape.equals("parent")) {
+            builder.append("  <properties>\n");
+            for (int i = 0; i < 150; i++) {
+                builder.append("    <lib").append(i).append(".version>").append(i).append(".0.1</lib").append(i).append(".version>\n");
+            }
+            builder.append("  </properties>\n");
+        }
+        if (!shape.equals("library")) {
+            int count = shape.equals("bom") ? 600 : 150;
+            builder.append("  <dependencyManagement>\n    <dependencies>\n");
+            for (int i = 0; i < count; i++) {
+                builder.append("      <dependency>\n");
+                builder.append("        <groupId>org.example.group").append(i % 20).append("</groupId>\n");
+                builder.append("        <artifactId>library-").append(i).append("</artifactId>\n");
+                builder.append("        <version>${lib").append(i % 150).append(".version}</version>\n");
+                if (i % 10 == 0) {
+                    builder.append("        <exclusions><exclusion><groupId>commons-logging</groupId><artifactId>commons-logging</artifactId></exclusion></exclusions>\n");
+                }
+                builder.append("      </dependency>\n");
+            }
+            builder.append("    </dependencies>\n  </dependencyManagement>\n");
+        }
+        if (!shape.equals("bom")) {
+            builder.append("  <dependencies>\n");
+            for (int i = 0; i < 12; i++) {
+                builder.append("    <dependency><groupId>org.example.group").append(i).append("</groupId><artifactId>library-").append(i).append("</artifactId>");
+                builder.append(i % 4 == 0 ? "<scope>test</scope>" : "").append(i % 5 == 0 ? "<optional>true</optional>" : "").append("</dependency>\n");
+            }
+            builder.append("  </dependencies>\n");
+            builder.append("  <build>\n");
+            builder.append(shape.equals("parent") ? "    <pluginManagement>\n" : "");
+            builder.append("    <plugins>\n");
+            for (int i = 0; i < 25; i++) {
+                builder.append("      <plugin>\n        <groupId>org.apache.maven.plugins</groupId>\n        <artifactId>maven-plugin-").append(i).append("</artifactId>\n");
+                builder.append("        <version>3.").append(i).append("</version>\n        <configuration>\n");
+                for (int j = 0; j < 8; j++) {
+                    builder.append("          <option").append(j).append(">value ").append(j).append("</option").append(j).append(">\n");
+                }
+                builder.append("        </configuration>\n");
+                builder.append("        <executions><execution><id>default</id><phase>package</phase><goals><goal>run</goal></goals></execution></executions>\n");
+                builder.append("        <dependencies><dependency><groupId>org.example.plugin</groupId><artifactId>plugin-dependency-").append(i).append("</artifactId><version>1.0</version></dependency></dependencies>\n");
+                builder.append("      </plugin>\n");
+            }
+            builder.append("    </plugins>\n");
+            builder.append(shape.equals("parent") ? "    </pluginManagement>\n" : "");
+            builder.append("  </build>\n");
+            builder.append("  <reporting><plugins><plugin><artifactId>maven-javadoc-plugin</artifactId></plugin></plugins></reporting>\n");
+        }
+        builder.append("  <profiles>\n");
+        builder.append("    <profile><id>release</id><build><plugins><plugin><artifactId>maven-gpg-plugin</artifactId></plugin></plugins></build></profile>\n");
+        builder.append("    <profile><id>default</id><activation><activeByDefault>true</activeByDefault></activation><properties><skipTests>false</skipTests></properties></profile>\n");
+        builder.append("  </profiles>\n");
+        builder.append("</project>\n");
+        pom = builder.toString().getBytes();
+    }
+
+    @Benchmark
+    public Document parseToDom() throws Exception {
+        DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+        documentBuilder.setEntityResolver(new EntityResolver() {
+            @Override
+            public InputSource resolveEntity(String publicId, String systemId) {
+                if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                    return new InputSource(new ByteArrayInputStream(M2_ENTITIES_RESOURCE));
+                }
+                return null;
+            }
+        });
+        InputStream input = new ByteArrayInputStream(pom);
+        return documentBuilder.parse(withM2Entities() ? new PomStaxParser.AddDTDFilterInputStream(input) : input, "pom.xml");
+    }
+
+    @Benchmark
+    public PomElement parseWithStax() throws Exception {
+        return withM2Entities() ? PomStaxParser.parseWithM2Entities(new ByteArrayInputStream(pom), "pom.xml") : PomStaxParser.parse(pom, "pom.xml");
+    }
+
+    private boolean withM2Entities() {
+        return dtd.equals("m2-entities");
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.internal.component.external.descriptor.DefaultExclude;
+import org.gradle.internal.component.model.DefaultIvyArtifactName;
+import org.gradle.internal.component.model.ExcludeMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Combines exclusions the way {@link org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.NodeState} does while traversing a
+ * synthetic graph with many exclude rules, like the graphs of the Hadoop and Spark stacks.
+ *
+ * <p>The graph is made of layers of modules, where each module depends on several modules of the next layer with a few exclude rules on each edge.
+ * Every module is traversed twice, as when new incoming edges are discovered, and the second traversal is skipped when the exclusions of the
+ * module exclude the same modules as before.</p>
+ *
+ * <ul>
+ *     <li>{@code cold}: a new {@link ModuleExclusions} for each resolution, like the first resolution of a build.</li>
+ *     <li>{@code warm}: the same {@link ModuleExclusions} for all resolutions, like the later resolutions of a build.</li>
+ * </ul>
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class ModuleExclusionsBenchmark {
+    private static final int LAYERS = 8;
+    private static final int MODULES_PER_LAYER = 40;
+    private static final int DEPENDENCIES_PER_MODULE = 6;
+
+    @Param({"cold", "warm"})
+    String caches;
+
+    private final ImmutableModuleIdentifierFactory moduleIdentifierFactory = new DefaultImmutableModuleIdentifierFactory();
+    private ModuleExclusions sharedExclusions;
+    private Node[][] layers;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        sharedExclusions = new ModuleExclusions(moduleIdentifierFactory);
+        Random random = new Random(42);
+        List<ExcludeMetadata> rules = new ArrayList<ExcludeMetadata>();
+        for (int i = 0; i < 60; i++) {
+            rules.add(new DefaultExclude(DefaultModuleIdentifier.newId("org.excluded" + i % 12, "excluded-" + i)));
+        }
+        for (int i = 0; i < 10; i++) {
+            rules.add(new DefaultExclude(DefaultModuleIdentifier.newId("org.excluded" + i, "*")));
+            rules.add(new DefaultExclude(DefaultModuleIdentifier.newId("*", "excluded-" + i)));
+        }
+        rules.add(new DefaultExclude(DefaultModuleIdentifier.newId("*", "*"), new DefaultIvyArtifactName("tests", "jar", "jar"), new String[0], PatternMatchers.EXACT));
+        rules.add(new DefaultExclude(DefaultModuleIdentifier.newId("org.excluded.*", "*"), null, new String[0], "regexp"));
+
+        layers = new Node[LAYERS][MODULES_PER_LAYER];
+        for (int layer = 0; layer < LAYERS; layer++) {
+            for (int i = 0; i < MODULES_PER_LAYER; i++) {
+                layers[layer][i] = new Node(randomRules(random, rules, 2));
+            }
+        }
+        for (int layer = 0; layer < LAYERS - 1; layer++) {
+            for (Node node : layers[layer]) {
+                for (int i = 0; i < DEPENDENCIES_PER_MODULE; i++) {
+                    node.dependencies.add(new Edge(random.nextInt(MODULES_PER_LAYER), randomRules(random, rules, 3)));
+                }
+            }
+        }
+    }
+
+    private static ImmutableList<ExcludeMetadata> randomRules(Random random, List<ExcludeMetadata> rules, int max) {
+        ImmutableList.Builder<ExcludeMetadata> builder = ImmutableList.builder();
+        int count = random.nextInt(max + 1);
+        for (int i = 0; i < count; i++) {
+            builder.add(rules.get(random.nextInt(rules.size())));
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public int resolve() {
+        ModuleExclusions moduleExclusions = caches.equals("warm") ? sharedExclusions : new ModuleExclusions(moduleIdentifierFactory);
+        int traversed = 0;
+        ModuleExclusion[][] previous = new ModuleExclusion[LAYERS][MODULES_PER_LAYER];
+        for (int pass = 0; pass < 2; pass++) {
+            ModuleExclusion[][] incoming = new ModuleExclusion[LAYERS][MODULES_PER_LAYER];
+            for (int i = 0; i < MODULES_PER_LAYER; i++) {
+                incoming[0][i] = ModuleExclusions.excludeNone();
+            }
+            for (int layer = 0; layer < LAYERS; layer++) {
+                for (int i = 0; i < MODULES_PER_LAYER; i++) {
+                    Node node = layers[layer][i];
+                    if (incoming[layer][i] == null) {
+                        continue;
+                    }
+                    // A module is excluded by the node when excluded by all incoming paths or by the excludes of the node itself
+                    ModuleExclusion exclusions = moduleExclusions.intersect(incoming[layer][i], moduleExclusions.excludeAny(node.excludes));
+                    if (previous[layer][i] != null && previous[layer][i].excludesSameModulesAs(exclusions)) {
+                        continue;
+                    }
+                    previous[layer][i] = exclusions;
+                    traversed++;
+                    if (layer == LAYERS - 1) {
+                        continue;
+                    }
+                    for (Edge edge : node.dependencies) {
+                        int target = edge.target;
+                        ModuleExclusion edgeExclusions = moduleExclusions.intersect(exclusions, moduleExclusions.excludeAny(edge.excludes));
+                        ModuleExclusion current = incoming[layer + 1][target];
+                        incoming[layer + 1][target] = current == null ? edgeExclusions : moduleExclusions.union(current, edgeExclusions);
+                    }
+                }
+            }
+        }
+        return traversed;
+    }
+
+    private static class Node {
+        final ImmutableList<ExcludeMetadata> excludes;
+        final List<Edge> dependencies = new ArrayList<Edge>();
+
+        Node(ImmutableList<ExcludeMetadata> excludes) {
+            this.excludes = excludes;
+        }
+    }
+
+    private static class Edge {
+        final int target;
+        final ImmutableList<ExcludeMetadata> excludes;
+
+        Edge(int target, ImmutableList<ExcludeMetadata> excludes) {
+            this.target = target;
+            this.excludes = excludes;
+        }
+    }
+}
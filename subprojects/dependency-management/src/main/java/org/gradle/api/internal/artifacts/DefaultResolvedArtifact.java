@@ -163,21 +163,40 @@ public class DefaultResolvedArtifact implements ResolvedArtifact, ResolvableArti
         // This method tries to minimize the number of volatile read/writes.
         // Do NOT try to inline the variables there.
         File f = file;
-
         if (f == null) {
-            Throwable err = failure;
-            if (err != null) {
-                throw UncheckedException.throwAsUncheckedException(err);
-            }
-            try {
-                f = artifactSource.create();
-                file = f;
-            } catch (Exception e) {
-                err = e;
-                failure = err;
-                throw UncheckedException.throwAsUncheckedException(err);
-            }
+            f = resolveFile(true);
         }
         return f;
     }
+
+    @Override
+    public void prefetchFile() {
+        if (file == null) {
+            resolveFile(false);
+        }
+    }
+
+    /**
+     * Resolves the file once, so that a consumer waits for a download which is already in progress rather than starting another one.
+     */
+    private synchronized File resolveFile(boolean keepFailure) {
+        File f = file;
+        if (f != null) {
+            return f;
+        }
+        Throwable err = failure;
+        if (err != null) {
+            throw UncheckedException.throwAsUncheckedException(err);
+        }
+        try {
+            f = artifactSource.create();
+            file = f;
+            return f;
+        } catch (Exception e) {
+            if (keepFailure) {
+                failure = e;
+            }
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
 }
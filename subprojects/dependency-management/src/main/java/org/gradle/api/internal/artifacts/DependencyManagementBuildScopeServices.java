@@ -17,6 +17,7 @@
 package org.gradle.api.internal.artifacts;
 
 import com.google.common.collect.Sets;
+import org.gradle.BuildResult;
 import org.gradle.StartParameter;
 import org.gradle.api.internal.ClassPathRegistry;
 import org.gradle.api.internal.FeaturePreviews;
@@ -26,11 +27,14 @@ import org.gradle.api.internal.artifacts.component.DefaultComponentIdentifierFac
 import org.gradle.api.internal.artifacts.dsl.dependencies.DependencyFactory;
 import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheLockingManager;
 import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheMetadata;
+import org.gradle.api.internal.artifacts.ivyservice.ResolutionInputsFingerprinter;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConnectionFailureRepositoryBlacklister;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.RepositoryBlacklister;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.RepositoryContentIndex;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ResolveIvyFactory;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ResolverProviderFactory;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.StartParameterResolutionOverride;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.ParsedPomCache;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.CachingVersionSelectorScheme;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionComparator;
@@ -59,6 +63,8 @@ import org.gradle.api.internal.artifacts.ivyservice.projectmodule.LocalComponent
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectDependencyResolver;
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectPublicationRegistry;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultArtifactDependencyResolver;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.SharedDependencyGraphs;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactPrefetcher;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.AttributeContainerSerializer;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DesugaredAttributeContainerSerializer;
@@ -73,6 +79,7 @@ import org.gradle.api.internal.artifacts.repositories.resolver.DefaultExternalRe
 import org.gradle.api.internal.artifacts.repositories.resolver.ExternalResourceAccessor;
 import org.gradle.api.internal.artifacts.repositories.transport.RepositoryTransport;
 import org.gradle.api.internal.artifacts.repositories.transport.RepositoryTransportFactory;
+import org.gradle.api.internal.artifacts.transform.ImmutableTransformationInputsCache;
 import org.gradle.api.internal.attributes.ImmutableAttributesFactory;
 import org.gradle.api.internal.file.FileLookup;
 import org.gradle.api.internal.file.TemporaryFileProvider;
@@ -94,9 +101,13 @@ import org.gradle.cache.internal.GeneratedGradleJarCache;
 import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
 import org.gradle.cache.internal.ProducerGuard;
 import org.gradle.initialization.ProjectAccessListener;
+import org.gradle.internal.InternalBuildAdapter;
 import org.gradle.internal.build.BuildState;
 import org.gradle.internal.build.BuildStateRegistry;
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
 import org.gradle.internal.component.external.model.ModuleComponentArtifactMetadata;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.installation.CurrentGradleInstallation;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -180,6 +191,10 @@ class DependencyManagementBuildScopeServices {
         return new IvyMutableModuleMetadataFactory(moduleIdentifierFactory, attributesFactory);
     }
 
+    ParsedPomCache createParsedPomCache() {
+        return new ParsedPomCache();
+    }
+
     AttributeContainerSerializer createAttributeContainerSerializer(ImmutableAttributesFactory attributesFactory) {
         return new DesugaredAttributeContainerSerializer(attributesFactory, NamedObjectInstantiator.INSTANCE);
     }
@@ -295,7 +310,8 @@ class DependencyManagementBuildScopeServices {
                                               ImmutableModuleIdentifierFactory moduleIdentifierFactory,
                                               RepositoryBlacklister repositoryBlacklister,
                                               VersionParser versionParser,
-                                              InstantiatorFactory instantiatorFactory) {
+                                              InstantiatorFactory instantiatorFactory,
+                                              RepositoryContentIndex repositoryContentIndex) {
         StartParameterResolutionOverride startParameterResolutionOverride = new StartParameterResolutionOverride(startParameter);
         return new ResolveIvyFactory(
             moduleRepositoryCacheProvider,
@@ -305,7 +321,23 @@ class DependencyManagementBuildScopeServices {
             moduleIdentifierFactory,
             repositoryBlacklister,
             versionParser,
-            instantiatorFactory);
+            instantiatorFactory,
+            repositoryContentIndex);
+    }
+
+    ImmutableTransformationInputsCache createImmutableTransformationInputsCache() {
+        return new ImmutableTransformationInputsCache();
+    }
+
+    RepositoryContentIndex createRepositoryContentIndex(ArtifactCacheLockingManager artifactCacheLockingManager, BuildCommencedTimeProvider timeProvider, BuildOperationExecutor buildOperationExecutor, ListenerManager listenerManager) {
+        final RepositoryContentIndex repositoryContentIndex = new RepositoryContentIndex(artifactCacheLockingManager, timeProvider, buildOperationExecutor, Boolean.getBoolean(RepositoryContentIndex.ENABLED_PROPERTY));
+        listenerManager.addListener(new InternalBuildAdapter() {
+            @Override
+            public void buildFinished(BuildResult result) {
+                repositoryContentIndex.buildFinished();
+            }
+        });
+        return repositoryContentIndex;
     }
 
     ArtifactDependencyResolver createArtifactDependencyResolver(ResolveIvyFactory resolveIvyFactory,
@@ -319,7 +351,8 @@ class DependencyManagementBuildScopeServices {
                                                                 ImmutableAttributesFactory attributesFactory,
                                                                 VersionSelectorScheme versionSelectorScheme,
                                                                 VersionParser versionParser,
-                                                                ComponentMetadataSupplierRuleExecutor componentMetadataSupplierRuleExecutor) {
+                                                                ComponentMetadataSupplierRuleExecutor componentMetadataSupplierRuleExecutor,
+                                                                SharedDependencyGraphs sharedDependencyGraphs) {
         return new DefaultArtifactDependencyResolver(
             buildOperationExecutor,
             resolverFactories,
@@ -332,7 +365,8 @@ class DependencyManagementBuildScopeServices {
             attributesFactory,
             versionSelectorScheme,
             versionParser,
-            componentMetadataSupplierRuleExecutor);
+            componentMetadataSupplierRuleExecutor,
+            sharedDependencyGraphs);
     }
 
     ProjectPublicationRegistry createProjectPublicationRegistry() {
@@ -363,6 +397,18 @@ class DependencyManagementBuildScopeServices {
         return new CachingVersionSelectorScheme(new DefaultVersionSelectorScheme(versionComparator, versionParser));
     }
 
+    ArtifactPrefetcher createArtifactPrefetcher(ExecutorFactory executorFactory) {
+        return new ArtifactPrefetcher(executorFactory, Boolean.getBoolean(ArtifactPrefetcher.ENABLED_PROPERTY), Integer.getInteger(ArtifactPrefetcher.THREADS_PROPERTY, ArtifactPrefetcher.DEFAULT_THREADS));
+    }
+
+    ResolutionInputsFingerprinter createResolutionInputsFingerprinter(ClassLoaderHierarchyHasher classLoaderHierarchyHasher) {
+        return new ResolutionInputsFingerprinter(classLoaderHierarchyHasher);
+    }
+
+    SharedDependencyGraphs createSharedDependencyGraphs(ResolutionInputsFingerprinter resolutionInputsFingerprinter, BuildOperationExecutor buildOperationExecutor) {
+        return new SharedDependencyGraphs(resolutionInputsFingerprinter, buildOperationExecutor, Boolean.getBoolean(SharedDependencyGraphs.ENABLED_PROPERTY));
+    }
+
     SimpleMapInterner createStringInterner() {
         return SimpleMapInterner.threadSafe();
     }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Writing the content of the repositories used by a build to the repository content index, once the build has finished.
+ *
+ * @since 5.2
+ */
+public final class PersistRepositoryContentIndexBuildOperationType implements BuildOperationType<PersistRepositoryContentIndexBuildOperationType.Details, PersistRepositoryContentIndexBuildOperationType.Result> {
+
+    public interface Details {
+    }
+
+    public interface Result {
+
+        /**
+         * The number of metadata lookups the build did not make in repositories which do not contain the requested module versions,
+         * as the module versions were found in other repositories.
+         */
+        int getSkippedLookups();
+
+    }
+
+    public final static Details DETAILS = new Details() {
+    };
+
+    public static class ResultImpl implements Result {
+
+        private final int skippedLookups;
+
+        public ResultImpl(int skippedLookups) {
+            this.skippedLookups = skippedLookups;
+        }
+
+        public int getSkippedLookups() {
+            return skippedLookups;
+        }
+
+    }
+
+    private PersistRepositoryContentIndexBuildOperationType() {
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+import javax.annotation.Nullable;
+
+/**
+ * Looking up the dependency graph of a configuration of another project of the build with the same inputs.
+ *
+ * @since 5.2
+ */
+public final class ReuseDependencyGraphBuildOperationType implements BuildOperationType<ReuseDependencyGraphBuildOperationType.Details, ReuseDependencyGraphBuildOperationType.Result> {
+
+    public interface Details {
+
+        String getConfigurationPath();
+
+    }
+
+    public interface Result {
+
+        /**
+         * The path of the configuration whose dependency graph is reused, or {@code null} when the configuration is resolved.
+         */
+        @Nullable
+        String getReusedConfigurationPath();
+
+    }
+
+    public static class DetailsImpl implements Details {
+
+        private final String configurationPath;
+
+        public DetailsImpl(String configurationPath) {
+            this.configurationPath = configurationPath;
+        }
+
+        public String getConfigurationPath() {
+            return configurationPath;
+        }
+
+    }
+
+    public static class ResultImpl implements Result {
+
+        private final String reusedConfigurationPath;
+
+        public ResultImpl(@Nullable String reusedConfigurationPath) {
+            this.reusedConfigurationPath = reusedConfigurationPath;
+        }
+
+        @Nullable
+        public String getReusedConfigurationPath() {
+            return reusedConfigurationPath;
+        }
+
+    }
+
+    private ReuseDependencyGraphBuildOperationType() {
+    }
+
+}
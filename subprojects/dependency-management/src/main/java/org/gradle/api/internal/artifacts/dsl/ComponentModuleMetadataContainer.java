@@ -72,6 +72,10 @@ public class ComponentModuleMetadataContainer implements ModuleReplacementsData
         };
     }
 
+    public Set<ModuleIdentifier> getReplacedModules() {
+        return replacements.keySet();
+    }
+
     public Replacement getReplacementFor(ModuleIdentifier sourceModule) {
         return replacements.get(sourceModule);
     }
@@ -204,6 +204,14 @@ public class DefaultComponentMetadataHandler implements ComponentMetadataHandler
         metadataRuleContainer.setVariantDerivationStrategy(strategy);
     }
 
+    public VariantDerivationStrategy getVariantDerivationStrategy() {
+        return metadataRuleContainer.getVariantDerivationStrategy();
+    }
+
+    public boolean hasRules() {
+        return !metadataRuleContainer.isEmpty();
+    }
+
     static class ComponentMetadataDetailsMatchingSpec implements Spec<ComponentMetadataDetails> {
         private ModuleIdentifier target;
 
@@ -0,0 +1,458 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.Action;
+import org.gradle.api.Named;
+import org.gradle.api.artifacts.ClientModule;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.DependencyArtifact;
+import org.gradle.api.artifacts.DependencyConstraint;
+import org.gradle.api.artifacts.DependencySubstitution;
+import org.gradle.api.artifacts.ExcludeRule;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.FileCollectionDependency;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.ProjectDependency;
+import org.gradle.api.artifacts.VersionConstraint;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.attributes.AttributeMatchingStrategy;
+import org.gradle.api.capabilities.Capability;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.Module;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.dependencies.DefaultDependencyConstraint;
+import org.gradle.api.internal.artifacts.dsl.ComponentModuleMetadataContainer;
+import org.gradle.api.internal.artifacts.dsl.DefaultComponentMetadataHandler;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionRules;
+import org.gradle.api.internal.artifacts.repositories.AbstractArtifactRepository;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.api.internal.artifacts.repositories.descriptor.RepositoryDescriptor;
+import org.gradle.api.internal.attributes.AttributesSchemaInternal;
+import org.gradle.api.internal.attributes.DefaultAttributesSchema;
+import org.gradle.api.internal.attributes.DefaultCompatibilityRuleChain;
+import org.gradle.api.internal.attributes.DefaultDisambiguationRuleChain;
+import org.gradle.api.internal.attributes.DefaultOrderedCompatibilityRule;
+import org.gradle.api.internal.attributes.DefaultOrderedDisambiguationRule;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.internal.Actions;
+import org.gradle.internal.action.ConfigurableRule;
+import org.gradle.internal.action.InstantiatingAction;
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.util.GradleVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calculates a fingerprint of everything that can influence the dependency graph of a configuration, so that configurations with the same
+ * inputs can share the graph resolved for the first of them.
+ *
+ * <p>Only inputs which can be fingerprinted reliably are supported: rules implemented by a closure or an action, dependencies on other projects
+ * and repositories whose content can change without going through the cache policy make the configuration not cacheable. Dependencies on other
+ * projects are supported when comparing configurations of the same build.</p>
+ */
+public class ResolutionInputsFingerprinter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResolutionInputsFingerprinter.class);
+
+    private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
+
+    public ResolutionInputsFingerprinter(ClassLoaderHierarchyHasher classLoaderHierarchyHasher) {
+        this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
+    }
+
+    /**
+     * Returns the fingerprint of the inputs of the resolution of the given configuration, or {@code null} when the inputs cannot be fingerprinted.
+     */
+    @Nullable
+    public HashCode fingerprint(ConfigurationInternal configuration, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules globalRules, AttributesSchemaInternal attributesSchema) {
+        return fingerprint(configuration, repositories, globalRules, attributesSchema, false);
+    }
+
+    /**
+     * Returns the fingerprint of the inputs of the resolution of the given configuration that do not depend on the project which owns it, or {@code null}
+     * when the inputs cannot be fingerprinted. Dependencies on other projects of the build are fingerprinted by the identity of the target project.
+     *
+     * <p>Configurations of the same build with the same fingerprint have the same dependency graph, apart from the root component, unless the graph
+     * contains the component of one of the configurations.</p>
+     */
+    @Nullable
+    public HashCode fingerprintWithinBuild(ConfigurationInternal configuration, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules globalRules, AttributesSchemaInternal attributesSchema) {
+        return fingerprint(configuration, repositories, globalRules, attributesSchema, true);
+    }
+
+    @Nullable
+    private HashCode fingerprint(ConfigurationInternal configuration, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules globalRules, AttributesSchemaInternal attributesSchema, boolean withinBuild) {
+        Hasher hasher = Hashing.newHasher();
+        hasher.putString(GradleVersion.current().getVersion());
+        appendConfiguration(hasher, configuration, withinBuild);
+        if (hasher.isValid()) {
+            appendResolutionStrategy(hasher, configuration.getResolutionStrategy());
+        }
+        if (hasher.isValid()) {
+            appendGlobalRules(hasher, globalRules);
+        }
+        if (hasher.isValid()) {
+            appendRepositories(hasher, repositories);
+        }
+        if (hasher.isValid()) {
+            appendAttributesSchema(hasher, attributesSchema);
+        }
+        if (!hasher.isValid()) {
+            LOGGER.debug("Cannot reuse the dependency graph of {}: {}", configuration.getDisplayName(), hasher.getInvalidReason());
+            return null;
+        }
+        return hasher.hash();
+    }
+
+    private void appendConfiguration(Hasher hasher, ConfigurationInternal configuration, boolean withinBuild) {
+        if (withinBuild) {
+            // The root component is not part of the fingerprint, only the name of the root configuration
+            hasher.putString(configuration.getName());
+        } else {
+            hasher.putString(configuration.getIdentityPath().getPath());
+            Module module = configuration.getModule();
+            putNullableString(hasher, module.getProjectPath());
+            putNullableString(hasher, module.getGroup());
+            hasher.putString(module.getName());
+            putNullableString(hasher, module.getVersion());
+            putNullableString(hasher, module.getStatus());
+        }
+        hasher.putBoolean(configuration.isTransitive());
+        appendAttributes(hasher, configuration.getAttributes());
+        appendExcludes(hasher, configuration.getAllExcludeRules());
+        Collection<? extends Capability> capabilities = configuration.getOutgoing().getCapabilities();
+        hasher.putInt(capabilities.size());
+        for (Capability capability : capabilities) {
+            hasher.putString(capability.getGroup());
+            hasher.putString(capability.getName());
+            putNullableString(hasher, capability.getVersion());
+        }
+        hasher.putInt(configuration.getAllDependencies().size());
+        for (Dependency dependency : configuration.getAllDependencies()) {
+            if (withinBuild && dependency instanceof ProjectDependency) {
+                appendProjectDependency(hasher, (ProjectDependency) dependency);
+            } else {
+                appendDependency(hasher, dependency);
+            }
+        }
+        hasher.putInt(configuration.getAllDependencyConstraints().size());
+        for (DependencyConstraint constraint : configuration.getAllDependencyConstraints()) {
+            appendConstraint(hasher, constraint);
+        }
+    }
+
+    private void appendDependency(Hasher hasher, Dependency dependency) {
+        if (dependency instanceof FileCollectionDependency) {
+            // Files are not part of the dependency graph
+            return;
+        }
+        if (!(dependency instanceof ExternalModuleDependency) || dependency instanceof ClientModule) {
+            hasher.markAsInvalid("dependency " + dependency + " is not supported");
+            return;
+        }
+        ExternalModuleDependency moduleDependency = (ExternalModuleDependency) dependency;
+        hasher.putString(dependency.getClass().getName());
+        putNullableString(hasher, moduleDependency.getGroup());
+        hasher.putString(moduleDependency.getName());
+        appendVersionConstraint(hasher, moduleDependency.getVersionConstraint());
+        putNullableString(hasher, moduleDependency.getReason());
+        hasher.putBoolean(moduleDependency.isForce());
+        hasher.putBoolean(moduleDependency.isChanging());
+        hasher.putBoolean(moduleDependency.isTransitive());
+        putNullableString(hasher, moduleDependency.getTargetConfiguration());
+        appendAttributes(hasher, moduleDependency.getAttributes());
+        appendExcludes(hasher, moduleDependency.getExcludeRules());
+        hasher.putInt(moduleDependency.getArtifacts().size());
+        for (DependencyArtifact artifact : moduleDependency.getArtifacts()) {
+            hasher.putString(artifact.getName());
+            putNullableString(hasher, artifact.getType());
+            putNullableString(hasher, artifact.getExtension());
+            putNullableString(hasher, artifact.getClassifier());
+            putNullableString(hasher, artifact.getUrl());
+        }
+    }
+
+    private static void appendProjectDependency(Hasher hasher, ProjectDependency dependency) {
+        ProjectInternal project = (ProjectInternal) dependency.getDependencyProject();
+        hasher.putString(dependency.getClass().getName());
+        hasher.putString(project.getIdentityPath().getPath());
+        putNullableString(hasher, dependency.getGroup());
+        hasher.putString(dependency.getName());
+        putNullableString(hasher, dependency.getVersion());
+        putNullableString(hasher, dependency.getReason());
+        hasher.putBoolean(dependency.isTransitive());
+        putNullableString(hasher, dependency.getTargetConfiguration());
+        appendAttributes(hasher, dependency.getAttributes());
+        appendExcludes(hasher, dependency.getExcludeRules());
+        hasher.putInt(dependency.getArtifacts().size());
+        for (DependencyArtifact artifact : dependency.getArtifacts()) {
+            hasher.putString(artifact.getName());
+            putNullableString(hasher, artifact.getType());
+            putNullableString(hasher, artifact.getExtension());
+            putNullableString(hasher, artifact.getClassifier());
+            putNullableString(hasher, artifact.getUrl());
+        }
+    }
+
+    private void appendConstraint(Hasher hasher, DependencyConstraint constraint) {
+        if (!(constraint instanceof DefaultDependencyConstraint)) {
+            hasher.markAsInvalid("dependency constraint " + constraint + " is not supported");
+            return;
+        }
+        hasher.putString(constraint.getGroup());
+        hasher.putString(constraint.getName());
+        appendVersionConstraint(hasher, constraint.getVersionConstraint());
+        putNullableString(hasher, constraint.getReason());
+        appendAttributes(hasher, constraint.getAttributes());
+    }
+
+    private static void appendVersionConstraint(Hasher hasher, VersionConstraint versionConstraint) {
+        hasher.putString(versionConstraint.getRequiredVersion());
+        hasher.putString(versionConstraint.getPreferredVersion());
+        hasher.putString(versionConstraint.getStrictVersion());
+        putNullableString(hasher, versionConstraint.getBranch());
+        List<String> rejectedVersions = versionConstraint.getRejectedVersions();
+        hasher.putInt(rejectedVersions.size());
+        for (String rejectedVersion : rejectedVersions) {
+            hasher.putString(rejectedVersion);
+        }
+    }
+
+    private static void appendExcludes(Hasher hasher, Collection<ExcludeRule> excludeRules) {
+        hasher.putInt(excludeRules.size());
+        for (ExcludeRule excludeRule : excludeRules) {
+            putNullableString(hasher, excludeRule.getGroup());
+            putNullableString(hasher, excludeRule.getModule());
+        }
+    }
+
+    private static void appendAttributes(Hasher hasher, AttributeContainer attributes) {
+        List<Attribute<?>> keys = new ArrayList<Attribute<?>>(attributes.keySet());
+        Collections.sort(keys, new Comparator<Attribute<?>>() {
+            @Override
+            public int compare(Attribute<?> o1, Attribute<?> o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        hasher.putInt(keys.size());
+        for (Attribute<?> key : keys) {
+            hasher.putString(key.getName());
+            hasher.putString(key.getType().getName());
+            Object value = attributes.getAttribute(key);
+            if (value instanceof Named) {
+                hasher.putString(((Named) value).getName());
+            } else if (value instanceof String || value instanceof Boolean || value instanceof Number || value instanceof Enum) {
+                hasher.putString(value.toString());
+            } else {
+                hasher.markAsInvalid("value of attribute " + key.getName() + " is not supported");
+            }
+        }
+    }
+
+    private static void appendResolutionStrategy(Hasher hasher, ResolutionStrategyInternal resolutionStrategy) {
+        if (resolutionStrategy.isDependencyLockingEnabled()) {
+            hasher.markAsInvalid("dependency locking is enabled");
+        } else if (!resolutionStrategy.getComponentSelection().getRules().isEmpty()) {
+            hasher.markAsInvalid("component selection rules are defined");
+        } else if (resolutionStrategy.resolveGraphToDetermineTaskDependencies() || resolutionStrategy.getDependencySubstitution().getRuleAction() != Actions.<DependencySubstitution>doNothing()) {
+            hasher.markAsInvalid("dependency substitution rules are defined");
+        }
+        hasher.putString(resolutionStrategy.getConflictResolution().name());
+        List<String> forcedModules = new ArrayList<String>();
+        for (ModuleVersionSelector forcedModule : resolutionStrategy.getForcedModules()) {
+            forcedModules.add(forcedModule.getGroup() + ":" + forcedModule.getName() + ":" + forcedModule.getVersion());
+        }
+        Collections.sort(forcedModules);
+        hasher.putInt(forcedModules.size());
+        for (String forcedModule : forcedModules) {
+            hasher.putString(forcedModule);
+        }
+    }
+
+    private static void appendGlobalRules(Hasher hasher, GlobalDependencyResolutionRules globalRules) {
+        DependencySubstitutionRules substitutionRules = globalRules.getDependencySubstitutionRules();
+        if (substitutionRules.hasRules() || substitutionRules.getRuleAction() != Actions.<DependencySubstitution>doNothing()) {
+            hasher.markAsInvalid("dependency substitution rules are defined");
+            return;
+        }
+        Object metadataProcessorFactory = globalRules.getComponentMetadataProcessorFactory();
+        if (metadataProcessorFactory instanceof DefaultComponentMetadataHandler) {
+            DefaultComponentMetadataHandler metadataHandler = (DefaultComponentMetadataHandler) metadataProcessorFactory;
+            if (metadataHandler.hasRules()) {
+                hasher.markAsInvalid("component metadata rules are defined");
+                return;
+            }
+            hasher.putString(metadataHandler.getVariantDerivationStrategy().getClass().getName());
+        } else if (metadataProcessorFactory != GlobalDependencyResolutionRules.NO_OP_FACTORY) {
+            hasher.markAsInvalid("component metadata rules are not supported");
+            return;
+        }
+        ModuleReplacementsData replacements = globalRules.getModuleMetadataProcessor().getModuleReplacements();
+        if (replacements instanceof ComponentModuleMetadataContainer) {
+            ComponentModuleMetadataContainer container = (ComponentModuleMetadataContainer) replacements;
+            List<String> replacedModules = new ArrayList<String>();
+            for (ModuleIdentifier source : container.getReplacedModules()) {
+                ModuleReplacementsData.Replacement replacement = container.getReplacementFor(source);
+                replacedModules.add(source + "->" + replacement.getTarget() + " " + replacement.getReason());
+            }
+            Collections.sort(replacedModules);
+            hasher.putInt(replacedModules.size());
+            for (String replacedModule : replacedModules) {
+                hasher.putString(replacedModule);
+            }
+        } else if (replacements != ModuleReplacementsData.NO_OP) {
+            hasher.markAsInvalid("module replacements are not supported");
+        }
+    }
+
+    private static void appendRepositories(Hasher hasher, List<? extends ResolutionAwareRepository> repositories) {
+        for (ResolutionAwareRepository repository : repositories) {
+            if (!(repository instanceof AbstractArtifactRepository)) {
+                hasher.markAsInvalid("repository " + repository + " is not supported");
+                return;
+            }
+            AbstractArtifactRepository artifactRepository = (AbstractArtifactRepository) repository;
+            if (artifactRepository.hasComponentMetadataRules() || artifactRepository.getContentFilter() != null) {
+                hasher.markAsInvalid("repository " + artifactRepository.getName() + " uses rules or content filtering");
+                return;
+            }
+            RepositoryDescriptor descriptor = repository.getDescriptor();
+            if (descriptor.getType() == RepositoryDescriptor.Type.FLAT_DIR || isLocal(descriptor)) {
+                // The content of local repositories is not cached, so any change would need to be noticed
+                hasher.markAsInvalid("repository " + descriptor.name + " is a local repository");
+                return;
+            }
+            hasher.putString(descriptor.getType().name());
+            hasher.putString(descriptor.name);
+            for (Map.Entry<String, ?> property : descriptor.getProperties().entrySet()) {
+                hasher.putString(property.getKey());
+                hasher.putString(String.valueOf(property.getValue()));
+            }
+        }
+    }
+
+    private static boolean isLocal(RepositoryDescriptor descriptor) {
+        Object url = descriptor.getProperties().get("URL");
+        return url instanceof URI && "file".equals(((URI) url).getScheme());
+    }
+
+    private void appendAttributesSchema(Hasher hasher, AttributesSchemaInternal attributesSchema) {
+        if (!(attributesSchema instanceof DefaultAttributesSchema)) {
+            hasher.markAsInvalid("attributes schema is not supported");
+            return;
+        }
+        DefaultAttributesSchema schema = (DefaultAttributesSchema) attributesSchema;
+        List<Attribute<?>> attributes = new ArrayList<Attribute<?>>(schema.getAttributes());
+        Collections.sort(attributes, new Comparator<Attribute<?>>() {
+            @Override
+            public int compare(Attribute<?> o1, Attribute<?> o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        for (Attribute<?> attribute : attributes) {
+            hasher.putString(attribute.getName());
+            hasher.putString(attribute.getType().getName());
+            AttributeMatchingStrategy<?> strategy = schema.getMatchingStrategy(attribute);
+            if (!(strategy.getCompatibilityRules() instanceof DefaultCompatibilityRuleChain) || !(strategy.getDisambiguationRules() instanceof DefaultDisambiguationRuleChain)) {
+                hasher.markAsInvalid("matching strategy for attribute " + attribute.getName() + " is not supported");
+                return;
+            }
+            for (Action<?> rule : ((DefaultCompatibilityRuleChain<?>) strategy.getCompatibilityRules()).getRules()) {
+                if (rule instanceof DefaultOrderedCompatibilityRule) {
+                    DefaultOrderedCompatibilityRule<?> orderedRule = (DefaultOrderedCompatibilityRule<?>) rule;
+                    appendComparator(hasher, orderedRule.getComparator());
+                    hasher.putBoolean(orderedRule.isReverse());
+                } else {
+                    appendRule(hasher, rule);
+                }
+            }
+            for (Action<?> rule : ((DefaultDisambiguationRuleChain<?>) strategy.getDisambiguationRules()).getRules()) {
+                if (rule instanceof DefaultOrderedDisambiguationRule) {
+                    DefaultOrderedDisambiguationRule<?> orderedRule = (DefaultOrderedDisambiguationRule<?>) rule;
+                    appendComparator(hasher, orderedRule.getComparator());
+                    hasher.putBoolean(orderedRule.isPickFirst());
+                } else {
+                    appendRule(hasher, rule);
+                }
+            }
+        }
+    }
+
+    private void appendRule(Hasher hasher, Action<?> rule) {
+        if (!(rule instanceof InstantiatingAction)) {
+            hasher.markAsInvalid("rule " + rule + " is not supported");
+            return;
+        }
+        for (ConfigurableRule<?> configurableRule : ((InstantiatingAction<?>) rule).getRules().getConfigurableRules()) {
+            if (!configurableRule.isCacheable()) {
+                hasher.markAsInvalid("rule " + configurableRule.getRuleClass().getName() + " is not cacheable");
+                return;
+            }
+            appendImplementation(hasher, configurableRule.getRuleClass());
+            configurableRule.getRuleParams().appendToHasher(hasher);
+        }
+    }
+
+    private void appendComparator(Hasher hasher, Comparator<?> comparator) {
+        // The state of a comparator cannot be fingerprinted, so only comparators without state are supported
+        for (Class<?> type = comparator.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    hasher.markAsInvalid("comparator " + comparator + " is not supported");
+                    return;
+                }
+            }
+        }
+        appendImplementation(hasher, comparator.getClass());
+    }
+
+    private void appendImplementation(Hasher hasher, Class<?> type) {
+        HashCode classLoaderHash = classLoaderHierarchyHasher.getClassLoaderHash(type.getClassLoader());
+        if (classLoaderHash == null) {
+            hasher.markAsInvalid("implementation of " + type.getName() + " cannot be fingerprinted");
+            return;
+        }
+        hasher.putString(type.getName());
+        hasher.putHash(classLoaderHash);
+    }
+
+    private static void putNullableString(Hasher hasher, @Nullable String value) {
+        if (value == null) {
+            hasher.putNull();
+        } else {
+            hasher.putString(value);
+        }
+    }
+}
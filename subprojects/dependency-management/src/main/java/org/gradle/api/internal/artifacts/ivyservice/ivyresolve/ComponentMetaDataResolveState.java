@@ -33,6 +33,7 @@ class ComponentMetaDataResolveState {
 
     private boolean searchedLocally;
     private boolean searchedRemotely;
+    private boolean resolvedRemotely;
 
     public ComponentMetaDataResolveState(ModuleComponentIdentifier componentIdentifier, ComponentOverrideMetadata componentOverrideMetadata, ModuleComponentRepository repository, VersionedComponentChooser versionedComponentChooser) {
         this.componentOverrideMetadata = componentOverrideMetadata;
@@ -58,6 +59,7 @@ class ComponentMetaDataResolveState {
 
         if (!searchedRemotely) {
             searchedRemotely = true;
+            resolvedRemotely = true;
             process(repository.getRemoteAccess());
             return resolveResult;
         }
@@ -82,4 +84,11 @@ class ComponentMetaDataResolveState {
     public boolean canMakeFurtherAttempts() {
         return !searchedRemotely;
     }
+
+    /**
+     * Returns true when the result comes from the repository itself rather than from a cache.
+     */
+    public boolean isResolvedRemotely() {
+        return resolvedRemotely;
+    }
 }
@@ -50,6 +50,7 @@ import org.gradle.internal.resolve.RejectedVersion;
 import org.gradle.internal.resolve.caching.ComponentMetadataSupplierRuleExecutor;
 import org.gradle.internal.resolve.result.BuildableComponentIdResolveResult;
 import org.gradle.internal.resolve.result.BuildableModuleComponentMetaDataResolveResult;
+import org.gradle.internal.resolve.result.BuildableModuleVersionListingResolveResult;
 import org.gradle.internal.resolve.result.ComponentSelectionContext;
 import org.gradle.internal.resolve.result.DefaultBuildableModuleComponentMetaDataResolveResult;
 import org.gradle.internal.resolve.result.DefaultBuildableModuleVersionListingResolveResult;
@@ -125,6 +126,28 @@ public class DynamicVersionResolver {
         }
     }
 
+    /**
+     * Lists the versions of the module targeted by the given dependency in each repository, as the first pass of {@link #resolve} does.
+     * The listings end up in the caches of the repositories, where the later resolution of the dependency finds them.
+     */
+    public void listVersions(ModuleDependencyMetadata dependency) {
+        for (ModuleComponentRepository repository : repositories) {
+            VersionListResult versionListResult = new VersionListResult(dependency, repository);
+            try {
+                versionListResult.resolve();
+            } catch (Exception e) {
+                LOGGER.debug("Could not list versions of {} in {}.", dependency.getSelector(), repository.getName(), e);
+                if (isCriticalFailure(e)) {
+                    return;
+                }
+                continue;
+            }
+            if (versionListResult.result.getState() == BuildableModuleVersionListingResolveResult.State.Failed && isCriticalFailure(versionListResult.result.getFailure())) {
+                return;
+            }
+        }
+    }
+
     private void found(BuildableComponentIdResolveResult result, List<RepositoryResolveState> resolveStates, RepositoryChainModuleResolution latestResolved) {
         for (RepositoryResolveState resolveState : resolveStates) {
             resolveState.registerAttempts(result);
@@ -44,10 +44,12 @@ public class RepositoryChainComponentMetaDataResolver implements ComponentMetaDa
     private final List<String> repositoryNames = new ArrayList<String>();
     private final VersionedComponentChooser versionedComponentChooser;
     private final Transformer<ModuleComponentResolveMetadata, RepositoryChainModuleResolution> metaDataFactory;
+    private final RepositoryContentIndex contentIndex;
 
-    public RepositoryChainComponentMetaDataResolver(VersionedComponentChooser componentChooser, Transformer<ModuleComponentResolveMetadata, RepositoryChainModuleResolution> metaDataFactory) {
+    public RepositoryChainComponentMetaDataResolver(VersionedComponentChooser componentChooser, Transformer<ModuleComponentResolveMetadata, RepositoryChainModuleResolution> metaDataFactory, RepositoryContentIndex contentIndex) {
         this.versionedComponentChooser = componentChooser;
         this.metaDataFactory = metaDataFactory;
+        this.contentIndex = contentIndex;
     }
 
     public void add(ModuleComponentRepository repository) {
@@ -89,7 +91,7 @@ public class RepositoryChainComponentMetaDataResolver implements ComponentMetaDa
             resolveStates.add(new ComponentMetaDataResolveState(identifier, componentOverrideMetadata, repository, versionedComponentChooser));
         }
 
-        final RepositoryChainModuleResolution latestResolved = findBestMatch(resolveStates, errors);
+        final RepositoryChainModuleResolution latestResolved = findBestMatch(identifier, resolveStates, errors);
         if (latestResolved != null) {
             LOGGER.debug("Using {} from {}", latestResolved.module.getModuleVersionId(), latestResolved.repository);
             for (Throwable error : errors) {
@@ -109,28 +111,45 @@ public class RepositoryChainComponentMetaDataResolver implements ComponentMetaDa
         }
     }
 
-    private RepositoryChainModuleResolution findBestMatch(List<ComponentMetaDataResolveState> resolveStates, Collection<Throwable> failures) {
+    private RepositoryChainModuleResolution findBestMatch(ModuleComponentIdentifier identifier, List<ComponentMetaDataResolveState> resolveStates, Collection<Throwable> failures) {
         LinkedList<ComponentMetaDataResolveState> queue = new LinkedList<ComponentMetaDataResolveState>();
-        queue.addAll(resolveStates);
-
         LinkedList<ComponentMetaDataResolveState> missing = new LinkedList<ComponentMetaDataResolveState>();
 
+        // Repositories which probably do not contain the module version are only searched when no other repository has it
+        for (ComponentMetaDataResolveState resolveState : resolveStates) {
+            if (isProbablyMissing(identifier, resolveState.repository)) {
+                missing.add(resolveState);
+            } else {
+                queue.add(resolveState);
+            }
+        }
+        int skipped = missing.size();
+
         // A first pass to do local resolves only
-        RepositoryChainModuleResolution best = findBestMatch(queue, failures, missing);
+        RepositoryChainModuleResolution best = findBestMatch(identifier, queue, failures, missing);
         if (hasCriticalFailure(failures)) {
             return null;
         }
         if (best != null) {
+            if (skipped > 0) {
+                contentIndex.lookupsSkipped(skipped);
+            }
             return best;
         }
 
         // Nothing found locally - try a remote search for all resolve states that were not yet searched remotely
         queue.addAll(missing);
         missing.clear();
-        return findBestMatch(queue, failures, missing);
+        return findBestMatch(identifier, queue, failures, missing);
+    }
+
+    private boolean isProbablyMissing(ModuleComponentIdentifier identifier, ModuleComponentRepository repository) {
+        // Only worth it when the lookup needs the network, a cached lookup is made in order
+        return contentIndex.isProbablyMissing(repository.getId(), identifier)
+            && repository.getLocalAccess().estimateMetadataFetchingCost(identifier).isExpensive();
     }
 
-    private RepositoryChainModuleResolution findBestMatch(LinkedList<ComponentMetaDataResolveState> queue, Collection<Throwable> failures, Collection<ComponentMetaDataResolveState> missing) {
+    private RepositoryChainModuleResolution findBestMatch(ModuleComponentIdentifier identifier, LinkedList<ComponentMetaDataResolveState> queue, Collection<Throwable> failures, Collection<ComponentMetaDataResolveState> missing) {
         RepositoryChainModuleResolution best = null;
         while (!queue.isEmpty()) {
             ComponentMetaDataResolveState request = queue.removeFirst();
@@ -147,10 +166,13 @@ public class RepositoryChainComponentMetaDataResolver implements ComponentMetaDa
                     // Queue this up for checking again later
                     if (request.canMakeFurtherAttempts()) {
                         missing.add(request);
+                    } else if (request.isResolvedRemotely()) {
+                        contentIndex.missing(request.repository.getId(), identifier);
                     }
                     break;
                 case Resolved:
                     RepositoryChainModuleResolution moduleResolution = new RepositoryChainModuleResolution(request.repository, metaDataResolveResult.getMetaData());
+                    contentIndex.found(request.repository.getId(), identifier);
                     if (!metaDataResolveResult.getMetaData().isMissing()) {
                         return moduleResolution;
                     }
@@ -36,9 +36,10 @@ import org.gradle.internal.component.external.model.ModuleDependencyMetadataWrap
 import org.gradle.internal.component.model.DependencyMetadata;
 import org.gradle.internal.resolve.caching.ComponentMetadataSupplierRuleExecutor;
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
+import org.gradle.internal.resolve.resolver.VersionListingPrefetcher;
 import org.gradle.internal.resolve.result.BuildableComponentIdResolveResult;
 
-public class RepositoryChainDependencyToComponentIdResolver implements DependencyToComponentIdResolver {
+public class RepositoryChainDependencyToComponentIdResolver implements DependencyToComponentIdResolver, VersionListingPrefetcher {
     private final DynamicVersionResolver dynamicRevisionResolver;
     private final AttributeContainer consumerAttributes;
 
@@ -72,6 +73,13 @@ public class RepositoryChainDependencyToComponentIdResolver implements Dependenc
         }
     }
 
+    @Override
+    public void prefetchVersionListing(DependencyMetadata dependency) {
+        if (dependency.getSelector() instanceof ModuleComponentSelector) {
+            dynamicRevisionResolver.listVersions(toModuleDependencyMetadata(dependency));
+        }
+    }
+
     private ModuleDependencyMetadata toModuleDependencyMetadata(DependencyMetadata dependency) {
         if (dependency instanceof ModuleDependencyMetadata) {
             return (ModuleDependencyMetadata) dependency;
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.Funnels;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.PersistRepositoryContentIndexBuildOperationType;
+import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheLockingManager;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.serialize.AbstractSerializer;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.util.BuildCommencedTimeProvider;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Remembers which modules each repository is known to contain, and which module versions it was recently found to lack, so that the
+ * metadata of a module version is first looked up in the repositories which probably contain it.
+ *
+ * <p>The modules found in a repository are kept in a Bloom filter, and the module versions found missing in a bounded map to the time of the
+ * miss. A repository probably lacks a module version when it was found missing there within the last week, or when enough lookups in the
+ * repository have been observed and none of them found the module. Both are kept in the artifact cache between builds, so a miss is still
+ * known once the cached missing module has expired.</p>
+ *
+ * <p>A repository which probably lacks a module version is only searched once no other repository has it. As the Bloom filter only knows the
+ * modules a repository was seen to serve, a repository may be deferred for a module it does contain, and the module is then taken from a later
+ * repository.</p>
+ */
+public class RepositoryContentIndex implements Stoppable {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.repository-content-index";
+
+    private static final Funnel<CharSequence> FUNNEL = Funnels.stringFunnel(Charsets.UTF_8);
+    private static final int EXPECTED_MODULES = 20000;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+    private static final int MIN_OBSERVATIONS = 50;
+    private static final int MAX_MISSES = 20000;
+    private static final long MISS_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private final ArtifactCacheLockingManager cacheLockingManager;
+    private final BuildCommencedTimeProvider timeProvider;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final boolean enabled;
+    private final ConcurrentMap<String, RepositoryContent> repositories = Maps.newConcurrentMap();
+    private final AtomicInteger skippedLookups = new AtomicInteger();
+    private PersistentIndexedCache<String, RepositoryContent> cache;
+
+    public RepositoryContentIndex(ArtifactCacheLockingManager cacheLockingManager, BuildCommencedTimeProvider timeProvider, BuildOperationExecutor buildOperationExecutor, boolean enabled) {
+        this.cacheLockingManager = cacheLockingManager;
+        this.timeProvider = timeProvider;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns true when the given repository probably does not contain the given module version.
+     */
+    public boolean isProbablyMissing(String repositoryId, ModuleComponentIdentifier id) {
+        if (!enabled) {
+            return false;
+        }
+        return getContent(repositoryId).isProbablyMissing(moduleKeyOf(id), versionKeyOf(id), timeProvider.getCurrentTime());
+    }
+
+    public void found(String repositoryId, ModuleComponentIdentifier id) {
+        if (enabled) {
+            getContent(repositoryId).found(moduleKeyOf(id), versionKeyOf(id));
+        }
+    }
+
+    public void missing(String repositoryId, ModuleComponentIdentifier id) {
+        if (enabled) {
+            getContent(repositoryId).missing(versionKeyOf(id), timeProvider.getCurrentTime());
+        }
+    }
+
+    /**
+     * Records lookups in repositories which probably lack the module version that were not needed, as the module version was found in another repository.
+     */
+    public void lookupsSkipped(int count) {
+        skippedLookups.addAndGet(count);
+    }
+
+    /**
+     * Writes the changed content of the repositories to the artifact cache, as a build operation which reports the lookups that were skipped.
+     */
+    public void buildFinished() {
+        if (repositories.isEmpty()) {
+            return;
+        }
+        buildOperationExecutor.run(new RunnableBuildOperation() {
+            @Override
+            public void run(BuildOperationContext context) {
+                persist();
+                context.setResult(new PersistRepositoryContentIndexBuildOperationType.ResultImpl(skippedLookups.getAndSet(0)));
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName("Persist repository content index")
+                    .details(PersistRepositoryContentIndexBuildOperationType.DETAILS);
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        persist();
+    }
+
+    private void persist() {
+        if (repositories.isEmpty()) {
+            return;
+        }
+        cacheLockingManager.useCache(new Runnable() {
+            @Override
+            public void run() {
+                for (Map.Entry<String, RepositoryContent> entry : repositories.entrySet()) {
+                    if (entry.getValue().isChanged()) {
+                        getCache().put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        });
+        repositories.clear();
+    }
+
+    private RepositoryContent getContent(final String repositoryId) {
+        RepositoryContent content = repositories.get(repositoryId);
+        if (content == null) {
+            RepositoryContent stored = cacheLockingManager.useCache(new Factory<RepositoryContent>() {
+                @Override
+                public RepositoryContent create() {
+                    return getCache().get(repositoryId);
+                }
+            });
+            RepositoryContent previous = repositories.putIfAbsent(repositoryId, stored == null ? new RepositoryContent() : stored);
+            content = previous == null ? repositories.get(repositoryId) : previous;
+        }
+        return content;
+    }
+
+    private PersistentIndexedCache<String, RepositoryContent> getCache() {
+        if (cache == null) {
+            cache = cacheLockingManager.createCache("repository-content", BaseSerializerFactory.STRING_SERIALIZER, new RepositoryContentSerializer());
+        }
+        return cache;
+    }
+
+    private static String moduleKeyOf(ModuleComponentIdentifier id) {
+        return id.getGroup() + ":" + id.getModule();
+    }
+
+    private static String versionKeyOf(ModuleComponentIdentifier id) {
+        return id.getGroup() + ":" + id.getModule() + ":" + id.getVersion();
+    }
+
+    private static class RepositoryContent {
+        private final BloomFilter<CharSequence> present;
+        private final Map<String, Long> misses = new LinkedHashMap<String, Long>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > MAX_MISSES;
+            }
+        };
+        private int observations;
+        private boolean changed;
+
+        RepositoryContent() {
+            this(BloomFilter.create(FUNNEL, EXPECTED_MODULES, FALSE_POSITIVE_PROBABILITY), 0);
+        }
+
+        RepositoryContent(BloomFilter<CharSequence> present, int observations) {
+            this.present = present;
+            this.observations = observations;
+        }
+
+        synchronized boolean isProbablyMissing(String module, String moduleVersion, long now) {
+            Long missedAt = misses.get(moduleVersion);
+            if (missedAt != null && now - missedAt < MISS_RETENTION_MILLIS) {
+                return true;
+            }
+            return observations >= MIN_OBSERVATIONS && !present.mightContain(module);
+        }
+
+        synchronized void found(String module, String moduleVersion) {
+            if (present.put(module)) {
+                observations++;
+                changed = true;
+            }
+            if (misses.remove(moduleVersion) != null) {
+                changed = true;
+            }
+        }
+
+        synchronized void missing(String moduleVersion, long timestamp) {
+            if (misses.remove(moduleVersion) == null) {
+                observations++;
+            }
+            misses.put(moduleVersion, timestamp);
+            changed = true;
+        }
+
+        synchronized boolean isChanged() {
+            return changed;
+        }
+
+        synchronized void write(Encoder encoder) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            present.writeTo(bytes);
+            encoder.writeBinary(bytes.toByteArray());
+            encoder.writeSmallInt(observations);
+            encoder.writeSmallInt(misses.size());
+            for (Map.Entry<String, Long> entry : misses.entrySet()) {
+                encoder.writeString(entry.getKey());
+                encoder.writeLong(entry.getValue());
+            }
+        }
+    }
+
+    private static class RepositoryContentSerializer extends AbstractSerializer<RepositoryContent> {
+        @Override
+        public RepositoryContent read(Decoder decoder) throws IOException {
+            BloomFilter<CharSequence> present = BloomFilter.readFrom(new ByteArrayInputStream(decoder.readBinary()), FUNNEL);
+            RepositoryContent content = new RepositoryContent(present, decoder.readSmallInt());
+            int misses = decoder.readSmallInt();
+            for (int i = 0; i < misses; i++) {
+                content.misses.put(decoder.readString(), decoder.readLong());
+            }
+            return content;
+        }
+
+        @Override
+        public void write(Encoder encoder, RepositoryContent value) throws IOException {
+            value.write(encoder);
+        }
+    }
+}
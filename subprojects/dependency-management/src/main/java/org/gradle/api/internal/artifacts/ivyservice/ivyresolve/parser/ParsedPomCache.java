@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the parent and imported POMs parsed during a build, as large graphs inherit from and import the same few
+ * parent POMs and BOMs over and over again.
+ *
+ * <p>Entries are keyed by the local file of the POM, and are parsed again when the file has changed.</p>
+ */
+public class ParsedPomCache {
+    private final ConcurrentMap<File, ParsedPom> parsedPoms = new ConcurrentHashMap<File, ParsedPom>();
+
+    PomElement parse(LocallyAvailableExternalResource resource) {
+        File file = resource.getFile();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        ParsedPom parsedPom = parsedPoms.get(file);
+        if (parsedPom == null || parsedPom.length != length || parsedPom.lastModified != lastModified) {
+            parsedPom = new ParsedPom(length, lastModified, PomStaxParser.parse(resource));
+            parsedPoms.put(file, parsedPom);
+        }
+        return parsedPom.projectElement;
+    }
+
+    private static class ParsedPom {
+        private final long length;
+        private final long lastModified;
+        private final PomElement projectElement;
+
+        ParsedPom(long length, long lastModified, PomElement projectElement) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.projectElement = projectElement;
+        }
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.Transformer;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
+
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads POMs with a streaming parser, keeping only the elements that {@link PomReader} uses to build the metadata of a module.
+ * Build configuration, reporting, developers and so on are skipped without building any representation of them.
+ */
+public final class PomStaxParser {
+    private static final byte[] M2_ENTITIES_RESOURCE;
+    private static final XMLInputFactory XML_INPUT_FACTORY;
+    private static final XMLInputFactory M2_XML_INPUT_FACTORY;
+
+    private static final XMLResolver M2_ENTITY_RESOLVER = new XMLResolver() {
+        public Object resolveEntity(String publicId, String systemId, String baseUri, String namespace) {
+            if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                return new ByteArrayInputStream(M2_ENTITIES_RESOURCE);
+            }
+            return null;
+        }
+    };
+
+    static {
+        byte[] bytes;
+        try {
+            bytes = IOUtils.toByteArray(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        M2_ENTITIES_RESOURCE = bytes;
+
+        // Set the context classloader the bootstrap classloader, to work around the way that JAXP locates implementation classes
+        // This should ensure that the JAXP classes provided by the JVM are used, rather than some other implementation
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
+        try {
+            XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_VALIDATING, false);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+            M2_XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+            M2_XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_VALIDATING, false);
+            M2_XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+            M2_XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+            M2_XML_INPUT_FACTORY.setXMLResolver(M2_ENTITY_RESOLVER);
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
+
+    private PomStaxParser() {}
+
+    static PomElement parse(final LocallyAvailableExternalResource resource) {
+        final String systemId = getSystemId(resource);
+        PomElement projectElement = resource.withContent(new Transformer<PomElement, InputStream>() {
+            public PomElement transform(InputStream inputStream) {
+                return parseWithoutDtd(inputStream, systemId);
+            }
+        }).getResult();
+        if (projectElement != null) {
+            return projectElement;
+        }
+        return resource.withContent(new Transformer<PomElement, InputStream>() {
+            public PomElement transform(InputStream inputStream) {
+                try {
+                    return parseWithM2Entities(inputStream, systemId);
+                } catch (Exception e) {
+                    throw new MetaDataParseException("POM", resource, e);
+                }
+            }
+        }).getResult();
+    }
+
+    static String getSystemId(LocallyAvailableExternalResource resource) {
+        return resource.getFile().toURI().toASCIIString();
+    }
+
+    static PomElement parse(byte[] content, String systemId) throws IOException, XMLStreamException {
+        PomElement projectElement = parseWithoutDtd(new ByteArrayInputStream(content), systemId);
+        if (projectElement != null) {
+            return projectElement;
+        }
+        return parseWithM2Entities(new ByteArrayInputStream(content), systemId);
+    }
+
+    /**
+     * Loading the entities of the Maven DTD is more expensive than parsing most POMs, so POMs are first parsed without them.
+     *
+     * @return the project element, or {@code null} if the POM cannot be parsed without the DTD
+     */
+    @Nullable
+    private static PomElement parseWithoutDtd(InputStream stream, String systemId) {
+        try {
+            return parse(XML_INPUT_FACTORY.createXMLStreamReader(systemId, stream));
+        } catch (XMLStreamException e) {
+            return null;
+        }
+    }
+
+    @VisibleForTesting
+    static PomElement parseWithM2Entities(InputStream stream, String systemId) throws IOException, XMLStreamException {
+        return parse(M2_XML_INPUT_FACTORY.createXMLStreamReader(systemId, new AddDTDFilterInputStream(stream)));
+    }
+
+    private static PomElement parse(XMLStreamReader reader) throws XMLStreamException {
+        try {
+            while (reader.next() != XMLStreamReader.START_ELEMENT) {
+                if (reader.getEventType() == XMLStreamReader.END_DOCUMENT) {
+                    throw new XMLStreamException("Premature end of file.", reader.getLocation());
+                }
+            }
+            return readElement(reader, ElementFilter.PROJECT);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static PomElement readElement(XMLStreamReader reader, ElementFilter filter) throws XMLStreamException {
+        String name = getName(reader);
+        String text = "";
+        StringBuilder textBuilder = null;
+        ImmutableList.Builder<PomElement> children = null;
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamReader.START_ELEMENT:
+                    String childName = getName(reader);
+                    if (filter.retains(childName)) {
+                        if (children == null) {
+                            children = ImmutableList.builder();
+                            if ((textBuilder == null ? text : textBuilder.toString()).trim().isEmpty()) {
+                                // Drop the indentation before the first child element
+                                text = "";
+                                textBuilder = null;
+                            }
+                        }
+                        children.add(readElement(reader, filter.forChild(childName)));
+                    } else {
+                        skipElement(reader);
+                    }
+                    break;
+                case XMLStreamReader.CHARACTERS:
+                case XMLStreamReader.CDATA:
+                case XMLStreamReader.SPACE:
+                    if (children != null && text.isEmpty() && reader.isWhiteSpace()) {
+                        // Indentation between child elements
+                        break;
+                    }
+                    if (text.isEmpty()) {
+                        text = reader.getText();
+                    } else {
+                        if (textBuilder == null) {
+                            textBuilder = new StringBuilder(text);
+                        }
+                        textBuilder.append(reader.getText());
+                    }
+                    break;
+                case XMLStreamReader.END_ELEMENT:
+                    if (textBuilder != null) {
+                        text = textBuilder.toString();
+                    }
+                    if (children == null) {
+                        return new PomElement(name, text, Collections.<PomElement>emptyList());
+                    }
+                    return new PomElement(name, text, children.build());
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamReader.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamReader.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static String getName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        String localName = reader.getLocalName();
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    static String getTextContent(PomElement element) {
+        return element.getText();
+    }
+
+    static String getFirstChildText(PomElement parentElem, String name) {
+        PomElement node = getFirstChildElement(parentElem, name);
+        if (node != null) {
+            return getTextContent(node);
+        } else {
+            return null;
+        }
+    }
+
+    static PomElement getFirstChildElement(PomElement parentElem, String name) {
+        if (parentElem == null) {
+            return null;
+        }
+        for (PomElement child : parentElem.getChildren()) {
+            if (name.equals(child.getName())) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    static List<PomElement> getAllChilds(PomElement parent) {
+        if (parent == null) {
+            return Collections.emptyList();
+        }
+        return parent.getChildren();
+    }
+
+    /**
+     * The elements to keep below an element of a POM.
+     */
+    private static final class ElementFilter {
+        private static final ElementFilter ALL = new ElementFilter(null);
+        private static final ElementFilter PROFILE = new ElementFilter(ImmutableMap.<String, ElementFilter>builder()
+            .put("id", ALL)
+            .put("activation", ALL)
+            .put("properties", ALL)
+            .put("dependencies", ALL)
+            .put("dependencyManagement", ALL)
+            .build());
+        private static final ElementFilter PROJECT = new ElementFilter(ImmutableMap.<String, ElementFilter>builder()
+            .put("groupId", ALL)
+            .put("artifactId", ALL)
+            .put("version", ALL)
+            .put("packaging", ALL)
+            .put("parent", ALL)
+            .put("properties", ALL)
+            .put("dependencies", ALL)
+            .put("dependencyManagement", ALL)
+            .put("distributionManagement", new ElementFilter(ImmutableMap.of("relocation", ALL)))
+            .put("profiles", new ElementFilter(ImmutableMap.of("profile", PROFILE)))
+            .build());
+
+        private final Map<String, ElementFilter> children;
+
+        private ElementFilter(@Nullable Map<String, ElementFilter> children) {
+            this.children = children;
+        }
+
+        boolean retains(String name) {
+            return children == null || children.containsKey(name);
+        }
+
+        ElementFilter forChild(String name) {
+            return children == null ? ALL : children.get(name);
+        }
+    }
+
+    public static final class AddDTDFilterInputStream extends FilterInputStream {
+        private static final int MARK = 10000;
+        private static final String DOCTYPE = "<!DOCTYPE project SYSTEM \"m2-entities.ent\">\n";
+
+        private int count;
+        private byte[] prefix = DOCTYPE.getBytes();
+
+        public AddDTDFilterInputStream(InputStream in) throws IOException {
+            super(new BufferedInputStream(in));
+
+            this.in.mark(MARK);
+
+            // TODO: we should really find a better solution for this...
+            // maybe we could use a FilterReader instead of a FilterInputStream?
+            int byte1 = this.in.read();
+            int byte2 = this.in.read();
+            int byte3 = this.in.read();
+
+            if (byte1 == 239 && byte2 == 187 && byte3 == 191) {
+                // skip the UTF-8 BOM
+                this.in.mark(MARK);
+            } else {
+                this.in.reset();
+            }
+
+            int bytesToSkip = 0;
+            LineNumberReader reader = new LineNumberReader(new InputStreamReader(this.in, "UTF-8"), 100);
+            String firstLine = reader.readLine();
+            if (firstLine != null) {
+                String trimmed = firstLine.trim();
+                if (trimmed.startsWith("<?xml ")) {
+                    int endIndex = trimmed.indexOf("?>");
+                    String xmlDecl = trimmed.substring(0, endIndex + 2);
+                    prefix = (xmlDecl + "\n" + DOCTYPE).getBytes();
+                    bytesToSkip = xmlDecl.getBytes().length;
+                }
+            }
+
+            this.in.reset();
+            for (int i = 0; i < bytesToSkip; i++) {
+                this.in.read();
+            }
+        }
+
+        public int read() throws IOException {
+            if (count < prefix.length) {
+                return prefix[count++];
+            }
+
+            return super.read();
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (b == null) {
+                throw new NullPointerException();
+            } else if ((off < 0) || (off > b.length) || (len < 0)
+                    || ((off + len) > b.length) || ((off + len) < 0)) {
+                throw new IndexOutOfBoundsException();
+            } else if (len == 0) {
+                return 0;
+            }
+
+            int nbrBytesCopied = 0;
+
+            if (count < prefix.length) {
+                int nbrBytesFromPrefix = Math.min(prefix.length - count, len);
+                System.arraycopy(prefix, count, b, off, nbrBytesFromPrefix);
+                nbrBytesCopied = nbrBytesFromPrefix;
+            }
+
+            if (nbrBytesCopied < len) {
+                nbrBytesCopied += in.read(b, off + nbrBytesCopied, len - nbrBytesCopied);
+            }
+
+            count += nbrBytesCopied;
+            return nbrBytesCopied;
+        }
+    }
+}
@@ -31,6 +31,7 @@ import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
 import org.gradle.internal.resolve.resolver.DefaultArtifactSelector;
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
 import org.gradle.internal.resolve.resolver.OriginArtifactSelector;
+import org.gradle.internal.resolve.resolver.VersionListingPrefetcher;
 import org.gradle.internal.resolve.result.BuildableArtifactResolveResult;
 import org.gradle.internal.resolve.result.BuildableArtifactSetResolveResult;
 import org.gradle.internal.resolve.result.BuildableComponentIdResolveResult;
@@ -135,7 +136,7 @@ public class ComponentResolversChain {
         }
     }
 
-    private static class DependencyToComponentIdResolverChain implements DependencyToComponentIdResolver {
+    private static class DependencyToComponentIdResolverChain implements DependencyToComponentIdResolver, VersionListingPrefetcher {
         // Using an array here because we're going to iterate pretty often and it avoids the creation of an iterator
         // that checks for concurrent modification
         private final DependencyToComponentIdResolver[] resolvers;
@@ -153,6 +154,15 @@ public class ComponentResolversChain {
                 resolver.resolve(dependency, acceptor, rejector, result);
             }
         }
+
+        @Override
+        public void prefetchVersionListing(DependencyMetadata dependency) {
+            for (DependencyToComponentIdResolver resolver : resolvers) {
+                if (resolver instanceof VersionListingPrefetcher) {
+                    ((VersionListingPrefetcher) resolver).prefetchVersionListing(dependency);
+                }
+            }
+        }
     }
 
 }
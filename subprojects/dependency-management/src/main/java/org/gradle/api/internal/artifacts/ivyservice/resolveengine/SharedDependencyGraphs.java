@@ -0,0 +1,1016 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.result.ComponentSelectionReason;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.ResolveContext;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.ReuseDependencyGraphBuildOperationType;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.ivyservice.ResolutionInputsFingerprinter;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusion;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RootGraphNode;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.api.internal.attributes.AttributesSchemaInternal;
+import org.gradle.api.internal.attributes.ImmutableAttributes;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.specs.Specs;
+import org.gradle.internal.DisplayName;
+import org.gradle.internal.component.local.model.DslOriginDependencyMetadata;
+import org.gradle.internal.component.local.model.LocalFileDependencyMetadata;
+import org.gradle.internal.component.local.model.RootConfigurationMetadata;
+import org.gradle.internal.component.model.ComponentArtifactMetadata;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.component.model.ConfigurationMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.CallableBuildOperation;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shares the dependency graphs resolved for the configurations of a build with the configurations of other projects that have the same inputs,
+ * as fingerprinted by {@link ResolutionInputsFingerprinter#fingerprintWithinBuild}.
+ *
+ * <p>In a build with many projects, many configurations declare the same dependencies, like the runtime classpath of the tests. The graph of the
+ * first of these configurations is kept, and the others visit it again with their own component as the root of the graph instead of resolving it.
+ * The artifacts of the graph are selected again by the visitors, using the metadata of the components of the shared graph.</p>
+ *
+ * <p>A shared graph is a copy of the graph as visited, which holds no reference to the state of the resolution that produced it, so it does not
+ * keep that state alive and can be visited by several configurations at the same time.</p>
+ *
+ * <p>Only graphs without failures and without dependencies on the root are shared. A graph is not reused for a configuration whose component is
+ * part of the graph, as the component would then take part in conflict resolution as the root of the graph.</p>
+ */
+public class SharedDependencyGraphs {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.dependency-resolution.shared-graphs";
+
+    private static final int MAX_GRAPHS = 500;
+
+    private final ResolutionInputsFingerprinter resolutionInputsFingerprinter;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final boolean enabled;
+    private final Cache<HashCode, SharedGraph> graphs = CacheBuilder.newBuilder().maximumSize(MAX_GRAPHS).build();
+
+    public SharedDependencyGraphs(ResolutionInputsFingerprinter resolutionInputsFingerprinter, BuildOperationExecutor buildOperationExecutor, boolean enabled) {
+        this.resolutionInputsFingerprinter = resolutionInputsFingerprinter;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the key under which the graph of the given context is shared, or {@code null} when the graph cannot be shared.
+     */
+    @Nullable
+    public HashCode keyOf(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules globalRules, Spec<? super DependencyMetadata> edgeFilter, AttributesSchemaInternal attributesSchema) {
+        if (!enabled || !(resolveContext instanceof ConfigurationInternal) || edgeFilter != Specs.SATISFIES_ALL) {
+            return null;
+        }
+        return resolutionInputsFingerprinter.fingerprintWithinBuild((ConfigurationInternal) resolveContext, repositories, globalRules, attributesSchema);
+    }
+
+    /**
+     * Visits the graph shared under the given key as the graph of the given context. Returns {@code false} when there is no graph the context can reuse.
+     */
+    public boolean visitSharedGraph(final ResolveContext resolveContext, final HashCode key, DependencyGraphVisitor visitor) {
+        final String path = ((ConfigurationInternal) resolveContext).getIdentityPath().getPath();
+        Replay replay = buildOperationExecutor.call(new CallableBuildOperation<Replay>() {
+            @Override
+            public Replay call(BuildOperationContext context) {
+                Replay replay = prepareReplay(resolveContext, key);
+                context.setResult(new ReuseDependencyGraphBuildOperationType.ResultImpl(replay == null ? null : replay.graph.configurationPath));
+                return replay;
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName("Reuse dependency graph for " + path)
+                    .details(new ReuseDependencyGraphBuildOperationType.DetailsImpl(path));
+            }
+        });
+        if (replay == null) {
+            return false;
+        }
+        replay.visit(visitor);
+        return true;
+    }
+
+    /**
+     * Returns a visitor which shares the graph of the given context under the given key, once the graph is complete.
+     */
+    public DependencyGraphVisitor recorder(ResolveContext resolveContext, HashCode key) {
+        return new Recorder(key, ((ConfigurationInternal) resolveContext).getIdentityPath().getPath());
+    }
+
+    @Nullable
+    private Replay prepareReplay(ResolveContext resolveContext, HashCode key) {
+        SharedGraph graph = graphs.getIfPresent(key);
+        if (graph == null) {
+            return null;
+        }
+        ComponentResolveMetadata rootComponent = resolveContext.toRootComponentMetaData();
+        if (graph.componentIds.contains(rootComponent.getId()) || graph.moduleIds.contains(rootComponent.getModuleVersionId().getModule())) {
+            return null;
+        }
+        ConfigurationMetadata rootConfiguration = rootComponent.getConfiguration(resolveContext.getName());
+        if (!(rootConfiguration instanceof RootConfigurationMetadata)) {
+            return null;
+        }
+        Map<Dependency, Dependency> originalDependencies = mapOriginalDependencies(graph.root.getMetadata(), rootConfiguration);
+        if (originalDependencies == null) {
+            return null;
+        }
+        return new Replay(graph, resolveContext.getName(), rootComponent, (RootConfigurationMetadata) rootConfiguration, originalDependencies);
+    }
+
+    /**
+     * Maps the dependencies declared by the root configuration of a shared graph to the same dependencies declared by another root configuration,
+     * so that the first level dependencies of the graph are reported with the dependency instances of the configuration that reuses it.
+     */
+    @Nullable
+    private static Map<Dependency, Dependency> mapOriginalDependencies(ConfigurationMetadata from, ConfigurationMetadata to) {
+        List<? extends DependencyMetadata> fromDependencies = from.getDependencies();
+        List<? extends DependencyMetadata> toDependencies = to.getDependencies();
+        if (fromDependencies.size() != toDependencies.size()) {
+            return null;
+        }
+        Map<Dependency, Dependency> originalDependencies = Maps.newIdentityHashMap();
+        for (int i = 0; i < fromDependencies.size(); i++) {
+            Dependency fromDependency = originalDependencyOf(fromDependencies.get(i));
+            Dependency toDependency = originalDependencyOf(toDependencies.get(i));
+            if (fromDependency == null && toDependency == null) {
+                continue;
+            }
+            if (fromDependency == null || toDependency == null || !fromDependency.contentEquals(toDependency)) {
+                // Declared in a different order
+                return null;
+            }
+            originalDependencies.put(fromDependency, toDependency);
+        }
+        return originalDependencies;
+    }
+
+    @Nullable
+    private static Dependency originalDependencyOf(DependencyMetadata dependency) {
+        return dependency instanceof DslOriginDependencyMetadata ? ((DslOriginDependencyMetadata) dependency).getSource() : null;
+    }
+
+    private static class SharedGraph {
+        final String configurationPath;
+        final RootGraphNode root;
+        final List<DependencyGraphSelector> selectors;
+        final List<DependencyGraphNode> nodes;
+        final List<DependencyGraphNode> nodesByEdges;
+        final Set<ComponentIdentifier> componentIds;
+        final Set<ModuleIdentifier> moduleIds;
+
+        SharedGraph(String configurationPath, CopiedRootNode root, List<DependencyGraphSelector> selectors, List<DependencyGraphNode> nodes, List<DependencyGraphNode> nodesByEdges, Set<ComponentIdentifier> componentIds, Set<ModuleIdentifier> moduleIds) {
+            this.configurationPath = configurationPath;
+            this.root = root;
+            this.selectors = selectors;
+            this.nodes = nodes;
+            this.nodesByEdges = nodesByEdges;
+            this.componentIds = componentIds;
+            this.moduleIds = moduleIds;
+        }
+    }
+
+    private class Recorder implements DependencyGraphVisitor {
+        private final HashCode key;
+        private final String configurationPath;
+        private final List<DependencyGraphSelector> selectors = Lists.newArrayList();
+        private final List<DependencyGraphNode> nodes = Lists.newArrayList();
+        private final List<DependencyGraphNode> nodesByEdges = Lists.newArrayList();
+        private RootGraphNode root;
+        private boolean shareable;
+
+        Recorder(HashCode key, String configurationPath) {
+            this.key = key;
+            this.configurationPath = configurationPath;
+        }
+
+        @Override
+        public void start(RootGraphNode root) {
+            this.root = root;
+            shareable = root.getIncomingEdges().isEmpty();
+        }
+
+        @Override
+        public void visitNode(DependencyGraphNode node) {
+            nodes.add(node);
+            for (DependencyGraphEdge edge : node.getOutgoingEdges()) {
+                if (edge.getFailure() != null) {
+                    shareable = false;
+                }
+            }
+        }
+
+        @Override
+        public void visitSelector(DependencyGraphSelector selector) {
+            selectors.add(selector);
+        }
+
+        @Override
+        public void visitEdges(DependencyGraphNode node) {
+            nodesByEdges.add(node);
+        }
+
+        @Override
+        public void finish(DependencyGraphNode root) {
+            if (!shareable) {
+                return;
+            }
+            SharedGraph graph = new GraphCopier().copy(configurationPath, this.root, selectors, nodes, nodesByEdges);
+            if (graph != null) {
+                graphs.asMap().putIfAbsent(key, graph);
+            }
+        }
+    }
+
+    /**
+     * Copies a graph, as visited, to nodes, edges and components which only hold the results of the resolution.
+     */
+    private static class GraphCopier {
+        private final Map<DependencyGraphSelector, CopiedSelector> selectors = Maps.newIdentityHashMap();
+        private final Map<DependencyGraphComponent, CopiedComponent> components = Maps.newIdentityHashMap();
+        private final Map<DependencyGraphNode, CopiedNode> nodes = Maps.newIdentityHashMap();
+        private final Map<DependencyGraphEdge, CopiedEdge> edges = Maps.newIdentityHashMap();
+
+        /**
+         * Returns the copy of the given graph, or {@code null} when the graph refers to nodes or components which were not visited.
+         */
+        @Nullable
+        SharedGraph copy(String configurationPath, RootGraphNode root, List<DependencyGraphSelector> visitedSelectors, List<DependencyGraphNode> visitedNodes, List<DependencyGraphNode> visitedNodesByEdges) {
+            ImmutableList.Builder<DependencyGraphSelector> selectorCopies = ImmutableList.builder();
+            for (DependencyGraphSelector selector : visitedSelectors) {
+                selectorCopies.add(copyOf(selector));
+            }
+
+            CopiedRootNode rootCopy = null;
+            ImmutableList.Builder<DependencyGraphNode> nodeCopies = ImmutableList.builder();
+            ImmutableSet.Builder<ComponentIdentifier> componentIds = ImmutableSet.builder();
+            ImmutableSet.Builder<ModuleIdentifier> moduleIds = ImmutableSet.builder();
+            for (DependencyGraphNode node : visitedNodes) {
+                CopiedNode copy;
+                if (node == root) {
+                    rootCopy = new CopiedRootNode(root, copyOf(node.getOwner()));
+                    copy = rootCopy;
+                } else {
+                    copy = new CopiedNode(node, copyOf(node.getOwner()));
+                    componentIds.add(node.getOwner().getComponentId());
+                    moduleIds.add(node.getOwner().getModuleVersion().getModule());
+                }
+                nodes.put(node, copy);
+                nodeCopies.add(copy);
+            }
+            if (rootCopy == null) {
+                return null;
+            }
+
+            for (Map.Entry<DependencyGraphComponent, CopiedComponent> entry : components.entrySet()) {
+                ImmutableList.Builder<DependencyGraphComponent> dependents = ImmutableList.builder();
+                for (DependencyGraphComponent dependent : entry.getKey().getDependents()) {
+                    CopiedComponent copy = components.get(dependent);
+                    if (copy == null) {
+                        return null;
+                    }
+                    dependents.add(copy);
+                }
+                entry.getValue().dependents = dependents.build();
+            }
+
+            for (Map.Entry<DependencyGraphNode, CopiedNode> entry : nodes.entrySet()) {
+                DependencyGraphNode node = entry.getKey();
+                ImmutableList.Builder<DependencyGraphEdge> incomingEdges = ImmutableList.builder();
+                for (DependencyGraphEdge edge : node.getIncomingEdges()) {
+                    CopiedEdge copy = copyOf(edge);
+                    if (copy == null) {
+                        return null;
+                    }
+                    if (edge.contributesArtifacts()) {
+                        copy.artifacts.put(node.getMetadata(), ImmutableList.copyOf(edge.getArtifacts(node.getMetadata())));
+                    }
+                    incomingEdges.add(copy);
+                }
+                ImmutableList.Builder<DependencyGraphEdge> outgoingEdges = ImmutableList.builder();
+                for (DependencyGraphEdge edge : node.getOutgoingEdges()) {
+                    CopiedEdge copy = copyOf(edge);
+                    if (copy == null) {
+                        return null;
+                    }
+                    outgoingEdges.add(copy);
+                }
+                entry.getValue().incomingEdges = incomingEdges.build();
+                entry.getValue().outgoingEdges = outgoingEdges.build();
+            }
+
+            ImmutableList.Builder<DependencyGraphNode> nodesByEdges = ImmutableList.builder();
+            for (DependencyGraphNode node : visitedNodesByEdges) {
+                CopiedNode copy = nodes.get(node);
+                if (copy == null) {
+                    return null;
+                }
+                nodesByEdges.add(copy);
+            }
+            return new SharedGraph(configurationPath, rootCopy, selectorCopies.build(), nodeCopies.build(), nodesByEdges.build(), componentIds.build(), moduleIds.build());
+        }
+
+        private CopiedSelector copyOf(DependencyGraphSelector selector) {
+            CopiedSelector copy = selectors.get(selector);
+            if (copy == null) {
+                copy = new CopiedSelector(selector);
+                selectors.put(selector, copy);
+            }
+            return copy;
+        }
+
+        private CopiedComponent copyOf(DependencyGraphComponent component) {
+            CopiedComponent copy = components.get(component);
+            if (copy == null) {
+                copy = new CopiedComponent(component);
+                components.put(component, copy);
+            }
+            return copy;
+        }
+
+        @Nullable
+        private CopiedEdge copyOf(DependencyGraphEdge edge) {
+            CopiedEdge copy = edges.get(edge);
+            if (copy == null) {
+                CopiedNode from = nodes.get(edge.getFrom());
+                if (from == null) {
+                    return null;
+                }
+                copy = new CopiedEdge(edge, from, copyOf(edge.getSelector()));
+                edges.put(edge, copy);
+            }
+            return copy;
+        }
+    }
+
+    private static class CopiedSelector implements DependencyGraphSelector {
+        private final Long resultId;
+        private final ComponentSelector requested;
+
+        CopiedSelector(DependencyGraphSelector selector) {
+            this.resultId = selector.getResultId();
+            this.requested = selector.getRequested();
+        }
+
+        @Override
+        public Long getResultId() {
+            return resultId;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return requested;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(requested);
+        }
+    }
+
+    private static class CopiedComponent implements DependencyGraphComponent {
+        private final Long resultId;
+        private final ComponentIdentifier componentId;
+        private final ModuleVersionIdentifier moduleVersion;
+        private final ComponentSelectionReason selectionReason;
+        private final DisplayName variantName;
+        private final AttributeContainer variantAttributes;
+        private final String repositoryName;
+        private final ComponentResolveMetadata metadata;
+        private final List<ModuleVersionIdentifier> allVersions;
+        private List<DependencyGraphComponent> dependents;
+
+        CopiedComponent(DependencyGraphComponent component) {
+            this.resultId = component.getResultId();
+            this.componentId = component.getComponentId();
+            this.moduleVersion = component.getModuleVersion();
+            this.selectionReason = component.getSelectionReason();
+            this.variantName = component.getVariantName();
+            this.variantAttributes = component.getVariantAttributes();
+            this.repositoryName = component.getRepositoryName();
+            this.metadata = component.getMetadata();
+            this.allVersions = ImmutableList.copyOf(component.getAllVersions());
+        }
+
+        @Override
+        public Long getResultId() {
+            return resultId;
+        }
+
+        @Override
+        public ComponentIdentifier getComponentId() {
+            return componentId;
+        }
+
+        @Override
+        public ModuleVersionIdentifier getModuleVersion() {
+            return moduleVersion;
+        }
+
+        @Override
+        public ComponentSelectionReason getSelectionReason() {
+            return selectionReason;
+        }
+
+        @Override
+        public DisplayName getVariantName() {
+            return variantName;
+        }
+
+        @Override
+        public AttributeContainer getVariantAttributes() {
+            return variantAttributes;
+        }
+
+        @Nullable
+        @Override
+        public String getRepositoryName() {
+            return repositoryName;
+        }
+
+        @Override
+        public ComponentResolveMetadata getMetadata() {
+            return metadata;
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphComponent> getDependents() {
+            return dependents;
+        }
+
+        @Override
+        public Collection<? extends ModuleVersionIdentifier> getAllVersions() {
+            return allVersions;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(componentId);
+        }
+    }
+
+    private static class CopiedNode implements DependencyGraphNode {
+        private final Long nodeId;
+        private final ResolvedConfigurationIdentifier resolvedConfigurationId;
+        private final CopiedComponent owner;
+        private final Set<LocalFileDependencyMetadata> outgoingFileEdges;
+        private final ConfigurationMetadata metadata;
+        private List<DependencyGraphEdge> incomingEdges;
+        private List<DependencyGraphEdge> outgoingEdges;
+
+        CopiedNode(DependencyGraphNode node, CopiedComponent owner) {
+            this.nodeId = node.getNodeId();
+            this.resolvedConfigurationId = node.getResolvedConfigurationId();
+            this.owner = owner;
+            this.outgoingFileEdges = ImmutableSet.copyOf(node.getOutgoingFileEdges());
+            this.metadata = node.getMetadata();
+        }
+
+        @Override
+        public Long getNodeId() {
+            return nodeId;
+        }
+
+        @Override
+        public boolean isRoot() {
+            return false;
+        }
+
+        @Override
+        public ResolvedConfigurationIdentifier getResolvedConfigurationId() {
+            return resolvedConfigurationId;
+        }
+
+        @Override
+        public DependencyGraphComponent getOwner() {
+            return owner;
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getIncomingEdges() {
+            return incomingEdges;
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getOutgoingEdges() {
+            return outgoingEdges;
+        }
+
+        @Override
+        public Set<? extends LocalFileDependencyMetadata> getOutgoingFileEdges() {
+            return outgoingFileEdges;
+        }
+
+        @Override
+        public ConfigurationMetadata getMetadata() {
+            return metadata;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(resolvedConfigurationId);
+        }
+    }
+
+    private static class CopiedRootNode extends CopiedNode implements RootGraphNode {
+        private final RootConfigurationMetadata metadata;
+
+        CopiedRootNode(RootGraphNode node, CopiedComponent owner) {
+            super(node, owner);
+            this.metadata = node.getMetadata();
+        }
+
+        @Override
+        public boolean isRoot() {
+            return true;
+        }
+
+        @Override
+        public RootConfigurationMetadata getMetadata() {
+            return metadata;
+        }
+    }
+
+    private static class CopiedEdge implements DependencyGraphEdge {
+        private final CopiedNode from;
+        private final CopiedSelector selector;
+        private final ModuleExclusion exclusions;
+        private final boolean contributesArtifacts;
+        private final ImmutableAttributes attributes;
+        private final Dependency originalDependency;
+        private final boolean targetVirtualPlatform;
+        private final ComponentSelector requested;
+        private final ModuleVersionResolveException failure;
+        private final Long selected;
+        private final ComponentSelectionReason reason;
+        private final boolean constraint;
+        // The artifacts of the edge, by the metadata of each of its target nodes
+        private final Map<ConfigurationMetadata, List<ComponentArtifactMetadata>> artifacts = Maps.newIdentityHashMap();
+
+        CopiedEdge(DependencyGraphEdge edge, CopiedNode from, CopiedSelector selector) {
+            this.from = from;
+            this.selector = selector;
+            this.contributesArtifacts = edge.contributesArtifacts();
+            this.exclusions = contributesArtifacts ? edge.getExclusions() : null;
+            this.attributes = edge.getAttributes();
+            this.originalDependency = edge.getOriginalDependency();
+            this.targetVirtualPlatform = edge.isTargetVirtualPlatform();
+            this.requested = edge.getRequested();
+            this.failure = edge.getFailure();
+            this.selected = edge.getSelected();
+            this.reason = edge.getReason();
+            this.constraint = edge.isConstraint();
+        }
+
+        @Override
+        public DependencyGraphNode getFrom() {
+            return from;
+        }
+
+        @Override
+        public DependencyGraphSelector getSelector() {
+            return selector;
+        }
+
+        @Override
+        public ModuleExclusion getExclusions() {
+            return exclusions;
+        }
+
+        @Override
+        public boolean contributesArtifacts() {
+            return contributesArtifacts;
+        }
+
+        @Override
+        public List<ComponentArtifactMetadata> getArtifacts(ConfigurationMetadata targetConfiguration) {
+            List<ComponentArtifactMetadata> targetArtifacts = artifacts.get(targetConfiguration);
+            if (targetArtifacts == null) {
+                throw new IllegalArgumentException("Edge " + this + " does not target " + targetConfiguration + ".");
+            }
+            return targetArtifacts;
+        }
+
+        @Override
+        public ImmutableAttributes getAttributes() {
+            return attributes;
+        }
+
+        @Nullable
+        @Override
+        public Dependency getOriginalDependency() {
+            return originalDependency;
+        }
+
+        @Override
+        public boolean isTargetVirtualPlatform() {
+            return targetVirtualPlatform;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return requested;
+        }
+
+        @Nullable
+        @Override
+        public ModuleVersionResolveException getFailure() {
+            return failure;
+        }
+
+        @Nullable
+        @Override
+        public Long getSelected() {
+            return selected;
+        }
+
+        @Nullable
+        @Override
+        public ComponentSelectionReason getReason() {
+            return reason;
+        }
+
+        @Override
+        public boolean isConstraint() {
+            return constraint;
+        }
+
+        @Override
+        public String toString() {
+            return from + " -> " + requested;
+        }
+    }
+
+    /**
+     * Visits a shared graph as the graph of another root configuration. Only the root node and the edges from the root differ from the shared graph.
+     */
+    private static class Replay {
+        private final SharedGraph graph;
+        private final ReplayedRootNode root;
+        private final Map<DependencyGraphEdge, DependencyGraphEdge> rootEdges = Maps.newIdentityHashMap();
+        private final Map<DependencyGraphNode, DependencyGraphNode> firstLevelNodes = Maps.newIdentityHashMap();
+
+        Replay(SharedGraph graph, String rootConfigurationName, ComponentResolveMetadata rootComponent, RootConfigurationMetadata rootConfiguration, Map<Dependency, Dependency> originalDependencies) {
+            this.graph = graph;
+            this.root = new ReplayedRootNode(graph.root, new ReplayedRootComponent(graph.root.getOwner(), rootComponent), rootConfigurationName, rootConfiguration);
+            ImmutableList.Builder<DependencyGraphEdge> outgoingEdges = ImmutableList.builder();
+            for (DependencyGraphEdge edge : graph.root.getOutgoingEdges()) {
+                Dependency originalDependency = edge.getOriginalDependency();
+                DependencyGraphEdge rootEdge = new ReplayedRootEdge(edge, root, originalDependency == null ? null : originalDependencies.get(originalDependency));
+                rootEdges.put(edge, rootEdge);
+                outgoingEdges.add(rootEdge);
+            }
+            root.outgoingEdges = outgoingEdges.build();
+        }
+
+        void visit(DependencyGraphVisitor visitor) {
+            visitor.start(root);
+            for (DependencyGraphSelector selector : graph.selectors) {
+                visitor.visitSelector(selector);
+            }
+            for (DependencyGraphNode node : graph.nodes) {
+                visitor.visitNode(replayed(node));
+            }
+            for (DependencyGraphNode node : graph.nodesByEdges) {
+                visitor.visitEdges(replayed(node));
+            }
+            visitor.finish(root);
+        }
+
+        private DependencyGraphNode replayed(DependencyGraphNode node) {
+            if (node == graph.root) {
+                return root;
+            }
+            DependencyGraphNode firstLevelNode = firstLevelNodes.get(node);
+            if (firstLevelNode == null) {
+                for (DependencyGraphEdge edge : node.getIncomingEdges()) {
+                    if (edge.getFrom() == graph.root) {
+                        firstLevelNode = new ReplayedFirstLevelNode(node, this);
+                        break;
+                    }
+                }
+                if (firstLevelNode == null) {
+                    return node;
+                }
+                firstLevelNodes.put(node, firstLevelNode);
+            }
+            return firstLevelNode;
+        }
+    }
+
+    private static class ReplayedRootNode implements RootGraphNode {
+        private final RootGraphNode delegate;
+        private final ReplayedRootComponent owner;
+        private final ResolvedConfigurationIdentifier resolvedConfigurationId;
+        private final RootConfigurationMetadata metadata;
+        private List<DependencyGraphEdge> outgoingEdges;
+
+        ReplayedRootNode(RootGraphNode delegate, ReplayedRootComponent owner, String configurationName, RootConfigurationMetadata metadata) {
+            this.delegate = delegate;
+            this.owner = owner;
+            this.resolvedConfigurationId = new ResolvedConfigurationIdentifier(owner.getModuleVersion(), configurationName);
+            this.metadata = metadata;
+        }
+
+        @Override
+        public Long getNodeId() {
+            return delegate.getNodeId();
+        }
+
+        @Override
+        public boolean isRoot() {
+            return true;
+        }
+
+        @Override
+        public ResolvedConfigurationIdentifier getResolvedConfigurationId() {
+            return resolvedConfigurationId;
+        }
+
+        @Override
+        public DependencyGraphComponent getOwner() {
+            return owner;
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getIncomingEdges() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getOutgoingEdges() {
+            return outgoingEdges;
+        }
+
+        @Override
+        public Set<? extends LocalFileDependencyMetadata> getOutgoingFileEdges() {
+            return metadata.getFiles();
+        }
+
+        @Override
+        public RootConfigurationMetadata getMetadata() {
+            return metadata;
+        }
+
+        @Override
+        public String toString() {
+            return resolvedConfigurationId.toString();
+        }
+    }
+
+    private static class ReplayedRootComponent implements DependencyGraphComponent {
+        private final DependencyGraphComponent delegate;
+        private final ComponentResolveMetadata metadata;
+
+        ReplayedRootComponent(DependencyGraphComponent delegate, ComponentResolveMetadata metadata) {
+            this.delegate = delegate;
+            this.metadata = metadata;
+        }
+
+        @Override
+        public Long getResultId() {
+            return delegate.getResultId();
+        }
+
+        @Override
+        public ComponentIdentifier getComponentId() {
+            return metadata.getId();
+        }
+
+        @Override
+        public ModuleVersionIdentifier getModuleVersion() {
+            return metadata.getModuleVersionId();
+        }
+
+        @Override
+        public ComponentSelectionReason getSelectionReason() {
+            return delegate.getSelectionReason();
+        }
+
+        @Override
+        public DisplayName getVariantName() {
+            return delegate.getVariantName();
+        }
+
+        @Override
+        public AttributeContainer getVariantAttributes() {
+            return delegate.getVariantAttributes();
+        }
+
+        @Nullable
+        @Override
+        public String getRepositoryName() {
+            return delegate.getRepositoryName();
+        }
+
+        @Override
+        public ComponentResolveMetadata getMetadata() {
+            return metadata;
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphComponent> getDependents() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Collection<? extends ModuleVersionIdentifier> getAllVersions() {
+            return Collections.singletonList(metadata.getModuleVersionId());
+        }
+    }
+
+    private static class ReplayedRootEdge implements DependencyGraphEdge {
+        private final DependencyGraphEdge delegate;
+        private final ReplayedRootNode from;
+        private final Dependency originalDependency;
+
+        ReplayedRootEdge(DependencyGraphEdge delegate, ReplayedRootNode from, @Nullable Dependency originalDependency) {
+            this.delegate = delegate;
+            this.from = from;
+            this.originalDependency = originalDependency;
+        }
+
+        @Override
+        public DependencyGraphNode getFrom() {
+            return from;
+        }
+
+        @Override
+        public DependencyGraphSelector getSelector() {
+            return delegate.getSelector();
+        }
+
+        @Override
+        public ModuleExclusion getExclusions() {
+            return delegate.getExclusions();
+        }
+
+        @Override
+        public boolean contributesArtifacts() {
+            return delegate.contributesArtifacts();
+        }
+
+        @Override
+        public List<ComponentArtifactMetadata> getArtifacts(ConfigurationMetadata targetConfiguration) {
+            return delegate.getArtifacts(targetConfiguration);
+        }
+
+        @Override
+        public ImmutableAttributes getAttributes() {
+            return delegate.getAttributes();
+        }
+
+        @Nullable
+        @Override
+        public Dependency getOriginalDependency() {
+            return originalDependency;
+        }
+
+        @Override
+        public boolean isTargetVirtualPlatform() {
+            return delegate.isTargetVirtualPlatform();
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return delegate.getRequested();
+        }
+
+        @Nullable
+        @Override
+        public ModuleVersionResolveException getFailure() {
+            return delegate.getFailure();
+        }
+
+        @Nullable
+        @Override
+        public Long getSelected() {
+            return delegate.getSelected();
+        }
+
+        @Nullable
+        @Override
+        public ComponentSelectionReason getReason() {
+            return delegate.getReason();
+        }
+
+        @Override
+        public boolean isConstraint() {
+            return delegate.isConstraint();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+
+    /**
+     * A node of a shared graph with edges from the root, which are replaced with the edges from the new root.
+     */
+    private static class ReplayedFirstLevelNode implements DependencyGraphNode {
+        private final DependencyGraphNode delegate;
+        private final List<DependencyGraphEdge> incomingEdges;
+
+        ReplayedFirstLevelNode(DependencyGraphNode delegate, Replay replay) {
+            this.delegate = delegate;
+            ImmutableList.Builder<DependencyGraphEdge> incomingEdges = ImmutableList.builder();
+            for (DependencyGraphEdge edge : delegate.getIncomingEdges()) {
+                DependencyGraphEdge rootEdge = replay.rootEdges.get(edge);
+                incomingEdges.add(rootEdge == null ? edge : rootEdge);
+            }
+            this.incomingEdges = incomingEdges.build();
+        }
+
+        @Override
+        public Long getNodeId() {
+            return delegate.getNodeId();
+        }
+
+        @Override
+        public boolean isRoot() {
+            return false;
+        }
+
+        @Override
+        public ResolvedConfigurationIdentifier getResolvedConfigurationId() {
+            return delegate.getResolvedConfigurationId();
+        }
+
+        @Override
+        public DependencyGraphComponent getOwner() {
+            return delegate.getOwner();
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getIncomingEdges() {
+            return incomingEdges;
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getOutgoingEdges() {
+            return delegate.getOutgoingEdges();
+        }
+
+        @Override
+        public Set<? extends LocalFileDependencyMetadata> getOutgoingFileEdges() {
+            return delegate.getOutgoingFileEdges();
+        }
+
+        @Override
+        public ConfigurationMetadata getMetadata() {
+            return delegate.getMetadata();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+}
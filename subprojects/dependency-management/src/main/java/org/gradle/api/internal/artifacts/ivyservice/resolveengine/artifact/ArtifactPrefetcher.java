@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.component.external.model.ModuleComponentArtifactIdentifier;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Starts downloading the artifacts of a configuration in the background as soon as its graph is resolved, rather than when the
+ * artifacts are first visited. This way, the downloads overlap with the rest of the configuration and task graph calculation of the build.
+ *
+ * <p>Downloads happen on a dedicated pool of threads, so that they are not limited by the number of workers. Each artifact is fetched
+ * once per build. A failed download is not reported here and not kept by the artifact, so the next visit of the artifact downloads it again.
+ * A visit which happens while the artifact is being prefetched waits for the download in progress.</p>
+ */
+public class ArtifactPrefetcher implements Stoppable {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.artifact-prefetch";
+    public static final String THREADS_PROPERTY = "org.gradle.internal.artifact-prefetch.threads";
+    public static final int DEFAULT_THREADS = 8;
+
+    private static final Logger LOGGER = Logging.getLogger(ArtifactPrefetcher.class);
+
+    private final ExecutorFactory executorFactory;
+    private final boolean enabled;
+    private final int threads;
+    private final Set<ModuleComponentArtifactIdentifier> scheduled = Sets.newConcurrentHashSet();
+    private volatile boolean stopped;
+    private ManagedExecutor executor;
+
+    public ArtifactPrefetcher(ExecutorFactory executorFactory, boolean enabled, int threads) {
+        this.executorFactory = executorFactory;
+        this.enabled = enabled;
+        this.threads = threads;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Schedules the download of the artifacts of the given set that are not available yet. Artifacts that require a transform are not scheduled.
+     */
+    public void prefetch(ResolvedArtifactSet artifacts) {
+        final List<ResolvableArtifact> missing = Lists.newArrayList();
+        artifacts.visitLocalArtifacts(new ResolvedArtifactSet.LocalArtifactVisitor() {
+            @Override
+            public void visitArtifact(ResolvableArtifact artifact) {
+                // Artifacts that resolve synchronously are either local to the build or already resolved
+                if (!artifact.isResolveSynchronously() && artifact.getId() instanceof ModuleComponentArtifactIdentifier && scheduled.add((ModuleComponentArtifactIdentifier) artifact.getId())) {
+                    missing.add(artifact);
+                }
+            }
+        });
+        if (missing.isEmpty()) {
+            return;
+        }
+        ManagedExecutor executor = getExecutor();
+        if (executor == null) {
+            return;
+        }
+        for (final ResolvableArtifact artifact : missing) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (stopped) {
+                        return;
+                    }
+                    try {
+                        artifact.prefetchFile();
+                    } catch (Exception e) {
+                        LOGGER.debug("Could not prefetch {}.", artifact.getId().getDisplayName(), e);
+                    }
+                }
+            });
+        }
+    }
+
+    private synchronized ManagedExecutor getExecutor() {
+        if (stopped) {
+            return null;
+        }
+        if (executor == null) {
+            executor = executorFactory.create("Artifact prefetch", threads);
+        }
+        return executor;
+    }
+
+    @Override
+    public void stop() {
+        ManagedExecutor executor;
+        synchronized (this) {
+            stopped = true;
+            executor = this.executor;
+            this.executor = null;
+        }
+        if (executor != null) {
+            // Waits for the downloads in progress, the remaining ones are skipped
+            executor.stop();
+        }
+    }
+}
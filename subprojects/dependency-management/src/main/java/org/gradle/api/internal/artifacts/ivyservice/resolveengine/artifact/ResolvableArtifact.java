@@ -38,5 +38,10 @@ public interface ResolvableArtifact extends TaskDependencyContainer {
      */
     File getFile();
 
+    /**
+     * Resolves the file, if not already, blocking until complete. Unlike {@link #getFile()}, a failure is not kept, so the next call to {@link #getFile()} tries again.
+     */
+    void prefetchFile();
+
     ResolvedArtifact toPublicView();
 }
@@ -33,6 +33,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.AbstractModuleExclusion.isWildcard;
 
@@ -50,20 +51,29 @@ import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.exclude
  * <ul> <li>When a module dependency has multiple exclusions, then the resulting exclusion is the _intersection_ of those exclusions (module is excluded if excluded by _any_).</li> <li>When a module
  * is depended on via a transitive path, then the resulting exclusion is the _intersection_ of the exclusions on each leg of the path (module is excluded if excluded by _any_).</li> <li>When a module
  * is depended on via multiple paths in the graph, then the resulting exclusion is the _union_ of the exclusions on each of those paths (module is excluded if excluded by _all_).</li> </ul>
+ *
+ * <p>The exclude specs and intersections created by this class are canonical: equal ones are the same instance, so that they are cheap to compare.
+ * The results of {@link #union(ModuleExclusion, ModuleExclusion)} and {@link #intersect(ModuleExclusion, ModuleExclusion)} are memoized by operands,
+ * as the same exclusions are combined over and over again while traversing the edges of the graph.</p>
  */
 public class ModuleExclusions {
     private static final ExcludeNone EXCLUDE_NONE = new ExcludeNone();
     private static final ExcludeAllModulesSpec EXCLUDE_ALL_MODULES_SPEC = new ExcludeAllModulesSpec();
+    private static final int INITIAL_CACHED_OPERATIONS = 4096;
+    private static final int MAX_CACHED_OPERATIONS = 50000;
 
     private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
 
     private final Map<MergeOperation, AbstractModuleExclusion> mergeCache = Maps.newConcurrentMap();
     private final Map<ImmutableList<ExcludeMetadata>, AbstractModuleExclusion> excludeAnyCache = Maps.newConcurrentMap();
     private final Map<ImmutableSet<AbstractModuleExclusion>, IntersectionExclusion> intersectionCache = Maps.newConcurrentMap();
+    private final Map<OperationKey, ModuleExclusion> intersectOperationCache = new ConcurrentHashMap<OperationKey, ModuleExclusion>(INITIAL_CACHED_OPERATIONS);
+    private final Map<OperationKey, ModuleExclusion> unionOperationCache = new ConcurrentHashMap<OperationKey, ModuleExclusion>(INITIAL_CACHED_OPERATIONS);
     private final Map<AbstractModuleExclusion[], Map<AbstractModuleExclusion[], MergeOperation>> mergeOperationCache = Maps.newIdentityHashMap();
     private final Map<ModuleIdentifier, ModuleIdExcludeSpec> moduleIdSpecs = Maps.newConcurrentMap();
     private final Map<String, ModuleNameExcludeSpec> moduleNameSpecs = Maps.newConcurrentMap();
     private final Map<String, GroupNameExcludeSpec> groupNameSpecs = Maps.newConcurrentMap();
+    private final Map<AbstractModuleExclusion, AbstractModuleExclusion> otherSpecs = Maps.newConcurrentMap();
 
     private final Object mergeOperationLock = new Object();
 
@@ -111,7 +121,7 @@ public class ModuleExclusions {
     private AbstractModuleExclusion forExclude(ExcludeMetadata rule) {
         // For custom ivy pattern matchers, don't inspect the rule any more deeply: this prevents us from doing smart merging later
         if (!PatternMatchers.isExactMatcher(rule.getMatcher())) {
-            return new IvyPatternMatcherExcludeRuleSpec(rule);
+            return canonical(new IvyPatternMatcherExcludeRuleSpec(rule));
         }
 
         ModuleIdentifier moduleId = rule.getModuleId();
@@ -131,15 +141,26 @@ public class ModuleExclusions {
                 return EXCLUDE_ALL_MODULES_SPEC;
             }
         } else {
-            return new ArtifactExcludeSpec(moduleId, artifact);
+            return canonical(new ArtifactExcludeSpec(moduleId, artifact));
+        }
+    }
+
+    private AbstractModuleExclusion canonical(AbstractModuleExclusion spec) {
+        AbstractModuleExclusion existing = otherSpecs.get(spec);
+        if (existing == null) {
+            existing = otherSpecs.putIfAbsent(spec, spec);
         }
+        return existing == null ? spec : existing;
     }
 
     private ModuleIdExcludeSpec moduleIdExcludeSpec(ModuleIdentifier id) {
         ModuleIdExcludeSpec spec = moduleIdSpecs.get(id);
         if (spec == null) {
             spec = new ModuleIdExcludeSpec(id);
-            moduleIdSpecs.put(id, spec);
+            ModuleIdExcludeSpec existing = moduleIdSpecs.putIfAbsent(id, spec);
+            if (existing != null) {
+                spec = existing;
+            }
         }
         return spec;
     }
@@ -148,7 +169,10 @@ public class ModuleExclusions {
         ModuleNameExcludeSpec spec = moduleNameSpecs.get(id);
         if (spec == null) {
             spec = new ModuleNameExcludeSpec(id);
-            moduleNameSpecs.put(id, spec);
+            ModuleNameExcludeSpec existing = moduleNameSpecs.putIfAbsent(id, spec);
+            if (existing != null) {
+                spec = existing;
+            }
         }
         return spec;
     }
@@ -157,7 +181,10 @@ public class ModuleExclusions {
         GroupNameExcludeSpec spec = groupNameSpecs.get(id);
         if (spec == null) {
             spec = new GroupNameExcludeSpec(id);
-            groupNameSpecs.put(id, spec);
+            GroupNameExcludeSpec existing = groupNameSpecs.putIfAbsent(id, spec);
+            if (existing != null) {
+                spec = existing;
+            }
         }
         return spec;
     }
@@ -179,6 +206,24 @@ public class ModuleExclusions {
             return one;
         }
 
+        OperationKey key = new OperationKey(one, two);
+        ModuleExclusion result = intersectOperationCache.get(key);
+        if (result == null) {
+            result = doIntersect(one, two);
+            cacheOperation(intersectOperationCache, key, result);
+        }
+        return result;
+    }
+
+    private static void cacheOperation(Map<OperationKey, ModuleExclusion> cache, OperationKey key, ModuleExclusion result) {
+        if (cache.size() >= MAX_CACHED_OPERATIONS) {
+            // Start over rather than track the least recently used operations, which would slow down every lookup
+            cache.clear();
+        }
+        cache.put(key, result);
+    }
+
+    private ModuleExclusion doIntersect(ModuleExclusion one, ModuleExclusion two) {
         if (one instanceof IntersectionExclusion && ((IntersectionExclusion) one).getFilters().contains(two)) {
             return one;
         } else if (two instanceof IntersectionExclusion && ((IntersectionExclusion) two).getFilters().contains(one)) {
@@ -217,6 +262,16 @@ public class ModuleExclusions {
             return one;
         }
 
+        OperationKey key = new OperationKey(one, two);
+        ModuleExclusion result = unionOperationCache.get(key);
+        if (result == null) {
+            result = doUnion(one, two);
+            cacheOperation(unionOperationCache, key, result);
+        }
+        return result;
+    }
+
+    private ModuleExclusion doUnion(ModuleExclusion one, ModuleExclusion two) {
         List<AbstractModuleExclusion> specs = new ArrayList<AbstractModuleExclusion>();
         ((AbstractModuleExclusion) one).unpackUnion(specs);
         ((AbstractModuleExclusion) two).unpackUnion(specs);
@@ -325,7 +380,10 @@ public class ModuleExclusions {
         IntersectionExclusion cached = intersectionCache.get(excludes);
         if (cached == null) {
             cached = new IntersectionExclusion(new ImmutableModuleExclusionSet(excludes));
-            intersectionCache.put(excludes, cached);
+            IntersectionExclusion existing = intersectionCache.putIfAbsent(excludes, cached);
+            if (existing != null) {
+                cached = existing;
+            }
         }
         return cached;
     }
@@ -444,6 +502,38 @@ public class ModuleExclusions {
         }
     }
 
+    /**
+     * The operands of a memoized operation. Both operations are commutative, so the operands are unordered. Operands are compared by identity.
+     */
+    private static final class OperationKey {
+        private final ModuleExclusion one;
+        private final ModuleExclusion two;
+        private final int hashCode;
+
+        private OperationKey(ModuleExclusion one, ModuleExclusion two) {
+            this.one = one;
+            this.two = two;
+            this.hashCode = System.identityHashCode(one) + System.identityHashCode(two);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            OperationKey that = (OperationKey) o;
+            return (one == that.one && two == that.two) || (one == that.two && two == that.one);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
     private static final class MergeSet extends HashSet<AbstractModuleExclusion> {
         private final BitSet remaining;
         private int idx;
@@ -21,6 +21,7 @@ import com.google.common.collect.Maps;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.component.ComponentSelector;
@@ -28,10 +29,12 @@ import org.gradle.api.artifacts.component.ModuleComponentSelector;
 import org.gradle.api.capabilities.Capability;
 import org.gradle.api.internal.artifacts.ComponentSelectorConverter;
 import org.gradle.api.internal.artifacts.ResolveContext;
+import org.gradle.api.internal.artifacts.ResolvedVersionConstraint;
 import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
 import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionApplicator;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.Version;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionParser;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelector;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector;
@@ -54,6 +57,7 @@ import org.gradle.internal.resolve.ModuleVersionResolveException;
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
 import org.gradle.internal.resolve.resolver.ResolveContextToComponentResolver;
+import org.gradle.internal.resolve.resolver.VersionListingPrefetcher;
 import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,6 +75,7 @@ public class DependencyGraphBuilder {
     private final Spec<? super DependencyMetadata> edgeFilter;
     private final ResolveContextToComponentResolver moduleResolver;
     private final DependencyToComponentIdResolver idResolver;
+    private final VersionListingPrefetcher versionListingPrefetcher;
     private final ComponentMetaDataResolver metaDataResolver;
     private final AttributesSchemaInternal attributesSchema;
     private final ModuleExclusions moduleExclusions;
@@ -101,6 +106,7 @@ public class DependencyGraphBuilder {
                                   Comparator<Version> versionComparator,
                                   VersionParser versionParser) {
         this.idResolver = componentIdResolver;
+        this.versionListingPrefetcher = componentIdResolver instanceof VersionListingPrefetcher ? (VersionListingPrefetcher) componentIdResolver : null;
         this.metaDataResolver = componentMetaDataResolver;
         this.moduleResolver = resolveContextToComponentResolver;
         this.moduleConflictHandler = moduleConflictHandler;
@@ -212,12 +218,57 @@ public class DependencyGraphBuilder {
         if (dependencies.isEmpty()) {
             return;
         }
+        maybeListVersionsInParallel(node, dependencies);
         performSelectionSerially(dependencies, resolveState);
         maybeDownloadMetadataInParallel(node, componentIdentifierCache, dependencies);
         attachToTargetRevisionsSerially(dependencies);
 
     }
 
+    /**
+     * Lists the versions of the modules targeted by the unresolved dynamic selectors of the given edges in parallel, so that selection finds the listings in the caches.
+     * Only done when there is more than one module to list, as for metadata downloads.
+     */
+    private void maybeListVersionsInParallel(NodeState node, List<EdgeState> dependencies) {
+        if (versionListingPrefetcher == null) {
+            return;
+        }
+        Map<ModuleIdentifier, DependencyMetadata> requiringListing = null;
+        for (EdgeState dependency : dependencies) {
+            SelectorState selector = dependency.getSelector();
+            if (selector.isResolved() || dependency.isConstraint() || !isDynamic(selector.getVersionConstraint())) {
+                continue;
+            }
+            if (requiringListing == null) {
+                requiringListing = Maps.newLinkedHashMap();
+            }
+            if (!requiringListing.containsKey(dependency.getTargetIdentifier())) {
+                requiringListing.put(dependency.getTargetIdentifier(), selector.getDependencyMetadata());
+            }
+        }
+        if (requiringListing != null && requiringListing.size() > 1) {
+            final ImmutableList<DependencyMetadata> toListInParallel = ImmutableList.copyOf(requiringListing.values());
+            LOGGER.debug("Submitting {} version listings to resolve in parallel for {}", toListInParallel.size(), node);
+            buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+                @Override
+                public void execute(BuildOperationQueue<RunnableBuildOperation> buildOperationQueue) {
+                    for (DependencyMetadata dependency : toListInParallel) {
+                        buildOperationQueue.add(new ListVersionsOperation(dependency, versionListingPrefetcher));
+                    }
+                }
+            });
+        }
+    }
+
+    private static boolean isDynamic(ResolvedVersionConstraint versionConstraint) {
+        if (versionConstraint == null) {
+            return false;
+        }
+        VersionSelector requiredSelector = versionConstraint.getRequiredSelector();
+        VersionSelector preferredSelector = versionConstraint.getPreferredSelector();
+        return (requiredSelector != null && requiredSelector.isDynamic()) || (preferredSelector != null && preferredSelector.isDynamic());
+    }
+
     private void performSelectionSerially(List<EdgeState> dependencies, ResolveState resolveState) {
         for (EdgeState dependency : dependencies) {
             SelectorState selector = dependency.getSelector();
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.resolve.resolver.VersionListingPrefetcher;
+
+class ListVersionsOperation implements RunnableBuildOperation {
+    private final DependencyMetadata dependency;
+    private final VersionListingPrefetcher prefetcher;
+
+    ListVersionsOperation(DependencyMetadata dependency, VersionListingPrefetcher prefetcher) {
+        this.dependency = dependency;
+        this.prefetcher = prefetcher;
+    }
+
+    @Override
+    public void run(BuildOperationContext context) {
+        prefetcher.prefetchVersionListing(dependency);
+    }
+
+    @Override
+    public BuildOperationDescriptor.Builder description() {
+        return BuildOperationDescriptor.displayName("List versions of " + dependency.getSelector().getDisplayName());
+    }
+}
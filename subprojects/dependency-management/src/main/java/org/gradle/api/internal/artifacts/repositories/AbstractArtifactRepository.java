@@ -103,6 +103,13 @@ public abstract class AbstractArtifactRepository implements ArtifactRepositoryIn
         this.componentMetadataListerRuleConfiguration = configureAction;
     }
 
+    /**
+     * Returns true if a rule has been registered to supply the metadata or the version listings of the components in this repository.
+     */
+    public boolean hasComponentMetadataRules() {
+        return componentMetadataSupplierRuleClass != null || componentMetadataListerRuleClass != null;
+    }
+
     protected RepositoryContentDescriptorInternal createRepositoryDescriptor() {
         return new DefaultRepositoryContentDescriptor();
     }
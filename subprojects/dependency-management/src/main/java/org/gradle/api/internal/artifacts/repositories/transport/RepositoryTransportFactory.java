@@ -34,17 +34,22 @@ import org.gradle.internal.resource.cached.CachedExternalResourceIndex;
 import org.gradle.internal.resource.connector.ResourceConnectorFactory;
 import org.gradle.internal.resource.connector.ResourceConnectorSpecification;
 import org.gradle.internal.resource.local.FileResourceRepository;
+import org.gradle.internal.resource.transfer.ConnectionLimitingExternalResourceConnector;
 import org.gradle.internal.resource.transfer.ExternalResourceConnector;
+import org.gradle.internal.resource.transfer.HostConnectionLimiter;
 import org.gradle.internal.resource.transport.ResourceConnectorRepositoryTransport;
 import org.gradle.internal.resource.transport.file.FileTransport;
 import org.gradle.util.BuildCommencedTimeProvider;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
 public class RepositoryTransportFactory {
+    public static final String MAX_CONNECTIONS_PER_HOST_PROPERTY = "org.gradle.internal.repository.max-connections-per-host";
+
     private final List<ResourceConnectorFactory> registeredProtocols = Lists.newArrayList();
 
     private final TemporaryFileProvider temporaryFileProvider;
@@ -56,6 +61,8 @@ public class RepositoryTransportFactory {
     private final StartParameterResolutionOverride startParameterResolutionOverride;
     private final ProducerGuard<ExternalResourceName> producerGuard;
     private final FileResourceRepository fileRepository;
+    @Nullable
+    private final HostConnectionLimiter hostConnectionLimiter;
 
     public RepositoryTransportFactory(Collection<ResourceConnectorFactory> resourceConnectorFactory,
                                       ProgressLoggerFactory progressLoggerFactory,
@@ -76,6 +83,8 @@ public class RepositoryTransportFactory {
         this.startParameterResolutionOverride = startParameterResolutionOverride;
         this.producerGuard = producerGuard;
         this.fileRepository = fileRepository;
+        int maxConnectionsPerHost = Integer.getInteger(MAX_CONNECTIONS_PER_HOST_PROPERTY, 0);
+        this.hostConnectionLimiter = maxConnectionsPerHost > 0 ? new HostConnectionLimiter(maxConnectionsPerHost) : null;
 
         for (ResourceConnectorFactory connectorFactory : resourceConnectorFactory) {
             register(connectorFactory);
@@ -116,6 +125,10 @@ public class RepositoryTransportFactory {
         ResourceConnectorSpecification connectionDetails = new DefaultResourceConnectorSpecification(authentications);
 
         ExternalResourceConnector resourceConnector = connectorFactory.createResourceConnector(connectionDetails);
+        if (hostConnectionLimiter != null) {
+            // Shared by all repositories, as several repositories are often served by the same host
+            resourceConnector = new ConnectionLimitingExternalResourceConnector(resourceConnector, hostConnectionLimiter);
+        }
         resourceConnector = startParameterResolutionOverride.overrideExternalResourceConnnector(resourceConnector);
 
         ExternalResourceCachePolicy cachePolicy = new DefaultExternalResourceCachePolicy();
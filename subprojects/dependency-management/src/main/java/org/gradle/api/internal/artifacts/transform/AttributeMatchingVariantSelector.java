@@ -44,6 +44,7 @@ class AttributeMatchingVariantSelector implements VariantSelector {
     private final ImmutableAttributes requested;
     private final boolean ignoreWhenNoMatches;
     private final ExtraExecutionGraphDependenciesResolverFactory dependenciesResolver;
+    private final boolean parallelArtifactTransformations;
 
     AttributeMatchingVariantSelector(
         ConsumerProvidedVariantFinder consumerProvidedVariantFinder,
@@ -51,7 +52,8 @@ class AttributeMatchingVariantSelector implements VariantSelector {
         ImmutableAttributesFactory attributesFactory,
         AttributeContainerInternal requested,
         boolean ignoreWhenNoMatches,
-        ExtraExecutionGraphDependenciesResolverFactory dependenciesResolver
+        ExtraExecutionGraphDependenciesResolverFactory dependenciesResolver,
+        boolean parallelArtifactTransformations
     ) {
         this.consumerProvidedVariantFinder = consumerProvidedVariantFinder;
         this.schema = schema;
@@ -59,6 +61,7 @@ class AttributeMatchingVariantSelector implements VariantSelector {
         this.requested = requested.asImmutable();
         this.ignoreWhenNoMatches = ignoreWhenNoMatches;
         this.dependenciesResolver = dependenciesResolver;
+        this.parallelArtifactTransformations = parallelArtifactTransformations;
     }
 
     @Override
@@ -105,7 +108,7 @@ class AttributeMatchingVariantSelector implements VariantSelector {
             ResolvedArtifactSet artifacts = result.getLeft().getArtifacts();
             AttributeContainerInternal attributes = result.getRight().attributes;
             Transformation transformation = result.getRight().transformation;
-            return new ConsumerProvidedResolvedVariant(producer.getComponentId(), artifacts, attributes, transformation, dependenciesResolver);
+            return new ConsumerProvidedResolvedVariant(producer.getComponentId(), artifacts, attributes, transformation, dependenciesResolver, parallelArtifactTransformations);
         }
 
         if (!candidates.isEmpty()) {
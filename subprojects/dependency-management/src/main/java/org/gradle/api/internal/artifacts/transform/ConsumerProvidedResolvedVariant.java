@@ -37,20 +37,22 @@ public class ConsumerProvidedResolvedVariant implements ResolvedArtifactSet {
     private final AttributeContainerInternal attributes;
     private final Transformation transformation;
     private final ExtraExecutionGraphDependenciesResolverFactory resolverFactory;
+    private final boolean parallelArtifactTransformations;
 
-    public ConsumerProvidedResolvedVariant(ComponentIdentifier componentIdentifier, ResolvedArtifactSet delegate, AttributeContainerInternal target, Transformation transformation, ExtraExecutionGraphDependenciesResolverFactory dependenciesResolverFactory) {
+    public ConsumerProvidedResolvedVariant(ComponentIdentifier componentIdentifier, ResolvedArtifactSet delegate, AttributeContainerInternal target, Transformation transformation, ExtraExecutionGraphDependenciesResolverFactory dependenciesResolverFactory, boolean parallelArtifactTransformations) {
         this.componentIdentifier = componentIdentifier;
         this.delegate = delegate;
         this.attributes = target;
         this.transformation = transformation;
         this.resolverFactory = dependenciesResolverFactory;
+        this.parallelArtifactTransformations = parallelArtifactTransformations;
     }
 
     @Override
     public Completion startVisit(BuildOperationQueue<RunnableBuildOperation> actions, AsyncArtifactListener listener) {
         Map<ComponentArtifactIdentifier, TransformationOperation> artifactResults = Maps.newConcurrentMap();
         Map<File, TransformationOperation> fileResults = Maps.newConcurrentMap();
-        Completion result = delegate.startVisit(actions, new TransformingAsyncArtifactListener(transformation, listener, actions, artifactResults, fileResults, getDependenciesResolver()));
+        Completion result = delegate.startVisit(actions, new TransformingAsyncArtifactListener(transformation, listener, actions, artifactResults, fileResults, getDependenciesResolver(), parallelArtifactTransformations));
         return new TransformCompletion(result, attributes, artifactResults, fileResults);
     }
 
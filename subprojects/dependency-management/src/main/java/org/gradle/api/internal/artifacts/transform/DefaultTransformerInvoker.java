@@ -83,6 +83,7 @@ public class DefaultTransformerInvoker implements TransformerInvoker {
     private final OutputFileCollectionFingerprinter outputFingerprinter;
     private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
     private final ProjectFinder projectFinder;
+    private final ImmutableTransformationInputsCache immutableInputsCache;
     private final boolean useTransformationWorkspaces;
 
     public DefaultTransformerInvoker(WorkExecutor<UpToDateResult> workExecutor,
@@ -93,6 +94,7 @@ public class DefaultTransformerInvoker implements TransformerInvoker {
                                      OutputFileCollectionFingerprinter outputFileCollectionFingerprinter,
                                      ClassLoaderHierarchyHasher classLoaderHierarchyHasher,
                                      ProjectFinder projectFinder,
+                                     ImmutableTransformationInputsCache immutableInputsCache,
                                      boolean useTransformationWorkspaces) {
         this.workExecutor = workExecutor;
         this.fileSystemSnapshotter = fileSystemSnapshotter;
@@ -102,17 +104,20 @@ public class DefaultTransformerInvoker implements TransformerInvoker {
         this.outputFingerprinter = outputFileCollectionFingerprinter;
         this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
         this.projectFinder = projectFinder;
+        this.immutableInputsCache = immutableInputsCache;
         this.useTransformationWorkspaces = useTransformationWorkspaces;
     }
 
     @Override
     public Try<ImmutableList<File>> invoke(Transformer transformer, File primaryInput, ArtifactTransformDependenciesInternal dependencies, TransformationSubject subject) {
-        CurrentFileCollectionFingerprint dependenciesFingerprint = dependencies.fingerprint(dependencyFingerprinter);
         ProjectInternal producerProject = determineProducerProject(subject);
         CachingTransformationWorkspaceProvider workspaceProvider = determineWorkspaceProvider(producerProject);
-        FileSystemLocationSnapshot primaryInputSnapshot = fileSystemSnapshotter.snapshot(primaryInput);
-        TransformationWorkspaceIdentity identity = getTransformationIdentity(producerProject, primaryInputSnapshot, transformer, dependenciesFingerprint);
-        return workspaceProvider.withWorkspace(identity, (identityString, workspace) -> {
+        TransformationInputs inputs = producerProject == null && subject.isImmutable() && !transformer.requiresDependencies()
+            ? immutableInputsCache.getOrFingerprint(primaryInput, transformer.getSecondaryInputHash(), () -> fingerprintInputs(null, transformer, primaryInput, dependencies))
+            : fingerprintInputs(producerProject, transformer, primaryInput, dependencies);
+        FileSystemLocationSnapshot primaryInputSnapshot = inputs.primaryInputSnapshot;
+        CurrentFileCollectionFingerprint dependenciesFingerprint = inputs.dependenciesFingerprint;
+        return workspaceProvider.withWorkspace(inputs.identity, (identityString, workspace) -> {
             return fireTransformListeners(transformer, subject, () -> {
                 CurrentFileCollectionFingerprint primaryInputFingerprint = DefaultCurrentFileCollectionFingerprint.from(ImmutableList.of(primaryInputSnapshot), AbsolutePathFingerprintingStrategy.INCLUDE_MISSING);
                 ImplementationSnapshot implementationSnapshot = ImplementationSnapshot.of(transformer.getImplementationClass(), classLoaderHierarchyHasher);
@@ -134,6 +139,13 @@ public class DefaultTransformerInvoker implements TransformerInvoker {
         });
     }
 
+    private TransformationInputs fingerprintInputs(@Nullable ProjectInternal producerProject, Transformer transformer, File primaryInput, ArtifactTransformDependenciesInternal dependencies) {
+        CurrentFileCollectionFingerprint dependenciesFingerprint = dependencies.fingerprint(dependencyFingerprinter);
+        FileSystemLocationSnapshot primaryInputSnapshot = fileSystemSnapshotter.snapshot(primaryInput);
+        TransformationWorkspaceIdentity identity = getTransformationIdentity(producerProject, primaryInputSnapshot, transformer, dependenciesFingerprint);
+        return new TransformationInputs(primaryInputSnapshot, dependenciesFingerprint, identity);
+    }
+
     private TransformationWorkspaceIdentity getTransformationIdentity(@Nullable ProjectInternal project, FileSystemLocationSnapshot primaryInputSnapshot, Transformer transformer, CurrentFileCollectionFingerprint dependenciesFingerprint) {
         return project == null
             ? getImmutableTransformationIdentity(primaryInputSnapshot, transformer, dependenciesFingerprint)
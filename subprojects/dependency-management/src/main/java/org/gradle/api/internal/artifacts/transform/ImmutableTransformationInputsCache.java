@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.transform;
+
+import org.gradle.internal.hash.HashCode;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the inputs of the transformations of immutable subjects, like the artifacts of external modules, for the duration of a build.
+ *
+ * <p>The primary inputs of immutable subjects do not change during a build, so their snapshots and workspace identities are only calculated
+ * once per build, whichever project consumes them.</p>
+ */
+@ThreadSafe
+public class ImmutableTransformationInputsCache {
+    private final ConcurrentMap<Key, TransformationInputs> inputs = new ConcurrentHashMap<>();
+
+    TransformationInputs getOrFingerprint(File primaryInput, HashCode secondaryInputHash, Supplier<TransformationInputs> fingerprinter) {
+        Key key = new Key(primaryInput, secondaryInputHash);
+        TransformationInputs cached = inputs.get(key);
+        if (cached == null) {
+            cached = fingerprinter.get();
+            TransformationInputs previous = inputs.putIfAbsent(key, cached);
+            if (previous != null) {
+                cached = previous;
+            }
+        }
+        return cached;
+    }
+
+    private static class Key {
+        private final File primaryInput;
+        private final HashCode secondaryInputHash;
+
+        private Key(File primaryInput, HashCode secondaryInputHash) {
+            this.primaryInput = primaryInput;
+            this.secondaryInputHash = secondaryInputHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key that = (Key) o;
+            return primaryInput.equals(that.primaryInput) && secondaryInputHash.equals(that.secondaryInputHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * primaryInput.hashCode() + secondaryInputHash.hashCode();
+        }
+    }
+}
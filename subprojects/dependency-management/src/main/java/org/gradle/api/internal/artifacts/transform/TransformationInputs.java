@@ -0,0 +1,35 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.transform;
+
+import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+
+/**
+ * The fingerprinted inputs of a transformation, and the identity of its workspace.
+ */
+class TransformationInputs {
+    final FileSystemLocationSnapshot primaryInputSnapshot;
+    final CurrentFileCollectionFingerprint dependenciesFingerprint;
+    final TransformationWorkspaceIdentity identity;
+
+    TransformationInputs(FileSystemLocationSnapshot primaryInputSnapshot, CurrentFileCollectionFingerprint dependenciesFingerprint, TransformationWorkspaceIdentity identity) {
+        this.primaryInputSnapshot = primaryInputSnapshot;
+        this.dependenciesFingerprint = dependenciesFingerprint;
+        this.identity = identity;
+    }
+}
@@ -20,6 +20,7 @@ import com.google.common.collect.ImmutableList;
 import org.gradle.api.Describable;
 import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
 
 import java.io.File;
@@ -50,6 +51,13 @@ public abstract class TransformationSubject implements Describable {
      */
     public abstract Optional<ProjectComponentIdentifier> getProducer();
 
+    /**
+     * Whether the files of this subject cannot change during the build.
+     *
+     * This is the case for artifacts of external modules and for the results of transforming them.
+     */
+    public abstract boolean isImmutable();
+
     /**
      * Creates a subsequent subject by having transformed this subject.
      */
@@ -94,6 +102,11 @@ public abstract class TransformationSubject implements Describable {
         public Optional<ProjectComponentIdentifier> getProducer() {
             return Optional.empty();
         }
+
+        @Override
+        public boolean isImmutable() {
+            return false;
+        }
     }
 
     private static class InitialArtifactTransformationSubject extends AbstractInitialTransformationSubject {
@@ -117,6 +130,11 @@ public abstract class TransformationSubject implements Describable {
             }
             return Optional.empty();
         }
+
+        @Override
+        public boolean isImmutable() {
+            return artifactId.getComponentIdentifier() instanceof ModuleComponentIdentifier;
+        }
     }
 
     private static class SubsequentTransformationSubject extends TransformationSubject {
@@ -138,6 +156,11 @@ public abstract class TransformationSubject implements Describable {
             return previous.getProducer();
         }
 
+        @Override
+        public boolean isImmutable() {
+            return previous.isImmutable();
+        }
+
         @Override
         public String getDisplayName() {
             return previous.getDisplayName();
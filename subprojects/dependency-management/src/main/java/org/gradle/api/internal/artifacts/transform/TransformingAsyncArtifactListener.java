@@ -32,6 +32,7 @@ class TransformingAsyncArtifactListener implements ResolvedArtifactSet.AsyncArti
     private final BuildOperationQueue<RunnableBuildOperation> actions;
     private final ResolvedArtifactSet.AsyncArtifactListener delegate;
     private final Transformation transformation;
+    private final boolean parallelArtifactTransformations;
 
     TransformingAsyncArtifactListener(
         Transformation transformation,
@@ -39,7 +40,8 @@ class TransformingAsyncArtifactListener implements ResolvedArtifactSet.AsyncArti
         BuildOperationQueue<RunnableBuildOperation> actions,
         Map<ComponentArtifactIdentifier, TransformationOperation> artifactResults,
         Map<File, TransformationOperation> fileResults,
-        ExecutionGraphDependenciesResolver dependenciesResolver
+        ExecutionGraphDependenciesResolver dependenciesResolver,
+        boolean parallelArtifactTransformations
     ) {
         this.artifactResults = artifactResults;
         this.actions = actions;
@@ -47,6 +49,7 @@ class TransformingAsyncArtifactListener implements ResolvedArtifactSet.AsyncArti
         this.delegate = delegate;
         this.fileResults = fileResults;
         this.dependenciesResolver = dependenciesResolver;
+        this.parallelArtifactTransformations = parallelArtifactTransformations;
     }
 
     @Override
@@ -56,6 +59,13 @@ class TransformingAsyncArtifactListener implements ResolvedArtifactSet.AsyncArti
         TransformationSubject initialSubject = TransformationSubject.initial(artifactId, file);
         TransformationOperation operation = new TransformationOperation(transformation, initialSubject, dependenciesResolver);
         artifactResults.put(artifactId, operation);
+        if (parallelArtifactTransformations) {
+            // The transformation may not have been scheduled, for example when the artifacts are resolved while configuring the build.
+            // Artifacts found in the cache are made available one after the other from the current thread,
+            // so use the BuildOperationQueue to transform them in parallel, like files.
+            actions.add(operation);
+            return;
+        }
         // We expect artifact transformations to be executed in a scheduled way,
         // so at this point we take the result from the in-memory cache.
         // Artifact transformations are always executed scheduled via the execution graph when the transformed component is declared as an input.
@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.attributes;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import org.gradle.api.Action;
 import org.gradle.api.ActionConfiguration;
@@ -80,6 +81,10 @@ public class DefaultCompatibilityRuleChain<T> implements CompatibilityRuleChain<
         return !rules.isEmpty();
     }
 
+    public List<Action<? super CompatibilityCheckDetails<T>>> getRules() {
+        return ImmutableList.copyOf(rules);
+    }
+
     private static class ExceptionHandler<T> implements InstantiatingAction.ExceptionHandler<CompatibilityCheckDetails<T>> {
 
         private final Class<? extends AttributeCompatibilityRule<T>> rule;
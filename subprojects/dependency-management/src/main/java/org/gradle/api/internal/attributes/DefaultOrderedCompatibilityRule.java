@@ -44,4 +44,12 @@ public class DefaultOrderedCompatibilityRule<T> implements Action<CompatibilityC
         }
     }
 
+    public Comparator<? super T> getComparator() {
+        return comparator;
+    }
+
+    public boolean isReverse() {
+        return reverse;
+    }
+
 }
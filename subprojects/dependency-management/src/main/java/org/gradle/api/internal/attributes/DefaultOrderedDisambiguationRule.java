@@ -54,4 +54,12 @@ public class DefaultOrderedDisambiguationRule<T> implements Action<MultipleCandi
             }
         }
     }
+
+    public Comparator<? super T> getComparator() {
+        return comparator;
+    }
+
+    public boolean isPickFirst() {
+        return pickFirst;
+    }
 }
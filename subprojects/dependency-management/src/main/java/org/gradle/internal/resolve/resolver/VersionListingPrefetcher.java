@@ -0,0 +1,30 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resolve.resolver;
+
+import org.gradle.internal.component.model.DependencyMetadata;
+
+/**
+ * Implemented by a {@link DependencyToComponentIdResolver} which can list the versions of a module before a dynamic selector for it is resolved.
+ */
+public interface VersionListingPrefetcher {
+    /**
+     * Lists the versions of the module targeted by the given dependency, so that resolving the dependency later finds the listing in the caches.
+     * Failures are not reported here, they are reported when the dependency is resolved. Must be thread-safe.
+     */
+    void prefetchVersionListing(DependencyMetadata dependency);
+}
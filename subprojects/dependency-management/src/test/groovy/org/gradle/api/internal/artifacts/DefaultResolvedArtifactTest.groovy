@@ -22,6 +22,9 @@ import org.gradle.internal.component.model.IvyArtifactName
 import org.gradle.util.Matchers
 import spock.lang.Specification
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+
 class DefaultResolvedArtifactTest extends Specification {
 
     def "artifacts are equal when module and artifact identifier are equal"() {
@@ -115,6 +118,72 @@ class DefaultResolvedArtifactTest extends Specification {
         0 * artifactSource._
     }
 
+    def "does not keep failure of prefetch"() {
+        def dependency = dep("group", "module1", "1.2")
+        def artifactSource = Mock(Factory)
+        def ivyArt = Stub(IvyArtifactName)
+        def artifactId = Stub(ComponentArtifactIdentifier)
+        def buildDependencies = Stub(TaskDependency)
+        def failure = new RuntimeException()
+        def file = new File("result")
+
+        when:
+        def artifact = new DefaultResolvedArtifact(dependency, ivyArt, artifactId, buildDependencies, artifactSource)
+        artifact.prefetchFile()
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+
+        and:
+        !artifact.resolveSynchronously
+
+        and:
+        1 * artifactSource.create() >> { throw failure }
+        0 * artifactSource._
+
+        when:
+        def result = artifact.file
+
+        then:
+        result == file
+        1 * artifactSource.create() >> file
+        0 * artifactSource._
+
+        when:
+        artifact.prefetchFile()
+
+        then:
+        0 * artifactSource._
+    }
+
+    def "waits for a prefetch in progress instead of resolving the file again"() {
+        def file = new File("result")
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def calls = new AtomicInteger()
+        def artifactSource = {
+            calls.incrementAndGet()
+            started.countDown()
+            release.await()
+            file
+        } as Factory
+        def artifact = new DefaultResolvedArtifact(dep("group", "module1", "1.2"), Stub(IvyArtifactName), Stub(ComponentArtifactIdentifier), Stub(TaskDependency), artifactSource)
+
+        when:
+        def prefetch = Thread.start { artifact.prefetchFile() }
+        started.await()
+        def result = null
+        def consumer = Thread.start { result = artifact.file }
+        release.countDown()
+        prefetch.join()
+        consumer.join()
+
+        then:
+        result == file
+        calls.get() == 1
+    }
+
     def dep(String group, String moduleName, String version) {
         new DefaultModuleVersionIdentifier(group, moduleName, version)
     }
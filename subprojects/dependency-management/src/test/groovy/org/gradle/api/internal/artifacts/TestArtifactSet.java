@@ -101,6 +101,11 @@ public class TestArtifactSet implements ResolvedArtifactSet {
             return artifact.getFile();
         }
 
+        @Override
+        public void prefetchFile() {
+            artifact.getFile();
+        }
+
         @Override
         public ResolvedArtifact toPublicView() {
             return artifact;
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve
+
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.PersistRepositoryContentIndexBuildOperationType
+import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheLockingManager
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.Factory
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.internal.serialize.Serializer
+import org.gradle.internal.serialize.SerializerSpec
+import org.gradle.util.BuildCommencedTimeProvider
+
+import java.util.concurrent.TimeUnit
+
+class RepositoryContentIndexTest extends SerializerSpec {
+    def timeProvider = Stub(BuildCommencedTimeProvider)
+    def cacheLockingManager = Stub(ArtifactCacheLockingManager)
+    def entries = [:]
+    def now = 1000L
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+    def index = new RepositoryContentIndex(cacheLockingManager, timeProvider, buildOperationExecutor, true)
+    def a1 = id("a", "1.0")
+    def a2 = id("a", "2.0")
+    def b1 = id("b", "1.0")
+
+    def setup() {
+        timeProvider.currentTime >> { now }
+        cacheLockingManager.useCache(_ as Factory) >> { Factory factory -> factory.create() }
+        cacheLockingManager.useCache(_ as Runnable) >> { Runnable action -> action.run() }
+        cacheLockingManager.createCache("repository-content", _, _) >> { String name, Serializer keySerializer, Serializer valueSerializer ->
+            def persistentCache = Stub(PersistentIndexedCache)
+            persistentCache.put(_, _) >> { k, v -> entries[k] = toBytes(v, valueSerializer) }
+            persistentCache.get(_) >> { k -> entries[k] == null ? null : fromBytes(entries[k], valueSerializer) }
+            persistentCache
+        }
+    }
+
+    def "module version missing from repository is probably missing for a week"() {
+        when:
+        index.missing("repo", a1)
+
+        then:
+        index.isProbablyMissing("repo", a1)
+        !index.isProbablyMissing("other", a1)
+        !index.isProbablyMissing("repo", b1)
+
+        when:
+        now += TimeUnit.DAYS.toMillis(7)
+
+        then:
+        !index.isProbablyMissing("repo", a1)
+    }
+
+    def "other versions of a module missing from repository are not probably missing"() {
+        when:
+        index.missing("repo", a1)
+
+        then:
+        index.isProbablyMissing("repo", a1)
+        !index.isProbablyMissing("repo", a2)
+    }
+
+    def "module version found in repository is not missing"() {
+        when:
+        index.missing("repo", a1)
+        index.found("repo", a1)
+
+        then:
+        !index.isProbablyMissing("repo", a1)
+    }
+
+    def "repository with enough observations probably lacks modules it never served"() {
+        when:
+        index.found("repo", a1)
+        47.times { index.found("repo", id("found-${it}", "1.0")) }
+        index.missing("repo", id("missing", "1.0"))
+
+        then:
+        !index.isProbablyMissing("repo", b1)
+
+        when:
+        index.found("repo", id("found-47", "1.0"))
+
+        then:
+        index.isProbablyMissing("repo", b1)
+        !index.isProbablyMissing("repo", a2)
+        !index.isProbablyMissing("other", b1)
+    }
+
+    def "counts each module found in repository once"() {
+        when:
+        60.times { index.found("repo", id("a", "${it}")) }
+
+        then:
+        !index.isProbablyMissing("repo", b1)
+    }
+
+    def "keeps content of repositories between builds"() {
+        when:
+        index.missing("repo", a1)
+        50.times { index.found("repo", id("found-${it}", "1.0")) }
+        index.stop()
+        def reloaded = new RepositoryContentIndex(cacheLockingManager, timeProvider, buildOperationExecutor, true)
+
+        then:
+        reloaded.isProbablyMissing("repo", a1)
+        reloaded.isProbablyMissing("repo", b1)
+        !reloaded.isProbablyMissing("repo", id("found-1", "2.0"))
+    }
+
+    def "reports skipped lookups when the build finishes"() {
+        when:
+        index.missing("repo", a1)
+        index.lookupsSkipped(2)
+        index.lookupsSkipped(1)
+        index.buildFinished()
+        def reloaded = new RepositoryContentIndex(cacheLockingManager, timeProvider, buildOperationExecutor, true)
+
+        then:
+        buildOperationExecutor.log.mostRecentResult(PersistRepositoryContentIndexBuildOperationType).skippedLookups == 3
+        reloaded.isProbablyMissing("repo", a1)
+    }
+
+    def "does nothing when disabled"() {
+        def disabled = new RepositoryContentIndex(cacheLockingManager, timeProvider, buildOperationExecutor, false)
+
+        when:
+        disabled.missing("repo", a1)
+        disabled.lookupsSkipped(1)
+        disabled.buildFinished()
+        disabled.stop()
+
+        then:
+        !disabled.isProbablyMissing("repo", a1)
+        entries.isEmpty()
+        buildOperationExecutor.log.records.empty
+    }
+
+    private static id(String name, String version) {
+        return DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", name), version)
+    }
+}
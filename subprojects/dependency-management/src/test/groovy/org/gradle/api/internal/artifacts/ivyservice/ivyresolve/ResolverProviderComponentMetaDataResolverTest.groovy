@@ -22,12 +22,18 @@ import org.gradle.api.artifacts.ModuleVersionIdentifier
 import org.gradle.api.artifacts.ModuleVersionSelector
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
 import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheLockingManager
 import org.gradle.api.internal.artifacts.ivyservice.IvyUtil
+import org.gradle.api.internal.artifacts.repositories.resolver.MetadataFetchingCost
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.Factory
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
 import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata
 import org.gradle.internal.component.model.ComponentOverrideMetadata
+import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.internal.resolve.ModuleVersionResolveException
 import org.gradle.internal.resolve.result.BuildableComponentResolveResult
+import org.gradle.util.BuildCommencedTimeProvider
 import spock.lang.Specification
 
 class ResolverProviderComponentMetaDataResolverTest extends Specification {
@@ -43,7 +49,8 @@ class ResolverProviderComponentMetaDataResolverTest extends Specification {
     def remoteAccess2 = Mock(ModuleComponentRepositoryAccess)
 
     final VersionedComponentChooser componentSelectionStrategy = Mock(VersionedComponentChooser)
-    final RepositoryChainComponentMetaDataResolver resolver = new RepositoryChainComponentMetaDataResolver(componentSelectionStrategy, transformer)
+    final contentIndex = Mock(RepositoryContentIndex)
+    final RepositoryChainComponentMetaDataResolver resolver = new RepositoryChainComponentMetaDataResolver(componentSelectionStrategy, transformer, contentIndex)
 
     ModuleVersionIdentifier moduleVersionIdentifier(ModuleDescriptor moduleDescriptor) {
         def moduleRevId = moduleDescriptor.moduleRevisionId
@@ -63,6 +70,7 @@ class ResolverProviderComponentMetaDataResolverTest extends Specification {
             getLocalAccess() >> repoLocalAccess
             getRemoteAccess() >> repoRemoteAccess
             getName() >> name
+            getId() >> name
         }
         resolver.add(repo)
         repo
@@ -150,6 +158,129 @@ class ResolverProviderComponentMetaDataResolverTest extends Specification {
         0 * result._
     }
 
+    def "looks first in repositories which do not probably miss the module"() {
+        given:
+        addRepo1()
+        def repo2 = addRepo2()
+
+        when:
+        resolver.resolve(moduleComponentId, componentRequestMetaData, result)
+
+        then:
+        contentIndex.isProbablyMissing("repo1", moduleComponentId) >> true
+        1 * localAccess.estimateMetadataFetchingCost(moduleComponentId) >> MetadataFetchingCost.EXPENSIVE
+        1 * localAccess2.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _) >> { id, meta, result ->
+            result.resolved(metaData)
+        }
+        1 * contentIndex.found("repo2", moduleComponentId)
+        1 * contentIndex.lookupsSkipped(1)
+        1 * transformer.transform(_) >> { RepositoryChainModuleResolution it ->
+            assert it.repository == repo2
+            metaData
+        }
+        1 * result.resolved(_)
+
+        and:
+        0 * localAccess._
+        0 * remoteAccess._
+        0 * remoteAccess2._
+        0 * result._
+    }
+
+    def "looks first in earlier repository which lacks another version of the module"() {
+        given:
+        def cacheLockingManager = Stub(ArtifactCacheLockingManager) {
+            useCache(_ as Factory) >> { Factory factory -> factory.create() }
+            createCache(_, _, _) >> Stub(PersistentIndexedCache) {
+                get(_) >> null
+            }
+        }
+        def index = new RepositoryContentIndex(cacheLockingManager, Stub(BuildCommencedTimeProvider), new TestBuildOperationExecutor(), true)
+        def chain = new RepositoryChainComponentMetaDataResolver(componentSelectionStrategy, transformer, index)
+        def repo1 = addRepo1()
+        chain.add(repo1)
+        chain.add(addRepo2())
+        index.missing("repo1", DefaultModuleComponentIdentifier.newId(moduleComponentId.moduleIdentifier, "0.9"))
+
+        when:
+        chain.resolve(moduleComponentId, componentRequestMetaData, result)
+
+        then:
+        1 * localAccess.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _)
+        1 * localAccess2.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _)
+        1 * remoteAccess.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _) >> { id, meta, result ->
+            result.resolved(metaData)
+        }
+        1 * transformer.transform(_) >> { RepositoryChainModuleResolution it ->
+            assert it.repository == repo1
+            metaData
+        }
+        1 * result.resolved(_)
+
+        and:
+        0 * localAccess._
+        0 * remoteAccess._
+        0 * localAccess2._
+        0 * remoteAccess2._
+        0 * result._
+    }
+
+    def "looks last in repository which never served the module"() {
+        given:
+        def cacheLockingManager = Stub(ArtifactCacheLockingManager) {
+            useCache(_ as Factory) >> { Factory factory -> factory.create() }
+            createCache(_, _, _) >> Stub(PersistentIndexedCache) {
+                get(_) >> null
+            }
+        }
+        def index = new RepositoryContentIndex(cacheLockingManager, Stub(BuildCommencedTimeProvider), new TestBuildOperationExecutor(), true)
+        def chain = new RepositoryChainComponentMetaDataResolver(componentSelectionStrategy, transformer, index)
+        chain.add(addRepo1())
+        def repo2 = addRepo2()
+        chain.add(repo2)
+        50.times { index.found("repo1", DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", "other-${it}"), "1.0")) }
+
+        when:
+        chain.resolve(moduleComponentId, componentRequestMetaData, result)
+
+        then:
+        1 * localAccess.estimateMetadataFetchingCost(moduleComponentId) >> MetadataFetchingCost.EXPENSIVE
+        1 * localAccess2.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _) >> { id, meta, result ->
+            result.resolved(metaData)
+        }
+        1 * transformer.transform(_) >> { RepositoryChainModuleResolution it ->
+            assert it.repository == repo2
+            metaData
+        }
+        1 * result.resolved(_)
+
+        and:
+        0 * localAccess._
+        0 * remoteAccess._
+        0 * localAccess2._
+        0 * remoteAccess2._
+        0 * result._
+    }
+
+    def "records modules missing from remote repositories"() {
+        given:
+        addRepo1()
+
+        when:
+        resolver.resolve(moduleComponentId, componentRequestMetaData, result)
+
+        then:
+        1 * localAccess.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _)
+        1 * remoteAccess.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _) >> { id, meta, result ->
+            result.missing()
+        }
+        1 * contentIndex.missing("repo1", moduleComponentId)
+        1 * result.notFound(moduleComponentId)
+
+        and:
+        0 * result._
+    }
+
     def "fails with not found when local static dependency is marked as missing"() {
         given:
         def repo = addRepo1()
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser
+
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.resource.local.LocalFileStandInExternalResource
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class ParsedPomCacheTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    final cache = new ParsedPomCache()
+
+    def "reuses POM parsed earlier"() {
+        def pomFile = tmpDir.file("parent.pom")
+        pomFile.text = "<project><version>1.0</version></project>"
+        def resource = new LocalFileStandInExternalResource(pomFile, TestFiles.fileSystem())
+
+        when:
+        def first = cache.parse(resource)
+        def second = cache.parse(new LocalFileStandInExternalResource(pomFile, TestFiles.fileSystem()))
+
+        then:
+        first.is(second)
+        first.children[0].text == "1.0"
+    }
+
+    def "parses POM again when it has changed"() {
+        def pomFile = tmpDir.file("parent.pom")
+        pomFile.text = "<project><version>1.0</version></project>"
+        def resource = new LocalFileStandInExternalResource(pomFile, TestFiles.fileSystem())
+        def first = cache.parse(resource)
+
+        when:
+        pomFile.text = "<project><version>1.0.1</version></project>"
+        def second = cache.parse(resource)
+
+        then:
+        !first.is(second)
+        second.children[0].text == "1.0.1"
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser
+
+import spock.lang.Specification
+
+import javax.xml.stream.XMLStreamException
+
+class PomStaxParserTest extends Specification {
+
+    def "keeps only the elements used to resolve dependencies"() {
+        when:
+        def project = parse """<?xml version="1.0" encoding="UTF-8"?>
+<project xmlns="http://maven.apache.org/POM/4.0.0">
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+    <name>Test Artifact One</name>
+    <dependencies>
+        <dependency>
+            <groupId>group-two</groupId>
+            <artifactId>artifact-two</artifactId>
+            <exclusions>
+                <exclusion>
+                    <groupId>group-three</groupId>
+                </exclusion>
+            </exclusions>
+        </dependency>
+    </dependencies>
+    <build>
+        <plugins>
+            <plugin>
+                <dependencies>
+                    <dependency>
+                        <groupId>plugin-dependency</groupId>
+                    </dependency>
+                </dependencies>
+            </plugin>
+        </plugins>
+    </build>
+    <distributionManagement>
+        <site><id>site</id></site>
+        <relocation><groupId>group-four</groupId></relocation>
+    </distributionManagement>
+    <profiles>
+        <profile>
+            <id>profile-one</id>
+            <build/>
+            <properties><prop>value</prop></properties>
+        </profile>
+    </profiles>
+</project>
+"""
+
+        then:
+        project.name == "project"
+        project.children*.name == ["groupId", "artifactId", "version", "dependencies", "distributionManagement", "profiles"]
+        project.children*.text == ["group-one", "artifact-one", "version-one", "", "", ""]
+
+        def dependency = project.children[3].children[0]
+        dependency.children*.name == ["groupId", "artifactId", "exclusions"]
+        dependency.children[2].children[0].children[0].text == "group-three"
+
+        project.children[4].children*.name == ["relocation"]
+        project.children[5].children[0].children*.name == ["id", "properties"]
+        project.children[5].children[0].children[1].children[0].text == "value"
+    }
+
+    def "reads text split by entities, character references and CDATA sections"() {
+        when:
+        def project = parse """
+<project>
+    <description>one&amp;two&#160;three<![CDATA[<four>]]>&nbsp;five</description>
+    <properties>
+        <prop>value<!-- comment --></prop>
+    </properties>
+</project>
+"""
+
+        then:
+        project.children*.name == ["properties"]
+        project.children[0].children[0].text == "value"
+
+        when:
+        project = parse """
+<project>
+    <version>one&amp;two&#160;three<![CDATA[<four>]]>&nbsp;five</version>
+</project>
+"""
+
+        then:
+        project.children[0].text == "one&two\u00a0three<four>\u00a0five"
+    }
+
+    def "fails when POM is not well formed XML"() {
+        when:
+        parse """
+<project>
+    <modelVersion
+</project>
+"""
+
+        then:
+        def e = thrown(XMLStreamException)
+        e.message.contains('"modelVersion"')
+    }
+
+    private static PomElement parse(String text) {
+        return PomStaxParser.parse(text.getBytes("UTF-8"), "pom.xml")
+    }
+}
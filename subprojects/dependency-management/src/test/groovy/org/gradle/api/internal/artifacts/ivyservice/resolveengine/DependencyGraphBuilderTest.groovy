@@ -68,6 +68,7 @@ import org.gradle.internal.resolve.ModuleVersionResolveException
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver
 import org.gradle.internal.resolve.resolver.ResolveContextToComponentResolver
+import org.gradle.internal.resolve.resolver.VersionListingPrefetcher
 import org.gradle.internal.resolve.result.BuildableComponentIdResolveResult
 import org.gradle.internal.resolve.result.BuildableComponentResolveResult
 import org.gradle.util.AttributeTestUtil
@@ -204,6 +205,32 @@ class DependencyGraphBuilderTest extends Specification {
         result.components == ids(root, a, b, c, d)
     }
 
+    def "lists versions of modules targeted by dynamic selectors in parallel"() {
+        given:
+        idResolver = Mock(PrefetchingIdResolver)
+        builder = new DependencyGraphBuilder(idResolver, metaDataResolver, moduleResolver, moduleConflictHandler, capabilitiesConflictHandler, Specs.satisfyAll(), attributesSchema, moduleExclusions, buildOperationProcessor, moduleReplacements, dependencySubstitutionApplicator, componentSelectorConverter, AttributeTestUtil.attributesFactory(), versionSelectorScheme, Stub(Comparator), new VersionParser())
+        def a = revision("a")
+        def b = revision("b")
+        def c = revision("c")
+        def d = revision("d")
+        traverses root, a, revision: '1.+'
+        traverses root, b, revision: 'latest.release'
+        traverses root, c
+        traverses a, d, revision: '1.+'
+
+        when:
+        def result = resolve()
+        result.rethrowFailure()
+
+        then:
+        1 * idResolver.prefetchVersionListing({ it.selector.module == 'a' })
+        1 * idResolver.prefetchVersionListing({ it.selector.module == 'b' })
+        0 * idResolver.prefetchVersionListing(_)
+
+        and:
+        result.components == ids(root, a, b, c, d)
+    }
+
     def "does not include evicted module or dependencies when selected module already traversed before conflict detected"() {
         given:
         def selected = revision('a', '1.2')
@@ -1119,6 +1146,9 @@ class DependencyGraphBuilderTest extends Specification {
         return descriptors.collect { it.moduleVersionId } as Set
     }
 
+    interface PrefetchingIdResolver extends DependencyToComponentIdResolver, VersionListingPrefetcher {
+    }
+
     static class TestGraphVisitor implements DependencyGraphVisitor {
         def root
         def components = new LinkedHashSet()
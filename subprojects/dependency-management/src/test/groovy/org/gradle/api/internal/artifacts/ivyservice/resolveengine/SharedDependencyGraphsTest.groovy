@@ -0,0 +1,210 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine
+
+import org.gradle.api.artifacts.Dependency
+import org.gradle.api.artifacts.component.ComponentIdentifier
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier
+import org.gradle.api.internal.artifacts.ReuseDependencyGraphBuildOperationType
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
+import org.gradle.api.internal.artifacts.ivyservice.ResolutionInputsFingerprinter
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RootGraphNode
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.local.model.DslOriginDependencyMetadata
+import org.gradle.internal.component.local.model.RootConfigurationMetadata
+import org.gradle.internal.component.model.ComponentArtifactMetadata
+import org.gradle.internal.component.model.ComponentResolveMetadata
+import org.gradle.internal.component.model.ConfigurationMetadata
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.internal.resolve.ModuleVersionResolveException
+import org.gradle.util.Path
+import spock.lang.Specification
+
+class SharedDependencyGraphsTest extends Specification {
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+    def sharedGraphs = new SharedDependencyGraphs(Stub(ResolutionInputsFingerprinter), buildOperationExecutor, true)
+    def key = HashCode.fromInt(123)
+    def visitor = Mock(DependencyGraphVisitor)
+
+    def sharedDependency = Stub(Dependency)
+    def dependency = Stub(Dependency)
+    def sharedRoot = Stub(RootGraphNode)
+    def rootEdge = Stub(DependencyGraphEdge)
+    def edge = Stub(DependencyGraphEdge)
+    def firstLevel = node(2L, externalId("lib1"), [rootEdge], [edge])
+    def transitive = node(3L, externalId("lib2"), [edge], [])
+
+    def setup() {
+        sharedDependency.contentEquals(dependency) >> true
+        def sharedRootComponent = Stub(DependencyGraphComponent) {
+            getResultId() >> 1L
+            getComponentId() >> Stub(ProjectComponentIdentifier)
+        }
+        sharedRoot.isRoot() >> true
+        sharedRoot.getNodeId() >> 1L
+        sharedRoot.getOwner() >> sharedRootComponent
+        sharedRoot.getIncomingEdges() >> []
+        sharedRoot.getOutgoingEdges() >> [rootEdge]
+        sharedRoot.getMetadata() >> rootConfiguration(sharedDependency)
+        rootEdge.getFrom() >> sharedRoot
+        rootEdge.getOriginalDependency() >> sharedDependency
+        edge.getFrom() >> firstLevel
+    }
+
+    def "visits shared graph with the root of another configuration"() {
+        def context = context(":b:testRuntimeClasspath", projectId(), dependency)
+
+        when:
+        share(":a:testRuntimeClasspath")
+        def reused = sharedGraphs.visitSharedGraph(context, key, visitor)
+
+        then:
+        reused
+        1 * visitor.start({ it.owner.componentId == context.toRootComponentMetaData().id && it.nodeId == 1L })
+        1 * visitor.visitNode({ it.isRoot() && it.resolvedConfigurationId.moduleName == "b" })
+        1 * visitor.visitNode({ !it.isRoot() && it.incomingEdges*.from*.owner*.componentId == [context.toRootComponentMetaData().id] && it.incomingEdges*.originalDependency == [dependency] })
+        1 * visitor.visitNode({ it.nodeId == 3L })
+        1 * visitor.visitEdges({ it.isRoot() && it.outgoingEdges*.originalDependency == [dependency] })
+        1 * visitor.visitEdges({ it.nodeId == 2L })
+        1 * visitor.visitEdges({ it.nodeId == 3L })
+        1 * visitor.finish({ it.isRoot() })
+        0 * visitor._
+
+        and:
+        buildOperationExecutor.log.mostRecentResult(ReuseDependencyGraphBuildOperationType).reusedConfigurationPath == ":a:testRuntimeClasspath"
+    }
+
+    def "shares a copy of the graph which does not refer to the resolved graph"() {
+        def context = context(":b:testRuntimeClasspath", projectId(), dependency)
+        def artifact = Stub(ComponentArtifactMetadata)
+        edge.contributesArtifacts() >> true
+        edge.getArtifacts(transitive.metadata) >> [artifact]
+        def visited = []
+
+        when:
+        share(":a:testRuntimeClasspath")
+        sharedGraphs.visitSharedGraph(context, key, Stub(DependencyGraphVisitor) {
+            visitNode(_) >> { DependencyGraphNode node -> visited << node }
+        })
+        def copy = visited[2]
+
+        then:
+        visited*.nodeId == [1L, 2L, 3L]
+        !visited.any { it.is(sharedRoot) || it.is(firstLevel) || it.is(transitive) }
+        copy.incomingEdges*.from*.nodeId == [2L]
+        !copy.incomingEdges[0].is(edge)
+        copy.incomingEdges[0].getArtifacts(copy.metadata) == [artifact]
+    }
+
+    def "does not reuse graph which contains the root component"() {
+        def context = context(":b:testRuntimeClasspath", externalId("lib2"), dependency)
+
+        when:
+        share(":a:testRuntimeClasspath")
+        def reused = sharedGraphs.visitSharedGraph(context, key, visitor)
+
+        then:
+        !reused
+        0 * visitor._
+        buildOperationExecutor.log.mostRecentResult(ReuseDependencyGraphBuildOperationType).reusedConfigurationPath == null
+    }
+
+    def "does not reuse graph when dependencies are declared in a different order"() {
+        def context = context(":b:testRuntimeClasspath", projectId(), Stub(Dependency))
+
+        when:
+        share(":a:testRuntimeClasspath")
+        def reused = sharedGraphs.visitSharedGraph(context, key, visitor)
+
+        then:
+        !reused
+        0 * visitor._
+    }
+
+    def "does not share graph with failures"() {
+        def context = context(":b:testRuntimeClasspath", projectId(), dependency)
+        edge.getFailure() >> new ModuleVersionResolveException(DefaultModuleVersionIdentifier.newId("org", "lib2", "1.0"), "broken")
+
+        when:
+        share(":a:testRuntimeClasspath")
+        def reused = sharedGraphs.visitSharedGraph(context, key, visitor)
+
+        then:
+        !reused
+        0 * visitor._
+    }
+
+    private void share(String path) {
+        def recorder = sharedGraphs.recorder(context(path, projectId(), sharedDependency), key)
+        recorder.start(sharedRoot)
+        [sharedRoot, firstLevel, transitive].each { recorder.visitNode(it) }
+        [sharedRoot, firstLevel, transitive].each { recorder.visitEdges(it) }
+        recorder.finish(sharedRoot)
+    }
+
+    private DependencyGraphNode node(long nodeId, ComponentIdentifier id, List<DependencyGraphEdge> incomingEdges, List<DependencyGraphEdge> outgoingEdges) {
+        def component = Stub(DependencyGraphComponent) {
+            getComponentId() >> id
+            getModuleVersion() >> DefaultModuleVersionIdentifier.newId(id.moduleIdentifier, id.version)
+        }
+        return Stub(DependencyGraphNode) {
+            getNodeId() >> nodeId
+            getOwner() >> component
+            getIncomingEdges() >> incomingEdges
+            getOutgoingEdges() >> outgoingEdges
+            getMetadata() >> Stub(ConfigurationMetadata)
+        }
+    }
+
+    private ConfigurationInternal context(String path, ComponentIdentifier rootId, Dependency dependency) {
+        def rootComponent = Stub(ComponentResolveMetadata) {
+            getId() >> rootId
+            getModuleVersionId() >> DefaultModuleVersionIdentifier.newId("org", path.split(":")[1], "1.0")
+            getConfiguration("testRuntimeClasspath") >> rootConfiguration(dependency)
+        }
+        return Stub(ConfigurationInternal) {
+            getName() >> "testRuntimeClasspath"
+            getIdentityPath() >> Path.path(path)
+            toRootComponentMetaData() >> rootComponent
+        }
+    }
+
+    private RootConfigurationMetadata rootConfiguration(Dependency dependency) {
+        def dependencyMetadata = Stub(DslOriginDependencyMetadata) {
+            getSource() >> dependency
+        }
+        return Stub(RootConfigurationMetadata) {
+            getDependencies() >> [dependencyMetadata]
+            getFiles() >> ([] as Set)
+        }
+    }
+
+    private ComponentIdentifier projectId() {
+        return Stub(ProjectComponentIdentifier)
+    }
+
+    private static ComponentIdentifier externalId(String name) {
+        return DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", name), "1.0")
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact
+
+import org.gradle.internal.component.external.model.ModuleComponentArtifactIdentifier
+import org.gradle.internal.component.local.model.ComponentFileArtifactIdentifier
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+class ArtifactPrefetcherTest extends ConcurrentSpec {
+    final prefetcher = new ArtifactPrefetcher(executorFactory, true, 2)
+
+    def cleanup() {
+        prefetcher.stop()
+    }
+
+    def "downloads artifacts that are not available yet once"() {
+        def artifact1 = artifact(Mock(ModuleComponentArtifactIdentifier))
+        def artifact2 = artifact(Mock(ModuleComponentArtifactIdentifier))
+        def resolved = artifact(Mock(ModuleComponentArtifactIdentifier), true)
+        def local = artifact(Mock(ComponentFileArtifactIdentifier))
+
+        when:
+        prefetcher.prefetch(artifacts(artifact1, resolved, local, artifact2))
+        prefetcher.prefetch(artifacts(artifact1))
+        prefetcher.stop()
+
+        then:
+        1 * artifact1.prefetchFile()
+        1 * artifact2.prefetchFile()
+        0 * resolved.prefetchFile()
+        0 * local.prefetchFile()
+    }
+
+    def "ignores failed downloads"() {
+        def artifact1 = artifact(Mock(ModuleComponentArtifactIdentifier))
+        def artifact2 = artifact(Mock(ModuleComponentArtifactIdentifier))
+
+        when:
+        prefetcher.prefetch(artifacts(artifact1, artifact2))
+        prefetcher.stop()
+
+        then:
+        1 * artifact1.prefetchFile() >> { throw new RuntimeException("broken") }
+        1 * artifact2.prefetchFile()
+    }
+
+    def "does not download artifacts once stopped"() {
+        def artifact = artifact(Mock(ModuleComponentArtifactIdentifier))
+
+        when:
+        prefetcher.stop()
+        prefetcher.prefetch(artifacts(artifact))
+
+        then:
+        0 * artifact.prefetchFile()
+    }
+
+    private ResolvableArtifact artifact(def id, boolean resolved = false) {
+        def artifact = Mock(ResolvableArtifact)
+        _ * artifact.id >> id
+        _ * artifact.resolveSynchronously >> resolved
+        return artifact
+    }
+
+    private ResolvedArtifactSet artifacts(ResolvableArtifact... artifacts) {
+        def set = Stub(ResolvedArtifactSet)
+        set.visitLocalArtifacts(_) >> { ResolvedArtifactSet.LocalArtifactVisitor visitor ->
+            artifacts.each { visitor.visitArtifact(it) }
+        }
+        return set
+    }
+}
@@ -758,6 +758,19 @@ class DefaultModuleExclusionTest extends Specification {
         union(intersection, simpleExclude)
     }
 
+    def "equal exclusions are the same instance"() {
+        def rule1 = excludeRule("org", "module")
+        def rule2 = excludeRule("org", "module2")
+        def artifactRule = excludeArtifactRule("a", "jar", "jar")
+        def regexpRule = regexpExcludeRule("org", "module\\d+")
+
+        expect:
+        excludeAny(rule1, artifactRule, regexpRule).is(excludeAny(regexpExcludeRule("org", "module\\d+"), excludeArtifactRule("a", "jar", "jar"), excludeRule("org", "module")))
+        union(excludeAny(regexpRule), excludeAny(rule1)).is(union(excludeAny(rule1), excludeAny(regexpRule)))
+        intersect(excludeAny(rule1), excludeAny(rule2)).is(intersect(excludeAny(rule2), excludeAny(rule1)))
+        intersect(union(excludeAny(regexpRule), excludeAny(rule1)), excludeAny(rule2)).is(intersect(excludeAny(rule2), union(excludeAny(rule1), excludeAny(regexpRule))))
+    }
+
     ModuleExclusion union(ModuleExclusion spec, ModuleExclusion otherRule) {
         moduleExclusions.union(spec, otherRule)
     }
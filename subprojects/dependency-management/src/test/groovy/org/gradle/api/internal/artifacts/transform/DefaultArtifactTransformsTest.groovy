@@ -50,7 +50,7 @@ class DefaultArtifactTransformsTest extends Specification {
     def consumerSchema = Mock(AttributesSchemaInternal)
     def attributeMatcher = Mock(AttributeMatcher)
     def dependenciesResolver = Stub(ExtraExecutionGraphDependenciesResolverFactory)
-    def transforms = new DefaultArtifactTransforms(matchingCache, consumerSchema, AttributeTestUtil.attributesFactory())
+    def transforms = new DefaultArtifactTransforms(matchingCache, consumerSchema, AttributeTestUtil.attributesFactory(), false)
 
     def "selects producer variant with requested attributes"() {
         def variant1 = resolvedVariant()
@@ -285,7 +285,7 @@ Found the following transforms:
     }
 
     private static AttributeContainerInternal typeAttributes(String artifactType) {
-        def attributeContainer = new DefaultMutableAttributeContainer(AttributeTestUtil.attributesFactory())
+        def attributeContainer = new DefaultMutableAttributeContainer(AttributeTestUtil.attributesFactory(), false)
         attributeContainer.attribute(ARTIFACT_FORMAT, artifactType)
         attributeContainer.asImmutable()
     }
@@ -20,6 +20,7 @@ import com.google.common.collect.ImmutableList
 import org.gradle.api.artifacts.transform.ArtifactTransform
 import org.gradle.api.artifacts.transform.ArtifactTransformDependencies
 import org.gradle.api.internal.artifacts.DefaultBuildIdentifier
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
 import org.gradle.api.internal.artifacts.DefaultProjectComponentIdentifier
 import org.gradle.api.internal.artifacts.dsl.dependencies.ProjectFinder
 import org.gradle.api.internal.attributes.ImmutableAttributes
@@ -28,6 +29,8 @@ import org.gradle.api.internal.changedetection.state.DefaultWellKnownFileLocatio
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.internal.classloader.ClassLoaderHierarchyHasher
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
 import org.gradle.internal.component.local.model.ComponentFileArtifactIdentifier
 import org.gradle.internal.execution.TestExecutionHistoryStore
 import org.gradle.internal.fingerprint.FileCollectionFingerprinter
@@ -82,17 +85,24 @@ class DefaultTransformerInvokerTest extends AbstractProjectBuilderSpec {
         fingerprint(_ as FileCollectionFingerprinter) >> { FileCollectionFingerprinter fingerprinter -> fingerprinter.empty() }
     }
 
-    def invoker = new DefaultTransformerInvoker(
-        workExecutorTestFixture.workExecutor,
-        fileSystemSnapshotter,
-        artifactTransformListener,
-        transformationWorkspaceProvider,
-        dependencyFingerprinter,
-        outputFilesFingerprinter,
-        classloaderHasher,
-        projectFinder,
-        true
-    )
+    def immutableInputsCache = new ImmutableTransformationInputsCache()
+
+    def invoker = createInvoker()
+
+    private DefaultTransformerInvoker createInvoker() {
+        new DefaultTransformerInvoker(
+            workExecutorTestFixture.workExecutor,
+            fileSystemSnapshotter,
+            artifactTransformListener,
+            transformationWorkspaceProvider,
+            dependencyFingerprinter,
+            outputFilesFingerprinter,
+            classloaderHasher,
+            projectFinder,
+            immutableInputsCache,
+            true
+        )
+    }
 
     private static class TestTransformer implements Transformer {
         private final HashCode secondaryInputsHash
@@ -333,6 +343,31 @@ class DefaultTransformerInvokerTest extends AbstractProjectBuilderSpec {
         workspaces.size() == 2
     }
 
+    def "calculates workspace of external artifact once per build for the invokers of all projects"() {
+        def primaryInput = temporaryFolder.file("input")
+        primaryInput.text = "my input"
+        def workspaces = new HashSet<File>()
+        def transformationAction = { File input, File workspace ->
+            workspaces.add(workspace)
+            def outputFile = new File(workspace, input.name)
+            outputFile.text = input.text + " transformed"
+            return ImmutableList.of(outputFile)
+        }
+        def transformer = TestTransformer.create(HashCode.fromInt(1234), transformationAction)
+        def artifactId = new DefaultModuleComponentArtifactIdentifier(DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", "lib"), "1.0"), "lib", "jar", "jar")
+        def subject = TransformationSubject.initial(artifactId, primaryInput)
+        def otherInvoker = createInvoker()
+
+        when:
+        invoker.invoke(transformer, primaryInput, dependencies, subject)
+        fileSystemMirror.beforeBuildFinished()
+        primaryInput.text = "changed"
+        otherInvoker.invoke(transformer, primaryInput, dependencies, subject)
+
+        then:
+        workspaces.size() == 1
+    }
+
     def "same workspace for different mutable primary inputs"() {
         def primaryInput = temporaryFolder.file("input")
         primaryInput.text = "my input"
@@ -26,7 +26,7 @@ import org.gradle.testing.internal.util.Specification
 class TransformingAsyncArtifactListenerTest extends Specification {
     def transformation = Mock(Transformation)
     def operationQueue = Mock(BuildOperationQueue)
-    def listener  = new TransformingAsyncArtifactListener(transformation, null, operationQueue, Maps.newHashMap(), Maps.newHashMap(), Mock(ExecutionGraphDependenciesResolver))
+    def listener  = new TransformingAsyncArtifactListener(transformation, null, operationQueue, Maps.newHashMap(), Maps.newHashMap(), Mock(ExecutionGraphDependenciesResolver), false)
     def file = new File("foo")
     def artifactFile = new File("foo-artifact")
     def artifactId = Stub(ComponentArtifactIdentifier)
@@ -50,4 +50,15 @@ class TransformingAsyncArtifactListenerTest extends Specification {
         then:
         1 * transformation.transform({ it.files == [artifactFile] }, _ as ExecutionGraphDependenciesResolver)
     }
+
+    def "adds artifact transformations to the build operation queue when transforming artifacts in parallel"() {
+        def parallelListener = new TransformingAsyncArtifactListener(transformation, null, operationQueue, Maps.newHashMap(), Maps.newHashMap(), Mock(ExecutionGraphDependenciesResolver), true)
+
+        when:
+        parallelListener.artifactAvailable(artifact)
+
+        then:
+        1 * operationQueue.add(_ as BuildOperation)
+        0 * transformation._
+    }
 }
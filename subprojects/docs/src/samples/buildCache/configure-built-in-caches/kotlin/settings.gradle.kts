@@ -3,10 +3,19 @@ buildCache {
     local<DirectoryBuildCache> {
         directory = File(rootDir, "build-cache")
         removeUnusedEntriesAfterDays = 30
+        maxSizeInMB = 5000
     }
 }
 // end::configure-directory-build-cache[]
 
+// tag::configure-build-cache-compression[]
+buildCache {
+    local<DirectoryBuildCache> {
+        compression = BuildCacheCompression.FAST
+    }
+}
+// end::configure-build-cache-compression[]
+
 // tag::configure-http-build-cache[]
 buildCache {
     remote<HttpBuildCache> {
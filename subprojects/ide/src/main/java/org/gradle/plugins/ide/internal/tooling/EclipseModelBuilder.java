@@ -21,6 +21,7 @@ import com.google.common.collect.Maps;
 import org.apache.commons.lang.StringUtils;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
+import org.gradle.api.Transformer;
 import org.gradle.api.initialization.IncludedBuild;
 import org.gradle.api.specs.Spec;
 import org.gradle.internal.build.IncludedBuildState;
@@ -71,6 +72,7 @@ import java.util.Set;
 
 public class EclipseModelBuilder implements ToolingModelBuilder {
     private final GradleProjectBuilder gradleProjectBuilder;
+    private final ProjectModelBuildExecutor projectModelBuildExecutor;
 
     private boolean projectDependenciesOnly;
     private DefaultEclipseProject result;
@@ -79,8 +81,9 @@ public class EclipseModelBuilder implements ToolingModelBuilder {
     private DefaultGradleProject rootGradleProject;
     private Project currentProject;
 
-    public EclipseModelBuilder(GradleProjectBuilder gradleProjectBuilder, ServiceRegistry services) {
+    public EclipseModelBuilder(GradleProjectBuilder gradleProjectBuilder, ServiceRegistry services, ProjectModelBuildExecutor projectModelBuildExecutor) {
         this.gradleProjectBuilder = gradleProjectBuilder;
+        this.projectModelBuildExecutor = projectModelBuildExecutor;
     }
 
     @Override
@@ -101,7 +104,7 @@ public class EclipseModelBuilder implements ToolingModelBuilder {
         tasksFactory.collectTasks(root);
         applyEclipsePlugin(root);
         buildHierarchy(root);
-        populate(root);
+        populateAll(root);
         return result;
     }
 
@@ -144,7 +147,25 @@ public class EclipseModelBuilder implements ToolingModelBuilder {
         eclipseProjects.add(eclipseProject);
     }
 
-    private void populate(Project project) {
+    private void populateAll(Project root) {
+        List<Project> projects = Lists.newArrayList();
+        collectHierarchy(root, projects);
+        projectModelBuildExecutor.buildAll(projects, new Transformer<DefaultEclipseProject, Project>() {
+            @Override
+            public DefaultEclipseProject transform(Project project) {
+                return populate(project);
+            }
+        });
+    }
+
+    private static void collectHierarchy(Project project, List<Project> projects) {
+        projects.add(project);
+        for (Project childProject : project.getChildProjects().values()) {
+            collectHierarchy(childProject, projects);
+        }
+    }
+
+    private DefaultEclipseProject populate(Project project) {
         EclipseModel eclipseModel = project.getExtensions().getByType(EclipseModel.class);
         EclipseClasspath eclipseClasspath = eclipseModel.getClasspath();
 
@@ -216,10 +237,7 @@ public class EclipseModelBuilder implements ToolingModelBuilder {
         populateEclipseProjectTasks(eclipseProject, tasksFactory.getTasks(project));
         populateEclipseProject(eclipseProject, xmlProject);
         populateEclipseProjectJdt(eclipseProject, eclipseModel.getJdt());
-
-        for (Project childProject : project.getChildProjects().values()) {
-            populate(childProject);
-        }
+        return eclipseProject;
     }
 
     private static void populateEclipseProjectTasks(DefaultEclipseProject eclipseProject, Iterable<Task> projectTasks) {
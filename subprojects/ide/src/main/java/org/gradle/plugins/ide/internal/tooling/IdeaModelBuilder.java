@@ -17,8 +17,10 @@
 package org.gradle.plugins.ide.internal.tooling;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.gradle.api.JavaVersion;
 import org.gradle.api.Project;
+import org.gradle.api.Transformer;
 import org.gradle.api.initialization.IncludedBuild;
 import org.gradle.api.plugins.JavaPluginConvention;
 import org.gradle.internal.build.IncludedBuildState;
@@ -52,15 +54,18 @@ import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class IdeaModelBuilder implements ToolingModelBuilder {
     private final GradleProjectBuilder gradleProjectBuilder;
+    private final ProjectModelBuildExecutor projectModelBuildExecutor;
 
     private boolean offlineDependencyResolution;
 
-    public IdeaModelBuilder(GradleProjectBuilder gradleProjectBuilder, ServiceRegistry services) {
+    public IdeaModelBuilder(GradleProjectBuilder gradleProjectBuilder, ServiceRegistry services, ProjectModelBuildExecutor projectModelBuildExecutor) {
         this.gradleProjectBuilder = gradleProjectBuilder;
+        this.projectModelBuildExecutor = projectModelBuildExecutor;
     }
 
     @Override
@@ -87,13 +92,13 @@ public class IdeaModelBuilder implements ToolingModelBuilder {
         }
     }
 
-    private DefaultIdeaProject build(Project project, DefaultGradleProject rootGradleProject) {
+    private DefaultIdeaProject build(Project project, final DefaultGradleProject rootGradleProject) {
         IdeaModel ideaModel = ideaPluginFor(project).getModel();
         IdeaProject projectModel = ideaModel.getProject();
         JavaVersion projectSourceLanguageLevel = convertIdeaLanguageLevelToJavaVersion(projectModel.getLanguageLevel());
         JavaVersion projectTargetBytecodeLevel = projectModel.getTargetBytecodeVersion();
 
-        DefaultIdeaProject out = new DefaultIdeaProject()
+        final DefaultIdeaProject out = new DefaultIdeaProject()
             .setName(projectModel.getName())
             .setJdkName(projectModel.getJdkName())
             .setLanguageLevel(new DefaultIdeaLanguageLevel(projectModel.getLanguageLevel().getLevel()))
@@ -102,10 +107,16 @@ public class IdeaModelBuilder implements ToolingModelBuilder {
                 .setTargetBytecodeVersion(projectTargetBytecodeLevel)
                 .setJdk(DefaultInstalledJdk.current()));
 
-        List<DefaultIdeaModule> ideaModules = Lists.newArrayList();
+        final Map<Project, IdeaModule> modulesByProject = Maps.newLinkedHashMap();
         for (IdeaModule module : projectModel.getModules()) {
-            ideaModules.add(createModule(module, out, rootGradleProject));
+            modulesByProject.put(module.getProject(), module);
         }
+        List<DefaultIdeaModule> ideaModules = projectModelBuildExecutor.buildAll(Lists.newArrayList(modulesByProject.keySet()), new Transformer<DefaultIdeaModule, Project>() {
+            @Override
+            public DefaultIdeaModule transform(Project project) {
+                return createModule(modulesByProject.get(project), out, rootGradleProject);
+            }
+        });
         out.setChildren(new LinkedList<DefaultIdeaModule>(ideaModules));
         return out;
     }
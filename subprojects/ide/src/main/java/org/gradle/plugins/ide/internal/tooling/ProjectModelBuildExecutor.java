@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.plugins.ide.internal.tooling;
+
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.Transformer;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.internal.project.ProjectStateRegistry;
+import org.gradle.internal.Factory;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the part of a tooling model that belongs to each of a set of projects.
+ *
+ * <p>When parallel model building is enabled, the parts are built concurrently, each while holding the lock of its project.
+ * The parts are returned in the order of the given projects regardless.</p>
+ */
+public class ProjectModelBuildExecutor {
+    public static final String PARALLEL_PROPERTY = "org.gradle.internal.tooling.parallel-model-building";
+
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final ProjectStateRegistry projectStateRegistry;
+    private final boolean parallel;
+
+    public ProjectModelBuildExecutor(BuildOperationExecutor buildOperationExecutor, ProjectStateRegistry projectStateRegistry, boolean parallel) {
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.projectStateRegistry = projectStateRegistry;
+        this.parallel = parallel;
+    }
+
+    public <T> List<T> buildAll(final List<? extends Project> projects, final Transformer<? extends T, ? super Project> builder) {
+        if (!parallel || projects.size() < 2) {
+            List<T> results = new ArrayList<T>(projects.size());
+            for (Project project : projects) {
+                results.add(builder.transform(project));
+            }
+            return results;
+        }
+
+        final Object[] results = new Object[projects.size()];
+        // Model builders run with state locking disabled, which would let the projects be built without their locks
+        projectStateRegistry.withStrictState(new Factory<Void>() {
+            @Override
+            public Void create() {
+                buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+                    @Override
+                    public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                        for (int i = 0; i < projects.size(); i++) {
+                            queue.add(new BuildProjectModel<T>(projects.get(i), builder, results, i));
+                        }
+                    }
+                });
+                return null;
+            }
+        });
+        @SuppressWarnings("unchecked")
+        List<T> resultList = (List<T>) Arrays.asList(results);
+        return resultList;
+    }
+
+    private static class BuildProjectModel<T> implements RunnableBuildOperation {
+        private final Project project;
+        private final Transformer<? extends T, ? super Project> builder;
+        private final Object[] results;
+        private final int index;
+
+        BuildProjectModel(Project project, Transformer<? extends T, ? super Project> builder, Object[] results, int index) {
+            this.project = project;
+            this.builder = builder;
+            this.results = results;
+            this.index = index;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            results[index] = ((ProjectInternal) project).getMutationState().withMutableState(new Factory<T>() {
+                @Override
+                public T create() {
+                    return builder.transform(project);
+                }
+            });
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Build tooling model for " + project.getDisplayName());
+        }
+    }
+}
@@ -16,9 +16,11 @@
 
 package org.gradle.plugins.ide.internal.tooling;
 
+import org.gradle.StartParameter;
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectPublicationRegistry;
 import org.gradle.api.internal.project.ProjectStateRegistry;
 import org.gradle.api.internal.project.ProjectTaskLister;
+import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.internal.service.scopes.AbstractPluginServiceRegistry;
@@ -42,14 +44,20 @@ public class ToolingModelServices extends AbstractPluginServiceRegistry {
         protected BuildScopeToolingModelBuilderRegistryAction createIdeBuildScopeToolingModelBuilderRegistryAction(
             final ProjectTaskLister taskLister,
             final ProjectPublicationRegistry projectPublicationRegistry,
-            final ServiceRegistry services) {
+            final ServiceRegistry services,
+            StartParameter startParameter,
+            BuildOperationExecutor buildOperationExecutor,
+            ProjectStateRegistry projectStateRegistry) {
+
+            boolean parallel = startParameter.isParallelProjectExecutionEnabled() && Boolean.getBoolean(ProjectModelBuildExecutor.PARALLEL_PROPERTY);
+            final ProjectModelBuildExecutor projectModelBuildExecutor = new ProjectModelBuildExecutor(buildOperationExecutor, projectStateRegistry, parallel);
 
             return new BuildScopeToolingModelBuilderRegistryAction() {
                 @Override
                 public void execute(ToolingModelBuilderRegistry registry) {
                     GradleProjectBuilder gradleProjectBuilder = new GradleProjectBuilder();
-                    IdeaModelBuilder ideaModelBuilder = new IdeaModelBuilder(gradleProjectBuilder, services);
-                    registry.register(new EclipseModelBuilder(gradleProjectBuilder, services));
+                    IdeaModelBuilder ideaModelBuilder = new IdeaModelBuilder(gradleProjectBuilder, services, projectModelBuildExecutor);
+                    registry.register(new EclipseModelBuilder(gradleProjectBuilder, services, projectModelBuildExecutor));
                     registry.register(ideaModelBuilder);
                     registry.register(gradleProjectBuilder);
                     registry.register(new GradleBuildBuilder());
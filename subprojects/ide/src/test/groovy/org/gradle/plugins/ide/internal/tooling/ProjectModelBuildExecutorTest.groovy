@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.plugins.ide.internal.tooling
+
+import org.gradle.api.Transformer
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.project.ProjectState
+import org.gradle.api.internal.project.ProjectStateRegistry
+import org.gradle.internal.Factory
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import spock.lang.Specification
+
+class ProjectModelBuildExecutorTest extends Specification {
+    private projectStateRegistry = Mock(ProjectStateRegistry)
+    private builder = Mock(Transformer)
+    private a = project("a")
+    private b = project("b")
+    private c = project("c")
+
+    def "builds models serially in the calling thread when parallel model building is disabled"() {
+        def executor = new ProjectModelBuildExecutor(new TestBuildOperationExecutor(), projectStateRegistry, false)
+
+        when:
+        def result = executor.buildAll([a, b, c], builder)
+
+        then:
+        result == ["model a", "model b", "model c"]
+
+        and:
+        1 * builder.transform(a) >> "model a"
+
+        then:
+        1 * builder.transform(b) >> "model b"
+
+        then:
+        1 * builder.transform(c) >> "model c"
+        0 * a.mutationState.withMutableState(_)
+        0 * projectStateRegistry._
+    }
+
+    def "builds the model of each project with state locking enabled and returns the models in project order"() {
+        def executor = new ProjectModelBuildExecutor(new TestBuildOperationExecutor(), projectStateRegistry, true)
+
+        when:
+        def result = executor.buildAll([a, b, c], builder)
+
+        then:
+        result == ["model a", "model b", "model c"]
+
+        and:
+        1 * projectStateRegistry.withStrictState(_) >> { Factory factory -> factory.create() }
+        1 * a.mutationState.withMutableState(_ as Factory) >> { Factory factory -> factory.create() }
+        1 * b.mutationState.withMutableState(_ as Factory) >> { Factory factory -> factory.create() }
+        1 * c.mutationState.withMutableState(_ as Factory) >> { Factory factory -> factory.create() }
+        1 * builder.transform(c) >> "model c"
+        1 * builder.transform(a) >> "model a"
+        1 * builder.transform(b) >> "model b"
+    }
+
+    def "builds a single model in the calling thread"() {
+        def executor = new ProjectModelBuildExecutor(new TestBuildOperationExecutor(), projectStateRegistry, true)
+
+        when:
+        def result = executor.buildAll([a], builder)
+
+        then:
+        result == ["model a"]
+
+        and:
+        1 * builder.transform(a) >> "model a"
+        0 * a.mutationState.withMutableState(_)
+        0 * projectStateRegistry._
+    }
+
+    private ProjectInternal project(String name) {
+        def state = Mock(ProjectState)
+        def project = Stub(ProjectInternal)
+        project.mutationState >> state
+        project.displayName >> "project '${name}'"
+        return project
+    }
+}
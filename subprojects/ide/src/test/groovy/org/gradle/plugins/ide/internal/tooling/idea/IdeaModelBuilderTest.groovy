@@ -20,13 +20,16 @@ import org.gradle.api.JavaVersion
 import org.gradle.api.Project
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.LocalComponentRegistry
 import org.gradle.api.internal.composite.CompositeBuildContext
+import org.gradle.api.internal.project.ProjectStateRegistry
 import org.gradle.api.plugins.GroovyPlugin
 import org.gradle.api.plugins.JavaPlugin
 import org.gradle.api.plugins.scala.ScalaPlugin
 import org.gradle.internal.jvm.Jvm
+import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.internal.service.DefaultServiceRegistry
 import org.gradle.plugins.ide.idea.IdeaPlugin
 import org.gradle.plugins.ide.internal.tooling.GradleProjectBuilder
+import org.gradle.plugins.ide.internal.tooling.ProjectModelBuildExecutor
 import org.gradle.plugins.ide.internal.tooling.IdeaModelBuilder
 import org.gradle.test.fixtures.AbstractProjectBuilderSpec
 import org.gradle.testfixtures.ProjectBuilder
@@ -298,7 +301,7 @@ class IdeaModelBuilderTest extends AbstractProjectBuilderSpec {
         def serviceRegistry = new DefaultServiceRegistry()
         serviceRegistry.add(LocalComponentRegistry, Stub(LocalComponentRegistry))
         serviceRegistry.add(CompositeBuildContext, Stub(CompositeBuildContext))
-        new IdeaModelBuilder(gradleProjectBuilder, serviceRegistry)
+        new IdeaModelBuilder(gradleProjectBuilder, serviceRegistry, new ProjectModelBuildExecutor(new TestBuildOperationExecutor(), Stub(ProjectStateRegistry), false))
     }
 
     private DefaultIdeaProject buildIdeaProject(modelBuilder, project) {
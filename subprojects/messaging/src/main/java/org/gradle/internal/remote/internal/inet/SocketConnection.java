@@ -155,7 +155,7 @@ public class SocketConnection<T> implements RemoteConnection<T> {
             this.socket = socket;
             selector = Selector.open();
             socket.register(selector, SelectionKey.OP_READ);
-            buffer = ByteBuffer.allocateDirect(4096);
+            buffer = ByteBuffer.allocateDirect(64 * 1024);
             BufferCaster.cast(buffer).limit(0);
         }
 
@@ -216,14 +216,17 @@ public class SocketConnection<T> implements RemoteConnection<T> {
 
     private static class SocketOutputStream extends OutputStream {
         private static final int RETRIES_WHEN_BUFFER_FULL = 2;
+        private static final int MAX_GATHERING_WRITE_SLICE = 256 * 1024;
         private Selector selector;
         private final SocketChannel socket;
         private final ByteBuffer buffer;
+        private final ByteBuffer[] singleBuffer;
         private final byte[] writeBuffer = new byte[1];
 
         public SocketOutputStream(SocketChannel socket) throws IOException {
             this.socket = socket;
             buffer = ByteBuffer.allocateDirect(32 * 1024);
+            singleBuffer = new ByteBuffer[]{buffer};
         }
 
         @Override
@@ -234,6 +237,10 @@ public class SocketConnection<T> implements RemoteConnection<T> {
 
         @Override
         public void write(byte[] src, int offset, int max) throws IOException {
+            if (max >= buffer.capacity()) {
+                writeWithoutCopying(src, offset, max);
+                return;
+            }
             int remaining = max;
             int currentPos = offset;
             while (remaining > 0) {
@@ -249,6 +256,26 @@ public class SocketConnection<T> implements RemoteConnection<T> {
             }
         }
 
+        /**
+         * Writes the buffered bytes followed by the given bytes using gathering writes, instead of copying the bytes into the buffer first.
+         * The bytes are written in slices, as the channel copies each slice to a temporary direct buffer.
+         */
+        private void writeWithoutCopying(byte[] src, int offset, int max) throws IOException {
+            BufferCaster.cast(buffer).flip();
+            ByteBuffer[] buffers = new ByteBuffer[2];
+            buffers[0] = buffer;
+            int end = offset + max;
+            for (int pos = offset; pos < end; pos += MAX_GATHERING_WRITE_SLICE) {
+                buffers[1] = ByteBuffer.wrap(src, pos, Math.min(MAX_GATHERING_WRITE_SLICE, end - pos));
+                while (buffers[1].remaining() > 0) {
+                    if (writeWithNonBlockingRetry(buffers) == 0) {
+                        waitForWriteBufferToDrain();
+                    }
+                }
+            }
+            BufferCaster.cast(buffer).clear();
+        }
+
         @Override
         public void flush() throws IOException {
             while (buffer.position() > 0) {
@@ -258,7 +285,7 @@ public class SocketConnection<T> implements RemoteConnection<T> {
 
         private void writeBufferToChannel() throws IOException {
             BufferCaster.cast(buffer).flip();
-            int count = writeWithNonBlockingRetry();
+            long count = writeWithNonBlockingRetry(singleBuffer);
             if (count == 0) {
                 // buffer was still full after non-blocking retries, now block
                 waitForWriteBufferToDrain();
@@ -266,11 +293,11 @@ public class SocketConnection<T> implements RemoteConnection<T> {
             buffer.compact();
         }
 
-        private int writeWithNonBlockingRetry() throws IOException {
-            int count = 0;
+        private long writeWithNonBlockingRetry(ByteBuffer[] buffers) throws IOException {
+            long count = 0;
             int retryCount = 0;
             while (count == 0 && retryCount++ < RETRIES_WHEN_BUFFER_FULL) {
-                count = socket.write(buffer);
+                count = socket.write(buffers);
                 if (count < 0) {
                     throw new EOFException();
                 } else if (count == 0) {
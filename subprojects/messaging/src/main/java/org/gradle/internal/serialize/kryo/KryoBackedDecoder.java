@@ -34,6 +34,7 @@ public class KryoBackedDecoder extends AbstractDecoder implements Decoder, Close
     private final Input input;
     private final InputStream inputStream;
     private long extraSkipped;
+    private long extraRead;
 
     public KryoBackedDecoder(InputStream inputStream) {
         this(inputStream, 4096);
@@ -84,6 +85,10 @@ public class KryoBackedDecoder extends AbstractDecoder implements Decoder, Close
     }
 
     public void readBytes(byte[] buffer, int offset, int count) throws EOFException {
+        if (count > input.getBuffer().length) {
+            readLargeBytes(buffer, offset, count);
+            return;
+        }
         try {
             input.readBytes(buffer, offset, count);
         } catch (KryoException e) {
@@ -91,6 +96,29 @@ public class KryoBackedDecoder extends AbstractDecoder implements Decoder, Close
         }
     }
 
+    private void readLargeBytes(byte[] buffer, int offset, int count) throws EOFException {
+        // Read large arrays straight from the stream once the buffered bytes have been consumed, rather than copying them through the buffer
+        int buffered = input.limit() - input.position();
+        if (buffered > 0) {
+            input.readBytes(buffer, offset, buffered);
+        }
+        int pos = offset + buffered;
+        int end = offset + count;
+        while (pos < end) {
+            int nread;
+            try {
+                nread = inputStream.read(buffer, pos, end - pos);
+            } catch (IOException e) {
+                throw new KryoException(e);
+            }
+            if (nread < 0) {
+                throw new EOFException();
+            }
+            pos += nread;
+            extraRead += nread;
+        }
+    }
+
     public long readLong() throws EOFException {
         try {
             return input.readLong();
@@ -147,7 +175,7 @@ public class KryoBackedDecoder extends AbstractDecoder implements Decoder, Close
      * Returns the total number of bytes consumed by this decoder. Some additional bytes may also be buffered by this decoder but have not been consumed.
      */
     public long getReadPosition() {
-        return input.total() + extraSkipped;
+        return input.total() + extraSkipped + extraRead;
     }
 
     public void close() throws IOException {
@@ -16,22 +16,27 @@
 
 package org.gradle.internal.serialize.kryo;
 
+import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.io.Output;
 import org.gradle.internal.serialize.AbstractEncoder;
 import org.gradle.internal.serialize.FlushableEncoder;
 
 import javax.annotation.Nullable;
 import java.io.Closeable;
+import java.io.IOException;
 import java.io.OutputStream;
 
 public class KryoBackedEncoder extends AbstractEncoder implements FlushableEncoder, Closeable {
     private final Output output;
+    private final OutputStream outputStream;
+    private long extraWritten;
 
     public KryoBackedEncoder(OutputStream outputStream) {
         this(outputStream, 4096);
     }
 
     public KryoBackedEncoder(OutputStream outputStream, int bufferSize) {
+        this.outputStream = outputStream;
         output = new Output(outputStream, bufferSize);
     }
 
@@ -40,7 +45,18 @@ public class KryoBackedEncoder extends AbstractEncoder implements FlushableEncod
     }
 
     public void writeBytes(byte[] bytes, int offset, int count) {
-        output.writeBytes(bytes, offset, count);
+        if (count <= output.getBuffer().length) {
+            output.writeBytes(bytes, offset, count);
+            return;
+        }
+        // Write large arrays straight to the stream, rather than copying them through the buffer one buffer at a time
+        output.flush();
+        try {
+            outputStream.write(bytes, offset, count);
+        } catch (IOException e) {
+            throw new KryoException(e);
+        }
+        extraWritten += count;
     }
 
     public void writeLong(long value) {
@@ -78,7 +94,7 @@ public class KryoBackedEncoder extends AbstractEncoder implements FlushableEncod
      * Returns the total number of bytes written by this encoder, some of which may still be buffered.
      */
     public long getWritePosition() {
-        return output.total();
+        return output.total() + extraWritten;
     }
 
     public void flush() {
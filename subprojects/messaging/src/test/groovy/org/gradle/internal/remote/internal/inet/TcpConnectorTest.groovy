@@ -223,6 +223,44 @@ class TcpConnectorTest extends ConcurrentSpec {
         acceptor?.stop()
     }
 
+    @Unroll
+    def "can send and receive message of #size bytes"() {
+        def byteArraySerializer = Serializers.stateful(BaseSerializerFactory.BYTE_ARRAY_SERIALIZER)
+        def payload = new byte[size]
+        for (int i = 0; i < size; i++) {
+            payload[i] = (byte) (i * 31)
+        }
+
+        given:
+        def action = { ConnectCompletion completion ->
+            def connection = completion.create(byteArraySerializer)
+            def message
+            while ((message = connection.receive()) != null) {
+                connection.dispatch(message)
+                connection.flush()
+            }
+            connection.stop()
+        } as Action
+
+        when:
+        def acceptor = incomingConnector.accept(action, false)
+        def connection = outgoingConnector.connect(acceptor.address).create(byteArraySerializer)
+        connection.dispatch([1, 2, 3] as byte[])
+        connection.dispatch(payload)
+        connection.flush()
+
+        then:
+        connection.receive() == [1, 2, 3] as byte[]
+        connection.receive() == payload
+
+        cleanup:
+        connection?.stop()
+        acceptor?.stop()
+
+        where:
+        size << [256 * 1024 - 1, 256 * 1024, 256 * 1024 + 1, 1024 * 1024 + 17]
+    }
+
     def "returns null on failure to receive due to truncated input"() {
         given:
         def incomingSerializer = { Encoder encoder, String value ->
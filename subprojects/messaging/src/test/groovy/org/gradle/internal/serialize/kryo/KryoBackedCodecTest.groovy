@@ -62,7 +62,7 @@ class KryoBackedCodecTest extends AbstractCodecTest {
 
         then:
         encoder.writePosition == 4108
-        outstr.size() == 4106
+        outstr.size() == 4108
 
         when:
         encoder.close()
@@ -95,4 +95,55 @@ class KryoBackedCodecTest extends AbstractCodecTest {
         instr.available() == 0
         decoder.readPosition == 4108
     }
+
+    def "writes and reads byte arrays larger than the buffer directly"() {
+        def outstr = new ByteArrayOutputStream()
+        def encoder = new KryoBackedEncoder(outstr, 16)
+        def large = (0..<100).collect { it as byte } as byte[]
+
+        when:
+        encoder.writeInt(12)
+        encoder.writeBytes(large)
+        encoder.writeInt(34)
+
+        then:
+        encoder.writePosition == 108
+        outstr.size() == 104
+
+        when:
+        encoder.flush()
+        def instr = new ByteArrayInputStream(outstr.toByteArray())
+        def decoder = new KryoBackedDecoder(instr, 16)
+        def result = new byte[100]
+
+        then:
+        decoder.readInt() == 12
+        decoder.readPosition == 4
+
+        when:
+        decoder.readBytes(result)
+
+        then:
+        result == large
+        decoder.readPosition == 104
+        instr.available() == 4
+
+        and:
+        decoder.readInt() == 34
+        decoder.readPosition == 108
+    }
+
+    def "decode fails when byte array larger than the buffer cannot be fully read"() {
+        def outstr = new ByteArrayOutputStream()
+        def encoder = new KryoBackedEncoder(outstr, 16)
+        encoder.writeBytes(new byte[40])
+        encoder.flush()
+        def decoder = new KryoBackedDecoder(new ByteArrayInputStream(outstr.toByteArray()), 16)
+
+        when:
+        decoder.readBytes(new byte[50])
+
+        then:
+        thrown(EOFException)
+    }
 }
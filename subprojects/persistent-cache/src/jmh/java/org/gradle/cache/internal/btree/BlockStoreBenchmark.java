@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Compares {@link FileBackedBlockStore} with {@link MappedBlockStore} as the backing store of a {@link BTreePersistentIndexedCache}.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class BlockStoreBenchmark {
+    private static final int BULK_INSERT_SIZE = 1000;
+
+    @Param({"file", "mapped"})
+    String store;
+
+    @Param({"100000"})
+    int entryCount;
+
+    private File tempDir;
+    private BTreePersistentIndexedCache<Long, String> cache;
+    private Random random;
+    private long nextKey;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory("block-store").toFile();
+        File cacheFile = new File(tempDir, "cache.bin");
+        BlockStore backingStore = store.equals("mapped") ? new MappedBlockStore(cacheFile) : new FileBackedBlockStore(cacheFile);
+        cache = new BTreePersistentIndexedCache<Long, String>(cacheFile, BaseSerializerFactory.LONG_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER, (short) 512, 512, backingStore);
+        for (long key = 0; key < entryCount; key++) {
+            cache.put(key, valueFor(key));
+        }
+        nextKey = entryCount;
+        random = new Random(1234L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        cache.close();
+        FileUtils.forceDelete(tempDir);
+    }
+
+    @Benchmark
+    public void randomLookup(Blackhole blackhole) {
+        blackhole.consume(cache.get((long) random.nextInt(entryCount)));
+    }
+
+    @Benchmark
+    public void bulkInsert() {
+        for (int i = 0; i < BULK_INSERT_SIZE; i++) {
+            long key = nextKey++;
+            cache.put(key, valueFor(key));
+        }
+    }
+
+    private static String valueFor(long key) {
+        return "value-" + key + "-0123456789abcdef0123456789abcdef";
+    }
+}
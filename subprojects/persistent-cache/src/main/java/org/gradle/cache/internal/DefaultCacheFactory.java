@@ -26,6 +26,7 @@ import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.internal.Factory;
 import org.gradle.internal.FileUtils;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
@@ -39,11 +40,13 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class DefaultCacheFactory implements CacheFactory, Closeable {
     private final Map<File, DirCacheReference> dirCaches = new HashMap<File, DirCacheReference>();
+    private final Map<File, CacheOpening> openingCaches = new HashMap<File, CacheOpening>();
     private final FileLockManager lockManager;
     private final ExecutorFactory executorFactory;
     private final ProgressLoggerFactory progressLoggerFactory;
@@ -63,11 +66,51 @@ public class DefaultCacheFactory implements CacheFactory, Closeable {
 
     @Override
     public PersistentCache open(File cacheDir, String displayName, Map<String, ?> properties, CacheBuilder.LockTarget lockTarget, LockOptions lockOptions, Action<? super PersistentCache> initializer, CleanupAction cleanup) throws CacheOpenException {
-        lock.lock();
+        File canonicalDir = FileUtils.canonicalize(cacheDir);
+        CacheOpening opening;
+        while (true) {
+            CacheOpening pending;
+            lock.lock();
+            try {
+                DirCacheReference dirCacheReference = dirCaches.get(canonicalDir);
+                if (dirCacheReference != null) {
+                    return reuse(dirCacheReference, cacheDir, properties, lockTarget, lockOptions);
+                }
+                pending = openingCaches.get(canonicalDir);
+                if (pending == null) {
+                    opening = new CacheOpening();
+                    openingCaches.put(canonicalDir, opening);
+                    break;
+                }
+                if (pending.owner == Thread.currentThread()) {
+                    throw new IllegalStateException(String.format("Cache '%s' is already being opened by this thread.", cacheDir));
+                }
+            } finally {
+                lock.unlock();
+            }
+            // Another thread is opening this cache, wait for it to finish and try again
+            pending.await();
+        }
+
+        // Open the cache, which may run a long initializer, without blocking caches in other directories from being opened
         try {
-            return doOpen(cacheDir, displayName, properties, lockTarget, lockOptions, initializer, cleanup);
+            ReferencablePersistentCache cache = doOpen(canonicalDir, displayName, properties, lockTarget, lockOptions, initializer, cleanup);
+            lock.lock();
+            try {
+                DirCacheReference dirCacheReference = new DirCacheReference(cache, properties, lockTarget, lockOptions);
+                dirCaches.put(canonicalDir, dirCacheReference);
+                return new ReferenceTrackingCache(dirCacheReference);
+            } finally {
+                lock.unlock();
+            }
         } finally {
-            lock.unlock();
+            lock.lock();
+            try {
+                openingCaches.remove(canonicalDir);
+            } finally {
+                lock.unlock();
+            }
+            opening.finished();
         }
     }
 
@@ -81,33 +124,47 @@ public class DefaultCacheFactory implements CacheFactory, Closeable {
         }
     }
 
-    private PersistentCache doOpen(File cacheDir, String displayName, Map<String, ?> properties, CacheBuilder.LockTarget lockTarget, LockOptions lockOptions, @Nullable Action<? super PersistentCache> initializer, @Nullable CleanupAction cleanup) {
-        File canonicalDir = FileUtils.canonicalize(cacheDir);
-        DirCacheReference dirCacheReference = dirCaches.get(canonicalDir);
-        if (dirCacheReference == null) {
-            ReferencablePersistentCache cache;
-            if (!properties.isEmpty() || initializer != null) {
-                cache = new DefaultPersistentDirectoryCache(canonicalDir, displayName, properties, lockTarget, lockOptions, initializer, cleanup, lockManager, executorFactory, progressLoggerFactory);
-            } else {
-                cache = new DefaultPersistentDirectoryStore(canonicalDir, displayName, lockTarget, lockOptions, cleanup, lockManager, executorFactory, progressLoggerFactory);
-            }
-            cache.open();
-            dirCacheReference = new DirCacheReference(cache, properties, lockTarget, lockOptions);
-            dirCaches.put(canonicalDir, dirCacheReference);
+    private ReferencablePersistentCache doOpen(File canonicalDir, String displayName, Map<String, ?> properties, CacheBuilder.LockTarget lockTarget, LockOptions lockOptions, @Nullable Action<? super PersistentCache> initializer, @Nullable CleanupAction cleanup) {
+        ReferencablePersistentCache cache;
+        if (!properties.isEmpty() || initializer != null) {
+            cache = new DefaultPersistentDirectoryCache(canonicalDir, displayName, properties, lockTarget, lockOptions, initializer, cleanup, lockManager, executorFactory, progressLoggerFactory);
         } else {
-            if (!lockOptions.equals(dirCacheReference.lockOptions)) {
-                throw new IllegalStateException(String.format("Cache '%s' is already open with different lock options.", cacheDir));
-            }
-            if (lockTarget != dirCacheReference.lockTarget) {
-                throw new IllegalStateException(String.format("Cache '%s' is already open with different lock target.", cacheDir));
-            }
-            if (!properties.equals(dirCacheReference.properties)) {
-                throw new IllegalStateException(String.format("Cache '%s' is already open with different properties.", cacheDir));
-            }
+            cache = new DefaultPersistentDirectoryStore(canonicalDir, displayName, lockTarget, lockOptions, cleanup, lockManager, executorFactory, progressLoggerFactory);
+        }
+        cache.open();
+        return cache;
+    }
+
+    private PersistentCache reuse(DirCacheReference dirCacheReference, File cacheDir, Map<String, ?> properties, CacheBuilder.LockTarget lockTarget, LockOptions lockOptions) {
+        if (!lockOptions.equals(dirCacheReference.lockOptions)) {
+            throw new IllegalStateException(String.format("Cache '%s' is already open with different lock options.", cacheDir));
+        }
+        if (lockTarget != dirCacheReference.lockTarget) {
+            throw new IllegalStateException(String.format("Cache '%s' is already open with different lock target.", cacheDir));
+        }
+        if (!properties.equals(dirCacheReference.properties)) {
+            throw new IllegalStateException(String.format("Cache '%s' is already open with different properties.", cacheDir));
         }
         return new ReferenceTrackingCache(dirCacheReference);
     }
 
+    private static class CacheOpening {
+        private final Thread owner = Thread.currentThread();
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        void finished() {
+            finished.countDown();
+        }
+
+        void await() {
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+    }
+
     private class DirCacheReference implements Closeable {
         private final Map<String, ?> properties;
         private final CacheBuilder.LockTarget lockTarget;
@@ -0,0 +1,496 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.gradle.api.UncheckedIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link BlockStore} which uses the same file format as {@link FileBackedBlockStore}, but accesses the file through memory-mapped regions
+ * rather than seeking a {@link RandomAccessFile}.
+ *
+ * <p>Blocks are guarded by read-write locks striped by the position of the block, so that blocks can be read from several threads at once.
+ * Growing the mapping, clearing and closing the store exclude all readers and writers. Note that {@link BTreePersistentIndexedCache} still accesses
+ * its store from one thread at a time.</p>
+ *
+ * <p>The file is grown a whole region at a time. When the store is closed, the regions are unmapped and the file is truncated back to the end
+ * of the last block. When the file cannot be truncated, the end of the last block is recorded in a trailer at the end of the padding, so that
+ * the padding is reused when the store is opened again.</p>
+ */
+public class MappedBlockStore implements BlockStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedBlockStore.class);
+    private static final int DEFAULT_REGION_SIZE = 1 << 20;
+    static final long TRAILER_MAGIC = 0x4d42534c656e6774L;
+    private static final int TRAILER_SIZE = 16; // magic, end of the last block
+    private static final int STRIPES = 64;
+
+    private final File cacheFile;
+    private final int regionSize;
+    private final ReadWriteLock mappingLock = new ReentrantReadWriteLock();
+    private final ReadWriteLock[] blockLocks = new ReadWriteLock[STRIPES];
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+    private volatile long currentFileSize;
+    private long nextBlock;
+    private Factory factory;
+
+    public MappedBlockStore(File cacheFile) {
+        this(cacheFile, DEFAULT_REGION_SIZE);
+    }
+
+    MappedBlockStore(File cacheFile, int regionSize) {
+        this.cacheFile = cacheFile;
+        this.regionSize = regionSize;
+        for (int i = 0; i < STRIPES; i++) {
+            blockLocks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "cache '" + cacheFile + "'";
+    }
+
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        try {
+            cacheFile.getParentFile().mkdirs();
+            file = new RandomAccessFile(cacheFile, "rw");
+            channel = file.getChannel();
+            currentFileSize = readTrailer();
+            nextBlock = currentFileSize;
+            regions = new MappedByteBuffer[0];
+            if (currentFileSize == 0) {
+                runnable.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the end of the last block, as recorded in the trailer of a file which could not be truncated, or the length of the file.
+     * The trailer is removed, so that it is not trusted again once blocks are written to the padding.
+     */
+    private long readTrailer() throws IOException {
+        long length = file.length();
+        if (length < TRAILER_SIZE) {
+            return length;
+        }
+        file.seek(length - TRAILER_SIZE);
+        long magic = file.readLong();
+        long end = file.readLong();
+        if (magic != TRAILER_MAGIC || end < 0 || end > length - TRAILER_SIZE) {
+            return length;
+        }
+        file.seek(length - TRAILER_SIZE);
+        file.write(new byte[TRAILER_SIZE]);
+        return end;
+    }
+
+    public void close() {
+        mappingLock.writeLock().lock();
+        try {
+            unmapRegions();
+            try {
+                // Drop the padding of the last region
+                file.setLength(currentFileSize);
+            } catch (IOException e) {
+                // Some platforms do not allow truncating a file which is still mapped, so record where the padding starts instead
+                if (file.length() - currentFileSize >= TRAILER_SIZE) {
+                    file.seek(file.length() - TRAILER_SIZE);
+                    file.writeLong(TRAILER_MAGIC);
+                    file.writeLong(currentFileSize);
+                }
+            }
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            mappingLock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        // Keep the mapped regions, as truncating a mapped file is not supported on all platforms. The discarded blocks are beyond the
+        // current file size, so they are never read, and the file is truncated when the store is closed.
+        mappingLock.writeLock().lock();
+        try {
+            synchronized (this) {
+                currentFileSize = 0;
+                nextBlock = 0;
+            }
+        } finally {
+            mappingLock.writeLock().unlock();
+        }
+    }
+
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    public void flush() {
+    }
+
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(BlockPointer.pos(0), payloadType);
+    }
+
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the length of the file without the padding of the last region, which is the length of the file once the store is closed.
+     */
+    long getUsedLength() {
+        return currentFileSize;
+    }
+
+    private synchronized long alloc(long length) {
+        long pos = nextBlock;
+        nextBlock += length;
+        return pos;
+    }
+
+    private Lock blockLock(long pos, boolean write) {
+        ReadWriteLock lock = blockLocks[(int) ((pos ^ (pos >>> 17)) & (STRIPES - 1))];
+        return write ? lock.writeLock() : lock.readLock();
+    }
+
+    /**
+     * Makes sure that the given range of the file is mapped, growing the file if required. Must not be called while holding the mapping lock.
+     */
+    private void ensureMapped(long end) throws IOException {
+        int requiredRegions = (int) ((end + regionSize - 1) / regionSize);
+        if (regions.length >= requiredRegions) {
+            return;
+        }
+        mappingLock.writeLock().lock();
+        try {
+            MappedByteBuffer[] current = regions;
+            if (current.length >= requiredRegions) {
+                return;
+            }
+            MappedByteBuffer[] grown = Arrays.copyOf(current, requiredRegions);
+            for (int i = current.length; i < requiredRegions; i++) {
+                // Mapping beyond the end of the file grows the file
+                grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * regionSize, regionSize);
+            }
+            regions = grown;
+        } finally {
+            mappingLock.writeLock().unlock();
+        }
+    }
+
+    private void unmapRegions() {
+        MappedByteBuffer[] mapped = regions;
+        regions = new MappedByteBuffer[0];
+        for (MappedByteBuffer region : mapped) {
+            unmap(region);
+        }
+    }
+
+    /**
+     * Releases the mapping of the given buffer immediately, rather than when the buffer is garbage collected. The buffer must not be used afterwards.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            try {
+                // Java 9 and later
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException e) {
+                // Java 8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (Exception e) {
+            // The mapping is released when the buffer is garbage collected
+            LOGGER.debug("Could not unmap memory-mapped region.", e);
+        }
+    }
+
+    private ByteBuffer regionAt(long pos) {
+        ByteBuffer region = regions[(int) (pos / regionSize)].duplicate();
+        region.position((int) (pos % regionSize));
+        return region;
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 1 + INT_SIZE; // type, payload size
+        private static final int TAIL_SIZE = INT_SIZE;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = BlockPointer.pos(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+            ensureMapped(finalSize);
+
+            Lock lock = blockLock(pos, true);
+            mappingLock.readLock().lock();
+            lock.lock();
+            try {
+                RegionOutputStream output = new RegionOutputStream(pos);
+                DataOutputStream outputStream = new DataOutputStream(output);
+
+                BlockPayload payload = getPayload();
+
+                // Write header
+                outputStream.writeByte(payload.getType());
+                outputStream.writeInt(payloadSize);
+
+                // Write body
+                payload.write(outputStream);
+
+                // Write count
+                long bytesWritten = output.pos - pos;
+                if (bytesWritten > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Block payload exceeds maximum size");
+                }
+                outputStream.writeInt((int) bytesWritten);
+                outputStream.flush();
+            } finally {
+                lock.unlock();
+                mappingLock.readLock().unlock();
+            }
+
+            synchronized (MappedBlockStore.this) {
+                if (currentFileSize < finalSize) {
+                    currentFileSize = finalSize;
+                }
+            }
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            long fileSize = currentFileSize;
+            if (pos + HEADER_SIZE >= fileSize) {
+                throw blockCorruptedException();
+            }
+            ensureMapped(fileSize);
+
+            Lock lock = blockLock(pos, false);
+            mappingLock.readLock().lock();
+            lock.lock();
+            try {
+                RegionInputStream input = new RegionInputStream(pos, fileSize);
+                DataInputStream inputStream = new DataInputStream(input);
+
+                BlockPayload payload = getPayload();
+
+                // Read header
+                byte type = inputStream.readByte();
+                if (type != payload.getType()) {
+                    throw blockCorruptedException();
+                }
+
+                // Read body
+                payloadSize = inputStream.readInt();
+                if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > fileSize) {
+                    throw blockCorruptedException();
+                }
+                payload.read(inputStream);
+
+                // Read and verify count
+                long actualCount = input.pos - pos;
+                long count = inputStream.readInt();
+                if (actualCount != count) {
+                    throw blockCorruptedException();
+                }
+            } finally {
+                lock.unlock();
+                mappingLock.readLock().unlock();
+            }
+        }
+
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MappedBlockStore.this));
+        }
+    }
+
+    private class RegionInputStream extends InputStream {
+        private final long end;
+        private long pos;
+
+        RegionInputStream(long pos, long end) {
+            this.pos = pos;
+            this.end = end;
+        }
+
+        @Override
+        public int read() {
+            if (pos >= end) {
+                return -1;
+            }
+            int value = regions[(int) (pos / regionSize)].get((int) (pos % regionSize)) & 0xff;
+            pos++;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos >= end) {
+                return -1;
+            }
+            ByteBuffer region = regionAt(pos);
+            int count = (int) Math.min(Math.min(len, region.remaining()), end - pos);
+            region.get(bytes, off, count);
+            pos += count;
+            return count;
+        }
+    }
+
+    private class RegionOutputStream extends OutputStream {
+        private long pos;
+
+        RegionOutputStream(long pos) {
+            this.pos = pos;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureCapacity(pos + 1);
+            regions[(int) (pos / regionSize)].put((int) (pos % regionSize), (byte) b);
+            pos++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            ensureCapacity(pos + len);
+            while (len > 0) {
+                ByteBuffer region = regionAt(pos);
+                int count = Math.min(len, region.remaining());
+                region.put(bytes, off, count);
+                pos += count;
+                off += count;
+                len -= count;
+            }
+        }
+
+        private void ensureCapacity(long end) {
+            if (end > (long) regions.length * regionSize) {
+                throw new IllegalArgumentException("Block payload exceeds allocated size");
+            }
+        }
+    }
+}
@@ -24,6 +24,9 @@ import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
 import static org.gradle.cache.FileLockManager.LockMode.Exclusive
 import static org.gradle.cache.FileLockManager.LockMode.Shared
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode
@@ -206,4 +209,58 @@ class DefaultCacheFactoryTest extends Specification {
         cleanup:
         factory.close()
     }
+
+    void "initializes caches in different directories concurrently"() {
+        def initializing = new CountDownLatch(1)
+        def otherOpened = new CountDownLatch(1)
+        def initializedConcurrently = false
+        def initializer = { cache ->
+            initializing.countDown()
+            initializedConcurrently = otherOpened.await(20, TimeUnit.SECONDS)
+        } as Action
+
+        when:
+        def thread = Thread.start {
+            factory.open(tmpDir.file("first"), null, [prop: 'value'], CacheBuilder.LockTarget.DefaultTarget, mode(Exclusive), initializer, null)
+        }
+        initializing.await(20, TimeUnit.SECONDS)
+        factory.open(tmpDir.file("second"), null, [prop: 'value'], CacheBuilder.LockTarget.DefaultTarget, mode(Exclusive), null, null)
+        otherOpened.countDown()
+        thread.join()
+
+        then:
+        initializedConcurrently
+
+        cleanup:
+        factory.close()
+    }
+
+    void "waits for cache being opened by another thread and reuses it"() {
+        def initializing = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def initializer = Mock(Action)
+        def first
+
+        when:
+        def thread = Thread.start {
+            first = factory.open(tmpDir.testDirectory, null, [prop: 'value'], CacheBuilder.LockTarget.DefaultTarget, mode(Exclusive), initializer, null)
+        }
+        initializing.await(20, TimeUnit.SECONDS)
+        Thread.start {
+            Thread.sleep(100)
+            release.countDown()
+        }
+        def second = factory.open(tmpDir.testDirectory, null, [prop: 'value'], CacheBuilder.LockTarget.DefaultTarget, mode(Exclusive), initializer, null)
+        thread.join()
+
+        then:
+        1 * initializer.execute(_) >> {
+            initializing.countDown()
+            release.await(20, TimeUnit.SECONDS)
+        }
+        second.reference.cache.is(first.reference.cache)
+
+        cleanup:
+        factory.close()
+    }
 }
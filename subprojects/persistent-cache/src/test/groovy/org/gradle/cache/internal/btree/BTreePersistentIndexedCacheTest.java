@@ -42,10 +42,10 @@ import static org.junit.Assert.assertThat;
 public class BTreePersistentIndexedCacheTest {
     @Rule
     public TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider();
-    private final Serializer<String> stringSerializer = new DefaultSerializer<String>();
-    private final Serializer<Integer> integerSerializer = new DefaultSerializer<Integer>();
+    protected final Serializer<String> stringSerializer = new DefaultSerializer<String>();
+    protected final Serializer<Integer> integerSerializer = new DefaultSerializer<Integer>();
     private BTreePersistentIndexedCache<String, Integer> cache;
-    private TestFile cacheFile;
+    protected TestFile cacheFile;
 
     @Before
     public void setup() {
@@ -53,7 +53,22 @@ public class BTreePersistentIndexedCacheTest {
     }
 
     private void createCache() {
-        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100);
+        cache = createCache(cacheFile, stringSerializer, integerSerializer, (short) 4, 100);
+    }
+
+    protected <K, V> BTreePersistentIndexedCache<K, V> createCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, short maxChildIndexEntries, int maxFreeListEntries) {
+        return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer, maxChildIndexEntries, maxFreeListEntries, createBackingStore(cacheFile));
+    }
+
+    protected BlockStore createBackingStore(File cacheFile) {
+        return new FileBackedBlockStore(cacheFile);
+    }
+
+    /**
+     * Returns the number of bytes of the cache file used by blocks.
+     */
+    protected long usedLength() {
+        return cacheFile.length();
     }
 
     private void verifyAndCloseCache() {
@@ -98,7 +113,7 @@ public class BTreePersistentIndexedCacheTest {
 
     @Test
     public void handlesUpdatesWhenBlockSizeDecreases() {
-        BTreePersistentIndexedCache<String, List<Integer>> cache = new BTreePersistentIndexedCache<String, List<Integer>>(tmpDir.file("listcache.bin"), stringSerializer, new DefaultSerializer<List<Integer>>(), (short) 4, 100);
+        BTreePersistentIndexedCache<String, List<Integer>> cache = createCache(tmpDir.file("listcache.bin"), stringSerializer, new DefaultSerializer<List<Integer>>(), (short) 4, 100);
 
         List<Integer> values = Arrays.asList(3, 2, 11, 5, 7, 1, 10, 8, 9, 4, 6, 0);
         Map<Integer, List<Integer>> updated = new LinkedHashMap<Integer, List<Integer>>();
@@ -134,7 +149,7 @@ public class BTreePersistentIndexedCacheTest {
 
     @Test
     public void handlesUpdatesWhenBlockSizeIncreases() {
-        BTreePersistentIndexedCache<String, List<Integer>> cache = new BTreePersistentIndexedCache<String, List<Integer>>(tmpDir.file("listcache.bin"), stringSerializer, new DefaultSerializer<List<Integer>>(), (short) 4, 100);
+        BTreePersistentIndexedCache<String, List<Integer>> cache = createCache(tmpDir.file("listcache.bin"), stringSerializer, new DefaultSerializer<List<Integer>>(), (short) 4, 100);
 
         List<Integer> values = Arrays.asList(3, 2, 11, 5, 7, 1, 10, 8, 9, 4, 6, 0);
         Map<Integer, List<Integer>> updated = new LinkedHashMap<Integer, List<Integer>>();
@@ -205,7 +220,7 @@ public class BTreePersistentIndexedCacheTest {
 
     @Test
     public void reusesEmptySpaceWhenPuttingEntries() {
-        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(cacheFile, stringSerializer, stringSerializer, (short) 4, 100);
+        BTreePersistentIndexedCache<String, String> cache = createCache(cacheFile, stringSerializer, stringSerializer, (short) 4, 100);
 
         cache.put("key_1", "abcd");
         cache.put("key_2", "abcd");
@@ -213,22 +228,22 @@ public class BTreePersistentIndexedCacheTest {
         cache.put("key_4", "abcd");
         cache.put("key_5", "abcd");
 
-        long len = cacheFile.length();
+        long len = usedLength();
         assertThat(len, greaterThan(0L));
 
         cache.put("key_1", "1234");
-        assertThat(cacheFile.length(), equalTo(len));
+        assertThat(usedLength(), equalTo(len));
 
         cache.remove("key_1");
         cache.put("key_new", "a1b2");
-        assertThat(cacheFile.length(), equalTo(len));
+        assertThat(usedLength(), equalTo(len));
 
         cache.put("key_new", "longer value");
-        assertThat(cacheFile.length(), greaterThan(len));
-        len = cacheFile.length();
+        assertThat(usedLength(), greaterThan(len));
+        len = usedLength();
 
         cache.put("key_1", "1234");
-        assertThat(cacheFile.length(), equalTo(len));
+        assertThat(usedLength(), equalTo(len));
 
         cache.close();
     }
@@ -325,7 +340,7 @@ public class BTreePersistentIndexedCacheTest {
         cacheFile.createNewFile();
         cacheFile.write("some junk");
 
-        BTreePersistentIndexedCache<String, Integer> cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer);
+        BTreePersistentIndexedCache<String, Integer> cache = createCache(cacheFile, stringSerializer, integerSerializer, (short) 512, 512);
 
         assertNull(cache.get("key_1"));
         cache.put("key_1", 99);
@@ -340,7 +355,7 @@ public class BTreePersistentIndexedCacheTest {
 
     @Test
     public void handlesOpeningATruncatedCacheFile() throws IOException {
-        BTreePersistentIndexedCache<String, Integer> cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer);
+        BTreePersistentIndexedCache<String, Integer> cache = createCache(cacheFile, stringSerializer, integerSerializer, (short) 512, 512);
 
         assertNull(cache.get("key_1"));
         cache.put("key_1", 99);
@@ -359,7 +374,7 @@ public class BTreePersistentIndexedCacheTest {
 
     @Test
     public void canUseFileAsKey() {
-        BTreePersistentIndexedCache<File, Integer> cache = new BTreePersistentIndexedCache<File, Integer>(cacheFile, new DefaultSerializer<File>(), integerSerializer);
+        BTreePersistentIndexedCache<File, Integer> cache = createCache(cacheFile, new DefaultSerializer<File>(), integerSerializer, (short) 512, 512);
 
         cache.put(new File("file"), 1);
         cache.put(new File("dir/file"), 2);
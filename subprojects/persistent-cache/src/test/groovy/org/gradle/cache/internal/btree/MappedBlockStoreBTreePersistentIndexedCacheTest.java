@@ -0,0 +1,265 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+public class MappedBlockStoreBTreePersistentIndexedCacheTest extends BTreePersistentIndexedCacheTest {
+    private MappedBlockStore store;
+
+    @Override
+    protected BlockStore createBackingStore(File cacheFile) {
+        // Use tiny regions, so that blocks span several regions
+        store = new MappedBlockStore(cacheFile, 64);
+        return store;
+    }
+
+    @Override
+    protected long usedLength() {
+        // The file is grown a region at a time while the store is open
+        return store.getUsedLength();
+    }
+
+    @Override
+    @Test
+    public void handlesOpeningATruncatedCacheFile() throws IOException {
+        BTreePersistentIndexedCache<String, Integer> cache = createCache(cacheFile, stringSerializer, integerSerializer, (short) 512, 512);
+
+        assertNull(cache.get("key_1"));
+        cache.put("key_1", 99);
+        cache.close();
+
+        // The file must not be truncated while it is mapped
+        RandomAccessFile file = new RandomAccessFile(cacheFile, "rw");
+        file.setLength(file.length() - 10);
+        file.close();
+
+        cache.reset();
+
+        assertNull(cache.get("key_1"));
+        cache.verify();
+
+        cache.close();
+    }
+
+    @Test
+    public void writesFilesThatCanBeReadByFileBackedStore() {
+        BTreePersistentIndexedCache<String, Integer> cache = createCache(cacheFile, stringSerializer, integerSerializer, (short) 512, 512);
+        cache.put("key_1", 99);
+        cache.close();
+        long length = cacheFile.length();
+
+        BTreePersistentIndexedCache<String, Integer> fileBacked = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 512, 512, new FileBackedBlockStore(cacheFile));
+        assertThat(fileBacked.get("key_1"), equalTo(99));
+        fileBacked.verify();
+        fileBacked.close();
+
+        assertThat(cacheFile.length(), equalTo(length));
+    }
+
+    @Test
+    public void reusesPaddingWhichCouldNotBeTruncated() throws IOException {
+        File control = tmpDir.file("control.bin");
+        BTreePersistentIndexedCache<String, Integer> controlCache = createCache(control, stringSerializer, integerSerializer, (short) 512, 512);
+        controlCache.put("key_1", 99);
+        controlCache.reset();
+        controlCache.put("key_2", 100);
+        controlCache.close();
+
+        BTreePersistentIndexedCache<String, Integer> cache = createCache(cacheFile, stringSerializer, integerSerializer, (short) 512, 512);
+        cache.put("key_1", 99);
+        cache.close();
+
+        // Simulate a platform which does not allow truncating the padding of a mapped file
+        long end = cacheFile.length();
+        RandomAccessFile file = new RandomAccessFile(cacheFile, "rw");
+        file.setLength(end + 100);
+        file.seek(end + 100 - 16);
+        file.writeLong(MappedBlockStore.TRAILER_MAGIC);
+        file.writeLong(end);
+        file.close();
+
+        cache.reset();
+        cache.put("key_2", 100);
+        cache.close();
+
+        assertThat(cacheFile.length(), equalTo(control.length()));
+        cache.reset();
+        assertThat(cache.get("key_1"), equalTo(99));
+        assertThat(cache.get("key_2"), equalTo(100));
+        cache.verify();
+        cache.close();
+    }
+
+    @Test
+    public void readsBlocksFromSeveralThreadsAtOnce() throws Exception {
+        MappedBlockStore store = openStore();
+        BlockPointer first = writeBlock(store, "first");
+        BlockPointer second = writeBlock(store, "second");
+
+        // Each reader waits inside the store until the other reader is reading its block as well
+        final CyclicBarrier bothReading = new CyclicBarrier(2);
+        StringPayload.onRead = new Runnable() {
+            public void run() {
+                try {
+                    bothReading.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        Queue<Object> failures = new ConcurrentLinkedQueue<Object>();
+        try {
+            Thread firstReader = reader(store, Collections.singletonMap(first, "first"), 1, new CountDownLatch(0), failures);
+            Thread secondReader = reader(store, Collections.singletonMap(second, "second"), 1, new CountDownLatch(0), failures);
+            firstReader.join();
+            secondReader.join();
+        } finally {
+            StringPayload.onRead = null;
+            store.close();
+        }
+
+        assertThat(failures, empty());
+    }
+
+    @Test
+    public void readsBlocksWhileOtherBlocksAreWrittenAndTheFileGrows() throws Exception {
+        MappedBlockStore store = openStore();
+        Map<BlockPointer, String> blocks = new LinkedHashMap<BlockPointer, String>();
+        for (int i = 0; i < 50; i++) {
+            blocks.put(writeBlock(store, "value " + i), "value " + i);
+        }
+
+        Queue<Object> failures = new ConcurrentLinkedQueue<Object>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> readers = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            readers.add(reader(store, blocks, 20, start, failures));
+        }
+        start.countDown();
+        // The regions are 64 bytes long, so the mapping grows many times while the blocks are read
+        for (int i = 0; i < 200; i++) {
+            writeBlock(store, "appended " + i);
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        store.close();
+
+        assertThat(failures, empty());
+    }
+
+    private MappedBlockStore openStore() {
+        MappedBlockStore store = new MappedBlockStore(cacheFile, 64);
+        store.open(new Runnable() {
+            public void run() {
+            }
+        }, new BlockStore.Factory() {
+            public Object create(Class<? extends BlockPayload> type) {
+                return new StringPayload(null);
+            }
+        });
+        return store;
+    }
+
+    private static BlockPointer writeBlock(MappedBlockStore store, String value) {
+        StringPayload payload = new StringPayload(value);
+        store.attach(payload);
+        store.write(payload);
+        return payload.getPos();
+    }
+
+    /**
+     * Starts a thread which reads the given blocks the given number of times, and records any unexpected value or failure.
+     */
+    private static Thread reader(final MappedBlockStore store, final Map<BlockPointer, String> blocks, final int count, final CountDownLatch start, final Queue<Object> failures) {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    start.await();
+                    for (int i = 0; i < count; i++) {
+                        for (Map.Entry<BlockPointer, String> entry : blocks.entrySet()) {
+                            String value = store.read(entry.getKey(), StringPayload.class).value;
+                            if (!entry.getValue().equals(value)) {
+                                failures.add("Read '" + value + "' instead of '" + entry.getValue() + "'");
+                            }
+                        }
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    private static class StringPayload extends BlockPayload {
+        static volatile Runnable onRead;
+        String value;
+
+        StringPayload(String value) {
+            this.value = value;
+        }
+
+        @Override
+        protected int getSize() {
+            return 2 + value.length();
+        }
+
+        @Override
+        protected byte getType() {
+            return 0x7e;
+        }
+
+        @Override
+        protected void read(DataInputStream inputStream) throws Exception {
+            Runnable action = onRead;
+            if (action != null) {
+                action.run();
+            }
+            value = inputStream.readUTF();
+        }
+
+        @Override
+        protected void write(DataOutputStream outputStream) throws Exception {
+            outputStream.writeUTF(value);
+        }
+    }
+}
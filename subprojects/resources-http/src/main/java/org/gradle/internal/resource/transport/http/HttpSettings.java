@@ -35,4 +35,9 @@ public interface HttpSettings {
     SslContextFactory getSslContextFactory();
 
     HostnameVerifier getHostnameVerifier();
+
+    /**
+     * The maximum number of connections kept open to a server, which is also the maximum number of concurrent requests to it.
+     */
+    int getMaxConnections();
 }
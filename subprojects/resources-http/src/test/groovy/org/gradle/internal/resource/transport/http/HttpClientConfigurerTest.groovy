@@ -56,6 +56,19 @@ class HttpClientConfigurerTest extends Specification {
         httpClientBuilder.credentialsProvider.getCredentials(AuthScope.ANY) == null
     }
 
+    def "configures connection pool with max connections"() {
+        httpSettings.authenticationSettings >> []
+        httpSettings.sslContextFactory >> sslContextFactory
+        httpSettings.maxConnections >> 40
+
+        when:
+        configurer.configure(httpClientBuilder)
+
+        then:
+        httpClientBuilder.maxConnTotal == 40
+        httpClientBuilder.maxConnPerRoute == 40
+    }
+
     def "configures http client with proxy credentials"() {
         httpSettings.authenticationSettings >> []
         httpSettings.sslContextFactory >> sslContextFactory
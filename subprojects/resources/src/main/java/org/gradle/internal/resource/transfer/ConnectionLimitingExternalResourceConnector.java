@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transfer;
+
+import org.gradle.api.resources.ResourceException;
+import org.gradle.internal.resource.ReadableContent;
+import org.gradle.internal.resource.metadata.ExternalResourceMetaData;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * An {@link ExternalResourceConnector} that holds a connection from a {@link HostConnectionLimiter} for each request.
+ * The connection of a read is held until the response is closed, so that the content counts against the limit while it is streamed.
+ */
+public class ConnectionLimitingExternalResourceConnector implements ExternalResourceConnector {
+    private final ExternalResourceConnector delegate;
+    private final HostConnectionLimiter limiter;
+
+    public ConnectionLimitingExternalResourceConnector(ExternalResourceConnector delegate, HostConnectionLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    @Nullable
+    @Override
+    public ExternalResourceReadResponse openResource(URI location, boolean revalidate) throws ResourceException {
+        HostConnectionLimiter.Connection connection = limiter.acquire(location);
+        ExternalResourceReadResponse response;
+        try {
+            response = delegate.openResource(location, revalidate);
+        } catch (RuntimeException e) {
+            connection.release();
+            throw e;
+        }
+        if (response == null) {
+            connection.release();
+            return null;
+        }
+        return new ConnectionReleasingReadResponse(response, connection);
+    }
+
+    @Nullable
+    @Override
+    public ExternalResourceMetaData getMetaData(URI location, boolean revalidate) throws ResourceException {
+        HostConnectionLimiter.Connection connection = limiter.acquire(location);
+        try {
+            return delegate.getMetaData(location, revalidate);
+        } finally {
+            connection.release();
+        }
+    }
+
+    @Nullable
+    @Override
+    public List<String> list(URI parent) throws ResourceException {
+        HostConnectionLimiter.Connection connection = limiter.acquire(parent);
+        try {
+            return delegate.list(parent);
+        } finally {
+            connection.release();
+        }
+    }
+
+    @Override
+    public void upload(ReadableContent resource, URI destination) throws IOException {
+        HostConnectionLimiter.Connection connection = limiter.acquire(destination);
+        try {
+            delegate.upload(resource, destination);
+        } finally {
+            connection.release();
+        }
+    }
+
+    private static class ConnectionReleasingReadResponse implements ExternalResourceReadResponse {
+        private final ExternalResourceReadResponse delegate;
+        private final HostConnectionLimiter.Connection connection;
+
+        ConnectionReleasingReadResponse(ExternalResourceReadResponse delegate, HostConnectionLimiter.Connection connection) {
+            this.delegate = delegate;
+            this.connection = connection;
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            return delegate.openStream();
+        }
+
+        @Override
+        public ExternalResourceMetaData getMetaData() {
+            return delegate.getMetaData();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                delegate.close();
+            } finally {
+                connection.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transfer;
+
+import org.gradle.internal.UncheckedException;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of concurrent requests made to each host, whichever repository the requests are made for.
+ */
+public class HostConnectionLimiter {
+    private final int maxConnectionsPerHost;
+    private final ConcurrentMap<String, Semaphore> permits = new ConcurrentHashMap<String, Semaphore>();
+    // Only ever read or modified by the owning thread, the leases themselves are thread-safe
+    private final ThreadLocal<Map<String, Lease>> leasesByThread = new ThreadLocal<Map<String, Lease>>() {
+        @Override
+        protected Map<String, Lease> initialValue() {
+            return new HashMap<String, Lease>();
+        }
+    };
+
+    public HostConnectionLimiter(int maxConnectionsPerHost) {
+        if (maxConnectionsPerHost <= 0) {
+            throw new IllegalArgumentException("The maximum number of connections per host must be positive.");
+        }
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * Waits until a connection to the host of the given location may be opened. The caller must call {@link Connection#release()} once done with the connection.
+     * A connection may be released by any thread, for example when a response is closed by another thread than the one that opened it.
+     *
+     * <p>A thread that already holds a connection to the host takes another permit if one is available. Otherwise it shares the permit
+     * of the connection it holds instead of waiting, for example when it fetches a checksum while downloading a file, so that it cannot
+     * wait on itself. The permit is released once all connections sharing it are released. So the limit can only be exceeded by threads
+     * which open several connections to the same host at once, and only while all permits are taken.</p>
+     */
+    public Connection acquire(URI location) {
+        String host = location.getScheme() + "://" + location.getAuthority();
+        Semaphore semaphore = permitsFor(host);
+        Map<String, Lease> leases = leasesByThread.get();
+        Lease lease = leases.get(host);
+        if (lease != null) {
+            if (semaphore.tryAcquire()) {
+                Lease ownLease = new Lease(semaphore);
+                if (lease.isReleased()) {
+                    leases.put(host, ownLease);
+                }
+                return new Connection(ownLease);
+            }
+            if (lease.retain()) {
+                return new Connection(lease);
+            }
+            // All connections of the lease have been released, possibly by another thread
+        }
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        lease = new Lease(semaphore);
+        leases.put(host, lease);
+        return new Connection(lease);
+    }
+
+    private Semaphore permitsFor(String host) {
+        Semaphore semaphore = permits.get(host);
+        if (semaphore == null) {
+            semaphore = new Semaphore(maxConnectionsPerHost, true);
+            Semaphore existing = permits.putIfAbsent(host, semaphore);
+            if (existing != null) {
+                semaphore = existing;
+            }
+        }
+        return semaphore;
+    }
+
+    /**
+     * A permit and the number of connections sharing it.
+     */
+    private static class Lease {
+        private final Semaphore semaphore;
+        private final AtomicInteger connections = new AtomicInteger(1);
+
+        Lease(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+
+        /**
+         * Adds a connection to this lease, unless the permit has been released already.
+         */
+        boolean retain() {
+            while (true) {
+                int current = connections.get();
+                if (current == 0) {
+                    return false;
+                }
+                if (connections.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        boolean isReleased() {
+            return connections.get() == 0;
+        }
+
+        void release() {
+            if (connections.decrementAndGet() == 0) {
+                semaphore.release();
+            }
+        }
+    }
+
+    public static class Connection {
+        private final Lease lease;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Connection(Lease lease) {
+            this.lease = lease;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                lease.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transfer
+
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+class ConnectionLimitingExternalResourceConnectorTest extends ConcurrentSpec {
+    final limiter = new HostConnectionLimiter(1)
+
+    def "holds connection to host until response is closed"() {
+        def connector = connector { URI location ->
+            instant."${location.path.substring(1)}Opened"
+            return response()
+        }
+
+        when:
+        async {
+            start {
+                def response = connector.openResource(new URI("https://repo.example.org/first"), false)
+                thread.block()
+                instant.firstClosed
+                response.close()
+            }
+            start {
+                thread.blockUntil.firstOpened
+                connector.openResource(new URI("https://repo.example.org/second"), false).close()
+            }
+        }
+
+        then:
+        instant.secondOpened > instant.firstClosed
+    }
+
+    def "connections to different hosts are not limited by each other"() {
+        def connector = connector { URI location ->
+            instant."${location.host}Opened"
+            return response()
+        }
+
+        when:
+        async {
+            start {
+                def response = connector.openResource(new URI("https://first.example.org/lib.jar"), false)
+                thread.blockUntil.secondOpened
+                response.close()
+            }
+            start {
+                thread.blockUntil.firstOpened
+                connector.openResource(new URI("https://second.example.org/lib.jar"), false).close()
+            }
+        }
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "thread holding connection to host can open another one"() {
+        def connector = connector { URI location -> response() }
+
+        when:
+        def jar = connector.openResource(new URI("https://repo.example.org/lib.jar"), false)
+        connector.openResource(new URI("https://repo.example.org/lib.jar.sha1"), false).close()
+        jar.close()
+        connector.openResource(new URI("https://repo.example.org/lib.pom"), false).close()
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "thread holding connection to host takes another permit when one is available"() {
+        def limiter = new HostConnectionLimiter(2)
+        def connector = connector(limiter) { URI location ->
+            instant."${location.path.substring(1)}Opened"
+            return response()
+        }
+
+        when:
+        async {
+            start {
+                def jar = connector.openResource(new URI("https://repo.example.org/jar"), false)
+                def sha1 = connector.openResource(new URI("https://repo.example.org/sha1"), false)
+                thread.block()
+                instant.sha1Closed
+                sha1.close()
+                thread.blockUntil.otherOpened
+                jar.close()
+            }
+            start {
+                thread.blockUntil.sha1Opened
+                connector.openResource(new URI("https://repo.example.org/other"), false).close()
+            }
+        }
+
+        then:
+        instant.otherOpened > instant.sha1Closed
+    }
+
+    def "connection can be released by another thread than the one that opened it"() {
+        def connector = connector { URI location ->
+            instant."${location.path.substring(1)}Opened"
+            return response()
+        }
+
+        when:
+        def first = connector.openResource(new URI("https://repo.example.org/first"), false)
+        async {
+            start {
+                thread.block()
+                instant.firstClosed
+                first.close()
+            }
+            start {
+                connector.openResource(new URI("https://repo.example.org/second"), false).close()
+            }
+        }
+        connector.openResource(new URI("https://repo.example.org/third"), false).close()
+
+        then:
+        instant.secondOpened > instant.firstClosed
+    }
+
+    def "releases connection when resource is missing or request fails"() {
+        def connector = connector { URI location ->
+            if (location.path == "/broken") {
+                throw new RuntimeException("broken")
+            }
+            return null
+        }
+
+        when:
+        def missing = connector.openResource(new URI("https://repo.example.org/missing"), false)
+        connector.openResource(new URI("https://repo.example.org/broken"), false)
+
+        then:
+        missing == null
+        thrown(RuntimeException)
+
+        when:
+        async {
+            start {
+                connector.openResource(new URI("https://repo.example.org/missing"), false)
+            }
+        }
+
+        then:
+        noExceptionThrown()
+    }
+
+    private ExternalResourceConnector connector(HostConnectionLimiter limiter = this.limiter, Closure<ExternalResourceReadResponse> openResource) {
+        def delegate = [openResource: { URI location, boolean revalidate -> openResource.call(location) }] as ExternalResourceConnector
+        return new ConnectionLimitingExternalResourceConnector(delegate, limiter)
+    }
+
+    private static ExternalResourceReadResponse response() {
+        return [close: {}] as ExternalResourceReadResponse
+    }
+}
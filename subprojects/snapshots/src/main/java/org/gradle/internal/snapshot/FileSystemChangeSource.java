@@ -0,0 +1,32 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Detects changes made to the file system outside of the build, which allows the state of the file system to be retained between builds.
+ *
+ * Changes are reported to the {@link FileSystemMirror} as they are detected. Any state outside of the watched hierarchies is discarded at the end of each build.
+ */
+@ThreadSafe
+public interface FileSystemChangeSource {
+    /**
+     * Returns whether changes to the given location and to all locations below it are reported.
+     */
+    boolean isWatching(String absolutePath);
+}
@@ -17,40 +17,64 @@
 package org.gradle.internal.snapshot.impl;
 
 import org.gradle.internal.file.FileMetadataSnapshot;
+import org.gradle.internal.snapshot.DirectorySnapshot;
+import org.gradle.internal.snapshot.FileSystemChangeSource;
 import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
 import org.gradle.internal.snapshot.FileSystemMirror;
 import org.gradle.internal.snapshot.WellKnownFileLocations;
 
 import javax.annotation.Nullable;
+import java.io.File;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * See {@link DefaultFileSystemSnapshotter} for some more details
+ *
+ * <p>State is kept per location, but locations are invalidated as a hierarchy: a change to a location also discards the state of
+ * everything below it, and of the directories above it whose snapshots contain it. A location without state of its own can be
+ * answered from the snapshot of a directory above it.</p>
+ *
+ * <p>When retaining state between builds, state for files that live in an append-only cache is kept. Any other state is only kept
+ * for the hierarchies watched by the {@link FileSystemChangeSource}, if any.</p>
  */
 public class DefaultFileSystemMirror implements FileSystemMirror {
     // Maps from interned absolute path for a file to metadata for the file.
-    private final Map<String, FileMetadataSnapshot> metadata = new ConcurrentHashMap<String, FileMetadataSnapshot>();
-    private final Map<String, FileMetadataSnapshot> cacheMetadata = new ConcurrentHashMap<String, FileMetadataSnapshot>();
+    private final LocationMap<FileMetadataSnapshot> metadata = new LocationMap<FileMetadataSnapshot>();
+    private final LocationMap<FileMetadataSnapshot> cacheMetadata = new LocationMap<FileMetadataSnapshot>();
     // Maps from interned absolute path for a file to snapshot for the file.
-    private final Map<String, FileSystemLocationSnapshot> files = new ConcurrentHashMap<String, FileSystemLocationSnapshot>();
-    private final Map<String, FileSystemLocationSnapshot> cacheFiles = new ConcurrentHashMap<String, FileSystemLocationSnapshot>();
+    private final LocationMap<FileSystemLocationSnapshot> files = new LocationMap<FileSystemLocationSnapshot>();
+    private final LocationMap<FileSystemLocationSnapshot> cacheFiles = new LocationMap<FileSystemLocationSnapshot>();
 
     private final WellKnownFileLocations wellKnownFileLocations;
+    private final boolean retainBetweenBuilds;
+    private final AtomicLong snapshotHits = new AtomicLong();
+    private final AtomicLong snapshotMisses = new AtomicLong();
+    private volatile FileSystemChangeSource changeSource;
 
     public DefaultFileSystemMirror(WellKnownFileLocations wellKnownFileLocations) {
+        this(wellKnownFileLocations, false);
+    }
+
+    public DefaultFileSystemMirror(WellKnownFileLocations wellKnownFileLocations, boolean retainBetweenBuilds) {
         this.wellKnownFileLocations = wellKnownFileLocations;
+        this.retainBetweenBuilds = retainBetweenBuilds;
     }
 
     @Nullable
     @Override
     public FileSystemLocationSnapshot getSnapshot(String absolutePath) {
-        // Could potentially also look whether we have the details for an ancestor directory tree
-        // Could possibly infer that the path refers to a directory, if we have details for a descendant path (and it's not a missing file)
-        if (wellKnownFileLocations.isImmutable(absolutePath)) {
-            return cacheFiles.get(absolutePath);
+        LocationMap<FileSystemLocationSnapshot> snapshots = wellKnownFileLocations.isImmutable(absolutePath) ? cacheFiles : files;
+        FileSystemLocationSnapshot snapshot = snapshots.get(absolutePath);
+        if (snapshot == null) {
+            snapshot = findInAncestor(snapshots, absolutePath);
         }
-        return files.get(absolutePath);
+        (snapshot == null ? snapshotMisses : snapshotHits).incrementAndGet();
+        return snapshot;
     }
 
     @Override
@@ -80,27 +104,195 @@ public class DefaultFileSystemMirror implements FileSystemMirror {
         }
     }
 
+    /**
+     * Sets the source of changes made outside of the build, which allows state in the hierarchies it watches to be retained between builds.
+     */
+    public void setChangeSource(@Nullable FileSystemChangeSource changeSource) {
+        this.changeSource = changeSource;
+    }
+
     public void beforeOutputChange() {
         // When the outputs are generated, throw away all state for files that do not live in an append-only cache.
         // This is intentionally very simple, to be improved later
-        metadata.clear();
-        files.clear();
+        invalidateAll();
     }
 
-    public void beforeBuildFinished() {
-        // We throw away all state between builds
+    public RetainFileSystemStateBuildOperationType.Result beforeBuildFinished() {
+        long hits = snapshotHits.getAndSet(0);
+        long misses = snapshotMisses.getAndSet(0);
+        FileSystemChangeSource changeSource = this.changeSource;
+        if (!retainBetweenBuilds) {
+            invalidateAll();
+            cacheMetadata.clear();
+            cacheFiles.clear();
+        } else if (changeSource == null) {
+            invalidateAll();
+        } else {
+            metadata.retainWatched(changeSource);
+            files.retainWatched(changeSource);
+        }
+        return new RetainedState(hits, misses, files.size() + cacheFiles.size(), metadata.size() + cacheMetadata.size());
+    }
+
+    public void beforeOutputChange(Iterable<String> affectedOutputPaths) {
+        invalidate(affectedOutputPaths);
+    }
+
+    /**
+     * Discards the state of the given locations, including everything below them and the snapshots of the directories above them.
+     */
+    public void invalidate(Iterable<String> changedPaths) {
+        for (String changedPath : changedPaths) {
+            metadata.removeHierarchy(changedPath);
+            files.removeHierarchy(changedPath);
+            cacheMetadata.removeHierarchy(changedPath);
+            cacheFiles.removeHierarchy(changedPath);
+        }
+    }
+
+    /**
+     * Discards the state of all files that do not live in an append-only cache, for example because a change source may have missed changes.
+     */
+    public void invalidateAll() {
         metadata.clear();
-        cacheMetadata.clear();
         files.clear();
-        cacheFiles.clear();
     }
 
-    public void beforeOutputChange(Iterable<String> affectedOutputPaths) {
-        for (String affectedOutputPath : affectedOutputPaths) {
-            metadata.remove(affectedOutputPath);
-            files.remove(affectedOutputPath);
-            cacheMetadata.remove(affectedOutputPath);
-            cacheFiles.remove(affectedOutputPath);
+    @Nullable
+    private static FileSystemLocationSnapshot findInAncestor(LocationMap<FileSystemLocationSnapshot> snapshots, String absolutePath) {
+        int separator = absolutePath.lastIndexOf(File.separatorChar);
+        while (separator > 0) {
+            FileSystemLocationSnapshot ancestor = snapshots.get(absolutePath.substring(0, separator));
+            if (ancestor != null) {
+                return findDescendant(ancestor, absolutePath, separator + 1);
+            }
+            separator = absolutePath.lastIndexOf(File.separatorChar, separator - 1);
+        }
+        return null;
+    }
+
+    @Nullable
+    private static FileSystemLocationSnapshot findDescendant(FileSystemLocationSnapshot ancestor, String absolutePath, int start) {
+        FileSystemLocationSnapshot current = ancestor;
+        while (start < absolutePath.length()) {
+            if (!(current instanceof DirectorySnapshot)) {
+                return null;
+            }
+            int end = absolutePath.indexOf(File.separatorChar, start);
+            if (end < 0) {
+                end = absolutePath.length();
+            }
+            // Directory snapshots leave out default excludes, so a missing child does not mean that the file does not exist
+            current = findChild((DirectorySnapshot) current, absolutePath.substring(start, end));
+            if (current == null) {
+                return null;
+            }
+            start = end + 1;
+        }
+        return current;
+    }
+
+    @Nullable
+    private static FileSystemLocationSnapshot findChild(DirectorySnapshot directory, String name) {
+        for (FileSystemLocationSnapshot child : directory.getChildren()) {
+            if (child.getName().equals(name)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * State by location, with an ordered index of the locations so that a whole hierarchy can be discarded without looking at every location.
+     */
+    private static class LocationMap<T> {
+        private final Map<String, T> values = new ConcurrentHashMap<String, T>();
+        private final NavigableSet<String> locations = new ConcurrentSkipListSet<String>();
+
+        @Nullable
+        T get(String absolutePath) {
+            return values.get(absolutePath);
+        }
+
+        void put(String absolutePath, T value) {
+            if (values.put(absolutePath, value) == null) {
+                locations.add(absolutePath);
+            }
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        void removeHierarchy(String absolutePath) {
+            remove(absolutePath);
+            // Everything below the location sorts between the location followed by the separator and the location followed by the next character
+            Iterator<String> descendants = locations.subSet(absolutePath + File.separatorChar, absolutePath + (char) (File.separatorChar + 1)).iterator();
+            while (descendants.hasNext()) {
+                values.remove(descendants.next());
+                descendants.remove();
+            }
+            int separator = absolutePath.lastIndexOf(File.separatorChar);
+            while (separator > 0) {
+                remove(absolutePath.substring(0, separator));
+                separator = absolutePath.lastIndexOf(File.separatorChar, separator - 1);
+            }
+        }
+
+        void retainWatched(FileSystemChangeSource changeSource) {
+            Iterator<String> iterator = locations.iterator();
+            while (iterator.hasNext()) {
+                String location = iterator.next();
+                if (!changeSource.isWatching(location)) {
+                    values.remove(location);
+                    iterator.remove();
+                }
+            }
+        }
+
+        void clear() {
+            values.clear();
+            locations.clear();
+        }
+
+        private void remove(String absolutePath) {
+            if (values.remove(absolutePath) != null) {
+                locations.remove(absolutePath);
+            }
+        }
+    }
+
+    private static class RetainedState implements RetainFileSystemStateBuildOperationType.Result {
+        private final long snapshotHits;
+        private final long snapshotMisses;
+        private final int retainedSnapshots;
+        private final int retainedMetadata;
+
+        RetainedState(long snapshotHits, long snapshotMisses, int retainedSnapshots, int retainedMetadata) {
+            this.snapshotHits = snapshotHits;
+            this.snapshotMisses = snapshotMisses;
+            this.retainedSnapshots = retainedSnapshots;
+            this.retainedMetadata = retainedMetadata;
+        }
+
+        @Override
+        public long getSnapshotHits() {
+            return snapshotHits;
+        }
+
+        @Override
+        public long getSnapshotMisses() {
+            return snapshotMisses;
+        }
+
+        @Override
+        public int getRetainedSnapshots() {
+            return retainedSnapshots;
+        }
+
+        @Override
+        public int getRetainedMetadata() {
+            return retainedMetadata;
         }
     }
 }
@@ -143,21 +143,7 @@ public class DirectorySnapshotter {
                 }
 
                 private boolean isAllowed(Path path, String name, boolean isDirectory, @Nullable BasicFileAttributes attrs, Iterable<String> relativePath) {
-                    if (isDirectory) {
-                        if (defaultExcludes.excludeDir(name)) {
-                            return false;
-                        }
-                    } else if (defaultExcludes.excludeFile(name)) {
-                        return false;
-                    }
-                    if (spec == null) {
-                        return true;
-                    }
-                    boolean allowed = spec.isSatisfiedBy(new PathBackedFileTreeElement(path, name, isDirectory, attrs, relativePath, fileSystem));
-                    if (!allowed) {
-                        hasBeenFiltered.set(true);
-                    }
-                    return allowed;
+                    return DirectorySnapshotter.this.isAllowed(path, name, isDirectory, attrs, relativePath, spec, hasBeenFiltered);
                 }
             });
         } catch (IOException e) {
@@ -166,6 +152,24 @@ public class DirectorySnapshotter {
         return builder.getResult();
     }
 
+    boolean isAllowed(Path path, String name, boolean isDirectory, @Nullable BasicFileAttributes attrs, Iterable<String> relativePath, @Nullable Spec<FileTreeElement> spec, MutableBoolean hasBeenFiltered) {
+        if (isDirectory) {
+            if (defaultExcludes.excludeDir(name)) {
+                return false;
+            }
+        } else if (defaultExcludes.excludeFile(name)) {
+            return false;
+        }
+        if (spec == null) {
+            return true;
+        }
+        boolean allowed = spec.isSatisfiedBy(new PathBackedFileTreeElement(path, name, isDirectory, attrs, relativePath, fileSystem));
+        if (!allowed) {
+            hasBeenFiltered.set(true);
+        }
+        return allowed;
+    }
+
     @VisibleForTesting
     static class DefaultExcludes {
         private final ImmutableSet<String> excludeFileNames;
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.util.PatternSet;
+import org.gradle.internal.MutableBoolean;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.file.FileType;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.nativeintegration.filesystem.DefaultFileMetadata;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.MerkleDirectorySnapshotBuilder;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link DirectorySnapshotter} which walks the directories of a file tree concurrently on a work-stealing pool.
+ *
+ * <p>Each directory is listed and hashed by its own task, and the files of large directories are hashed in chunks,
+ * so that deep and wide trees keep all workers busy. The resulting snapshots are identical to the ones produced by
+ * the sequential walker, including the handling of symbolic links, file system loops and filters.</p>
+ *
+ * <p>The patterns used to filter the tree are evaluated from several threads at the same time.</p>
+ */
+public class ParallelDirectorySnapshotter extends DirectorySnapshotter implements Stoppable {
+    private static final int FILES_PER_TASK = 32;
+
+    private final FileHasher hasher;
+    private final StringInterner stringInterner;
+    private final ForkJoinPool pool;
+
+    public ParallelDirectorySnapshotter(FileHasher hasher, FileSystem fileSystem, StringInterner stringInterner, String... defaultExcludes) {
+        this(Runtime.getRuntime().availableProcessors(), hasher, fileSystem, stringInterner, defaultExcludes);
+    }
+
+    public ParallelDirectorySnapshotter(int parallelism, FileHasher hasher, FileSystem fileSystem, StringInterner stringInterner, String... defaultExcludes) {
+        super(hasher, fileSystem, stringInterner, defaultExcludes);
+        this.hasher = hasher;
+        this.stringInterner = stringInterner;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    @Override
+    public FileSystemLocationSnapshot snapshot(String absolutePath, @Nullable PatternSet patterns, MutableBoolean hasBeenFiltered) {
+        Path rootPath = Paths.get(absolutePath);
+        BasicFileAttributes attrs = readAttributes(rootPath);
+        if (attrs == null || !attrs.isDirectory()) {
+            // Let the sequential walker deal with missing roots and regular files
+            return super.snapshot(absolutePath, patterns, hasBeenFiltered);
+        }
+        Spec<FileTreeElement> spec = (patterns == null || patterns.isEmpty()) ? null : patterns.getAsSpec();
+        Walk walk = new Walk(spec, hasBeenFiltered);
+        String name = stringInterner.intern(rootPath.getFileName().toString());
+        SnapshotDirectory rootTask = new SnapshotDirectory(walk, rootPath, name, attrs, ImmutableList.<String>of(), null);
+        try {
+            return pool.invoke(rootTask);
+        } catch (RuntimeException e) {
+            // Fork/join may re-create failures that happened on another thread, so report the original one
+            RuntimeException failure = walk.failure.get();
+            throw failure != null ? failure : e;
+        }
+    }
+
+    @Override
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Reads the attributes of the given path, following symbolic links if possible.
+     */
+    @Nullable
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            try {
+                return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException e2) {
+                return null;
+            }
+        }
+    }
+
+    private static boolean isLoop(Path directory, BasicFileAttributes attrs, @Nullable Ancestor ancestor) {
+        Object fileKey = attrs.fileKey();
+        for (Ancestor current = ancestor; current != null; current = current.parent) {
+            if (fileKey != null && current.fileKey != null) {
+                if (fileKey.equals(current.fileKey)) {
+                    return true;
+                }
+            } else {
+                try {
+                    if (Files.isSameFile(directory, current.path)) {
+                        return true;
+                    }
+                } catch (IOException ignored) {
+                    // Not the same file then
+                }
+            }
+        }
+        return false;
+    }
+
+    private class Walk {
+        private final Spec<FileTreeElement> spec;
+        private final MutableBoolean hasBeenFiltered;
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+        Walk(@Nullable Spec<FileTreeElement> spec, MutableBoolean hasBeenFiltered) {
+            this.spec = spec;
+            this.hasBeenFiltered = hasBeenFiltered;
+        }
+
+        boolean isAllowed(Path path, String name, boolean isDirectory, @Nullable BasicFileAttributes attrs, Iterable<String> relativePath) {
+            return ParallelDirectorySnapshotter.this.isAllowed(path, name, isDirectory, attrs, relativePath, spec, hasBeenFiltered);
+        }
+
+        RegularFileSnapshot snapshotFile(Path file, String name, BasicFileAttributes attrs) {
+            DefaultFileMetadata metadata = new DefaultFileMetadata(FileType.RegularFile, attrs.lastModifiedTime().toMillis(), attrs.size());
+            HashCode hash = hasher.hash(file.toFile(), metadata);
+            return new RegularFileSnapshot(stringInterner.intern(file.toString()), name, hash, metadata.getLastModified());
+        }
+    }
+
+    /**
+     * A directory on the path from the root to the directory being visited, used to detect file system loops.
+     */
+    private static class Ancestor {
+        private final Path path;
+        private final Object fileKey;
+        private final Ancestor parent;
+
+        Ancestor(Path path, @Nullable Object fileKey, @Nullable Ancestor parent) {
+            this.path = path;
+            this.fileKey = fileKey;
+            this.parent = parent;
+        }
+    }
+
+    private class SnapshotDirectory extends RecursiveTask<FileSystemLocationSnapshot> {
+        private final Walk walk;
+        private final Path directory;
+        private final String name;
+        private final List<String> parentRelativePath;
+        private final Ancestor ancestor;
+
+        SnapshotDirectory(Walk walk, Path directory, String name, BasicFileAttributes attrs, List<String> parentRelativePath, @Nullable Ancestor parent) {
+            this.walk = walk;
+            this.directory = directory;
+            this.name = name;
+            this.parentRelativePath = parentRelativePath;
+            this.ancestor = new Ancestor(directory, attrs.fileKey(), parent);
+        }
+
+        @Override
+        protected FileSystemLocationSnapshot compute() {
+            try {
+                return snapshotDirectory();
+            } catch (RuntimeException e) {
+                walk.failure.compareAndSet(null, e);
+                throw e;
+            }
+        }
+
+        private FileSystemLocationSnapshot snapshotDirectory() {
+            List<String> relativePath = relativePathOfChildren();
+            List<SnapshotDirectory> subdirectories = Lists.newArrayList();
+            List<FileEntry> files = Lists.newArrayList();
+            for (Path child : listChildren()) {
+                String childName = stringInterner.intern(child.getFileName().toString());
+                BasicFileAttributes attrs = readAttributes(child);
+                if (attrs == null) {
+                    if (walk.isAllowed(child, childName, false, null, relativePath)) {
+                        throw new GradleException(String.format("Could not read path '%s'.", child));
+                    }
+                } else if (attrs.isDirectory()) {
+                    // File system loops are ignored, so that each file is included only once
+                    if (!isLoop(child, attrs, ancestor) && walk.isAllowed(child, childName, true, attrs, relativePath)) {
+                        subdirectories.add(new SnapshotDirectory(walk, child, childName, attrs, relativePath, ancestor));
+                    }
+                } else if (walk.isAllowed(child, childName, false, attrs, relativePath)) {
+                    if (attrs.isSymbolicLink()) {
+                        throw new GradleException(String.format("Could not list contents of '%s'. Couldn't follow symbolic link.", child));
+                    }
+                    files.add(new FileEntry(child, childName, attrs));
+                }
+            }
+
+            List<ForkJoinTask<? extends Object>> forked = Lists.newArrayList();
+            for (SnapshotDirectory subdirectory : subdirectories) {
+                forked.add(subdirectory.fork());
+            }
+            for (int start = FILES_PER_TASK; start < files.size(); start += FILES_PER_TASK) {
+                forked.add(new SnapshotFiles(walk, files.subList(start, Math.min(start + FILES_PER_TASK, files.size()))).fork());
+            }
+            List<FileSystemLocationSnapshot> snapshots = new SnapshotFiles(walk, files.subList(0, Math.min(FILES_PER_TASK, files.size()))).compute();
+
+            MerkleDirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.sortingRequired();
+            builder.preVisitDirectory(stringInterner.intern(directory.toString()), name);
+            for (FileSystemLocationSnapshot snapshot : snapshots) {
+                builder.visit(snapshot);
+            }
+            for (ForkJoinTask<? extends Object> task : forked) {
+                Object result = task.join();
+                if (result instanceof FileSystemLocationSnapshot) {
+                    builder.visit((FileSystemLocationSnapshot) result);
+                } else {
+                    for (Object snapshot : (List<?>) result) {
+                        builder.visit((FileSystemLocationSnapshot) snapshot);
+                    }
+                }
+            }
+            builder.postVisitDirectory();
+            return builder.getResult();
+        }
+
+        private List<String> relativePathOfChildren() {
+            if (ancestor.parent == null) {
+                return parentRelativePath;
+            }
+            return ImmutableList.<String>builder().addAll(parentRelativePath).add(name).build();
+        }
+
+        private List<Path> listChildren() {
+            DirectoryStream<Path> stream;
+            try {
+                stream = Files.newDirectoryStream(directory);
+            } catch (IOException e) {
+                if (ancestor.parent == null || walk.isAllowed(directory, name, false, null, parentRelativePath)) {
+                    throw new GradleException(String.format("Could not read path '%s'.", directory), e);
+                }
+                return Collections.emptyList();
+            }
+            try {
+                List<Path> children = Lists.newArrayList();
+                for (Path child : stream) {
+                    children.add(child);
+                }
+                return children;
+            } catch (DirectoryIteratorException e) {
+                throw new GradleException(String.format("Could not read directory path '%s'.", directory), e.getCause());
+            } finally {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    throw new GradleException(String.format("Could not read directory path '%s'.", directory), e);
+                }
+            }
+        }
+    }
+
+    private class SnapshotFiles extends RecursiveTask<List<FileSystemLocationSnapshot>> {
+        private final Walk walk;
+        private final List<FileEntry> files;
+
+        SnapshotFiles(Walk walk, List<FileEntry> files) {
+            this.walk = walk;
+            this.files = files;
+        }
+
+        @Override
+        protected List<FileSystemLocationSnapshot> compute() {
+            List<FileSystemLocationSnapshot> snapshots = Lists.newArrayListWithCapacity(files.size());
+            try {
+                for (FileEntry file : files) {
+                    snapshots.add(walk.snapshotFile(file.path, file.name, file.attrs));
+                }
+            } catch (RuntimeException e) {
+                walk.failure.compareAndSet(null, e);
+                throw e;
+            }
+            return snapshots;
+        }
+    }
+
+    private static class FileEntry {
+        private final Path path;
+        private final String name;
+        private final BasicFileAttributes attrs;
+
+        FileEntry(Path path, String name, BasicFileAttributes attrs) {
+            this.path = path;
+            this.name = name;
+            this.attrs = attrs;
+        }
+    }
+}
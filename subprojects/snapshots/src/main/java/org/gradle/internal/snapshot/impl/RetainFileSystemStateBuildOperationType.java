@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Decides which of the file system state gathered during a root build is kept for the next build in the same daemon.
+ *
+ * @since 5.2
+ */
+public final class RetainFileSystemStateBuildOperationType implements BuildOperationType<RetainFileSystemStateBuildOperationType.Details, RetainFileSystemStateBuildOperationType.Result> {
+
+    public interface Details {
+    }
+
+    public interface Result {
+
+        /**
+         * The number of times a snapshot was found in memory during the build, either directly or inside the snapshot of a directory above it.
+         */
+        long getSnapshotHits();
+
+        /**
+         * The number of times a snapshot had to be taken from the file system during the build.
+         */
+        long getSnapshotMisses();
+
+        /**
+         * The number of snapshots kept for the next build, each of which may be a whole directory tree.
+         */
+        int getRetainedSnapshots();
+
+        /**
+         * The number of file metadata entries kept for the next build.
+         */
+        int getRetainedMetadata();
+    }
+
+    private RetainFileSystemStateBuildOperationType() {
+    }
+}
@@ -22,6 +22,8 @@ import org.gradle.api.internal.changedetection.state.DefaultWellKnownFileLocatio
 import org.gradle.internal.classpath.CachedJarFileStore
 import org.gradle.internal.file.FileMetadataSnapshot
 import org.gradle.internal.hash.HashCode
+import org.gradle.internal.snapshot.DirectorySnapshot
+import org.gradle.internal.snapshot.FileSystemChangeSource
 import org.gradle.internal.snapshot.FileSystemLocationSnapshot
 import org.gradle.internal.snapshot.RegularFileSnapshot
 import org.gradle.test.fixtures.file.TestFile
@@ -36,11 +38,14 @@ class DefaultFileSystemMirrorTest extends Specification {
     DefaultFileSystemMirror mirror
     TestFile cacheDir
 
+    DefaultWellKnownFileLocations wellKnownFileLocations
+
     def setup() {
         cacheDir = tmpDir.createDir("cache")
         def fileStore = Stub(CachedJarFileStore)
         fileStore.fileStoreRoots >> [cacheDir]
-        mirror = new DefaultFileSystemMirror(new DefaultWellKnownFileLocations([fileStore]))
+        wellKnownFileLocations = new DefaultWellKnownFileLocations([fileStore])
+        mirror = new DefaultFileSystemMirror(wellKnownFileLocations)
     }
 
     def "keeps state about a file until task outputs are generated"() {
@@ -132,4 +137,107 @@ class DefaultFileSystemMirrorTest extends Specification {
         mirror.getMetadata(file.path) == null
         mirror.getSnapshot(file.path) == null
     }
+
+    def "finds snapshots inside the snapshot of a directory above them"() {
+        def root = tmpDir.file("root")
+        def tree = directory(root, directory(root.file("sub"), regularFile(root.file("sub/a.txt"))))
+
+        when:
+        mirror.putSnapshot(tree)
+
+        then:
+        mirror.getSnapshot(root.path) == tree
+        mirror.getSnapshot(root.file("sub").path) == tree.children[0]
+        mirror.getSnapshot(root.file("sub/a.txt").path) == tree.children[0].children[0]
+        mirror.getSnapshot(root.file("sub/other.txt").path) == null
+        mirror.getSnapshot(root.file("sub/a.txt/nested").path) == null
+    }
+
+    def "discards state of a location, everything below it and the snapshots above it when outputs change"() {
+        def root = tmpDir.file("root")
+        def sub = root.file("sub")
+        def file = sub.file("a.txt")
+        def sibling = root.file("sibling.txt")
+        def metadata = Stub(FileMetadataSnapshot)
+
+        given:
+        mirror.putSnapshot(directory(root, directory(sub, regularFile(file))))
+        mirror.putSnapshot(directory(sub, regularFile(file)))
+        mirror.putSnapshot(regularFile(file))
+        mirror.putSnapshot(regularFile(sibling))
+        mirror.putMetadata(file.path, metadata)
+        mirror.putMetadata(sibling.path, metadata)
+
+        when:
+        mirror.beforeOutputChange([sub.path])
+
+        then:
+        mirror.getSnapshot(root.path) == null
+        mirror.getSnapshot(sub.path) == null
+        mirror.getSnapshot(file.path) == null
+        mirror.getMetadata(file.path) == null
+        mirror.getSnapshot(sibling.path) != null
+        mirror.getMetadata(sibling.path) == metadata
+    }
+
+    def "retains state about files in the caches between builds when enabled"() {
+        def retainingMirror = new DefaultFileSystemMirror(wellKnownFileLocations, true)
+        def cachedFile = cacheDir.file("some/dir/a")
+        def file = tmpDir.file("a")
+
+        given:
+        retainingMirror.putSnapshot(regularFile(cachedFile))
+        retainingMirror.putSnapshot(regularFile(file))
+
+        when:
+        def result = retainingMirror.beforeBuildFinished()
+
+        then:
+        retainingMirror.getSnapshot(cachedFile.path) != null
+        retainingMirror.getSnapshot(file.path) == null
+        result.retainedSnapshots == 1
+    }
+
+    def "retains state in the hierarchies watched by the change source between builds"() {
+        def retainingMirror = new DefaultFileSystemMirror(wellKnownFileLocations, true)
+        def watched = tmpDir.file("watched")
+        def unwatched = tmpDir.file("unwatched")
+        def changeSource = Stub(FileSystemChangeSource) {
+            isWatching(_) >> { String path -> path.startsWith(watched.path) }
+        }
+        retainingMirror.changeSource = changeSource
+
+        given:
+        retainingMirror.putSnapshot(directory(watched, regularFile(watched.file("a.txt"))))
+        retainingMirror.putSnapshot(regularFile(unwatched.file("b.txt")))
+        retainingMirror.putMetadata(unwatched.file("b.txt").path, Stub(FileMetadataSnapshot))
+
+        when:
+        retainingMirror.getSnapshot(watched.file("a.txt").path)
+        retainingMirror.getSnapshot(watched.file("missing.txt").path)
+        def result = retainingMirror.beforeBuildFinished()
+
+        then:
+        retainingMirror.getSnapshot(watched.file("a.txt").path) != null
+        retainingMirror.getSnapshot(unwatched.file("b.txt").path) == null
+        retainingMirror.getMetadata(unwatched.file("b.txt").path) == null
+        result.snapshotHits == 1
+        result.snapshotMisses == 1
+        result.retainedSnapshots == 1
+        result.retainedMetadata == 0
+
+        when:
+        retainingMirror.invalidate([watched.file("a.txt").path])
+
+        then:
+        retainingMirror.getSnapshot(watched.path) == null
+    }
+
+    private static DirectorySnapshot directory(File dir, FileSystemLocationSnapshot... children) {
+        return new DirectorySnapshot(dir.path, dir.name, children as List, HashCode.fromInt(dir.path.hashCode()))
+    }
+
+    private static RegularFileSnapshot regularFile(File file) {
+        return new RegularFileSnapshot(file.path, file.name, HashCode.fromInt(file.path.hashCode()), 0)
+    }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl
+
+import org.apache.tools.ant.DirectoryScanner
+import org.gradle.api.GradleException
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.tasks.util.PatternSet
+import org.gradle.internal.MutableBoolean
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
+
+class ParallelDirectorySnapshotterTest extends DirectorySnapshotterTest {
+    def sequentialSnapshotter = new DirectorySnapshotter(fileHasher, TestFiles.fileSystem(), new StringInterner(), DirectoryScanner.getDefaultExcludes())
+
+    def setup() {
+        directorySnapshotter = new ParallelDirectorySnapshotter(4, fileHasher, TestFiles.fileSystem(), new StringInterner(), DirectoryScanner.getDefaultExcludes())
+    }
+
+    def cleanup() {
+        directorySnapshotter.stop()
+    }
+
+    def "produces the same snapshot as the sequential walker"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        10.times { dir ->
+            100.times { file ->
+                rootDir.file("dir$dir/sub${file % 3}/file${file}.txt").text = "content $dir $file"
+            }
+        }
+        rootDir.file("empty").createDir()
+        rootDir.file(".git/ignored").createFile()
+
+        def patterns = new PatternSet()
+        patterns.exclude("dir1/**")
+
+        expect:
+        snapshot(directorySnapshotter, rootDir.absolutePath, null) == snapshot(sequentialSnapshotter, rootDir.absolutePath, null)
+        snapshot(directorySnapshotter, rootDir.absolutePath, patterns) == snapshot(sequentialSnapshotter, rootDir.absolutePath, patterns)
+        snapshot(directorySnapshotter, rootDir.file("dir2/sub0/file0.txt").absolutePath, null) == snapshot(sequentialSnapshotter, rootDir.file("dir2/sub0/file0.txt").absolutePath, null)
+    }
+
+    @Requires(TestPrecondition.SYMLINKS)
+    def "ignores file system loops"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        rootDir.file("a/b/c.txt").createFile()
+        rootDir.file("a/b/loop").createLink(rootDir.file("a"))
+
+        expect:
+        snapshot(directorySnapshotter, rootDir.absolutePath, null) == snapshot(sequentialSnapshotter, rootDir.absolutePath, null)
+    }
+
+    @Requires(TestPrecondition.SYMLINKS)
+    def "fails on broken symbolic links"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        rootDir.file("a/b/c.txt").createFile()
+        def brokenLink = rootDir.file("a/broken")
+        brokenLink.createLink(rootDir.file("missing"))
+
+        when:
+        directorySnapshotter.snapshot(rootDir.absolutePath, null, new MutableBoolean())
+
+        then:
+        def e = thrown(GradleException)
+        e.message == "Could not list contents of '${brokenLink.absolutePath}'. Couldn't follow symbolic link."
+    }
+
+    private static List<String> snapshot(DirectorySnapshotter snapshotter, String path, PatternSet patterns) {
+        def filtered = new MutableBoolean()
+        def root = snapshotter.snapshot(path, patterns, filtered)
+        def visited = ["filtered: ${filtered.get()}", "hash: ${root.hash}"]
+        root.accept(new RelativePathTrackingVisitor() {
+            @Override
+            void visit(String absolutePath, Deque<String> relativePath) {
+                visited << relativePath.join("/")
+            }
+        })
+        return visited*.toString()
+    }
+}